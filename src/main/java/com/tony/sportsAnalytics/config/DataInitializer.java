@@ -1,52 +1,51 @@
 package com.tony.sportsAnalytics.config;
 
-import com.tony.sportsAnalytics.model.League;
-import com.tony.sportsAnalytics.repository.LeagueRepository;
 import com.tony.sportsAnalytics.repository.MatchAnalysisRepository;
 import com.tony.sportsAnalytics.service.DataImportService;
+import com.tony.sportsAnalytics.service.LeagueRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
-import java.util.Arrays;
-import java.util.List;
+import java.nio.file.Path;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class DataInitializer implements CommandLineRunner {
 
-    private final LeagueRepository leagueRepository;
+    private final LeagueRegistry leagueRegistry;
     private final MatchAnalysisRepository matchRepository;
     private final DataImportService dataImportService;
 
+    // Répertoire ou zip de fichiers football-data : amorçage sans réseau (staging isolé, benchmarks reproductibles)
+    @Value("${import.archive.path:}")
+    private String archivePath;
+
+    // Chargement COPY (rapide, sans prédictions) plutôt que le chemin JPA pour l'amorçage depuis l'archive
+    @Value("${import.archive.copy:false}")
+    private boolean archiveCopy;
+
     @Override
     public void run(String... args) {
         log.info("🏁 Démarrage du DataInitializer...");
 
-        // 1. Initialisation des Ligues (Référentiel)
-        if (leagueRepository.count() == 0) {
-            log.info("🌱 Base vide : Création des 5 Ligues...");
-            List<League> big5 = Arrays.asList(
-                    new League("Premier League", "England", "gb-eng"),
-                    new League("Ligue 1", "France", "fr"),
-                    new League("La Liga", "Spain", "es"),
-                    new League("Serie A", "Italy", "it"),
-                    new League("Bundesliga", "Germany", "de")
-            );
-            leagueRepository.saveAll(big5);
-            log.info("✅ Ligues créées.");
-        }
+        // 1. Initialisation des Ligues (Référentiel : LeagueRegistry, fichier de ligues + base)
+        int created = leagueRegistry.synchronizeLeagues();
+        if (created > 0) log.info("🌱 {} ligues créées depuis le registre.", created);
 
         // 2. Initialisation de l'Historique des Matchs (Lourd)
         // On ne le fait QUE s'il n'y a aucun match en base.
         if (matchRepository.count() == 0) {
-            log.info("📜 Aucun match détecté. Lancement de l'import historique MASSIF (Saisons 2021-2025)...");
-            log.info("☕ Prenez un café, cela peut prendre 1 à 2 minutes.");
+            log.info("📜 Aucun match détecté. Lancement de l'import historique MASSIF (toutes les ligues du registre)...");
+            log.info("☕ Prenez un café, cela peut prendre plusieurs minutes.");
 
             try {
-                String report = dataImportService.importFullHistory();
+                String report = archivePath.isBlank()
+                        ? dataImportService.importFullHistory()
+                        : dataImportService.importLocalArchive(Path.of(archivePath), true, archiveCopy);
                 log.info(report);
             } catch (Exception e) {
                 log.error("❌ Erreur critique lors de l'initialisation des données", e);
@@ -56,9 +55,11 @@ public class DataInitializer implements CommandLineRunner {
         }
 
         // 3. (Optionnel) Mise à jour des futurs matchs au démarrage
-        // Pour être sûr d'avoir les cotes du jour même après un restart
-        log.info("🔮 Vérification des matchs à venir...");
-        dataImportService.importUpcomingFixtures();
+        // Pour être sûr d'avoir les cotes du jour même après un restart (sauf en mode hors-ligne)
+        if (archivePath.isBlank()) {
+            log.info("🔮 Vérification des matchs à venir...");
+            dataImportService.importUpcomingFixtures();
+        }
 
         log.info("🚀 Application prête !");
     }
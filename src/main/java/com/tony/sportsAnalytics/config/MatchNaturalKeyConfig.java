@@ -0,0 +1,78 @@
+package com.tony.sportsAnalytics.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Clé naturelle des matchs (domicile, extérieur, jour du coup d'envoi), cible des upserts d'import.
+ * Les bases existantes sont mises à niveau au démarrage, avant le premier import (exécuté avant DataInitializer) :
+ * colonne kickoff_date renseignée, doublons fusionnés, puis index unique.
+ */
+@Configuration
+@Slf4j
+public class MatchNaturalKeyConfig {
+
+    private static final String NATURAL_KEY_INDEX = "uk_match_natural_key";
+
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public CommandLineRunner enforceMatchNaturalKey(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        return args -> {
+            try {
+                transactionTemplate.executeWithoutResult(tx -> {
+                    jdbcTemplate.execute("ALTER TABLE match_analysis ADD COLUMN IF NOT EXISTS kickoff_date date");
+                    int backfilled = jdbcTemplate.update("UPDATE match_analysis SET kickoff_date = match_date::date " +
+                            "WHERE kickoff_date IS DISTINCT FROM match_date::date");
+                    if (backfilled > 0) log.info("🗓️ kickoff_date renseignée pour {} matchs", backfilled);
+
+                    int removed = mergeDuplicates(jdbcTemplate);
+                    if (removed > 0) log.warn("🧹 {} doublons (même affiche, même jour) fusionnés avant la pose de la clé naturelle", removed);
+
+                    jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + NATURAL_KEY_INDEX +
+                            " ON match_analysis (home_team_id, away_team_id, kickoff_date)");
+                });
+            } catch (Exception e) {
+                log.warn("⚠️ Clé naturelle des matchs non appliquée : {}", e.getMessage());
+            }
+        };
+    }
+
+    /**
+     * Garde un match par clé : celui qui a un score, sinon le plus récent. Les événements des doublons
+     * sont rattachés au match conservé, leurs cotes et insights de prédiction supprimés.
+     */
+    private static int mergeDuplicates(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TEMP TABLE match_duplicates ON COMMIT DROP AS " +
+                "SELECT id, keep_id FROM (" +
+                "  SELECT id, first_value(id) OVER (PARTITION BY home_team_id, away_team_id, kickoff_date " +
+                "    ORDER BY (home_score IS NOT NULL) DESC, id DESC) AS keep_id FROM match_analysis " +
+                "  WHERE kickoff_date IS NOT NULL) d WHERE id <> keep_id");
+        Integer duplicates = jdbcTemplate.queryForObject("SELECT count(*) FROM match_duplicates", Integer.class);
+        if (duplicates == null || duplicates == 0) return 0;
+
+        if (tableExists(jdbcTemplate, "match_event")) {
+            jdbcTemplate.update("UPDATE match_event e SET match_id = d.keep_id FROM match_duplicates d WHERE e.match_id = d.id");
+        }
+        if (tableExists(jdbcTemplate, "match_odds")) {
+            jdbcTemplate.update("DELETE FROM match_odds WHERE match_id IN (SELECT id FROM match_duplicates)");
+        }
+        // Écarts rejoués sur l'état du doublon : inutilisables pour le match conservé, qui garde son propre historique
+        if (tableExists(jdbcTemplate, "match_odds_history")) {
+            jdbcTemplate.update("DELETE FROM match_odds_history WHERE match_id IN (SELECT id FROM match_duplicates)");
+        }
+        if (tableExists(jdbcTemplate, "prediction_insights")) {
+            jdbcTemplate.update("DELETE FROM prediction_insights WHERE match_analysis_id IN (SELECT id FROM match_duplicates)");
+        }
+        return jdbcTemplate.update("DELETE FROM match_analysis WHERE id IN (SELECT id FROM match_duplicates)");
+    }
+
+    private static boolean tableExists(JdbcTemplate jdbcTemplate, String table) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table));
+    }
+}
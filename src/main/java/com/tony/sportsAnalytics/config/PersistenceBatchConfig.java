@@ -0,0 +1,71 @@
+package com.tony.sportsAnalytics.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+
+/**
+ * Écritures JDBC groupées pour les imports : batch d'inserts/updates ordonnés par table,
+ * et statistiques Hibernate pour mesurer le nombre d'allers-retours base par import.
+ */
+@Configuration
+@Slf4j
+public class PersistenceBatchConfig {
+
+    // Doit rester cohérent avec l'allocationSize des @SequenceGenerator
+    private static final int SEQUENCE_ALLOCATION_SIZE = 50;
+
+    // Table -> séquence (anciennement des colonnes IDENTITY)
+    private static final Map<String, String> SEQUENCES = Map.of(
+            "league", "league_seq",
+            "team", "team_seq",
+            "match_analysis", "match_analysis_seq",
+            "match_odds_history", "match_odds_history_seq"
+    );
+
+    @Value("${import.jdbc.batch-size:50}")
+    private int batchSize;
+
+    @Value("${import.jdbc.statistics:true}")
+    private boolean statistics;
+
+    @Bean
+    public HibernatePropertiesCustomizer batchWritesCustomizer() {
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", batchSize);
+            properties.putIfAbsent("hibernate.order_inserts", true);
+            properties.putIfAbsent("hibernate.order_updates", true);
+            properties.putIfAbsent("hibernate.jdbc.batch_versioned_data", true);
+            properties.putIfAbsent("hibernate.generate_statistics", statistics);
+        };
+    }
+
+    /**
+     * Les bases créées avant le passage aux séquences contiennent déjà des ids : on place chaque séquence
+     * au-delà du max existant avant le premier insert (exécuté avant DataInitializer).
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public CommandLineRunner alignSequences(JdbcTemplate jdbcTemplate) {
+        return args -> SEQUENCES.forEach((table, sequence) -> {
+            try {
+                Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+                Long lastValue = jdbcTemplate.queryForObject("SELECT last_value FROM " + sequence, Long.class);
+                if (maxId != null && lastValue != null && lastValue <= maxId) {
+                    jdbcTemplate.queryForObject("SELECT setval(?, ?)", Long.class, sequence, maxId + SEQUENCE_ALLOCATION_SIZE);
+                    log.info("🔢 Séquence {} alignée au-delà de l'id max de {} ({})", sequence, table, maxId);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ Alignement de la séquence {} impossible : {}", sequence, e.getMessage());
+            }
+        });
+    }
+}
@@ -1,7 +1,6 @@
 package com.tony.sportsAnalytics.controller;
 
 import com.tony.sportsAnalytics.job.DailyUpdateJob;
-import com.tony.sportsAnalytics.model.League;
 import com.tony.sportsAnalytics.model.MatchAnalysis;
 import com.tony.sportsAnalytics.model.Team;
 import com.tony.sportsAnalytics.repository.LeagueRepository;
@@ -14,6 +13,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -29,11 +30,18 @@ public class AdminController {
     private final BacktestingService backtestingService;
     private final MatchAnalysisService matchAnalysisService;
     private final ParameterEstimationService parameterEstimationService;
+    private final HyperparameterSearchService hyperparameterSearchService;
+    private final ModelSnapshotService snapshotService;
     private final AnalysisOrchestrator orchestrator;
     private final TeamRepository teamRepository;
     private final LeagueRepository leagueRepository;
     private final TeamStatsService teamStatsService;
     private final RankingService rankingService;
+    private final ImportPipelineMetrics pipelineMetrics;
+    private final LeagueRegistry leagueRegistry;
+    private final InboxIngestionService inboxService;
+    private final FixtureReconciliationService reconciliationService;
+    private final OutboundHttpClient httpClient;
 
     // 1. Récupérer la liste des codes dispos (PL, L1...) pour le dropdown
     @GetMapping("/leagues-codes")
@@ -61,12 +69,84 @@ public class AdminController {
 
         String report = importService.importAllLeagues(forceUpdate);
 
-        // ✅ On recalcule UNE SEULE FOIS à la fin de l'import des 5 ligues (Énorme gain de perf !)
+        // ✅ On recalcule UNE SEULE FOIS à la fin de l'import de toutes les ligues (Énorme gain de perf !)
         orchestrator.refreshUpcomingPredictions();
 
         return ResponseEntity.ok(report + "\nPrédictions mises à jour.");
     }
 
+    /**
+     * Import hors-ligne d'un répertoire ou d'un zip de saisons football-data présent sur le serveur.
+     * Exemple : POST /api/v1/admin/import/archive?path=/data/football-data.zip&copy=true
+     * Le rapport donne le débit (lignes/s) : même archive en copy=false / copy=true pour comparer JPA et COPY.
+     */
+    @PostMapping("/import/archive")
+    public ResponseEntity<String> importArchive(
+            @RequestParam String path,
+            @RequestParam(defaultValue = "true") boolean forceUpdate,
+            @RequestParam(defaultValue = "false") boolean copy) {
+        if (!Files.exists(Path.of(path))) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Archive introuvable : " + path);
+        }
+        String report = importService.importLocalArchive(Path.of(path), forceUpdate, copy);
+        orchestrator.refreshUpcomingPredictions();
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Débit et profondeur de file de chaque étage du pipeline d'import, cumulés depuis le démarrage (ou le dernier reset).
+     * L'étage le plus chargé (busyMs) est le goulot : c'est lui qu'il faut paralléliser ou alléger.
+     */
+    @GetMapping("/import/metrics")
+    public ResponseEntity<List<ImportPipelineMetrics.StageSnapshot>> importMetrics() {
+        return ResponseEntity.ok(pipelineMetrics.snapshot());
+    }
+
+    @DeleteMapping("/import/metrics")
+    public ResponseEntity<Void> resetImportMetrics() {
+        pipelineMetrics.reset();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Appels sortants par hôte (football-data, ScraperAPI, météo) : latence moyenne / p50 / p95 / max,
+     * nouvelles tentatives, échecs, requêtes en cours face à la limite de l'hôte.
+     */
+    @GetMapping("/http/metrics")
+    public ResponseEntity<List<OutboundHttpClient.HostSnapshot>> httpMetrics() {
+        return ResponseEntity.ok(httpClient.snapshot());
+    }
+
+    @DeleteMapping("/http/metrics")
+    public ResponseEntity<Void> resetHttpMetrics() {
+        httpClient.resetMetrics();
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Dossier d'entrée (import.inbox.dir) : débit, retard (octets restant à lire, délai écriture -> intégration)
+     * et avancement de chaque fichier.
+     */
+    @GetMapping("/inbox")
+    public ResponseEntity<InboxIngestionService.InboxSnapshot> inboxStatus() {
+        return ResponseEntity.ok(inboxService.snapshot());
+    }
+
+    // Repasse sur tous les fichiers du dossier (chacun repris à son octet enregistré)
+    @PostMapping("/inbox/scan")
+    public ResponseEntity<InboxIngestionService.InboxSnapshot> scanInbox() {
+        return ResponseEntity.ok(inboxService.scan());
+    }
+
+    /**
+     * Archive les fixtures fantômes (reportées, jouées à une autre date, périmées) en une passe SQL.
+     * Le rapport donne aussi le nombre de matchs à venir que les re-pricings ignorent désormais.
+     */
+    @PostMapping("/fixtures/reconcile")
+    public ResponseEntity<FixtureReconciliationService.ReconciliationReport> reconcileFixtures() {
+        return ResponseEntity.ok(reconciliationService.reconcile());
+    }
+
     /**
      * Endpoint pour lancer le backtesting sur une période donnée.
      * Exemple : POST /api/admin/backtest?from=2025-08-01&to=2026-02-01
@@ -90,11 +170,73 @@ public class AdminController {
     }
 
     @PostMapping("/estimate/{leagueId}")
-    public ResponseEntity<String> estimateParams(@PathVariable String leagueId) {
+    public ResponseEntity<String> estimateParams(
+            @PathVariable String leagueId,
+            @RequestParam(defaultValue = "false") boolean fullRefit) {
         log.info("🧮 Lancement de l'estimation des forces (Alpha/Beta) pour la ligue {}", leagueId);
-        // Appel à la nouvelle méthode créée
-        parameterEstimationService.runEstimationForLeague(leagueId);
-        return ResponseEntity.ok("Estimation des paramètres lancée ! Vérifiez les logs.");
+        ParameterEstimationService.FitReport report = parameterEstimationService.runEstimationForLeague(leagueId, fullRefit);
+        if (report == null) return ResponseEntity.ok("Aucun match terminé pour cette ligue, estimation ignorée.");
+        ModelSnapshotService.SnapshotInfo snapshot = snapshotService.exportSnapshot();
+        return ResponseEntity.ok(String.format("Estimation %s terminée : %d itérations, %d évaluations, %d ms (snapshot #%d).",
+                report.mode(), report.iterations(), report.evaluations(), report.wallTimeMs(), snapshot.id()));
+    }
+
+    /**
+     * Intervalles de confiance bootstrap sur les forces Alpha/Beta et Rho d'une ligue.
+     * Exemple : POST /api/v1/admin/estimate/1/bootstrap?samples=200
+     */
+    @PostMapping("/estimate/{leagueId}/bootstrap")
+    public ResponseEntity<String> bootstrapParams(
+            @PathVariable String leagueId,
+            @RequestParam(defaultValue = "200") int samples) {
+        log.info("🎲 Lancement du bootstrap (B={}) pour la ligue {}", samples, leagueId);
+        ParameterEstimationService.BootstrapReport report = parameterEstimationService.runBootstrapForLeague(leagueId, samples);
+        if (report == null) return ResponseEntity.ok("Aucun match terminé pour cette ligue, bootstrap ignoré.");
+        return ResponseEntity.ok(String.format("Bootstrap terminé : %d/%d échantillons convergés (%d non convergés) en %d ms%s.",
+                report.convergedSamples(), report.requestedSamples(), report.failedSamples(), report.wallTimeMs(),
+                report.stored() ? "" : ", intervalles non enregistrés (trop d'échantillons non convergés)"));
+    }
+
+    /**
+     * Recherche des meilleurs hyperparamètres (XI, forme, H2H, K Elo, poids Poisson, ancrage marché) d'une ligue.
+     * Exemple : POST /api/v1/admin/tune/1?candidates=64
+     */
+    @PostMapping("/tune/{leagueId}")
+    public ResponseEntity<String> tuneHyperparameters(
+            @PathVariable Long leagueId,
+            @RequestParam(defaultValue = "64") int candidates) {
+        log.info("🔍 Recherche d'hyperparamètres ({} candidats) pour la ligue {}", candidates, leagueId);
+        HyperparameterSearchService.SearchReport report = hyperparameterSearchService.searchForLeague(leagueId, candidates);
+        if (report == null) return ResponseEntity.ok("Pas assez de matchs terminés pour cette ligue, recherche ignorée.");
+        return ResponseEntity.ok(String.format("%s : log-loss %.4f -> %.4f, Brier %.4f -> %.4f (%s, %d paliers, %d ms).",
+                report.league(), report.baseline().logLoss(), report.best().logLoss(),
+                report.baseline().brierScore(), report.best().brierScore(),
+                report.applied() ? "réglages appliqués" : "réglages actuels conservés", report.rungs(), report.wallTimeMs()));
+    }
+
+    // Snapshots binaires du modèle (forces, Elo, paramètres de ligue, calibration)
+    @GetMapping("/snapshots")
+    public ResponseEntity<List<ModelSnapshotService.SnapshotInfo>> listSnapshots() {
+        return ResponseEntity.ok(snapshotService.listSnapshots());
+    }
+
+    @PostMapping("/snapshots")
+    public ResponseEntity<ModelSnapshotService.SnapshotInfo> exportSnapshot() {
+        return ResponseEntity.ok(snapshotService.exportSnapshot());
+    }
+
+    /**
+     * Retour à un état antérieur du modèle après un mauvais fit.
+     * Exemple : POST /api/v1/admin/snapshots/12/rollback
+     */
+    @PostMapping("/snapshots/{id}/rollback")
+    public ResponseEntity<?> rollbackSnapshot(@PathVariable long id) {
+        log.info("⏪ Rollback du modèle vers le snapshot #{}", id);
+        try {
+            return ResponseEntity.ok(snapshotService.rollbackTo(id));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
@@ -120,18 +262,26 @@ public class AdminController {
 
     @PostMapping("/recalculate-all")
     public ResponseEntity<?> recalculateAllDatabase() {
-        // 1. Recalculer toutes les statistiques individuelles (Dom/Ext inclus)
-        List<Team> allTeams = teamRepository.findAll();
-        for (Team team : allTeams) {
-            teamStatsService.recalculateTeamStats(team.getId());
-        }
-
-        // 2. Mettre à jour tous les classements (Général, Dom, Ext)
-        List<League> allLeagues = leagueRepository.findAll();
-        for (League league : allLeagues) {
+        // Une ligue par thread : statistiques individuelles (Dom/Ext inclus) de ses équipes, puis ses classements
+        leagueRegistry.runPerLeague(leagueRepository.findAll(), league -> {
+            for (Team team : teamRepository.findByLeagueId(league.getId())) {
+                teamStatsService.recalculateTeamStats(team.getId());
+            }
             rankingService.updateLeagueRankings(league.getId());
-        }
+            return league.getName();
+        });
 
         return ResponseEntity.ok(java.util.Map.of("message", "Base de données entièrement recalculée avec succès !"));
     }
+
+    // Registre des ligues importées (fichier de ligues + base), relu sans redémarrage
+    @GetMapping("/leagues/registry")
+    public ResponseEntity<List<LeagueRegistry.LeagueDefinition>> getLeagueRegistry() {
+        return ResponseEntity.ok(leagueRegistry.leagues());
+    }
+
+    @PostMapping("/leagues/registry/reload")
+    public ResponseEntity<List<LeagueRegistry.LeagueDefinition>> reloadLeagueRegistry() {
+        return ResponseEntity.ok(leagueRegistry.reload());
+    }
 }
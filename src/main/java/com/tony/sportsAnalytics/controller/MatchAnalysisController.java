@@ -1,10 +1,14 @@
 package com.tony.sportsAnalytics.controller;
 
 import com.tony.sportsAnalytics.model.MatchAnalysis;
+import com.tony.sportsAnalytics.model.MatchOddsHistory;
 import com.tony.sportsAnalytics.model.dto.DashboardStats;
 import com.tony.sportsAnalytics.model.dto.MatchAnalysisRequest;
 import com.tony.sportsAnalytics.repository.MatchAnalysisRepository;
+import com.tony.sportsAnalytics.repository.MatchOddsHistoryRepository;
+import com.tony.sportsAnalytics.repository.MatchOddsRepository;
 import com.tony.sportsAnalytics.service.DashboardService;
+import com.tony.sportsAnalytics.service.MarketOdds;
 import com.tony.sportsAnalytics.service.MatchAnalysisService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -13,7 +17,10 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/v1/analyses")
@@ -22,6 +29,8 @@ public class MatchAnalysisController {
     private final MatchAnalysisService matchAnalysisService;
     private final DashboardService dashboardService;
     private final MatchAnalysisRepository repository;
+    private final MatchOddsRepository oddsRepository;
+    private final MatchOddsHistoryRepository oddsHistoryRepository;
 
     @GetMapping
     public ResponseEntity<List<MatchAnalysis>> getAllAnalyses() {
@@ -57,6 +66,32 @@ public class MatchAnalysisController {
                 .orElse(ResponseEntity.notFound().build());
     }
 
+    // Cotes de toutes les sources (Bet365, Pinnacle, max, moyenne) et consensus sans marge
+    @GetMapping("/{id}/odds")
+    public ResponseEntity<Map<String, Object>> getOdds(@PathVariable Long id) {
+        return oddsRepository.findById(id)
+                .map(odds -> ResponseEntity.ok(odds.decode().describe()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Mouvement des cotes : chaque relevé (date + cotes complètes, écarts rejoués dans l'ordre)
+    @GetMapping("/{id}/odds/history")
+    public ResponseEntity<List<Map<String, Object>>> getOddsHistory(@PathVariable Long id) {
+        List<MatchOddsHistory> entries = oddsHistoryRepository.findByMatchIdOrderByIdAsc(id);
+        if (entries.isEmpty()) return ResponseEntity.notFound().build();
+
+        List<Map<String, Object>> series = new ArrayList<>(entries.size());
+        MarketOdds state = null;
+        for (MatchOddsHistory entry : entries) {
+            state = MarketOdds.replay(state, entry.getPayload());
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("capturedAt", entry.getCapturedAt());
+            point.putAll(state.describe());
+            series.add(point);
+        }
+        return ResponseEntity.ok(series);
+    }
+
     @GetMapping("/upcoming")
     public ResponseEntity<List<MatchAnalysis>> getUpcomingMatches() {
         LocalDateTime todayMidnight = LocalDate.now().atStartOfDay();
@@ -1,18 +1,20 @@
 package com.tony.sportsAnalytics.job;
 
-import com.tony.sportsAnalytics.model.MatchAnalysis;
-import com.tony.sportsAnalytics.model.Team;
-import com.tony.sportsAnalytics.repository.MatchAnalysisRepository;
-import com.tony.sportsAnalytics.repository.TeamRepository;
+import com.tony.sportsAnalytics.model.League;
+import com.tony.sportsAnalytics.repository.LeagueRepository;
 import com.tony.sportsAnalytics.service.AnalysisOrchestrator;
+import com.tony.sportsAnalytics.service.CalibrationService;
 import com.tony.sportsAnalytics.service.DataImportService;
+import com.tony.sportsAnalytics.service.FixtureReconciliationService;
+import com.tony.sportsAnalytics.service.LeagueRegistry;
+import com.tony.sportsAnalytics.service.ModelSnapshotService;
 import com.tony.sportsAnalytics.service.ParameterEstimationService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
+import java.util.Map;
 
 @Component
 @RequiredArgsConstructor
@@ -21,8 +23,11 @@ import java.util.List;
 
     private final DataImportService dataImportService;
     private final ParameterEstimationService estimationService;
-    private final MatchAnalysisRepository matchRepository;
-    private final TeamRepository teamRepository;
+    private final LeagueRepository leagueRepository;
+    private final LeagueRegistry leagueRegistry;
+    private final CalibrationService calibrationService;
+    private final ModelSnapshotService snapshotService;
+    private final FixtureReconciliationService reconciliationService;
 
     private final AnalysisOrchestrator orchestrator;
 
@@ -39,13 +44,9 @@ import java.util.List;
             // Grâce à notre "Smart Update", cela va :
             // 1. Ignorer les matchs déjà complets.
             // 2. Mettre à jour les matchs qui étaient "À venir" et qui ont maintenant un score.
-
-            // Note : Pour optimiser, on pourrait n'appeler que importLeagueData pour chaque ligue,
-            // mais importAllLeagues est plus simple et robuste.
-            for (String leagueCode : dataImportService.getAvailableLeagues()) {
-                String report = dataImportService.importLeagueData(leagueCode, false);
-                log.info("   -> {}", report);
-            }
+            // Téléchargements et persistance des ligues du registre en parallèle (une ligue par thread).
+            String report = dataImportService.importCurrentSeason(false);
+            log.info("   -> {}", report);
             log.info("✅ [CRON] Résultats mis à jour avec succès.");
         } catch (Exception e) {
             log.error("❌ [CRON] Echec de la mise à jour des résultats", e);
@@ -55,7 +56,10 @@ import java.util.List;
     /**
      * JOB 2 : Import des MATCHS À VENIR (Cotes & Calendrier)
      * Fréquence : Tous les jours à 09:30 (juste après les résultats)
-     * Et aussi le Vendredi à 18:00 pour les dernières cotes du week-end.
+     * Et aussi le Vendredi à 18:00 pour les dernières cotes du week-end :
+     * seules les fixtures dont les cotes ont bougé au-delà du seuil sont re-prédites.
+     * Suivi de la réconciliation : les fixtures reportées, doublonnées ou périmées sont archivées
+     * avant le re-pricing de 09:45.
      */
     @Scheduled(cron = "0 30 9 * * *")
     @Scheduled(cron = "0 0 18 * * FRI")
@@ -68,17 +72,44 @@ import java.util.List;
         } catch (Exception e) {
             log.error("❌ [CRON] Echec import fixtures", e);
         }
+        try {
+            log.info("   -> {}", reconciliationService.reconcile());
+        } catch (Exception e) {
+            log.error("❌ [CRON] Echec de la réconciliation des fixtures", e);
+        }
     }
 
     @Scheduled(cron = "0 45 9 * * *") // 15 min après l'import des résultats
     public void recalibrateModel() {
         log.info("📊 Recalibrage du modèle Dixon-Coles...");
 
-        List<MatchAnalysis> historicalMatches = matchRepository.findAll();
-        List<Team> allTeams = teamRepository.findAll();
+        // Un fit par ligue, plusieurs ligues en parallèle : warm start depuis les paramètres d'hier,
+        // incrémental si peu de nouveaux résultats
+        Map<League, Long> fitMs = leagueRegistry.runPerLeague(leagueRepository.findAll(), league -> {
+            try {
+                ParameterEstimationService.FitReport report = estimationService.runEstimationForLeague(String.valueOf(league.getId()));
+                return report != null ? report.wallTimeMs() : 0L;
+            } catch (Exception e) {
+                log.error("❌ Echec de l'estimation pour la ligue {}", league.getName(), e);
+                return 0L;
+            }
+        });
+        long totalFitMs = fitMs.values().stream().mapToLong(Long::longValue).sum();
+        log.info("✅ Paramètres Alpha/Beta mis à jour pour toutes les équipes ({} ms de fit au total).", totalFitMs);
+
+        // Ajustement de la calibration (Platt / Isotonique) sur les prédictions des matchs terminés
+        try {
+            calibrationService.fitAllLeagues();
+        } catch (Exception e) {
+            log.error("❌ Echec de l'ajustement de la calibration", e);
+        }
 
-        estimationService.estimateParameters(historicalMatches, allTeams);
-        log.info("✅ Paramètres Alpha/Beta mis à jour pour toutes les équipes.");
+        // Point de restauration : permet un rollback immédiat si ce fit s'avère mauvais
+        try {
+            snapshotService.exportSnapshot();
+        } catch (Exception e) {
+            log.error("❌ Echec de l'écriture du snapshot du modèle", e);
+        }
 
         // ✅ AJOUT : C'est ici qu'on applique les nouveaux calculs mathématiques sur les matchs futurs !
         log.info("🔄 Lancement du recalcul des prédictions à venir avec le nouveau modèle...");
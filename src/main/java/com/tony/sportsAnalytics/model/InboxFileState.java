@@ -0,0 +1,46 @@
+package com.tony.sportsAnalytics.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Avancement de l'ingestion d'un fichier du dossier d'entrée (cotes et fixtures d'autres sources) :
+ * octet jusqu'où le fichier a été lu et intégré, et empreinte de son début pour reconnaître un fichier
+ * remplacé ou tronqué (relu depuis le début). Permet de reprendre après un redémarrage sans relire le fichier.
+ */
+@Entity
+@Table(name = "inbox_file_state")
+@Getter @Setter @NoArgsConstructor
+public class InboxFileState {
+
+    // Nom du fichier dans le dossier d'entrée
+    @Id
+    private String fileName;
+
+    // Premier octet non encore intégré (toujours en début de ligne)
+    @Column(name = "byte_offset", nullable = false)
+    private long offset;
+
+    // SHA-256 des premiers octets du fichier (au plus InboxIngestionService.HEAD_CHECKSUM_BYTES)
+    @Column(length = 64)
+    private String headChecksum;
+
+    // En-tête CSV, gardé pour décoder les lignes ajoutées ensuite (null pour le NDJSON)
+    @Column(length = 4000)
+    private String header;
+
+    private long rowsIngested;
+
+    private LocalDateTime updatedAt;
+
+    public InboxFileState(String fileName) {
+        this.fileName = fileName;
+    }
+}
@@ -1,15 +1,19 @@
 package com.tony.sportsAnalytics.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Data
 @NoArgsConstructor
 public class League {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "league_seq")
+    @SequenceGenerator(name = "league_seq", sequenceName = "league_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -20,6 +24,10 @@ public class League {
     // Code ISO pour le drapeau (ex: "fr", "gb", "es")
     private String countryCode;
 
+    // Division football-data (ex: "E0", "SP1") : rattache la ligue au registre d'import (LeagueRegistry)
+    @Column(unique = true)
+    private String divisionCode;
+
     // --- PARAMÈTRES ALGORITHMIQUES (DYNAMIQUES) ---
 
     // Poids de la fusion (ex: 0.55 pour Poisson, le reste pour Elo)
@@ -33,6 +41,14 @@ public class League {
     @Column(nullable = false, columnDefinition = "double precision default 4.2")
     private Double calibrationB = 4.2;
 
+    // Calibration ajustée (CalibrationService) : table compacte de 101 points quantifiés sur 16 bits
+    @JsonIgnore
+    @Column(columnDefinition = "bytea")
+    private byte[] calibrationTable;
+    private String calibrationMethod; // PLATT / ISOTONIC
+    private Integer calibrationSamples;
+    private LocalDateTime calibrationFittedAt;
+
     // Facteur d'ancrage au marché (0.30 = on fait confiance à 30% aux bookmakers)
     @Column(nullable = false, columnDefinition = "double precision default 0.30")
     private Double marketAnchorWeight = 0.30;
@@ -48,6 +64,33 @@ public class League {
     @Column(nullable = false, columnDefinition = "double precision default 1.35")
     private Double averageGoalsPerTeam = 1.35;
 
+    // --- HYPERPARAMÈTRES (optimisés par HyperparameterSearchService) ---
+    // Décroissance temporelle du MLE Dixon-Coles (par jour)
+    @Column(nullable = false, columnDefinition = "double precision default 0.0019")
+    private Double timeDecayXi = 0.0019;
+
+    // Constante de temps (jours) de l'analyse de forme
+    @Column(nullable = false, columnDefinition = "double precision default 60.0")
+    private Double formDecayDays = 60.0;
+
+    @Column(nullable = false, columnDefinition = "double precision default 0.08")
+    private Double weightH2H = 0.08;
+
+    @Column(nullable = false, columnDefinition = "integer default 30")
+    private Integer eloKFactor = 30;
+
+    private LocalDateTime hyperparametersTunedAt;
+    private Double tunedLogLoss;
+    private Double tunedBrierScore;
+
+    // Intervalles de confiance bootstrap (IC 95%)
+    private Double rhoLow;
+    private Double rhoHigh;
+    private Double homeAdvantageLow;
+    private Double homeAdvantageHigh;
+    private Integer bootstrapSamples;
+    private LocalDateTime bootstrapAt;
+
     // --- Stats Globales Saison ---
     private Double averageGoalsPerMatch; // Ex: 2.85
     private Double percentHomeWin;       // Ex: 45.0
@@ -56,6 +99,15 @@ public class League {
     private Double percentOver2_5;       // Ex: 55.0
     private Double percentBTTS;          // Ex: 52.0
 
+    // --- Suivi des Estimations Dixon-Coles (coût du fit quotidien) ---
+    private LocalDateTime lastFitAt;
+    private LocalDateTime lastFullFitAt;
+    private Integer lastFitMatchCount;   // Nb de matchs terminés lors du dernier fit
+    private String lastFitMode;          // FULL / INCREMENTAL
+    private Integer lastFitIterations;
+    private Integer lastFitEvaluations;
+    private Long lastFitDurationMs;
+
     public League(String name) {
         this.name = name;
     }
@@ -2,16 +2,24 @@ package com.tony.sportsAnalytics.model;
 
 import jakarta.persistence.*;
 import jakarta.validation.Valid;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Setter;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "match_analysis")
+// Clé naturelle d'un match : cible des upserts d'import (INSERT ... ON CONFLICT), un seul match par affiche et par jour
+@Table(name = "match_analysis", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_match_natural_key", columnNames = {"home_team_id", "away_team_id", "kickoff_date"})
+})
 @Data
 public class MatchAnalysis {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Séquence "pooled" (50 ids par appel) : indispensable au batching JDBC des inserts, impossible en IDENTITY
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "match_analysis_seq")
+    @SequenceGenerator(name = "match_analysis_seq", sequenceName = "match_analysis_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -25,6 +33,11 @@ public class MatchAnalysis {
     @Column(nullable = false)
     private LocalDateTime matchDate;
 
+    // Jour du coup d'envoi, dérivé de matchDate (colonne de la clé naturelle) : ne pas renseigner à la main
+    @Column(name = "kickoff_date")
+    @Setter(AccessLevel.NONE)
+    private LocalDate kickoffDate;
+
     @Column(length = 9)
     private String season;
 
@@ -174,6 +187,12 @@ public class MatchAnalysis {
     private Integer awayScoreHT;
     private Double oddsUnder25;
 
+    // Consensus 1X2 du marché sans marge (Pinnacle, moyenne du marché, Bet365), calculé une fois à l'import.
+    // Le détail des cotes par source est dans match_odds (MatchOdds)
+    private Double consensusHome;
+    private Double consensusDraw;
+    private Double consensusAway;
+
     private boolean homeKeyPlayerMissing;
     private boolean awayKeyPlayerMissing;
     private boolean homeTired;
@@ -185,6 +204,21 @@ public class MatchAnalysis {
     private Integer homeScore;
     private Integer awayScore;
 
+    // Empreinte des champs de la ligne football-data source : une ligne inchangée n'est pas réécrite à l'import
+    private Long sourceHash;
+
+    // Fixture fantôme écartée par la réconciliation (FixtureReconciliationService) : report, doublon ou date passée sans résultat.
+    // Null = match actif. Les matchs archivés restent en base (cotes, historique) mais ne sont plus prédits.
+    private LocalDateTime archivedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private ArchiveReason archiveReason;
+
+    // Match qui remplace celui-ci (nouvelle date, ou match joué), null pour une fixture périmée
+    @Column(name = "superseded_by")
+    private Long supersededById;
+
     @Column(columnDefinition = "TEXT")
     private String myNotes;
 
@@ -198,5 +232,12 @@ public class MatchAnalysis {
     @Transient
     private String awayTeamNameInput;
 
+    public void setMatchDate(LocalDateTime matchDate) {
+        this.matchDate = matchDate;
+        this.kickoffDate = (matchDate != null) ? matchDate.toLocalDate() : null;
+    }
+
+    public enum ArchiveReason { MOVED, PLAYED, STALE }
+
     // SUPPRESSION DE LA MÉTHODE applyPlayerImpact CAR LOGIQUE TRANSFÉRÉE AU SERVICE
 }
@@ -0,0 +1,36 @@
+package com.tony.sportsAnalytics.model;
+
+import com.tony.sportsAnalytics.service.MarketOdds;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cotes d'un match chez toutes les sources football-data, une ligne par match (table annexe de match_analysis).
+ * Les cotes tiennent dans un tableau encodé (MarketOdds.encode) plutôt que dans une colonne par source et marché.
+ * Écrite en SQL par les imports (MatchBulkLoader), lue par l'API.
+ */
+@Entity
+@Table(name = "match_odds")
+@Getter @Setter @NoArgsConstructor
+public class MatchOdds {
+
+    @Id
+    @Column(name = "match_id")
+    private Long matchId;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] prices;
+
+    private LocalDateTime updatedAt;
+
+    public MarketOdds decode() {
+        return MarketOdds.decode(prices);
+    }
+}
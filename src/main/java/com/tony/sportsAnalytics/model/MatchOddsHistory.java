@@ -0,0 +1,33 @@
+package com.tony.sportsAnalytics.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Historique des cotes d'un match, en ajout seul : une ligne par relevé où les cotes ont bougé.
+ * Le premier relevé est une image complète, les suivants des écarts (MarketOdds.encodeDelta) ;
+ * l'état courant reste dans match_odds (MatchOdds).
+ */
+@Entity
+@Table(name = "match_odds_history", indexes = @Index(name = "idx_match_odds_history_match", columnList = "match_id, id"))
+@Getter @Setter @NoArgsConstructor
+public class MatchOddsHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "match_odds_history_seq")
+    @SequenceGenerator(name = "match_odds_history_seq", sequenceName = "match_odds_history_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "match_id", nullable = false)
+    private Long matchId;
+
+    @Column(nullable = false)
+    private LocalDateTime capturedAt;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
+}
@@ -24,6 +24,10 @@ public class PredictionResult {
     private Double drawProbability;
     private Double awayWinProbability;
 
+    // Probabilités brutes (avant calibration), matière première de l'ajustement de la calibration
+    private Double rawHomeProbability;
+    private Double rawAwayProbability;
+
     // Power Scores & Lambdas
     private Double homePowerScore;
     private Double awayPowerScore;
@@ -58,6 +62,11 @@ public class PredictionResult {
     private String aiAnalysisPrompt;
     private Double matchVolatility;
     private Double confidenceScore;
+    // Confiance sur les paramètres Dixon-Coles (largeur des IC bootstrap, 100 = très précis)
+    private Double parameterConfidence;
+
+    // Version du Snapshot de paramètres (ModelParameterRegistry) utilisée pour ce pricing
+    private Long parameterVersion;
 
     @ElementCollection(fetch = FetchType.EAGER)
     @CollectionTable(name = "prediction_insights", joinColumns = @JoinColumn(name = "match_analysis_id"))
@@ -12,7 +12,8 @@ import lombok.Setter;
 })
 public class Team {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_seq")
+    @SequenceGenerator(name = "team_seq", sequenceName = "team_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -38,6 +39,19 @@ public class Team {
     @Column(nullable = false, columnDefinition = "double precision default 1.0")
     private Double defenseStrength = 1.0; // Beta
 
+    // Incertitude (variance sur log(Alpha) / log(Beta)) du filtre en ligne entre deux fits
+    @Column(nullable = false, columnDefinition = "double precision default 0.04")
+    private Double attackVariance = 0.04;
+
+    @Column(nullable = false, columnDefinition = "double precision default 0.04")
+    private Double defenseVariance = 0.04;
+
+    // Intervalles de confiance bootstrap (IC 95%) sur Alpha / Beta
+    private Double attackLow;
+    private Double attackHigh;
+    private Double defenseLow;
+    private Double defenseHigh;
+
     @Column(length = 255)
     private String logoUrl;
 
@@ -0,0 +1,7 @@
+package com.tony.sportsAnalytics.repository;
+
+import com.tony.sportsAnalytics.model.InboxFileState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface InboxFileStateRepository extends JpaRepository<InboxFileState, String> {
+}
@@ -8,8 +8,11 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface MatchAnalysisRepository extends JpaRepository<MatchAnalysis, Long> {
     // 1. Correction H2H avec CAST pour PostgreSQL et filtre de date
@@ -29,6 +32,15 @@ public interface MatchAnalysisRepository extends JpaRepository<MatchAnalysis, Lo
 
     List<MatchAnalysis> findByHomeTeamIdOrAwayTeamIdOrderByMatchDateDesc(Long homeId, Long awayId);
 
+    // Historique complet d'un ensemble d'équipes en une seule requête (index mémoire des prédictions par lot)
+    @Query("SELECT m FROM MatchAnalysis m JOIN FETCH m.homeTeam h JOIN FETCH m.awayTeam a " +
+            "WHERE h.id IN :teamIds OR a.id IN :teamIds")
+    List<MatchAnalysis> findAllByTeamIds(@Param("teamIds") Collection<Long> teamIds);
+
+    // Matchs d'un lot rechargés avec leurs équipes (prédictions par lot, une requête par lot)
+    @Query("SELECT m FROM MatchAnalysis m JOIN FETCH m.homeTeam JOIN FETCH m.awayTeam WHERE m.id IN :ids ORDER BY m.matchDate")
+    List<MatchAnalysis> findAllWithTeamsByIdIn(@Param("ids") Collection<Long> ids);
+
     // 2. Pour calculer les stats globales (Moyenne buts, etc.) d'une ligue sur une saison
     // Spring comprend automatiquement : Match -> HomeTeam -> League
     List<MatchAnalysis> findByHomeTeamLeagueAndSeason(League league, String season);
@@ -37,10 +49,14 @@ public interface MatchAnalysisRepository extends JpaRepository<MatchAnalysis, Lo
     // où le score n'est pas null (donc match joué), triés du plus récent au plus vieux.
     List<MatchAnalysis> findTop5ByHomeTeamIdOrAwayTeamIdAndHomeScoreIsNotNullOrderByMatchDateDesc(Long homeTeamId, Long awayTeamId);
 
-    // Récupère les matchs où le score domicile est NULL (donc non joués)
-    @Query("SELECT m FROM MatchAnalysis m WHERE m.homeScore IS NULL AND m.matchDate >= :fromDate ORDER BY m.matchDate ASC")
+    // Récupère les matchs où le score domicile est NULL (donc non joués), hors fixtures archivées par la réconciliation
+    @Query("SELECT m FROM MatchAnalysis m WHERE m.homeScore IS NULL AND m.archivedAt IS NULL AND m.matchDate >= :fromDate ORDER BY m.matchDate ASC")
     List<MatchAnalysis> findUpcomingMatches(@Param("fromDate") LocalDateTime fromDate);
 
+    // Matchs non joués à venir écartés de findUpcomingMatches parce qu'archivés (reportés, doublons)
+    @Query("SELECT count(m) FROM MatchAnalysis m WHERE m.homeScore IS NULL AND m.archivedAt IS NOT NULL AND m.matchDate >= :fromDate")
+    long countArchivedUpcoming(@Param("fromDate") LocalDateTime fromDate);
+
     @Query("SELECT m FROM MatchAnalysis m WHERE m.homeTeam.id = :homeId AND m.awayTeam.id = :awayId")
     List<MatchAnalysis> findByTeamIds(@Param("homeId") Long homeId, @Param("awayId") Long awayId);
 
@@ -62,6 +78,20 @@ public interface MatchAnalysisRepository extends JpaRepository<MatchAnalysis, Lo
     // Ajoute cette méthode dans l'interface
     List<MatchAnalysis> findByMatchDateBetweenOrderByMatchDateAsc(LocalDateTime start, LocalDateTime end);
 
+    // Clés naturelles (domicile, extérieur, jour) et ids des matchs d'une fenêtre, sans charger les entités
+    // (dédoublonnage des fixtures, suivi des cotes des fixtures déjà en base)
+    @Query("SELECT m.homeTeam.id, m.awayTeam.id, m.kickoffDate, m.id FROM MatchAnalysis m WHERE m.kickoffDate BETWEEN :start AND :end")
+    List<Object[]> findMatchKeysBetween(@Param("start") LocalDate start, @Param("end") LocalDate end);
+
+    // Clé naturelle (index unique uk_match_natural_key)
+    Optional<MatchAnalysis> findByHomeTeamAndAwayTeamAndKickoffDate(Team homeTeam, Team awayTeam, LocalDate kickoffDate);
+
+    // Matchs d'une ligue sur une fenêtre de jours, équipes comprises (delta d'un lot d'import)
+    @Query("SELECT m FROM MatchAnalysis m JOIN FETCH m.homeTeam h JOIN FETCH m.awayTeam " +
+            "WHERE h.league = :league AND m.kickoffDate BETWEEN :start AND :end")
+    List<MatchAnalysis> findByLeagueAndKickoffDateBetween(@Param("league") League league,
+                                                          @Param("start") LocalDate start, @Param("end") LocalDate end);
+
     @Query("SELECT m FROM MatchAnalysis m WHERE m.homeTeam.league.id = :leagueId AND m.homeScore IS NOT NULL ORDER BY m.matchDate ASC")
     List<MatchAnalysis> findFinishedMatchesByLeague(@Param("leagueId") Long leagueId);
 }
@@ -0,0 +1,12 @@
+package com.tony.sportsAnalytics.repository;
+
+import com.tony.sportsAnalytics.model.MatchOddsHistory;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface MatchOddsHistoryRepository extends JpaRepository<MatchOddsHistory, Long> {
+
+    // Ordre d'insertion = ordre de rejeu des écarts
+    List<MatchOddsHistory> findByMatchIdOrderByIdAsc(Long matchId);
+}
@@ -0,0 +1,7 @@
+package com.tony.sportsAnalytics.repository;
+
+import com.tony.sportsAnalytics.model.MatchOdds;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface MatchOddsRepository extends JpaRepository<MatchOdds, Long> {
+}
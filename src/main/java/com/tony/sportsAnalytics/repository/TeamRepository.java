@@ -4,6 +4,7 @@ import com.tony.sportsAnalytics.model.League;
 import com.tony.sportsAnalytics.model.Team;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +15,9 @@ public interface TeamRepository extends JpaRepository<Team,Long> {
 
     List<Team> findByLeague(League league);
 
+    // Préchargement des équipes de plusieurs ligues en une requête (import des fixtures)
+    List<Team> findByLeagueIn(Collection<League> leagues);
+
     // Cette méthode permet de chercher une équipe par son nom ET sa ligue spécifique.
     Optional<Team> findByNameAndLeague(String name, League league);
 }
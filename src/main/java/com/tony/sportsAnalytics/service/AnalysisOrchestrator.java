@@ -17,6 +17,7 @@ public class AnalysisOrchestrator {
 
     private final MatchAnalysisRepository repository;
     private final MatchAnalysisService matchService;
+    private final ModelParameterRegistry parameterRegistry;
 
     /**
      * À appeler après chaque import de données ou mise à jour de paramètres.
@@ -27,19 +28,22 @@ public class AnalysisOrchestrator {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime nextWeek = now.plusDays(7);
 
-        // On cherche les matchs futurs
+        // On cherche les matchs futurs (hors fixtures fantômes archivées par la réconciliation)
         List<MatchAnalysis> upcoming = repository.findUpcomingMatches(now);
+        long archived = repository.countArchivedUpcoming(now);
 
-        log.info("🔄 Orchestrator: Recalcul de {} matchs à venir...", upcoming.size());
+        // Un seul Snapshot pour tout le lot : un fit publié en cours de route n'affecte pas ce re-pricing
+        ModelParameterRegistry.Snapshot parameters = parameterRegistry.current();
+        log.info("🔄 Orchestrator: Recalcul de {} matchs à venir (paramètres v{})...", upcoming.size(), parameters.version());
 
         int count = 0;
         for (MatchAnalysis match : upcoming) {
             // On ne traite que les matchs proches pour économiser les ressources
             if (match.getMatchDate().isBefore(nextWeek)) {
-                matchService.recalculatePrediction(match.getId());
+                matchService.recalculatePrediction(match.getId(), parameters);
                 count++;
             }
         }
-        log.info("✅ Orchestrator: {} prédictions mises à jour avec les derniers paramètres.", count);
+        log.info("✅ Orchestrator: {} prédictions mises à jour avec les derniers paramètres ({} fixtures archivées ignorées).", count, archived);
     }
 }
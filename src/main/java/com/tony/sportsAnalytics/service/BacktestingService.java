@@ -21,6 +21,7 @@ import java.util.stream.Collectors;
 public class BacktestingService {
     private final MatchAnalysisRepository matchRepository;
     private final PredictionEngineService predictionEngine;
+    private final ModelParameterRegistry parameterRegistry;
 
     public void runBacktest(LocalDate from, LocalDate to) {
         LocalDateTime start = from.atStartOfDay();
@@ -34,6 +35,7 @@ public class BacktestingService {
 
         // Liste pour stocker chaque prédiction individuelle pour l'analyse de calibration
         List<CalibrationData> calibrationList = new ArrayList<>();
+        ModelParameterRegistry.Snapshot parameters = parameterRegistry.current();
 
         for (MatchAnalysis m : testMatches) {
             // On ignore les matchs non joués pour le calcul de précision
@@ -54,7 +56,7 @@ public class BacktestingService {
             double leagueAvg = (m.getHomeTeam().getLeague() != null) ? m.getHomeTeam().getLeague().getAverageGoalsPerMatch() : 2.5;
 
             // Re-simulation avec le moteur actuel
-            PredictionResult pred = predictionEngine.calculateMatchPrediction(m, h2h, homeHist, awayHist, leagueAvg);
+            PredictionResult pred = predictionEngine.calculateMatchPrediction(m, h2h, homeHist, awayHist, leagueAvg, parameters);
 
             // --- CORRECTION MAJEURE : On met à jour l'objet pour la simulation financière suivante ---
             m.setPrediction(pred);
@@ -1,17 +1,46 @@
 package com.tony.sportsAnalytics.service;
 
 import com.tony.sportsAnalytics.model.League;
+import com.tony.sportsAnalytics.model.MatchAnalysis;
+import com.tony.sportsAnalytics.model.PredictionResult;
+import com.tony.sportsAnalytics.repository.LeagueRepository;
+import com.tony.sportsAnalytics.repository.MatchAnalysisRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class CalibrationService {
 
+    private final LeagueRepository leagueRepository;
+    private final MatchAnalysisRepository matchRepository;
+
+    // Table de calibration : 101 points réguliers sur [0, 1], quantifiés sur 16 bits (202 octets par ligue)
+    static final int TABLE_SIZE = 101;
+    private static final double QUANTUM = 65535.0;
+
+    private static final int MIN_SAMPLES = 200;
+    private static final double HOLDOUT_FRACTION = 0.2;   // Derniers 20% (chronologiques) pour choisir Platt vs Isotonique
+    private static final int NEWTON_MAX_ITER = 100;
+    private static final double NEWTON_MIN_STEP = 1e-10;
+    private static final double NEWTON_EPS = 1e-5;
+
+    public enum Method { PLATT, ISOTONIC }
+
+    public record CalibrationFit(Method method, double plattA, double plattB, double[] table, double holdoutLogLoss, int samples) {}
+
+    // Tables décodées, par ligue (clé = id, revalidée sur le contenu binaire persistant)
+    private final Map<Long, DecodedTable> decodedTables = new ConcurrentHashMap<>();
+
+    private record DecodedTable(byte[] source, double[] values) {}
+
     /**
      * Applique la formule de Platt Scaling : 1 / (1 + exp(A * p + B))
      */
@@ -22,17 +51,283 @@ public class CalibrationService {
     }
 
     /**
-     * Note : Pour optimiser A et B, on utilise généralement une descente de gradient
-     * basée sur les CalibrationData collectées lors du backtest.
+     * Calibration via la table ajustée de la ligue (interpolation linéaire sans branche),
+     * avec repli sur la sigmoïde A/B si la ligue n'a pas encore de table.
      */
-    public void updateLeagueCalibration(League league, List<BacktestingService.CalibrationData> data) {
-        // Logique simplifiée : Ajustement progressif basé sur l'erreur moyenne
-        double avgPredicted = data.stream().mapToDouble(BacktestingService.CalibrationData::getPredictedProb).average().orElse(0.5);
-        double avgActual = data.stream().mapToDouble(BacktestingService.CalibrationData::getActualOutcome).average().orElse(0.5);
+    public double calibrate(double rawProb, League league) {
+        double[] table = tableOf(league);
+        if (table == null) return calibrate(rawProb, league.getCalibrationA(), league.getCalibrationB());
+        return interpolate(table, rawProb / 100.0) * 100.0;
+    }
+
+    static double interpolate(double[] table, double p) {
+        double x = Math.min(1.0, Math.max(0.0, p)) * (TABLE_SIZE - 1);
+        int i = Math.min((int) x, TABLE_SIZE - 2);
+        double frac = x - i;
+        return table[i] + frac * (table[i + 1] - table[i]);
+    }
+
+    /**
+     * Ajuste la calibration de toutes les ligues : extraction des données (BDD) séquentielle,
+     * ajustements en parallèle (CPU pur), puis sauvegarde.
+     */
+    public int fitAllLeagues() {
+        Map<League, double[][]> samples = new LinkedHashMap<>();
+        Map<League, Integer> finishedCounts = new HashMap<>();
+        for (League league : leagueRepository.findAll()) {
+            List<MatchAnalysis> finished = matchRepository.findFinishedMatchesByLeague(league.getId());
+            samples.put(league, collectSamples(finished));
+            finishedCounts.put(league, finished.size());
+        }
+
+        Map<League, CalibrationFit> fits = new ConcurrentHashMap<>();
+        samples.entrySet().parallelStream().forEach(e -> {
+            CalibrationFit fit = fit(e.getValue()[0], e.getValue()[1]);
+            if (fit != null) fits.put(e.getKey(), fit);
+        });
+
+        fits.forEach(this::applyFit);
+        // Seules les prédictions qui ont enregistré leur probabilité brute servent à l'ajustement : celles d'avant
+        // l'ajout du champ n'en ont pas (pas de rétro-calcul : re-prédire l'historique avec les paramètres actuels
+        // donnerait des probabilités ajustées sur ces mêmes résultats). La ligue garde sa calibration en attendant.
+        samples.forEach((league, data) -> {
+            if (!fits.containsKey(league)) {
+                log.info("⏳ Calibration de {} inchangée : {} probabilités brutes sur {} matchs terminés (minimum {})",
+                        league.getName(), data[0].length, 2 * finishedCounts.get(league), MIN_SAMPLES);
+            }
+        });
+        log.info("🎯 Calibration ajustée pour {}/{} ligues", fits.size(), samples.size());
+        return fits.size();
+    }
+
+    /**
+     * Couples (probabilité brute, issue) des matchs terminés, ordre chronologique.
+     * Domicile et extérieur partagent la même courbe (c'est ainsi que le moteur l'applique).
+     */
+    double[][] collectSamples(List<MatchAnalysis> finishedMatches) {
+        int size = 0;
+        double[] raw = new double[finishedMatches.size() * 2];
+        double[] outcome = new double[finishedMatches.size() * 2];
+        for (MatchAnalysis m : finishedMatches) {
+            PredictionResult pred = m.getPrediction();
+            if (pred == null || pred.getRawHomeProbability() == null || pred.getRawAwayProbability() == null
+                    || m.getHomeScore() == null || m.getAwayScore() == null) continue;
+            raw[size] = pred.getRawHomeProbability() / 100.0;
+            outcome[size++] = m.getHomeScore() > m.getAwayScore() ? 1.0 : 0.0;
+            raw[size] = pred.getRawAwayProbability() / 100.0;
+            outcome[size++] = m.getAwayScore() > m.getHomeScore() ? 1.0 : 0.0;
+        }
+        return new double[][]{Arrays.copyOf(raw, size), Arrays.copyOf(outcome, size)};
+    }
+
+    /**
+     * Ajuste Platt et Isotonique sur le début de l'historique, garde le meilleur sur le holdout,
+     * puis le ré-ajuste sur l'ensemble des données.
+     * @return null si pas assez d'échantillons
+     */
+    public CalibrationFit fit(double[] raw, double[] outcome) {
+        int n = raw.length;
+        if (n < MIN_SAMPLES) return null;
+
+        int split = (int) (n * (1.0 - HOLDOUT_FRACTION));
+        double[] trainRaw = Arrays.copyOfRange(raw, 0, split), trainOut = Arrays.copyOfRange(outcome, 0, split);
+        double[] testRaw = Arrays.copyOfRange(raw, split, n), testOut = Arrays.copyOfRange(outcome, split, n);
+
+        double[] plattHoldout = fitPlatt(trainRaw, trainOut);
+        double plattLoss = logLoss(plattTable(plattHoldout[0], plattHoldout[1]), testRaw, testOut);
+        double isoLoss = logLoss(fitIsotonic(trainRaw, trainOut), testRaw, testOut);
+
+        double[] platt = fitPlatt(raw, outcome);
+        if (isoLoss < plattLoss) {
+            return new CalibrationFit(Method.ISOTONIC, platt[0], platt[1], fitIsotonic(raw, outcome), isoLoss, n);
+        }
+        return new CalibrationFit(Method.PLATT, platt[0], platt[1], plattTable(platt[0], platt[1]), plattLoss, n);
+    }
+
+    /**
+     * Platt Scaling par méthode de Newton avec recherche linéaire (Platt 1999, version robuste de Lin et al. 2007).
+     * Paramétrisation identique au moteur : P(y=1 | p) = 1 / (1 + exp(A * p + B)).
+     * @return {A, B}
+     */
+    static double[] fitPlatt(double[] p, double[] y) {
+        int n = p.length;
+        double prior1 = 0, prior0 = 0;
+        for (double v : y) { if (v > 0.5) prior1++; else prior0++; }
+
+        // Cibles lissées (évite le sur-ajustement sur les extrêmes)
+        double hiTarget = (prior1 + 1.0) / (prior1 + 2.0);
+        double loTarget = 1.0 / (prior0 + 2.0);
+        double[] t = new double[n];
+        for (int i = 0; i < n; i++) t[i] = y[i] > 0.5 ? hiTarget : loTarget;
 
-        if (avgPredicted > avgActual) {
-            league.setCalibrationB(league.getCalibrationB() + 0.1); // On réduit la probabilité globale
-            log.info("Ajustement de calibration pour {}: Modèle trop confiant, augmentation du frein B", league.getName());
+        double a = 0.0;
+        double b = Math.log((prior0 + 1.0) / (prior1 + 1.0));
+        double fval = plattObjective(p, t, a, b);
+
+        for (int iter = 0; iter < NEWTON_MAX_ITER; iter++) {
+            // Gradient et Hessienne (+ petit terme de régularisation)
+            double h11 = 1e-12, h22 = 1e-12, h21 = 0, g1 = 0, g2 = 0;
+            for (int i = 0; i < n; i++) {
+                double fApB = p[i] * a + b;
+                double prob, q;
+                if (fApB >= 0) {
+                    prob = Math.exp(-fApB) / (1.0 + Math.exp(-fApB));
+                    q = 1.0 / (1.0 + Math.exp(-fApB));
+                } else {
+                    prob = 1.0 / (1.0 + Math.exp(fApB));
+                    q = Math.exp(fApB) / (1.0 + Math.exp(fApB));
+                }
+                double d2 = prob * q;
+                h11 += p[i] * p[i] * d2;
+                h22 += d2;
+                h21 += p[i] * d2;
+                double d1 = t[i] - prob;
+                g1 += p[i] * d1;
+                g2 += d1;
+            }
+            if (Math.abs(g1) < NEWTON_EPS && Math.abs(g2) < NEWTON_EPS) break;
+
+            double det = h11 * h22 - h21 * h21;
+            double dA = -(h22 * g1 - h21 * g2) / det;
+            double dB = -(-h21 * g1 + h11 * g2) / det;
+            double gd = g1 * dA + g2 * dB;
+
+            double step = 1.0;
+            while (step >= NEWTON_MIN_STEP) {
+                double newA = a + step * dA, newB = b + step * dB;
+                double newF = plattObjective(p, t, newA, newB);
+                if (newF < fval + 0.0001 * step * gd) {
+                    a = newA; b = newB; fval = newF;
+                    break;
+                }
+                step /= 2.0;
+            }
+            if (step < NEWTON_MIN_STEP) break; // Recherche linéaire en échec : on garde le dernier point
+        }
+        return new double[]{a, b};
+    }
+
+    private static double plattObjective(double[] p, double[] t, double a, double b) {
+        double f = 0;
+        for (int i = 0; i < p.length; i++) {
+            double fApB = p[i] * a + b;
+            f += fApB >= 0
+                    ? t[i] * fApB + Math.log1p(Math.exp(-fApB))
+                    : (t[i] - 1) * fApB + Math.log1p(Math.exp(fApB));
+        }
+        return f;
+    }
+
+    /**
+     * Régression isotonique (Pool Adjacent Violators), échantillonnée sur la grille de la table.
+     */
+    static double[] fitIsotonic(double[] p, double[] y) {
+        int n = p.length;
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparingDouble(i -> p[i]));
+
+        // Blocs : somme des x, somme des y, poids
+        double[] sumX = new double[n], sumY = new double[n], weight = new double[n];
+        int blocks = 0;
+        for (int k = 0; k < n; k++) {
+            int i = order[k];
+            sumX[blocks] = p[i]; sumY[blocks] = y[i]; weight[blocks] = 1.0;
+            blocks++;
+            // Fusion tant que la monotonie est violée
+            while (blocks > 1 && sumY[blocks - 2] / weight[blocks - 2] >= sumY[blocks - 1] / weight[blocks - 1]) {
+                sumX[blocks - 2] += sumX[blocks - 1];
+                sumY[blocks - 2] += sumY[blocks - 1];
+                weight[blocks - 2] += weight[blocks - 1];
+                blocks--;
+            }
+        }
+
+        double[] bx = new double[blocks], by = new double[blocks];
+        for (int j = 0; j < blocks; j++) {
+            bx[j] = sumX[j] / weight[j];
+            by[j] = Math.min(0.999, Math.max(0.001, sumY[j] / weight[j]));
         }
+
+        // Interpolation linéaire entre centres de blocs, constante aux extrémités
+        double[] table = new double[TABLE_SIZE];
+        int j = 0;
+        for (int g = 0; g < TABLE_SIZE; g++) {
+            double x = g / (double) (TABLE_SIZE - 1);
+            while (j < blocks - 1 && bx[j + 1] <= x) j++;
+            if (x <= bx[0]) table[g] = by[0];
+            else if (j >= blocks - 1) table[g] = by[blocks - 1];
+            else {
+                double span = bx[j + 1] - bx[j];
+                table[g] = span > 0 ? by[j] + (x - bx[j]) / span * (by[j + 1] - by[j]) : by[j + 1];
+            }
+        }
+        return table;
+    }
+
+    static double[] plattTable(double a, double b) {
+        double[] table = new double[TABLE_SIZE];
+        for (int g = 0; g < TABLE_SIZE; g++) {
+            double x = g / (double) (TABLE_SIZE - 1);
+            table[g] = 1.0 / (1.0 + Math.exp(a * x + b));
+        }
+        return table;
+    }
+
+    private static double logLoss(double[] table, double[] p, double[] y) {
+        double loss = 0;
+        for (int i = 0; i < p.length; i++) {
+            double q = Math.min(1 - 1e-15, Math.max(1e-15, interpolate(table, p[i])));
+            loss -= y[i] * Math.log(q) + (1 - y[i]) * Math.log(1 - q);
+        }
+        return p.length == 0 ? Double.MAX_VALUE : loss / p.length;
+    }
+
+    private void applyFit(League league, CalibrationFit fit) {
+        league.setCalibrationA(fit.plattA());
+        league.setCalibrationB(fit.plattB());
+        league.setCalibrationMethod(fit.method().name());
+        league.setCalibrationTable(encode(fit.table()));
+        league.setCalibrationSamples(fit.samples());
+        league.setCalibrationFittedAt(LocalDateTime.now());
+        leagueRepository.save(league);
+        decodedTables.remove(league.getId());
+        log.info("🎯 Calibration {} pour {} (A={}, B={}, log-loss holdout {}, {} échantillons)",
+                fit.method(), league.getName(), fit.plattA(), fit.plattB(), fit.holdoutLogLoss(), fit.samples());
+    }
+
+    private double[] tableOf(League league) {
+        byte[] encoded = league.getCalibrationTable();
+        if (encoded == null || encoded.length != TABLE_SIZE * 2 || league.getId() == null) return null;
+        DecodedTable cached = decodedTables.get(league.getId());
+        if (cached != null && Arrays.equals(cached.source(), encoded)) return cached.values();
+        double[] values = decode(encoded);
+        decodedTables.put(league.getId(), new DecodedTable(encoded.clone(), values));
+        return values;
+    }
+
+    static byte[] encode(double[] table) {
+        ByteBuffer buffer = ByteBuffer.allocate(TABLE_SIZE * 2);
+        for (double v : table) buffer.putShort((short) Math.round(Math.min(1.0, Math.max(0.0, v)) * QUANTUM));
+        return buffer.array();
+    }
+
+    static double[] decode(byte[] encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        double[] table = new double[TABLE_SIZE];
+        for (int g = 0; g < TABLE_SIZE; g++) table[g] = Short.toUnsignedInt(buffer.getShort()) / QUANTUM;
+        return table;
+    }
+
+    /**
+     * Ajuste A et B (Platt, Newton) à partir des CalibrationData collectées lors du backtest.
+     */
+    public void updateLeagueCalibration(League league, List<BacktestingService.CalibrationData> data) {
+        double[] raw = data.stream().mapToDouble(BacktestingService.CalibrationData::getPredictedProb).toArray();
+        double[] outcome = data.stream().mapToDouble(BacktestingService.CalibrationData::getActualOutcome).toArray();
+        double[] ab = fitPlatt(raw, outcome);
+        league.setCalibrationA(ab[0]);
+        league.setCalibrationB(ab[1]);
+        log.info("Calibration Platt pour {} : A={}, B={} ({} points)", league.getName(), ab[0], ab[1], raw.length);
     }
 }
@@ -1,26 +1,38 @@
 package com.tony.sportsAnalytics.service;
 
-import com.opencsv.bean.CsvToBeanBuilder;
 import com.tony.sportsAnalytics.model.*;
 import com.tony.sportsAnalytics.repository.*;
-import lombok.Data;
+import com.tony.sportsAnalytics.service.FootballDataCsvParser.FootballDataRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import javax.net.ssl.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.Reader;
-import java.net.URI;
-import java.net.URL;
-import java.security.SecureRandom;
-import java.security.cert.X509Certificate;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -28,6 +40,9 @@ import java.util.stream.Collectors;
 @Slf4j
 public class DataImportService {
 
+    // Traduction Hibernate / JPA -> DataAccessException (sans état : une instance partagée suffit)
+    private static final HibernateJpaDialect JPA_DIALECT = new HibernateJpaDialect();
+
     private final TeamRepository teamRepository;
     private final MatchAnalysisRepository matchRepository;
     private final LeagueRepository leagueRepository;
@@ -36,40 +51,48 @@ public class DataImportService {
     private final PredictionEvaluationService evaluationService;
     private final RankingService rankingService;
     private final XgScraperService xgScraperService;
-
-    // --- CONFIGURATION CONSTANTES ---
-    private static final String BASE_URL = "https://www.football-data.co.uk/mmz4281/";
-    private static final String FIXTURES_URL = "https://www.football-data.co.uk/fixtures.csv";
-
-    // Mapping Code Ligue -> Fichier CSV
-    private static final Map<String, String> LEAGUE_FILES = Map.of(
-            "PL", "E0.csv",
-            "L1", "F1.csv",
-            "LIGA", "SP1.csv",
-            "SERIEA", "I1.csv",
-            "BUNDES", "D1.csv"
-    );
-
-    private static final Map<String, String> FBREF_LEAGUE_URLS = Map.of(
-            "PL", "https://fbref.com/en/comps/9/stats/Premier-League-Stats",
-            "L1", "https://fbref.com/en/comps/13/stats/Ligue-1-Stats",
-            "LIGA", "https://fbref.com/en/comps/12/stats/La-Liga-Stats",
-            "SERIEA", "https://fbref.com/en/comps/11/stats/Serie-A-Stats",
-            "BUNDES", "https://fbref.com/en/comps/20/stats/Bundesliga-Stats",
-            "UCL", "https://fbref.com/en/comps/8/stats/Champions-League-Stats"
-    );
-
-    private static final Map<String, String> DIV_TO_LEAGUE_CODE = Map.of(
-            "E0", "PL", "F1", "L1", "SP1", "LIGA", "I1", "SERIEA", "D1", "BUNDES"
-    );
-
-    // Saison Actuelle (pour les URLs)
-    private static final String CURRENT_SEASON_CODE = "2526"; // 2025-2026
-    private static final String CURRENT_SEASON_LABEL = "2025-2026";
-
-    // Historique à importer (Ordre Chronologique pour Elo)
-    // 2122 = 2021-2022, etc.
-    private static final List<String> HISTORICAL_SEASONS = List.of("2122", "2223", "2324", "2425");
+    private final OnlineRatingService onlineRatingService;
+    private final ModelParameterRegistry parameterRegistry;
+    private final EntityManagerFactory entityManagerFactory;
+    private final EntityManager entityManager;
+    private final ImportDownloader downloader;
+    private final TransactionTemplate transactionTemplate;
+    private final MatchBulkLoader bulkLoader;
+    private final ImportPipelineMetrics pipelineMetrics;
+    private final LeagueRegistry leagueRegistry;
+
+    // Taille des paquets de matchs envoyés en une fois (saveAll + flush => inserts/updates JDBC groupés)
+    @Value("${import.jdbc.batch-size:50}")
+    private int batchSize;
+
+    // Pipeline d'import : capacité des files entre étages (borne la mémoire) et threads de l'étage de résolution
+    @Value("${import.pipeline.queue-capacity:512}")
+    private int pipelineCapacity;
+    @Value("${import.pipeline.resolve-threads:2}")
+    private int resolveThreads;
+
+    // Transactions d'import par lots : commit toutes les N lignes, contexte de persistance vidé entre deux lots,
+    // et nouvelle tentative d'un lot sur erreur transitoire (verrou, connexion perdue) sans refaire le fichier
+    @Value("${import.transaction.chunk-size:500}")
+    private int chunkSize;
+    @Value("${import.transaction.max-attempts:3}")
+    private int chunkMaxAttempts;
+    @Value("${import.transaction.retry-backoff-ms:500}")
+    private long chunkRetryBackoffMs;
+
+    // Re-pricing d'une fixture déjà en base seulement si le consensus 1X2 a bougé d'au moins ce seuil (en probabilité)
+    @Value("${import.odds.reprice-threshold:0.02}")
+    private double repriceThreshold;
+
+    // --- CONFIGURATION ---
+    // Surchargeables pour pointer vers un miroir local ou un stub HTTP
+    @Value("${import.football-data.base-url:https://www.football-data.co.uk/mmz4281/}")
+    private String baseUrl;
+    @Value("${import.football-data.fixtures-url:https://www.football-data.co.uk/fixtures.csv}")
+    private String fixturesUrl;
+
+    // Lignes de détail des corrections par fichier dans le rapport (le log les garde toutes)
+    private static final int MAX_REPORTED_CHANGES = 200;
 
     // Mapping noms CSV spécifiques -> Noms propres BDD
     private static final Map<String, String> TEAM_NAME_MAPPING = new HashMap<>();
@@ -120,41 +143,132 @@ public class DataImportService {
     /**
      * IMPORT MASSIF HISTORIQUE (Saisons passées)
      * À lancer une fois pour peupler la BDD et stabiliser les ratings Elo.
+     * Toutes les ligues du registre, plusieurs en parallèle (LeagueRegistry.runPerLeague) ; dans une ligue,
+     * les saisons sont écrites dans l'ordre chronologique. Pas de transaction englobante : chaque fichier est écrit
+     * par lots (processImport), les téléchargements restent hors transaction.
      */
-    @Transactional
     public String importFullHistory() {
         StringBuilder report = new StringBuilder("--- IMPORT HISTORIQUE GLOBAL ---\n");
         long start = System.currentTimeMillis();
+        long statementsBefore = preparedStatementCount();
 
-        // 1. On parcourt les saisons chronologiquement
-        for (String seasonCode : HISTORICAL_SEASONS) {
-            String seasonLabel = "20" + seasonCode.substring(0, 2) + "-20" + seasonCode.substring(2);
-            report.append("\n=== SAISON ").append(seasonLabel).append(" ===\n");
+        Map<LeagueRegistry.LeagueDefinition, String> reports = leagueRegistry.runPerLeague(leagueRegistry.leagues(), this::importLeagueHistory);
+        reports.values().forEach(report::append);
+
+        long duration = (System.currentTimeMillis() - start) / 1000;
+        report.append("\n✅ Import terminé en ").append(duration).append("s");
+        if (statementsBefore >= 0) {
+            report.append(" (").append(preparedStatementCount() - statementsBefore).append(" allers-retours SQL)");
+        }
+        return report.toString();
+    }
+
+    /**
+     * Historique d'une ligue : ses fichiers de saison sont téléchargés d'un coup (bornés par ImportDownloader)
+     * et persistés un par un, dans l'ordre chronologique.
+     */
+    private String importLeagueHistory(LeagueRegistry.LeagueDefinition league) {
+        List<String> seasons = leagueRegistry.historicalSeasons(league);
+        Map<String, CompletableFuture<ImportDownloader.Fetched<byte[]>>> files = new LinkedHashMap<>();
+        for (String seasonCode : seasons) {
+            files.put(seasonCode, fetchSeason(seasonCode, league));
+        }
+
+        StringBuilder report = new StringBuilder("\n=== ").append(league.name()).append(" (").append(league.code()).append(") ===\n");
+        files.forEach((seasonCode, download) -> {
+            String seasonLabel = LeagueRegistry.toSeasonLabel(seasonCode);
+            try {
+                ImportDownloader.Fetched<byte[]> file = download.join();
+                // On force l'update pour l'historique pour être sûr d'avoir les données clean
+                String res = processImport(csvSource(file.value()), league, seasonLabel, true);
+                file.commit();
+                report.append(String.format("[%s] %s (cache %s)\n", seasonLabel, res, file.status()));
+            } catch (Exception e) {
+                Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+                report.append(String.format("[%s] ERREUR: %s\n", seasonLabel, cause.getMessage()));
+                log.error("Erreur import historique {} {}", seasonLabel, league.code(), cause);
+            }
+        });
+        return report.toString();
+    }
 
-            for (String leagueCode : LEAGUE_FILES.keySet()) {
-                String fileName = LEAGUE_FILES.get(leagueCode);
-                String url = BASE_URL + seasonCode + "/" + fileName;
+    /**
+     * IMPORT HORS-LIGNE depuis un répertoire ou un zip de fichiers football-data (voir SeasonArchiveReader).
+     * Autant de saisons et de divisions que l'archive en contient, dans l'ordre chronologique, avec le même
+     * mapping que l'import réseau. Transactions par lots de lignes : un fichier en erreur n'annule pas les autres
+     * et le contexte de persistance ne grossit pas avec 20 saisons.
+     * En mode COPY (gros rattrapages), les fichiers passent par MatchBulkLoader : pas de prédiction ni de forces en ligne,
+     * les lignes modifiées sont détectées par empreinte (forceUpdate n'a pas d'effet).
+     */
+    public String importLocalArchive(Path archive, boolean forceUpdate, boolean copy) {
+        StringBuilder report = new StringBuilder("--- IMPORT HORS-LIGNE").append(copy ? " (COPY)" : " (JPA)")
+                .append(" : ").append(archive).append(" ---\n");
+        long start = System.currentTimeMillis();
+        long statementsBefore = preparedStatementCount();
 
+        List<SeasonArchiveReader.SeasonFile> files;
+        try {
+            files = SeasonArchiveReader.scan(archive);
+        } catch (Exception e) {
+            log.error("Archive illisible {}", archive, e);
+            return "❌ Archive illisible : " + e.getMessage();
+        }
+        log.info("📦 {} fichiers de saison trouvés dans {}", files.size(), archive);
+
+        // Une division par thread (fichiers déjà triés chronologiquement) ; en JPA, le fichier est lu en flux
+        // par l'étage "parse" du pipeline pendant la persistance des lignes précédentes
+        Map<String, List<SeasonArchiveReader.SeasonFile>> byDivision = new LinkedHashMap<>();
+        files.forEach(f -> byDivision.computeIfAbsent(f.division(), k -> new ArrayList<>()).add(f));
+        AtomicInteger rowCount = new AtomicInteger();
+        Map<String, String> reports = leagueRegistry.runPerLeague(byDivision.keySet(), division -> {
+            LeagueRegistry.LeagueDefinition league = leagueRegistry.byDivision(division);
+            StringBuilder divisionReport = new StringBuilder();
+            for (SeasonArchiveReader.SeasonFile file : byDivision.get(division)) {
                 try {
-                    // On force l'update pour l'historique pour être sûr d'avoir les données clean
-                    String res = processImport(url, leagueCode, seasonLabel, true);
-                    report.append(String.format("[%s] %s\n", leagueCode, res));
+                    String res;
+                    if (copy) {
+                        List<FootballDataRow> rows = SeasonArchiveReader.read(file);
+                        rowCount.addAndGet(rows.size());
+                        res = bulkLoad(rows, league, file.seasonLabel());
+                    } else {
+                        int[] read = {0};
+                        res = processImport(sink -> read[0] = SeasonArchiveReader.stream(file, sink), league, file.seasonLabel(), forceUpdate);
+                        rowCount.addAndGet(read[0]);
+                    }
+                    divisionReport.append(String.format("[%s %s] %s\n", file.seasonLabel(), league.code(), res));
                 } catch (Exception e) {
-                    report.append(String.format("[%s] ERREUR: %s\n", leagueCode, e.getMessage()));
-                    log.error("Erreur import historique {} {}", seasonLabel, leagueCode, e);
+                    Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+                    divisionReport.append(String.format("[%s %s] ERREUR: %s\n", file.seasonLabel(), league.code(), cause.getMessage()));
+                    log.error("Erreur import hors-ligne {}", file.describe(), cause);
                 }
             }
+            return divisionReport.toString();
+        });
+        reports.values().forEach(report::append);
+        int totalRows = rowCount.get();
+
+        long durationMs = Math.max(1, System.currentTimeMillis() - start);
+        report.append(String.format("\n✅ %d fichiers, %d lignes en %.1fs (%.0f lignes/s)",
+                files.size(), totalRows, durationMs / 1000.0, totalRows * 1000.0 / durationMs));
+        if (statementsBefore >= 0) {
+            report.append(" (").append(preparedStatementCount() - statementsBefore).append(" allers-retours SQL)");
         }
-
-        long duration = (System.currentTimeMillis() - start) / 1000;
-        report.append("\n✅ Import terminé en ").append(duration).append("s");
         return report.toString();
     }
 
+    private String bulkLoad(List<FootballDataRow> rows, LeagueRegistry.LeagueDefinition definition, String seasonLabel) throws SQLException {
+        League league = leagueRegistry.leagueFor(definition);
+        MatchBulkLoader.LoadResult result = bulkLoader.load(league.getId(), seasonLabel, rows);
+        return String.format("%d lignes copiées : %d importés, %d mis à jour, %d équipes créées.",
+                result.rows(), result.inserted(), result.updated(), result.newTeams());
+    }
+
     public void enrichTeamsWithAdvancedStats(String leagueUrl) {
         // 1. Scraper les xG/xGA sur FBRef
-        Map<String, XgScraperService.TeamXgMetrics> advancedStats = xgScraperService.scrapeAdvancedMetrics(leagueUrl);
+        applyAdvancedStats(xgScraperService.scrapeAdvancedMetrics(leagueUrl));
+    }
 
+    private void applyAdvancedStats(Map<String, XgScraperService.TeamXgMetrics> advancedStats) {
         advancedStats.forEach((scrapedName, metrics) -> {
             // On essaie de trouver l'équipe en gérant les variations de noms
             String cleanName = TEAM_NAME_MAPPING.getOrDefault(scrapedName, scrapedName);
@@ -178,27 +292,44 @@ public class DataImportService {
     }
 
     /**
-     * Importe l'historique des résultats de la saison EN COURS (2526)
+     * Importe l'historique des résultats de la saison EN COURS (import.seasons.current)
      * Appelée par l'admin via "Importer Premier League" etc.
      */
-    @Transactional
     public String importLeagueData(String leagueCode, boolean forceUpdate) {
-        if (!LEAGUE_FILES.containsKey(leagueCode)) return "❌ Code ligue inconnu.";
-
-        String fileName = LEAGUE_FILES.get(leagueCode);
-        String url = BASE_URL + CURRENT_SEASON_CODE + "/" + fileName;
+        Optional<LeagueRegistry.LeagueDefinition> league = leagueRegistry.byCode(leagueCode);
+        if (league.isEmpty()) return "❌ Code ligue inconnu.";
+        CompletableFuture<ImportDownloader.Fetched<byte[]>> file = fetchSeason(leagueRegistry.currentSeasonCode(), league.get());
+        return importLeagueData(league.get(), forceUpdate, file, fetchAdvancedStatsIfChanged(league.get(), file, forceUpdate));
+    }
 
+    /**
+     * Étage de persistance d'une ligue : les téléchargements (CSV + FBRef) ont été lancés en amont.
+     */
+    private String importLeagueData(LeagueRegistry.LeagueDefinition league, boolean forceUpdate,
+                                    CompletableFuture<ImportDownloader.Fetched<byte[]>> csv,
+                                    CompletableFuture<Map<String, XgScraperService.TeamXgMetrics>> advancedStats) {
+        String leagueCode = league.code();
         try {
+            ImportDownloader.Fetched<byte[]> file = csv.join();
+            // Fichier identique à l'octet près depuis le dernier import réussi : rien à faire pour cette ligue
+            if (!forceUpdate && file.status().isHit()) {
+                log.info("⏭️ {} inchangé (cache {}), import ignoré", leagueCode, file.status());
+                return String.format("%s : fichier inchangé, import ignoré (cache %s).", leagueCode, file.status());
+            }
+
             // 1. Import des résultats de base (CSV)
-            String csvResult = processImport(url, leagueCode, CURRENT_SEASON_LABEL, forceUpdate);
+            String csvResult = processImport(csvSource(file.value()), league, leagueRegistry.currentSeasonLabel(), forceUpdate);
 
             // 2. Enrichissement avec les stats avancées (Scraping xG)
-            if (FBREF_LEAGUE_URLS.containsKey(leagueCode)) {
+            Map<String, XgScraperService.TeamXgMetrics> metrics = (advancedStats != null) ? advancedStats.join() : null;
+            if (metrics != null) {
                 log.info("📊 Enrichissement des xG pour la ligue {}", leagueCode);
-                enrichTeamsWithAdvancedStats(FBREF_LEAGUE_URLS.get(leagueCode));
+                // Le scraping est déjà terminé : la transaction ne couvre que les écritures
+                transactionTemplate.executeWithoutResult(tx -> applyAdvancedStats(metrics));
             }
 
-            return "Import terminé et prédictions mises à jour pour " + leagueCode;
+            file.commit();
+            return String.format("Import terminé et prédictions mises à jour pour %s : %s (cache %s)", leagueCode, csvResult, file.status());
         } catch (Exception e) {
             log.error("Erreur Import {}", leagueCode, e);
             return "Erreur : " + e.getMessage();
@@ -206,52 +337,301 @@ public class DataImportService {
     }
 
     /**
-     * Méthode générique interne pour traiter un fichier CSV de saison
+     * Étage "fetch" : téléchargement d'un fichier de saison sur un thread virtuel. Seuls les octets sont gardés,
+     * les lignes sont décodées en flux par l'étage "parse" du pipeline au moment de l'import.
      */
-    private String processImport(String csvUrl, String leagueCode, String seasonLabel, boolean forceUpdate) throws Exception {
-        log.info("📥 Chargement {} ({}) depuis {}", leagueCode, seasonLabel, csvUrl);
+    private CompletableFuture<ImportDownloader.Fetched<byte[]>> fetchSeason(String seasonCode, LeagueRegistry.LeagueDefinition league) {
+        String url = baseUrl + seasonCode + "/" + league.division() + ".csv";
+        log.info("📥 Téléchargement {} ({}) depuis {}", league.code(), seasonCode, url);
+        long start = System.nanoTime();
+        return downloader.fetchCached(url, bytes -> bytes).whenComplete((file, error) -> {
+            if (file != null) pipelineMetrics.stage("fetch").record(1, System.nanoTime() - start);
+        });
+    }
 
-        Reader reader = getReaderIgnoringSSL(csvUrl);
-        List<FootballDataRow> rows = new CsvToBeanBuilder<FootballDataRow>(reader)
-                .withType(FootballDataRow.class).withSeparator(',').withIgnoreLeadingWhiteSpace(true).build().parse();
-        reader.close();
+    /**
+     * Scraping FBRef enchaîné sur le CSV : inutile (et coûteux en crédits) si la ligue ne sera pas réimportée.
+     */
+    private CompletableFuture<Map<String, XgScraperService.TeamXgMetrics>> fetchAdvancedStatsIfChanged(
+            LeagueRegistry.LeagueDefinition league, CompletableFuture<ImportDownloader.Fetched<byte[]>> csv, boolean forceUpdate) {
+        String url = league.fbrefUrl();
+        if (url == null) return null;
+        return csv.thenCompose(file -> (!forceUpdate && file.status().isHit())
+                ? CompletableFuture.completedFuture(null)
+                : downloader.submit(() -> xgScraperService.scrapeAdvancedMetrics(url)));
+    }
 
-        String leagueName = resolveLeagueName(leagueCode);
-        League league = getOrCreateLeague(leagueName, resolveCountry(leagueCode));
+    static List<FootballDataRow> parseRows(byte[] content) throws IOException {
+        List<FootballDataRow> rows = new ArrayList<>();
+        FootballDataCsvParser.parse(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8), rows::add);
+        return rows;
+    }
 
-        // Cache local
-        Map<String, Team> teamCache = teamRepository.findByLeague(league).stream().collect(Collectors.toMap(Team::getName, t -> t));
+    private static ImportPipeline.Source<FootballDataRow> csvSource(byte[] content) {
+        return sink -> FootballDataCsvParser.parse(new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8), sink);
+    }
 
-        // Matchs existants pour cette saison spécifique
-        Map<String, MatchAnalysis> existingMatchesMap = matchRepository.findByHomeTeamLeagueAndSeason(league, seasonLabel)
-                .stream().collect(Collectors.toMap(
-                        // UTILISATION DE LA NOUVELLE CLÉ BASÉE SUR LA SAISON
-                        m -> generateMatchKey(m.getHomeTeam(), m.getAwayTeam(), seasonLabel),
-                        m -> m,
-                        (a, b) -> a)); // Si doublon en BDD, on garde le premier
+    /**
+     * Méthode générique interne pour persister un fichier CSV de saison, sous forme de pipeline borné :
+     * parse (thread dédié) -> resolve (noms, dates, empreintes ; N threads) -> map + persist (thread appelant,
+     * par lots de 'chunkSize' lignes, une transaction par lot) -> post-process (prédictions, stats).
+     * La mémoire ne dépend que de la capacité des files et de la taille des lots, pas de la taille du fichier.
+     * Un lot qui échoue après ses tentatives arrête le fichier ; les lots déjà commités sont conservés et
+     * seront reconnus par leur empreinte à la relance.
+     */
+    private String processImport(ImportPipeline.Source<FootballDataRow> source, LeagueRegistry.LeagueDefinition definition,
+                                 String seasonLabel, boolean forceUpdate) {
+        List<ImportPipelineMetrics.StageSnapshot> metricsBefore = pipelineMetrics.snapshot();
+        String leagueCode = definition.code();
+        League league = leagueRegistry.leagueFor(definition);
+
+        long statementsBefore = preparedStatementCount();
+        ImportStats stats = new ImportStats();
+        // Paramètres figés avant les mises à jour en ligne du fichier : pas de fuite des résultats importés vers leurs propres prédictions
+        stats.parameters = parameterRegistry.current();
+        ImportPipelineMetrics.StageCounter mapStage = pipelineMetrics.stage("map");
+        List<PreparedRow> chunk = new ArrayList<>(chunkSize);
+        int[] chunks = {0};
+        ImportPipeline.from(pipelineMetrics, pipelineCapacity, "parse", source)
+                .then("resolve", resolveThreads, DataImportService::prepareRow)
+                .drain("map", row -> {
+                    chunk.add(row);
+                    if (chunk.size() >= chunkSize) {
+                        commitChunk(chunk, league, seasonLabel, forceUpdate, stats, mapStage, leagueCode + " " + seasonLabel + " #" + ++chunks[0]);
+                        chunk.clear();
+                    }
+                });
+        if (!chunk.isEmpty()) {
+            commitChunk(chunk, league, seasonLabel, forceUpdate, stats, mapStage, leagueCode + " " + seasonLabel + " #" + ++chunks[0]);
+        }
 
-        ImportStats stats = processRows(rows, league, teamCache, existingMatchesMap, forceUpdate, seasonLabel);
+        // Toutes les lignes sont en base : prédictions en un seul passage, sur un historique complet et à date
+        long postStart = System.nanoTime();
+        int toPredict = stats.toPredictIds.size();
+        predictPending(stats);
 
         // On ne recalcule les stats globales que si c'est la saison en cours (gain de temps)
-        if (seasonLabel.equals(CURRENT_SEASON_LABEL)) {
+        if (seasonLabel.equals(leagueRegistry.currentSeasonLabel())) {
             // 1. Recalcul individuel (Points, Buts)
             stats.teamsToRecalculate.forEach(teamStatsService::recalculateTeamStats);
 
             // 2. Stats globales de la ligue (Moyennes)
-            updateLeagueStats(league, seasonLabel);
+            transactionTemplate.executeWithoutResult(tx -> updateLeagueStats(league, seasonLabel));
 
             // 3. NOUVEAU : Recalcul du classement officiel de la ligue !
             rankingService.updateLeagueRankings(league.getId());
         }
+        pipelineMetrics.stage("post-process").record(toPredict, System.nanoTime() - postStart);
+        log.info("🏭 Pipeline {} {} : {}", leagueCode, seasonLabel, pipelineMetrics.describeSince(metricsBefore));
 
-        return String.format("%d importés, %d mis à jour.", stats.importedCount, stats.updatedCount);
+        StringBuilder result = new StringBuilder(String.format("%d importés, %d mis à jour, %d inchangés, %d prédits (%d lots).",
+                stats.importedCount, stats.updatedCount, stats.skippedCount, stats.predictedCount, chunks[0]));
+        if (statementsBefore >= 0) {
+            result.append(String.format(" (%d requêtes SQL)", preparedStatementCount() - statementsBefore));
+        }
+        if (!stats.changedFields.isEmpty()) {
+            result.append("\n   Champs modifiés : ").append(stats.changedFields.entrySet().stream()
+                    .map(e -> e.getKey() + "×" + e.getValue()).collect(Collectors.joining(", ")));
+            stats.changeLog.stream().limit(MAX_REPORTED_CHANGES).forEach(line -> result.append("\n   ✏️ ").append(line));
+            if (stats.changeLog.size() > MAX_REPORTED_CHANGES) {
+                result.append(String.format("\n   ... et %d autres (voir les logs)", stats.changeLog.size() - MAX_REPORTED_CHANGES));
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Un lot de lignes dans sa propre transaction. Équipes et matchs de la fenêtre de dates du lot sont rechargés
+     * à chaque tentative : rien de ce qui a été lu ou créé par une tentative annulée ne survit dans les caches.
+     * Les matchs existants sont lus pour le delta (empreinte, champs modifiés), pas pour le dédoublonnage :
+     * les nouveaux partent en upsert sur la clé naturelle, qui tranche si un autre import les a créés entre-temps.
+     * Les compteurs du lot ne sont ajoutés au total qu'après le commit.
+     */
+    private void commitChunk(List<PreparedRow> rows, League league, String seasonLabel, boolean forceUpdate,
+                             ImportStats total, ImportPipelineMetrics.StageCounter mapStage, String label) {
+        ChunkStats committed = inChunkTransaction(label, () -> {
+            ChunkStats attempt = new ChunkStats();
+            Map<String, Team> teamCache = teamRepository.findByLeague(league).stream().collect(Collectors.toMap(Team::getName, t -> t));
+            Map<String, MatchAnalysis> existingMatchesMap = loadExistingMatches(league, rows);
+
+            for (PreparedRow row : rows) {
+                long t = System.nanoTime();
+                MatchAnalysis match = processRow(row, league, teamCache, existingMatchesMap, forceUpdate, seasonLabel, attempt);
+                mapStage.record(1, System.nanoTime() - t);
+                if (match == null) continue;
+                if (match.getId() == null) attempt.inserts.add(match);
+                else queueForSave(match, attempt);
+            }
+            flushPending(attempt);
+            upsertNewMatches(attempt);
+            upsertOdds(attempt);
+            return attempt;
+        });
+        total.add(committed);
+        applyResults(committed.results);
+    }
+
+    /**
+     * Résultats d'un lot commité intégrés au filtre en ligne, puis forces Alpha/Beta écrites dans une transaction courte.
+     * Jamais dans la transaction du lot : une tentative annulée (ou un commit en échec) ne touche ni l'état du filtre
+     * ni le registre publié, et un lot rejoué n'intègre pas deux fois ses résultats.
+     */
+    private void applyResults(List<PendingResult> results) {
+        if (results.isEmpty()) return;
+        Map<Long, Team> updated = new HashMap<>();
+        for (PendingResult r : results) {
+            onlineRatingService.applyResult(r.home(), r.away(), r.homeGoals(), r.awayGoals());
+            updated.put(r.home().getId(), r.home());
+            updated.put(r.away().getId(), r.away());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(tx -> {
+                for (Team team : teamRepository.findAllById(updated.keySet())) {
+                    Team source = updated.get(team.getId());
+                    team.setAttackStrength(source.getAttackStrength());
+                    team.setDefenseStrength(source.getDefenseStrength());
+                    team.setAttackVariance(source.getAttackVariance());
+                    team.setDefenseVariance(source.getDefenseVariance());
+                }
+            });
+        } catch (DataAccessException e) {
+            // Les matchs sont commités : l'état en mémoire reste la référence jusqu'au ré-ancrage du fit nocturne
+            log.warn("⚠️ Forces en ligne de {} équipes non persistées : {}", updated.size(), e.getMessage());
+        } finally {
+            entityManager.clear();
+        }
+    }
+
+    /**
+     * Matchs de la ligue sur la fenêtre de dates du lot, indexés par clé naturelle (unique en base).
+     */
+    private Map<String, MatchAnalysis> loadExistingMatches(League league, List<PreparedRow> rows) {
+        LocalDate first = null, last = null;
+        for (PreparedRow row : rows) {
+            LocalDate d = row.matchDateTime().toLocalDate();
+            if (first == null || d.isBefore(first)) first = d;
+            if (last == null || d.isAfter(last)) last = d;
+        }
+        Map<String, MatchAnalysis> existing = new HashMap<>();
+        if (first == null) return existing;
+        for (MatchAnalysis m : matchRepository.findByLeagueAndKickoffDateBetween(league, first, last)) {
+            existing.put(matchKey(m.getHomeTeam().getId(), m.getAwayTeam().getId(), m.getKickoffDate()), m);
+        }
+        return existing;
+    }
+
+    /**
+     * Nouveaux matchs du lot en un batch INSERT ... ON CONFLICT DO UPDATE, sur la connexion de la transaction.
+     */
+    private void upsertNewMatches(ChunkStats stats) {
+        if (stats.inserts.isEmpty()) return;
+        long start = System.nanoTime();
+        // Les équipes créées dans le lot doivent être en base avant les clés étrangères des matchs
+        entityManager.flush();
+        entityManager.unwrap(Session.class).doWork(connection -> bulkLoader.upsert(connection, stats.inserts));
+        pipelineMetrics.stage("persist").record(stats.inserts.size(), System.nanoTime() - start);
+        stats.inserts.clear();
+    }
+
+    /**
+     * Cotes toutes sources des matchs du lot vers match_odds : après l'upsert (ids attribués) et dans la même transaction.
+     */
+    private List<MatchBulkLoader.OddsChange> upsertOdds(ChunkStats stats) {
+        stats.odds.forEach((match, odds) -> {
+            if (match.getId() != null) stats.oddsById.put(match.getId(), odds);
+        });
+        stats.odds.clear();
+        if (stats.oddsById.isEmpty()) return List.of();
+        List<MatchBulkLoader.OddsChange> changes = entityManager.unwrap(Session.class)
+                .doReturningWork(connection -> bulkLoader.upsertOdds(connection, stats.oddsById));
+        stats.oddsById.clear();
+        return changes;
+    }
+
+    /**
+     * Fixtures déjà en base dont le consensus a bougé au-delà du seuil : cotes du match mises à jour
+     * et prédiction (ancrée sur le marché) refaite avec les nouveaux matchs. Les autres gardent leur prédiction.
+     */
+    private void repriceMovedFixtures(List<MatchBulkLoader.OddsChange> changes, Map<Long, FootballDataRow> known, ChunkStats stats) {
+        Map<Long, FootballDataRow> moved = new HashMap<>();
+        for (MatchBulkLoader.OddsChange change : changes) {
+            FootballDataRow row = known.get(change.matchId());
+            if (row != null && change.current().movementFrom(change.previous()) >= repriceThreshold) moved.put(change.matchId(), row);
+        }
+        if (moved.isEmpty()) return;
+
+        for (MatchAnalysis m : matchRepository.findAllById(moved.keySet())) {
+            if (m.getHomeScore() != null) continue; // déjà joué entre-temps : les résultats s'en chargent
+            if (m.getArchivedAt() != null) continue; // fixture fantôme (reportée) : cotes relevées, pas de prédiction
+            FootballDataRow row = moved.get(m.getId());
+            m.setOdds1(row.getB365H());
+            m.setOddsN(row.getB365D());
+            m.setOdds2(row.getB365A());
+            m.setOddsOver25(row.getB365O25());
+            m.setOddsUnder25(row.getB365U25());
+            applyMarketOdds(m, row, null);
+            stats.toPredict.add(m);
+            stats.updatedCount++;
+        }
+        log.info("📈 {} fixtures re-pricées sur mouvement de cotes (seuil {})", stats.updatedCount, repriceThreshold);
+    }
+
+    /**
+     * Exécute un lot dans une transaction courte, avec nouvelle tentative sur erreur transitoire.
+     * Le contexte de persistance est vidé après chaque tentative (utile quand un EntityManager partagé
+     * vit plus longtemps que la transaction, ex: open-in-view sur un appel admin).
+     */
+    private <T> T inChunkTransaction(String label, Supplier<T> work) {
+        return withChunkRetry(label, chunkMaxAttempts, chunkRetryBackoffMs, () -> {
+            try {
+                return transactionTemplate.execute(tx -> work.get());
+            } finally {
+                entityManager.clear();
+            }
+        });
+    }
+
+    /**
+     * Boucle de reprise d'un lot. Le flush et les upserts JDBC (Session.doWork) ne passent pas par la traduction
+     * d'exceptions de Spring : deadlock, verrou non obtenu (SELECT ... FOR UPDATE des cotes) ou échec de sérialisation
+     * arrivent en exceptions Hibernate / JPA et sont traduits ici avant de décider d'une nouvelle tentative.
+     */
+    static <T> T withChunkRetry(String label, int maxAttempts, long backoffMs, Supplier<T> attempt) {
+        for (int n = 1; ; n++) {
+            try {
+                return attempt.get();
+            } catch (RuntimeException raw) {
+                RuntimeException e = translate(raw);
+                if (!(e instanceof TransientDataAccessException || e instanceof RecoverableDataAccessException
+                        || e instanceof CannotCreateTransactionException)) {
+                    throw e;
+                }
+                if (n >= maxAttempts) {
+                    log.error("❌ Lot {} abandonné après {} tentatives", label, n);
+                    throw e;
+                }
+                log.warn("🔁 Lot {} en échec (tentative {}/{}) : {}", label, n, maxAttempts, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs * n);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static RuntimeException translate(RuntimeException e) {
+        if (e instanceof DataAccessException) return e;
+        DataAccessException translated = JPA_DIALECT.translateExceptionIfPossible(e);
+        return translated != null ? translated : e;
     }
 
     /**
      * Transforme un nom d'équipe en nom de fichier standardisé.
      * Exemples : "Man City" -> "man_city.png" | "Saint-Etienne" -> "saint_etienne.png"
      */
-    private String generateLogoPath(String teamName) {
+    static String logoPathOf(String teamName) {
         if (teamName == null) return "/logos/default.png";
 
         String filename = teamName.toLowerCase()
@@ -266,151 +646,353 @@ public class DataImportService {
 
     /**
      * Importe UNIQUEMENT les matchs à venir depuis fixtures.csv
+     * Téléchargement hors transaction, puis écriture par lots (une transaction courte par lot).
+     * Les fixtures déjà en base ne sont pas recréées : leurs cotes sont relevées (historique dans match_odds_history)
+     * et seules celles dont le marché a bougé au-delà de import.odds.reprice-threshold sont re-pricées.
      */
-    @Transactional
     public String importUpcomingFixtures() {
-        log.info("🔮 Récupération des futurs matchs depuis {}", FIXTURES_URL);
-        int count = 0;
-        int errorCount = 0;
+        log.info("🔮 Récupération des futurs matchs depuis {}", fixturesUrl);
         try {
-            Reader reader = getReaderIgnoringSSL(FIXTURES_URL);
-            List<FootballDataRow> rows = new CsvToBeanBuilder<FootballDataRow>(reader)
-                    .withType(FootballDataRow.class).withSeparator(',').withIgnoreLeadingWhiteSpace(true).build().parse();
-            reader.close();
-
-            for (FootballDataRow row : rows) {
-                try {
-                    if (row.getDiv() == null) continue;
-                    String leagueCode = DIV_TO_LEAGUE_CODE.get(row.getDiv());
-                    if (leagueCode == null) continue;
-
-                    String leagueName = resolveLeagueName(leagueCode);
-                    League league = leagueRepository.findByName(leagueName).orElse(null);
-                    if (league == null) continue;
-
-                    Team home = resolveTeam(row.getHomeTeam(), league);
-                    Team away = resolveTeam(row.getAwayTeam(), league);
-
-                    LocalDate date = LocalDate.parse(row.getDate(), DateTimeFormatter.ofPattern("dd/MM/yyyy"));
-                    // Utilisation de findByTeamIds pour éviter le bug "pk is null"
-                    List<MatchAnalysis> existingMatches = matchRepository.findByTeamIds(home.getId(), away.getId());
-                    boolean exists = existingMatches.stream().anyMatch(m -> m.getMatchDate().toLocalDate().isEqual(date));
-
-                    if (!exists) {
-                        MatchAnalysis m = new MatchAnalysis();
-                        m.setHomeTeam(home);
-                        m.setAwayTeam(away);
-                        m.setSeason(CURRENT_SEASON_LABEL);
-
-                        // Correction Heure (+1h)
-                        LocalTime time = (row.getTime() != null && !row.getTime().isEmpty())
-                                ? LocalTime.parse(row.getTime(), DateTimeFormatter.ofPattern("HH:mm"))
-                                : LocalTime.of(20, 0);
-                        m.setMatchDate(LocalDateTime.of(date, time.plusHours(1)));
-
-                        m.setOdds1(row.getB365H());
-                        m.setOddsN(row.getB365D());
-                        m.setOdds2(row.getB365A());
-                        m.setOddsOver25(row.getB365O25());
-                        m.setOddsUnder25(row.getB365U25());
-
-                        m.setHomeScore(null); m.setAwayScore(null);
-                        m.setHomeMatchStats(new MatchDetailStats());
-                        m.setAwayMatchStats(new MatchDetailStats());
-                        m.setHomeStats(new TeamStats());
-                        m.setAwayStats(new TeamStats());
-
-                        predictFutureMatch(m);
-                        matchRepository.save(m);
-                        count++;
-                    }
-                } catch (Exception e) {
-                    errorCount++;
-                    log.warn("Erreur fixture ({} vs {}): {}", row.getHomeTeam(), row.getAwayTeam(), e.getMessage());
-                }
+            ImportDownloader.Fetched<List<FootballDataRow>> fixtures = downloader.fetchCached(fixturesUrl, DataImportService::parseRows).join();
+            if (fixtures.status().isHit()) {
+                return String.format("⏭️ fixtures.csv inchangé, import ignoré (cache %s).", fixtures.status());
             }
-            return String.format("✅ %d matchs à venir importés (%d erreurs).", count, errorCount);
+            FixtureImportResult result = importFixtureRows(fixtures.value(), "fixtures");
+            fixtures.commit();
+            return String.format("✅ %d matchs à venir importés, %d re-pricés sur mouvement de cotes (%d erreurs, cache %s).",
+                    result.imported(), result.repriced(), result.errors(), fixtures.status());
         } catch (Exception e) {
             log.error("Erreur import fixtures", e);
             return "Erreur: " + e.getMessage();
         }
     }
 
-    @Transactional
+    public record FixtureImportResult(int imported, int repriced, int errors) {}
+
+    /**
+     * Fixtures (et cotes) déjà parsées, quelle que soit leur source (fixtures.csv, dossier d'entrée) : nouveaux matchs
+     * créés et prédits, matchs connus re-pricés seulement si leurs cotes ont bougé. Une transaction courte par lot ;
+     * une exception signifie qu'au moins un lot n'a pas été écrit (à rejouer, l'import est idempotent).
+     */
+    public FixtureImportResult importFixtureRows(List<FootballDataRow> rows, String source) {
+        ImportStats stats = new ImportStats();
+        // Référentiels préchargés : ligues du registre (par division) et matchs déjà en base sur la fenêtre des lignes
+        // (les équipes, par lot)
+        Map<String, League> leagues = new HashMap<>();
+        for (LeagueRegistry.LeagueDefinition definition : leagueRegistry.leagues()) {
+            leagues.put(definition.division(), leagueRegistry.leagueFor(definition));
+        }
+        Map<String, Long> scheduled = loadScheduledFixtureKeys(rows);
+
+        for (int from = 0; from < rows.size(); from += chunkSize) {
+            List<FootballDataRow> chunk = rows.subList(from, Math.min(rows.size(), from + chunkSize));
+            ChunkStats committed = inChunkTransaction(source + " #" + (from / chunkSize + 1), () -> {
+                ChunkStats attempt = new ChunkStats();
+                Map<Long, Map<String, Team>> teamsByLeague = new HashMap<>();
+                for (Team team : teamRepository.findByLeagueIn(leagues.values())) {
+                    teamsByLeague.computeIfAbsent(team.getLeague().getId(), k -> new HashMap<>()).put(team.getName(), team);
+                }
+                // Matchs ajoutés par cette tentative : versés dans 'scheduled' seulement après le commit
+                Map<String, MatchAnalysis> added = new HashMap<>();
+                // Fixtures déjà en base : ligne du fichier par id, pour le relevé des cotes
+                Map<Long, FootballDataRow> known = new HashMap<>();
+                for (FootballDataRow row : chunk) {
+                    importFixture(row, leagues, teamsByLeague, scheduled, added, known, attempt);
+                }
+                upsertNewMatches(attempt);
+                known.forEach((id, row) -> attempt.oddsById.put(id, row.getOdds()));
+                repriceMovedFixtures(upsertOdds(attempt), known, attempt);
+                added.forEach((key, m) -> scheduled.put(key, m.getId()));
+                return attempt;
+            });
+            stats.add(committed);
+        }
+        predictPending(stats);
+        return new FixtureImportResult(stats.importedCount, stats.updatedCount, stats.errorCount);
+    }
+
+    private void importFixture(FootballDataRow row, Map<String, League> leagues, Map<Long, Map<String, Team>> teamsByLeague,
+                               Map<String, Long> scheduled, Map<String, MatchAnalysis> added, Map<Long, FootballDataRow> known,
+                               ChunkStats stats) {
+        try {
+            if (row.getDiv() == null || row.getMatchDate() == null) return;
+            League league = leagues.get(row.getDiv());
+            if (league == null) return; // division hors registre (ou désactivée)
+
+            Map<String, Team> teamCache = teamsByLeague.computeIfAbsent(league.getId(), k -> new HashMap<>());
+            Team home = resolveTeamFromCache(row.getHomeTeam(), league, teamCache);
+            Team away = resolveTeamFromCache(row.getAwayTeam(), league, teamCache);
+
+            LocalDate date = row.getMatchDate();
+            // Match déjà en base : seules ses cotes sont relevées. Déjà vu plus haut dans ce lot : rien à faire
+            String key = matchKey(home.getId(), away.getId(), date);
+            Long existingId = scheduled.get(key);
+            if (existingId != null) {
+                if (row.getOdds() != null) known.put(existingId, row);
+                return;
+            }
+            if (added.containsKey(key)) return;
+
+            MatchAnalysis m = new MatchAnalysis();
+            m.setHomeTeam(home);
+            m.setAwayTeam(away);
+            m.setSeason(leagueRegistry.currentSeasonLabel());
+
+            // Correction Heure (+1h)
+            LocalTime time = (row.getKickOff() != null) ? row.getKickOff() : LocalTime.of(20, 0);
+            m.setMatchDate(LocalDateTime.of(date, time.plusHours(1)));
+
+            m.setOdds1(row.getB365H());
+            m.setOddsN(row.getB365D());
+            m.setOdds2(row.getB365A());
+            m.setOddsOver25(row.getB365O25());
+            m.setOddsUnder25(row.getB365U25());
+            applyMarketOdds(m, row, stats);
+
+            m.setHomeScore(null); m.setAwayScore(null);
+            m.setHomeMatchStats(new MatchDetailStats());
+            m.setAwayMatchStats(new MatchDetailStats());
+            m.setHomeStats(new TeamStats());
+            m.setAwayStats(new TeamStats());
+
+            added.put(key, m);
+            stats.inserts.add(m);
+            stats.toPredict.add(m);
+            stats.importedCount++;
+        } catch (Exception e) {
+            stats.errorCount++;
+            log.warn("Erreur fixture ({} vs {}): {}", row.getHomeTeam(), row.getAwayTeam(), e.getMessage());
+        }
+    }
+
+    /**
+     * Matchs déjà en base entre la première et la dernière date du fichier : la requête ne dépend que
+     * de la fenêtre des fixtures, pas du volume d'historique.
+     */
+    private Map<String, Long> loadScheduledFixtureKeys(List<FootballDataRow> rows) {
+        Map<String, Long> keys = new HashMap<>();
+        LocalDate first = null, last = null;
+        for (FootballDataRow row : rows) {
+            LocalDate d = row.getMatchDate();
+            if (d == null) continue;
+            if (first == null || d.isBefore(first)) first = d;
+            if (last == null || d.isAfter(last)) last = d;
+        }
+        if (first == null) return keys;
+
+        for (Object[] key : matchRepository.findMatchKeysBetween(first, last)) {
+            keys.put(matchKey((Long) key[0], (Long) key[1], (LocalDate) key[2]), (Long) key[3]);
+        }
+        return keys;
+    }
+
+    // Clé naturelle d'un match (domicile, extérieur, jour du coup d'envoi), comme l'index unique uk_match_natural_key
+    static String matchKey(Long homeId, Long awayId, LocalDate kickoffDate) {
+        return homeId + "-" + awayId + "-" + kickoffDate;
+    }
+
     public String importAllLeagues(boolean forceUpdate) {
         StringBuilder report = new StringBuilder("--- Rapport Import Saison En Cours ---\n");
-        for (String code : LEAGUE_FILES.keySet()) {
-            report.append(importLeagueData(code, forceUpdate)).append("\n");
-        }
+        report.append(importCurrentSeason(forceUpdate));
         report.append(importUpcomingFixtures()).append("\n");
         return report.toString();
     }
 
-    public Set<String> getAvailableLeagues() { return LEAGUE_FILES.keySet(); }
+    /**
+     * Résultats de la saison en cours pour toutes les ligues du registre : CSV et scraping FBRef de chaque ligue
+     * partent en parallèle, la persistance aussi (une ligue par thread, LeagueRegistry.runPerLeague).
+     */
+    public String importCurrentSeason(boolean forceUpdate) {
+        List<LeagueRegistry.LeagueDefinition> leagues = leagueRegistry.leagues();
+        Map<String, CompletableFuture<ImportDownloader.Fetched<byte[]>>> files = new HashMap<>();
+        Map<String, CompletableFuture<Map<String, XgScraperService.TeamXgMetrics>>> advancedStats = new HashMap<>();
+        for (LeagueRegistry.LeagueDefinition league : leagues) {
+            files.put(league.code(), fetchSeason(leagueRegistry.currentSeasonCode(), league));
+            advancedStats.put(league.code(), fetchAdvancedStatsIfChanged(league, files.get(league.code()), forceUpdate));
+        }
+
+        StringBuilder report = new StringBuilder();
+        leagueRegistry.runPerLeague(leagues, league ->
+                importLeagueData(league, forceUpdate, files.get(league.code()), advancedStats.get(league.code())))
+                .values().forEach(line -> report.append(line).append("\n"));
+        return report.toString();
+    }
+
+    public Set<String> getAvailableLeagues() {
+        Set<String> codes = new LinkedHashSet<>();
+        leagueRegistry.leagues().forEach(l -> codes.add(l.code()));
+        return codes;
+    }
 
     // --- LOGIQUE MÉTIER ---
 
-    private ImportStats processRows(List<FootballDataRow> rows, League league,
-            Map<String, Team> teamCache, Map<String, MatchAnalysis> existingMatches,
-            boolean forceUpdate, String seasonLabel) {
-        ImportStats stats = new ImportStats();
+    /**
+     * Ligne préparée par l'étage "resolve" : tout ce qui se calcule sans la base ni le contexte JPA.
+     */
+    private record PreparedRow(FootballDataRow row, String homeName, String awayName, LocalDateTime matchDateTime, long sourceHash) {}
 
-        for (FootballDataRow row : rows) {
-            try {
-                if(row.getDate() == null) continue;
-                LocalDate date = LocalDate.parse(row.getDate(), DateTimeFormatter.ofPattern("dd/MM/yyyy"));
+    private static PreparedRow prepareRow(FootballDataRow row) {
+        if (row.getMatchDate() == null) return null;
+        return new PreparedRow(row, cleanTeamName(row.getHomeTeam()), cleanTeamName(row.getAwayTeam()),
+                toMatchDateTime(row), row.contentHash());
+    }
 
-                // Heure +1h
-                LocalTime time = (row.getTime() != null)
-                        ? LocalTime.parse(row.getTime(), DateTimeFormatter.ofPattern("HH:mm"))
-                        : LocalTime.of(16, 0);
-                LocalDateTime matchDateTime = LocalDateTime.of(date, time.plusHours(1));
+    /**
+     * Étage "map" : rapproche la ligne du match en base et renvoie le match à écrire (null si rien à écrire).
+     */
+    private MatchAnalysis processRow(PreparedRow prepared, League league,
+            Map<String, Team> teamCache, Map<String, MatchAnalysis> existingMatches,
+            boolean forceUpdate, String seasonLabel, ChunkStats stats) {
+        try {
+            FootballDataRow row = prepared.row();
+            LocalDateTime matchDateTime = prepared.matchDateTime();
 
-                Team home = resolveTeamFromCache(row.getHomeTeam(), league, teamCache);
-                Team away = resolveTeamFromCache(row.getAwayTeam(), league, teamCache);
-                String matchKey = generateMatchKey(home, away, seasonLabel);
+            Team home = resolveTeamFromCache(prepared.homeName(), league, teamCache);
+            Team away = resolveTeamFromCache(prepared.awayName(), league, teamCache);
+            String matchKey = matchKey(home.getId(), away.getId(), matchDateTime.toLocalDate());
 
-                MatchAnalysis matchToSave;
+            MatchAnalysis matchToSave;
 
-                if (existingMatches.containsKey(matchKey)) {
-                    MatchAnalysis existing = existingMatches.get(matchKey);
+            long sourceHash = prepared.sourceHash();
 
-                    // Smart Update: Si le match existe sans score et que le CSV en a un
-                    boolean newScoreAvailable = (existing.getHomeScore() == null && row.getFTHG() != null);
+            MatchAnalysis existing = existingMatches.get(matchKey);
+            if (existing != null) {
 
-                    if (forceUpdate || newScoreAvailable) {
-                        matchToSave = existing;
-                        stats.updatedCount++;
-                    } else {
-                        stats.skippedCount++;
-                        continue; // On passe au suivant
-                    }
-                } else {
-                    matchToSave = new MatchAnalysis();
-                    matchToSave.setHomeTeam(home);
-                    matchToSave.setAwayTeam(away);
-                    matchToSave.setSeason(seasonLabel); // Utilise la saison passée en paramètre
-                    stats.importedCount++;
+                // Ligne identique au dernier import : une comparaison d'empreinte et on passe au suivant
+                // (forceUpdate revérifie quand même les champs, au cas où la base aurait été modifiée à la main)
+                if (!forceUpdate && existing.getSourceHash() != null && existing.getSourceHash() == sourceHash) {
+                    stats.skippedCount++;
+                    return null;
                 }
 
-                // Pas de booléen 'shouldSave', on exécute direct si on n'a pas fait continue
-                mapDataToMatch(matchToSave, row, matchDateTime);
-                matchRepository.save(matchToSave);
-
-                // On ne marque pour recalcul que si c'est la saison courante (optimisation)
-                if (seasonLabel.equals(CURRENT_SEASON_LABEL)) {
-                    stats.teamsToRecalculate.add(home.getId());
-                    stats.teamsToRecalculate.add(away.getId());
+                List<String> changes = changedFields(existing, row, matchDateTime);
+                if (changes.isEmpty()) {
+                    // Rien à réécrire (match importé avant les empreintes, ou forceUpdate) : on mémorise juste l'empreinte
+                    // (les cotes hors Bet365 ont pu changer : match_odds ne réécrit que si le tableau encodé diffère)
+                    existing.setSourceHash(sourceHash);
+                    if (row.getOdds() != null) stats.odds.put(existing, row.getOdds());
+                    stats.skippedCount++;
+                    return null;
                 }
+                recordChanges(existing, matchDateTime, changes, stats);
+                matchToSave = existing;
+                stats.updatedCount++;
+            } else {
+                matchToSave = new MatchAnalysis();
+                matchToSave.setHomeTeam(home);
+                matchToSave.setAwayTeam(away);
+                matchToSave.setSeason(seasonLabel); // Utilise la saison passée en paramètre
+                stats.importedCount++;
+            }
 
-            } catch (Exception e) {
-                log.warn("Ligne ignorée : {}", e.getMessage());
+            // Nouveau résultat (match sans score jusqu'ici) : mise à jour en ligne des forces Alpha/Beta
+            boolean newResult = matchToSave.getHomeScore() == null && row.getFTHG() != null && row.getFTAG() != null;
+
+            // Pas de booléen 'shouldSave', on exécute direct si on n'est pas sorti plus haut
+            mapDataToMatch(matchToSave, row, matchDateTime, stats);
+            matchToSave.setSourceHash(sourceHash);
+
+            if (newResult) {
+                stats.results.add(new PendingResult(home, away, row.getFTHG(), row.getFTAG()));
             }
+
+            // On ne marque pour recalcul que si c'est la saison courante (optimisation)
+            if (seasonLabel.equals(leagueRegistry.currentSeasonLabel())) {
+                stats.teamsToRecalculate.add(home.getId());
+                stats.teamsToRecalculate.add(away.getId());
+            }
+            return matchToSave;
+
+        } catch (Exception e) {
+            log.warn("Ligne ignorée : {}", e.getMessage());
+            return null;
         }
-        return stats;
     }
 
-    private void mapDataToMatch(MatchAnalysis m, FootballDataRow row, LocalDateTime date) {
+    /**
+     * Différences entre le match en base et la ligne source, sur les champs que mapDataToMatch écrirait.
+     * Format "champ avant→après", pour l'audit des corrections de cotes et de scores.
+     */
+    private static List<String> changedFields(MatchAnalysis m, FootballDataRow row, LocalDateTime date) {
+        List<String> changes = new ArrayList<>();
+        diff(changes, "matchDate", m.getMatchDate(), date);
+        if (row.getFTHG() != null) {
+            diff(changes, "homeScore", m.getHomeScore(), row.getFTHG());
+            diff(changes, "awayScore", m.getAwayScore(), row.getFTAG());
+            diff(changes, "homeScoreHT", m.getHomeScoreHT(), row.getHTHG());
+            diff(changes, "awayScoreHT", m.getAwayScoreHT(), row.getHTAG());
+            diff(changes, "referee", m.getReferee(), row.getReferee());
+
+            MatchDetailStats hs = (m.getHomeMatchStats() == null) ? new MatchDetailStats() : m.getHomeMatchStats();
+            diff(changes, "homeShots", hs.getShots(), row.getHS());
+            diff(changes, "homeShotsOnTarget", hs.getShotsOnTarget(), row.getHST());
+            diff(changes, "homeCorners", hs.getCorners(), row.getHC());
+            diff(changes, "homeFouls", hs.getFouls(), row.getHF());
+            diff(changes, "homeYellowCards", hs.getYellowCards(), row.getHY());
+            diff(changes, "homeRedCards", hs.getRedCards(), row.getHR());
+
+            MatchDetailStats as = (m.getAwayMatchStats() == null) ? new MatchDetailStats() : m.getAwayMatchStats();
+            diff(changes, "awayShots", as.getShots(), row.getAS());
+            diff(changes, "awayShotsOnTarget", as.getShotsOnTarget(), row.getAST());
+            diff(changes, "awayCorners", as.getCorners(), row.getAC());
+            diff(changes, "awayFouls", as.getFouls(), row.getAF());
+            diff(changes, "awayYellowCards", as.getYellowCards(), row.getAY());
+            diff(changes, "awayRedCards", as.getRedCards(), row.getAR());
+        }
+        diff(changes, "odds1", m.getOdds1(), row.getB365H());
+        diff(changes, "oddsN", m.getOddsN(), row.getB365D());
+        diff(changes, "odds2", m.getOdds2(), row.getB365A());
+        diff(changes, "oddsOver25", m.getOddsOver25(), row.getB365O25());
+        diff(changes, "oddsUnder25", m.getOddsUnder25(), row.getB365U25());
+        double[] consensus = (row.getOdds() != null) ? row.getOdds().consensus1x2() : null;
+        diff(changes, "consensusHome", m.getConsensusHome(), consensus != null ? consensus[0] : null);
+        diff(changes, "consensusDraw", m.getConsensusDraw(), consensus != null ? consensus[1] : null);
+        diff(changes, "consensusAway", m.getConsensusAway(), consensus != null ? consensus[2] : null);
+        return changes;
+    }
+
+    private static void diff(List<String> changes, String field, Object before, Object after) {
+        if (!Objects.equals(before, after)) changes.add(field + " " + before + "→" + after);
+    }
+
+    private void recordChanges(MatchAnalysis m, LocalDateTime date, List<String> changes, ChunkStats stats) {
+        for (String change : changes) {
+            stats.changedFields.merge(change.substring(0, change.indexOf(' ')), 1, Integer::sum);
+        }
+        String line = String.format("%s - %s (%s) : %s", m.getHomeTeam().getName(), m.getAwayTeam().getName(),
+                date.toLocalDate(), String.join(", ", changes));
+        log.info("✏️ {}", line);
+        stats.changeLog.add(line);
+    }
+
+    /**
+     * Les matchs sont écrits par paquets : un seul flush envoie les inserts/updates en batch JDBC
+     * au lieu d'un aller-retour par ligne CSV.
+     */
+    private void queueForSave(MatchAnalysis match, ChunkStats stats) {
+        stats.pending.add(match);
+        if (stats.pending.size() >= batchSize) flushPending(stats);
+    }
+
+    private void flushPending(ChunkStats stats) {
+        if (stats.pending.isEmpty()) return;
+        long start = System.nanoTime();
+        matchRepository.saveAll(stats.pending);
+        matchRepository.flush();
+        pipelineMetrics.stage("persist").record(stats.pending.size(), System.nanoTime() - start);
+        stats.pending.clear();
+    }
+
+    /**
+     * Nombre de requêtes préparées depuis le démarrage (≈ allers-retours base, un batch JDBC comptant pour un).
+     * -1 si les statistiques Hibernate sont désactivées.
+     */
+    private long preparedStatementCount() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        return statistics.isStatisticsEnabled() ? statistics.getPrepareStatementCount() : -1;
+    }
+
+    private void mapDataToMatch(MatchAnalysis m, FootballDataRow row, LocalDateTime date, ChunkStats stats) {
         m.setMatchDate(date);
 
         if (row.getFTHG() != null) {
@@ -442,31 +1024,75 @@ public class DataImportService {
         m.setOdds2(row.getB365A());
         m.setOddsOver25(row.getB365O25());
         m.setOddsUnder25(row.getB365U25());
+        applyMarketOdds(m, row, stats);
 
         if(m.getHomeStats() == null) m.setHomeStats(new TeamStats());
         if(m.getAwayStats() == null) m.setAwayStats(new TeamStats());
 
-        // On prédit aussi pour l'historique (pour le backtesting)
+        // On prédit aussi pour l'historique (pour le backtesting) : calcul différé après l'ingestion (predictPending)
         if (m.getHomeScore() == null || m.getPrediction() == null) {
-            predictFutureMatch(m);
+            stats.toPredict.add(m);
+        } else {
+            // Score et prédiction existante : on évalue la performance
+            evaluationService.evaluatePrediction(m);
         }
+    }
 
-        // Si on a un score et une prédiction existante, on évalue la performance
-        if (m.getHomeScore() != null && m.getPrediction() != null) {
-            evaluationService.evaluatePrediction(m);
+    /**
+     * Consensus 1X2 sans marge calculé une fois ici (lu tel quel par le moteur), cotes détaillées mises de côté pour match_odds
+     * (sauf stats null : cotes déjà relevées).
+     */
+    private static void applyMarketOdds(MatchAnalysis m, FootballDataRow row, ChunkStats stats) {
+        double[] consensus = (row.getOdds() != null) ? row.getOdds().consensus1x2() : null;
+        m.setConsensusHome(consensus != null ? consensus[0] : null);
+        m.setConsensusDraw(consensus != null ? consensus[1] : null);
+        m.setConsensusAway(consensus != null ? consensus[2] : null);
+        if (stats != null && row.getOdds() != null) stats.odds.put(m, row.getOdds());
+    }
+
+    /**
+     * Prédictions par lot : une requête charge l'historique de toutes les équipes concernées, puis chaque match
+     * est pricé sur sa tranche à date (matchs strictement antérieurs) avec un seul Snapshot de paramètres.
+     * Remplace 3 requêtes par ligne (H2H + historique de chaque équipe) évaluées sur une base à moitié importée.
+     * Les matchs sont rechargés par identifiant, lot par lot, pour être écrits par dirty checking dans des transactions courtes.
+     */
+    private void predictPending(ImportStats stats) {
+        if (stats.toPredictIds.isEmpty()) return;
+
+        MatchHistoryIndex history = MatchHistoryIndex.of(matchRepository.findAllByTeamIds(stats.predictTeamIds));
+        ModelParameterRegistry.Snapshot parameters = (stats.parameters != null) ? stats.parameters : parameterRegistry.current();
+
+        List<Long> ids = stats.toPredictIds;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(ids.size(), from + chunkSize));
+            inChunkTransaction("prédictions #" + (from / chunkSize + 1), () -> {
+                for (MatchAnalysis m : matchRepository.findAllWithTeamsByIdIn(chunk)) {
+                    predictFutureMatch(m, history, parameters);
+                    if (m.getHomeScore() != null) evaluationService.evaluatePrediction(m);
+                }
+                long start = System.nanoTime();
+                matchRepository.flush();
+                pipelineMetrics.stage("persist").record(chunk.size(), System.nanoTime() - start);
+                return null;
+            });
         }
+
+        log.info("🔮 {} prédictions en lot (1 requête d'historique au lieu de {})", ids.size(), 3 * ids.size());
+        stats.predictedCount += ids.size();
+        stats.toPredictIds.clear();
+        stats.predictTeamIds.clear();
     }
 
-    private void predictFutureMatch(MatchAnalysis m) {
-        var h2h = matchRepository.findH2H(m.getHomeTeam(), m.getAwayTeam(), m.getMatchDate());
-        var homeHistory = matchRepository.findLastMatchesByTeam(m.getHomeTeam().getId(), m.getMatchDate());
-        var awayHistory = matchRepository.findLastMatchesByTeam(m.getAwayTeam().getId(), m.getMatchDate());
+    private void predictFutureMatch(MatchAnalysis m, MatchHistoryIndex history, ModelParameterRegistry.Snapshot parameters) {
+        var h2h = history.headToHead(m.getHomeTeam(), m.getAwayTeam(), m.getMatchDate());
+        var homeHistory = history.teamHistory(m.getHomeTeam(), m.getMatchDate());
+        var awayHistory = history.teamHistory(m.getAwayTeam(), m.getMatchDate());
 
         double leagueAvg = (m.getHomeTeam().getLeague() != null && m.getHomeTeam().getLeague().getAverageGoalsPerMatch() != null)
                 ? m.getHomeTeam().getLeague().getAverageGoalsPerMatch() : 2.5;
 
         PredictionResult prediction = predictionEngineService.calculateMatchPrediction(
-                m, h2h, homeHistory, awayHistory, leagueAvg
+                m, h2h, homeHistory, awayHistory, leagueAvg, parameters
         );
         m.setPrediction(prediction);
     }
@@ -505,38 +1131,28 @@ public class DataImportService {
     }
 
     // --- HELPERS ---
-    private Team resolveTeam(String csvName, League league) {
-        String cleanName = TEAM_NAME_MAPPING.getOrDefault(csvName, csvName);
-
-        Team team = teamRepository.findByNameAndLeague(cleanName, league)
-                .orElseGet(() -> {
-                    Team t = new Team(cleanName, league);
-                    // Injection des coordonnées GPS pour les nouvelles équipes
-                    if (STADIUM_COORDS.containsKey(cleanName)) {
-                        double[] gps = STADIUM_COORDS.get(cleanName);
-                        t.setLatitude(gps[0]);
-                        t.setLongitude(gps[1]);
-                    }
-                    return t;
-                });
 
-        // PATCH LEAD DEV : Si l'équipe existe déjà mais n'a pas de logo, on le met à jour !
-        if (team.getLogoUrl() == null || team.getLogoUrl().isEmpty()) {
-            team.setLogoUrl(generateLogoPath(cleanName));
-            team = teamRepository.save(team);
-        }
+    /**
+     * Date et heure d'un résultat de saison (heure UK +1h, 16h par défaut), partagées avec le chargement COPY.
+     */
+    static LocalDateTime toMatchDateTime(FootballDataRow row) {
+        if (row.getMatchDate() == null) return null;
+        LocalTime time = (row.getKickOff() != null) ? row.getKickOff() : LocalTime.of(16, 0);
+        return LocalDateTime.of(row.getMatchDate(), time.plusHours(1));
+    }
 
-        return team;
+    static String cleanTeamName(String csvName) {
+        return TEAM_NAME_MAPPING.getOrDefault(csvName, csvName);
     }
 
     private Team resolveTeamFromCache(String csvName, League league, Map<String, Team> cache) {
-        String cleanName = TEAM_NAME_MAPPING.getOrDefault(csvName, csvName);
+        String cleanName = cleanTeamName(csvName);
 
         if (cache.containsKey(cleanName)) {
             Team existingTeam = cache.get(cleanName);
             // PATCH : Mise à jour du cache si le logo manquait
             if (existingTeam.getLogoUrl() == null || existingTeam.getLogoUrl().isEmpty()) {
-                existingTeam.setLogoUrl(generateLogoPath(cleanName));
+                existingTeam.setLogoUrl(logoPathOf(cleanName));
                 existingTeam = teamRepository.save(existingTeam);
                 cache.put(cleanName, existingTeam);
             }
@@ -544,91 +1160,74 @@ public class DataImportService {
         }
 
         Team newTeam = new Team(cleanName, league);
-        newTeam.setLogoUrl(generateLogoPath(cleanName));
+        newTeam.setLogoUrl(logoPathOf(cleanName));
+        // Injection des coordonnées GPS pour les nouvelles équipes
+        if (STADIUM_COORDS.containsKey(cleanName)) {
+            double[] gps = STADIUM_COORDS.get(cleanName);
+            newTeam.setLatitude(gps[0]);
+            newTeam.setLongitude(gps[1]);
+        }
         newTeam = teamRepository.save(newTeam);
         cache.put(cleanName, newTeam);
         return newTeam;
     }
 
-    private League getOrCreateLeague(String name, String country) {
-        return leagueRepository.findByName(name).orElseGet(() -> leagueRepository.save(new League(name, country, "xx")));
-    }
-
-    private String resolveLeagueName(String code) {
-        return switch(code) {
-            case "PL" -> "Premier League"; case "L1" -> "Ligue 1"; case "LIGA" -> "La Liga";
-            case "SERIEA" -> "Serie A"; case "BUNDES" -> "Bundesliga"; default -> "Unknown League";
-        };
-    }
-    private String resolveCountry(String code) {
-        return switch(code) {
-            case "PL" -> "England"; case "L1" -> "France"; case "LIGA" -> "Spain";
-            case "SERIEA" -> "Italy"; case "BUNDES" -> "Germany"; default -> "World";
-        };
-    }
+    private double round(double value) { return Math.round(value * 100.0) / 100.0; }
+    // Résultat à intégrer dans les forces en ligne après le commit du lot
+    private record PendingResult(Team home, Team away, int homeGoals, int awayGoals) {}
 
-    private String generateMatchKey(Team h, Team a, String seasonLabel) {
-        return h.getId() + "-" + a.getId() + "-" + seasonLabel;
+    /**
+     * Compteurs et entités d'un lot, propres à une tentative de sa transaction.
+     */
+    private static class ChunkStats {
+        int importedCount;
+        int updatedCount;
+        int skippedCount;
+        int errorCount;
+        Set<Long> teamsToRecalculate = new HashSet<>();
+        Map<String, Integer> changedFields = new TreeMap<>();
+        List<String> changeLog = new ArrayList<>();
+        // Nouveaux matchs, écrits en upsert hors contexte JPA
+        List<MatchAnalysis> inserts = new ArrayList<>();
+        // Matchs existants modifiés, en attente du prochain saveAll
+        List<MatchAnalysis> pending = new ArrayList<>();
+        List<MatchAnalysis> toPredict = new ArrayList<>();
+        List<PendingResult> results = new ArrayList<>();
+        // Cotes par entité tant que l'id n'est pas attribué, puis par id pour match_odds
+        Map<MatchAnalysis, MarketOdds> odds = new IdentityHashMap<>();
+        Map<Long, MarketOdds> oddsById = new HashMap<>();
     }
 
-    private double round(double value) { return Math.round(value * 100.0) / 100.0; }
-    private static class ImportStats { int importedCount=0; int updatedCount=0; int skippedCount=0; Set<Long> teamsToRecalculate = new HashSet<>(); }
-
-    // --- READER SECURISE (BOM + SSL) ---
-    private Reader getReaderIgnoringSSL(String urlString) throws Exception {
-        TrustManager[] trustAllCerts = new TrustManager[]{ new X509TrustManager() {
-            public X509Certificate[] getAcceptedIssuers() { return null; }
-            public void checkClientTrusted(X509Certificate[] certs, String authType) {}
-            public void checkServerTrusted(X509Certificate[] certs, String authType) {}
-        }};
-        SSLContext sc = SSLContext.getInstance("TLS");
-        sc.init(null, trustAllCerts, new SecureRandom());
-        URL url = URI.create(urlString).toURL();
-        HttpsURLConnection conn = (HttpsURLConnection) url.openConnection();
-        conn.setSSLSocketFactory(sc.getSocketFactory());
-        conn.setHostnameVerifier((hostname, session) -> true);
-
-        // BOM Fix
-        java.io.InputStream is = conn.getInputStream();
-        java.io.PushbackInputStream pis = new java.io.PushbackInputStream(is, 3);
-        byte[] header = new byte[3];
-        int n = pis.read(header, 0, 3);
-        if (n >= 3 && header[0] == (byte)0xEF && header[1] == (byte)0xBB && header[2] == (byte)0xBF) {
-            // BOM detected and skipped
-        } else if (n > 0) {
-            pis.unread(header, 0, n);
-        }
-        return new InputStreamReader(pis, java.nio.charset.StandardCharsets.UTF_8);
-    }
-
-    @Data
-    public static class FootballDataRow {
-        @com.opencsv.bean.CsvBindByName(column = "Div") private String div;
-        @com.opencsv.bean.CsvBindByName(column = "Date") private String date;
-        @com.opencsv.bean.CsvBindByName(column = "Time") private String time;
-        @com.opencsv.bean.CsvBindByName(column = "HomeTeam") private String homeTeam;
-        @com.opencsv.bean.CsvBindByName(column = "AwayTeam") private String awayTeam;
-        @com.opencsv.bean.CsvBindByName(column = "FTHG") private Integer FTHG;
-        @com.opencsv.bean.CsvBindByName(column = "FTAG") private Integer FTAG;
-        @com.opencsv.bean.CsvBindByName(column = "HTHG") private Integer HTHG;
-        @com.opencsv.bean.CsvBindByName(column = "HTAG") private Integer HTAG;
-        @com.opencsv.bean.CsvBindByName(column = "Referee") private String referee;
-        @com.opencsv.bean.CsvBindByName(column = "HS") private Integer HS;
-        @com.opencsv.bean.CsvBindByName(column = "AS") private Integer AS;
-        @com.opencsv.bean.CsvBindByName(column = "HST") private Integer HST;
-        @com.opencsv.bean.CsvBindByName(column = "AST") private Integer AST;
-        @com.opencsv.bean.CsvBindByName(column = "HC") private Integer HC;
-        @com.opencsv.bean.CsvBindByName(column = "AC") private Integer AC;
-        @com.opencsv.bean.CsvBindByName(column = "HF") private Integer HF;
-        @com.opencsv.bean.CsvBindByName(column = "AF") private Integer AF;
-        @com.opencsv.bean.CsvBindByName(column = "HY") private Integer HY;
-        @com.opencsv.bean.CsvBindByName(column = "AY") private Integer AY;
-        @com.opencsv.bean.CsvBindByName(column = "HR") private Integer HR;
-        @com.opencsv.bean.CsvBindByName(column = "AR") private Integer AR;
-        @com.opencsv.bean.CsvBindByName(column = "B365H") private Double B365H;
-        @com.opencsv.bean.CsvBindByName(column = "B365D") private Double B365D;
-        @com.opencsv.bean.CsvBindByName(column = "B365A") private Double B365A;
-        @com.opencsv.bean.CsvBindByName(column = "B365>2.5") private Double B365O25;
-        @com.opencsv.bean.CsvBindByName(column = "B365<2.5") private Double B365U25;
+    /**
+     * Totaux d'un fichier : somme des lots commités, et des identifiants plutôt que des entités détachées.
+     */
+    private static class ImportStats {
+        int importedCount;
+        int updatedCount;
+        int skippedCount;
+        int errorCount;
+        int predictedCount;
+        Set<Long> teamsToRecalculate = new HashSet<>();
+        Map<String, Integer> changedFields = new TreeMap<>();
+        List<String> changeLog = new ArrayList<>();
+        ModelParameterRegistry.Snapshot parameters;
+        List<Long> toPredictIds = new ArrayList<>();
+        Set<Long> predictTeamIds = new HashSet<>();
+
+        // Ajout d'un lot commité (ids attribués au flush)
+        void add(ChunkStats chunk) {
+            importedCount += chunk.importedCount;
+            updatedCount += chunk.updatedCount;
+            skippedCount += chunk.skippedCount;
+            errorCount += chunk.errorCount;
+            teamsToRecalculate.addAll(chunk.teamsToRecalculate);
+            chunk.changedFields.forEach((field, n) -> changedFields.merge(field, n, Integer::sum));
+            changeLog.addAll(chunk.changeLog);
+            for (MatchAnalysis m : chunk.toPredict) {
+                toPredictIds.add(m.getId());
+                predictTeamIds.add(m.getHomeTeam().getId());
+                predictTeamIds.add(m.getAwayTeam().getId());
+            }
+        }
     }
 }
@@ -1,5 +1,6 @@
 package com.tony.sportsAnalytics.service;
 
+import com.tony.sportsAnalytics.model.League;
 import com.tony.sportsAnalytics.model.Team;
 import org.springframework.stereotype.Service;
 
@@ -8,8 +9,8 @@ public class EloService {
 
     // Facteur K : La volatilité.
     // K=30 est agressif (bien pour le foot où la forme change vite).
-    // K=20 est standard.
-    private static final int K_FACTOR = 30;
+    // K=20 est standard. Surchargé par ligue (League.eloKFactor) après recherche d'hyperparamètres.
+    private static final int DEFAULT_K_FACTOR = 30;
 
     /**
      * Met à jour les scores ELO des deux équipes après un match réel.
@@ -27,7 +28,9 @@ public class EloService {
         double expectedScoreHome = 1.0 / (1.0 + Math.pow(10.0, (awayTeam.getEloRating() - homeTeam.getEloRating()) / 400.0));
 
         // Formule ELO Standard : Nouveau = Ancien + K * (Réel - Attendu)
-        int delta = (int) (K_FACTOR * (actualScoreHome - expectedScoreHome));
+        League league = homeTeam.getLeague();
+        int kFactor = (league != null && league.getEloKFactor() != null) ? league.getEloKFactor() : DEFAULT_K_FACTOR;
+        int delta = (int) (kFactor * (actualScoreHome - expectedScoreHome));
 
         // Ajustement sur la marge de victoire (Bonus si massacre, ex: 5-0)
         int goalDiff = Math.abs(homeGoals - awayGoals);
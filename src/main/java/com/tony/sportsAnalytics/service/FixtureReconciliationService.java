@@ -0,0 +1,124 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.MatchAnalysis.ArchiveReason;
+import com.tony.sportsAnalytics.repository.MatchAnalysisRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Réconciliation des fixtures : l'import des matchs à venir ne dédoublonne que sur la clé exacte (domicile, extérieur, jour),
+ * un match reporté crée donc une seconde ligne et l'ancienne reste "à venir" pour toujours.
+ * Une passe courte (quelques requêtes SQL, aucune entité chargée ; le choix du remplaçant se fait sur les paires lues)
+ * archive ces fantômes :
+ * - PLAYED : la même affiche a été jouée à une date proche, égale ou postérieure (même saison) ;
+ * - MOVED : une fixture plus récente de la même affiche existe à une autre date proche ;
+ * - STALE : date passée depuis plus de import.fixtures.stale-after-days sans résultat ni remplaçant.
+ * Les lignes archivées restent en base (cotes, historique, lien vers le remplaçant) mais sortent de findUpcomingMatches.
+ * Une fixture archivée qui reçoit finalement un score (résultat arrivé en retard) est réactivée.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FixtureReconciliationService {
+
+    private static final String REVIVE_SQL = "UPDATE match_analysis SET archived_at = NULL, archive_reason = NULL, superseded_by = NULL " +
+            "WHERE archived_at IS NOT NULL AND home_score IS NOT NULL";
+
+    // Fixtures non jouées et actives, avec chaque autre ligne active de la même affiche (même saison) à moins de N jours
+    private static final String CANDIDATES_SQL = "SELECT u.id, u.kickoff_date, o.id, o.kickoff_date, o.home_score IS NOT NULL " +
+            "FROM match_analysis u JOIN match_analysis o " +
+            "ON o.home_team_id = u.home_team_id AND o.away_team_id = u.away_team_id AND o.id <> u.id " +
+            "AND o.archived_at IS NULL AND o.season IS NOT DISTINCT FROM u.season AND abs(o.kickoff_date - u.kickoff_date) <= ? " +
+            "WHERE u.home_score IS NULL AND u.archived_at IS NULL AND u.kickoff_date IS NOT NULL ORDER BY u.id";
+
+    private static final String ARCHIVE_SQL = "UPDATE match_analysis SET archived_at = now(), archive_reason = ?, superseded_by = ? " +
+            "WHERE id = ? AND archived_at IS NULL";
+
+    private static final String STALE_SQL = "UPDATE match_analysis SET archived_at = now(), archive_reason = 'STALE' " +
+            "WHERE home_score IS NULL AND archived_at IS NULL AND kickoff_date < current_date - ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MatchAnalysisRepository matchRepository;
+
+    // Écart maximal (jours) entre une fixture et sa nouvelle date pour la même affiche : au-delà, c'est une autre rencontre
+    // (ligues où deux équipes se reçoivent plusieurs fois par saison)
+    @Value("${import.fixtures.reschedule-window-days:60}")
+    private int rescheduleWindowDays;
+
+    // Jours sans résultat après la date prévue avant d'archiver une fixture sans remplaçant
+    @Value("${import.fixtures.stale-after-days:3}")
+    private int staleAfterDays;
+
+    record Fixture(long id, LocalDate kickoffDate, boolean played) {}
+
+    /**
+     * @param skippedUpcoming matchs non joués à venir désormais ignorés par les re-pricings (archivés)
+     */
+    public record ReconciliationReport(int revived, int moved, int played, int stale, long skippedUpcoming, long durationMs) {}
+
+    public ReconciliationReport reconcile() {
+        long start = System.currentTimeMillis();
+        Map<ArchiveReason, Integer> archived = new EnumMap<>(ArchiveReason.class);
+        int revived = transactionTemplate.execute(tx -> {
+            int count = jdbcTemplate.update(REVIVE_SQL);
+            Map<Fixture, List<Fixture>> candidates = new LinkedHashMap<>();
+            jdbcTemplate.query(CANDIDATES_SQL, rs -> {
+                Fixture ghost = new Fixture(rs.getLong(1), rs.getObject(2, LocalDate.class), false);
+                candidates.computeIfAbsent(ghost, k -> new ArrayList<>())
+                        .add(new Fixture(rs.getLong(3), rs.getObject(4, LocalDate.class), rs.getBoolean(5)));
+            }, rescheduleWindowDays);
+
+            List<Object[]> updates = new ArrayList<>();
+            candidates.forEach((ghost, others) -> {
+                Fixture keep = replacementOf(ghost, others);
+                if (keep == null) return;
+                ArchiveReason reason = keep.played() ? ArchiveReason.PLAYED : ArchiveReason.MOVED;
+                archived.merge(reason, 1, Integer::sum);
+                updates.add(new Object[]{reason.name(), keep.id(), ghost.id()});
+            });
+            jdbcTemplate.batchUpdate(ARCHIVE_SQL, updates);
+            archived.put(ArchiveReason.STALE, jdbcTemplate.update(STALE_SQL, staleAfterDays));
+            return count;
+        });
+
+        ReconciliationReport report = new ReconciliationReport(revived,
+                archived.getOrDefault(ArchiveReason.MOVED, 0), archived.getOrDefault(ArchiveReason.PLAYED, 0),
+                archived.getOrDefault(ArchiveReason.STALE, 0), matchRepository.countArchivedUpcoming(LocalDateTime.now()),
+                System.currentTimeMillis() - start);
+        log.info("🧹 Réconciliation des fixtures : {} reportées, {} jouées à une autre date, {} périmées archivées, {} réactivées " +
+                        "({} matchs à venir ignorés par les re-pricings, {} ms)",
+                report.moved(), report.played(), report.stale(), report.revived(), report.skippedUpcoming(), report.durationMs());
+        return report;
+    }
+
+    /**
+     * Remplaçant d'une fixture non jouée parmi les autres lignes actives de la même affiche sur la fenêtre (null si aucun) :
+     * un match joué à la même date ou après (report), sinon la fixture non jouée la plus récemment créée (id le plus grand).
+     * Un match joué avant est une rencontre précédente (affiche répétée dans la saison, Écosse après la scission) :
+     * jamais un remplaçant. Une fixture avancée puis jouée garde sa date d'origine et finit en STALE.
+     */
+    static Fixture replacementOf(Fixture ghost, List<Fixture> others) {
+        Fixture best = null;
+        for (Fixture o : others) {
+            boolean eligible = o.played() ? !o.kickoffDate().isBefore(ghost.kickoffDate()) : o.id() > ghost.id();
+            if (!eligible) continue;
+            if (best == null || (o.played() && !best.played()) || (o.played() == best.played() && o.id() > best.id())) {
+                best = o;
+            }
+        }
+        return best;
+    }
+}
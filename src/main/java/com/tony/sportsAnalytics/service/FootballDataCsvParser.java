@@ -0,0 +1,333 @@
+package com.tony.sportsAnalytics.service;
+
+import lombok.Data;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.ChronoField;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Parseur CSV en flux pour les fichiers football-data.co.uk (saisons et fixtures.csv).
+ * L'en-tête est résolu une seule fois en index de colonnes, chaque ligne est décodée directement
+ * dans une FootballDataRow (sans réflexion) puis poussée au consommateur : le fichier n'est jamais
+ * matérialisé en mémoire.
+ */
+public final class FootballDataCsvParser {
+
+    // Formatteurs partagés (thread-safe) : utilisés seulement si le décodage rapide échoue
+    private static final DateTimeFormatter DATE_LONG = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    // Années sur deux chiffres : 90-99 => 1990-1999, sinon 2000-2089 (même pivot que les codes de saison "9394")
+    private static final int SHORT_YEAR_PIVOT = 90;
+    private static final DateTimeFormatter DATE_SHORT = new DateTimeFormatterBuilder()
+            .appendPattern("dd/MM/").appendValueReduced(ChronoField.YEAR, 2, 2, 1900 + SHORT_YEAR_PIVOT).toFormatter();
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm");
+
+    // Colonnes lues, dans l'ordre des index du tableau 'columns' : champs du match, puis les cases de MarketOdds
+    // (toutes sources) et la ligne du handicap asiatique. Une colonne peut alimenter plusieurs index (B365H).
+    private static final String[] BASE_COLUMNS = {
+            "Div", "Date", "Time", "HomeTeam", "AwayTeam",
+            "FTHG", "FTAG", "HTHG", "HTAG", "Referee",
+            "HS", "AS", "HST", "AST", "HC", "AC", "HF", "AF", "HY", "AY", "HR", "AR",
+            "B365H", "B365D", "B365A", "B365>2.5", "B365<2.5"
+    };
+    private static final String[] COLUMNS = concat(BASE_COLUMNS, MarketOdds.CSV_COLUMNS, new String[]{MarketOdds.AH_LINE_COLUMN});
+    private static final int DIV = 0, DATE = 1, TIME_COL = 2, HOME = 3, AWAY = 4,
+            FTHG = 5, FTAG = 6, HTHG = 7, HTAG = 8, REFEREE = 9,
+            HS = 10, AS = 11, HST = 12, AST = 13, HC = 14, AC = 15, HF = 16, AF = 17, HY = 18, AY = 19, HR = 20, AR = 21,
+            B365H = 22, B365D = 23, B365A = 24, B365O25 = 25, B365U25 = 26,
+            ODDS = BASE_COLUMNS.length, AH_LINE = ODDS + MarketOdds.SLOTS;
+
+    private FootballDataCsvParser() {}
+
+    /**
+     * Lit le flux ligne par ligne et pousse chaque ligne décodée au consommateur.
+     * Les lignes vides (fréquentes en fin de fichier) sont ignorées.
+     * @return le nombre de lignes poussées
+     */
+    public static int parse(Reader source, Consumer<FootballDataRow> consumer) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader br ? br : new BufferedReader(source, 1 << 16);
+        String header = reader.readLine();
+        if (header == null) return 0;
+        if (!header.isEmpty() && header.charAt(0) == '\uFEFF') header = header.substring(1); // BOM
+
+        int[] columns = resolveHeader(split(header, new String[0]));
+        int width = 0;
+        for (int c : columns) width = Math.max(width, c + 1);
+
+        String[] fields = new String[Math.max(width, 1)];
+        int count = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.charAt(0) == ',') continue;
+            fields = split(line, fields);
+            consumer.accept(decode(fields, columns));
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Décode un enregistrement clé/valeur (ligne NDJSON du dossier d'entrée) nommé comme les colonnes football-data.
+     */
+    public static FootballDataRow decodeRecord(Map<String, String> record) {
+        String[] names = record.keySet().toArray(new String[0]);
+        String[] fields = new String[names.length];
+        for (int i = 0; i < names.length; i++) fields[i] = record.get(names[i]);
+        return decode(fields, resolveHeader(names));
+    }
+
+    /**
+     * Index de chaque colonne connue dans l'en-tête (-1 si absente du fichier).
+     * Les anciens noms de colonnes de cotes (BbMxH, BbAvH...) sont ramenés aux noms actuels.
+     */
+    static int[] resolveHeader(String[] headerFields) {
+        int[] columns = new int[COLUMNS.length];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < headerFields.length; i++) {
+            String name = headerFields[i] == null ? "" : headerFields[i].trim();
+            name = MarketOdds.LEGACY_COLUMNS.getOrDefault(name, name);
+            for (int c = 0; c < COLUMNS.length; c++) {
+                if (columns[c] < 0 && COLUMNS[c].equals(name)) columns[c] = i;
+            }
+        }
+        return columns;
+    }
+
+    private static String[] concat(String[]... parts) {
+        return Arrays.stream(parts).flatMap(Arrays::stream).toArray(String[]::new);
+    }
+
+    private static FootballDataRow decode(String[] f, int[] col) {
+        FootballDataRow row = new FootballDataRow();
+        row.setDiv(text(f, col[DIV]));
+        row.setDate(text(f, col[DATE]));
+        row.setTime(text(f, col[TIME_COL]));
+        row.setMatchDate(safely(() -> parseDate(row.getDate())));
+        row.setKickOff(safely(() -> parseTime(row.getTime())));
+        row.setHomeTeam(text(f, col[HOME]));
+        row.setAwayTeam(text(f, col[AWAY]));
+        row.setFTHG(integer(f, col[FTHG]));
+        row.setFTAG(integer(f, col[FTAG]));
+        row.setHTHG(integer(f, col[HTHG]));
+        row.setHTAG(integer(f, col[HTAG]));
+        row.setReferee(text(f, col[REFEREE]));
+        row.setHS(integer(f, col[HS]));
+        row.setAS(integer(f, col[AS]));
+        row.setHST(integer(f, col[HST]));
+        row.setAST(integer(f, col[AST]));
+        row.setHC(integer(f, col[HC]));
+        row.setAC(integer(f, col[AC]));
+        row.setHF(integer(f, col[HF]));
+        row.setAF(integer(f, col[AF]));
+        row.setHY(integer(f, col[HY]));
+        row.setAY(integer(f, col[AY]));
+        row.setHR(integer(f, col[HR]));
+        row.setAR(integer(f, col[AR]));
+        row.setB365H(decimal(f, col[B365H]));
+        row.setB365D(decimal(f, col[B365D]));
+        row.setB365A(decimal(f, col[B365A]));
+        row.setB365O25(decimal(f, col[B365O25]));
+        row.setB365U25(decimal(f, col[B365U25]));
+
+        MarketOdds odds = new MarketOdds();
+        for (int s = 0; s < MarketOdds.SLOTS; s++) {
+            if (col[ODDS + s] >= 0) odds.set(s, decimal(f, col[ODDS + s]));
+        }
+        odds.setAsianLine(decimal(f, col[AH_LINE]));
+        row.setOdds(odds.isEmpty() ? null : odds);
+        return row;
+    }
+
+    /**
+     * Découpe une ligne en réutilisant le tableau fourni (agrandi si besoin).
+     * Les champs entre guillemets (rares chez football-data) sont gérés, guillemets doublés compris.
+     */
+    static String[] split(String line, String[] fields) {
+        int n = 0;
+        int len = line.length();
+        int i = 0;
+        while (i <= len) {
+            String value;
+            if (i < len && line.charAt(i) == '"') {
+                StringBuilder sb = new StringBuilder();
+                i++;
+                while (i < len) {
+                    char ch = line.charAt(i);
+                    if (ch == '"') {
+                        if (i + 1 < len && line.charAt(i + 1) == '"') { sb.append('"'); i += 2; continue; }
+                        i++;
+                        break;
+                    }
+                    sb.append(ch);
+                    i++;
+                }
+                value = sb.toString();
+                int comma = line.indexOf(',', i);
+                i = (comma < 0) ? len + 1 : comma + 1;
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = (comma < 0) ? len : comma;
+                value = line.substring(i, end);
+                i = end + 1;
+            }
+            if (n == fields.length) fields = Arrays.copyOf(fields, Math.max(8, n * 2));
+            fields[n++] = value;
+        }
+        // On efface la fin du tableau réutilisé pour ne pas relire les champs de la ligne précédente
+        Arrays.fill(fields, n, fields.length, null);
+        return fields;
+    }
+
+    private static String text(String[] f, int idx) {
+        if (idx < 0 || idx >= f.length || f[idx] == null) return null;
+        String v = f[idx].trim();
+        return v.isEmpty() ? null : v;
+    }
+
+    private static Integer integer(String[] f, int idx) {
+        String v = text(f, idx);
+        if (v == null) return null;
+        int value = 0;
+        for (int i = 0; i < v.length(); i++) {
+            char ch = v.charAt(i);
+            if (ch < '0' || ch > '9') {
+                try {
+                    return (int) Double.parseDouble(v); // "2.0" dans quelques vieux fichiers
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    private static Double decimal(String[] f, int idx) {
+        String v = text(f, idx);
+        if (v == null) return null;
+        try {
+            return Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * "dd/MM/yyyy" (ou "dd/MM/yy" dans les anciennes saisons), décodé sans passer par un formatteur.
+     * "yyyy-MM-dd" (ISO) est aussi accepté pour les fichiers d'autres sources (dossier d'entrée).
+     */
+    static LocalDate parseDate(String v) {
+        if (v == null) return null;
+        if (v.length() == 10 && v.charAt(4) == '-' && v.charAt(7) == '-') return LocalDate.parse(v);
+        if ((v.length() == 10 || v.length() == 8) && v.charAt(2) == '/' && v.charAt(5) == '/') {
+            int day = digits(v, 0, 2), month = digits(v, 3, 5);
+            int year = digits(v, 6, v.length());
+            if (day > 0 && month > 0 && year >= 0) {
+                if (v.length() == 8) year += (year >= SHORT_YEAR_PIVOT) ? 1900 : 2000;
+                return LocalDate.of(year, month, day);
+            }
+        }
+        return LocalDate.parse(v, v.length() == 8 ? DATE_SHORT : DATE_LONG);
+    }
+
+    static LocalTime parseTime(String v) {
+        if (v == null) return null;
+        if (v.length() == 5 && v.charAt(2) == ':') {
+            int hour = digits(v, 0, 2), minute = digits(v, 3, 5);
+            if (hour >= 0 && minute >= 0) return LocalTime.of(hour, minute);
+        }
+        return LocalTime.parse(v, TIME);
+    }
+
+    // Une date illisible ne doit pas interrompre le flux : la ligne arrive avec une date nulle et sera ignorée
+    private static <T> T safely(Supplier<T> decoder) {
+        try {
+            return decoder.get();
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static int digits(String v, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char ch = v.charAt(i);
+            if (ch < '0' || ch > '9') return -1;
+            value = value * 10 + (ch - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Une ligne de fichier football-data (résultat ou fixture). Date et heure sont déjà décodées.
+     */
+    @Data
+    public static class FootballDataRow {
+        private String div;
+        private String date;
+        private String time;
+        private LocalDate matchDate;
+        private LocalTime kickOff;
+        private String homeTeam;
+        private String awayTeam;
+        private Integer FTHG;
+        private Integer FTAG;
+        private Integer HTHG;
+        private Integer HTAG;
+        private String referee;
+        private Integer HS;
+        private Integer AS;
+        private Integer HST;
+        private Integer AST;
+        private Integer HC;
+        private Integer AC;
+        private Integer HF;
+        private Integer AF;
+        private Integer HY;
+        private Integer AY;
+        private Integer HR;
+        private Integer AR;
+        private Double B365H;
+        private Double B365D;
+        private Double B365A;
+        private Double B365O25;
+        private Double B365U25;
+        // Toutes les cotes de la ligne (Bet365, Pinnacle, max, moyenne ; 1X2, total 2.5, handicap asiatique)
+        private MarketOdds odds;
+
+        /**
+         * Empreinte 64 bits (FNV-1a) des champs repris dans MatchAnalysis : même empreinte = même match importé.
+         */
+        public long contentHash() {
+            long h = 0xcbf29ce484222325L;
+            Object[] fields = {matchDate, kickOff, FTHG, FTAG, HTHG, HTAG, referee, HS, AS, HST, AST, HC, AC,
+                    HF, AF, HY, AY, HR, AR, B365H, B365D, B365A, B365O25, B365U25};
+            for (Object field : fields) {
+                String v = String.valueOf(field);
+                for (int i = 0; i < v.length(); i++) {
+                    h ^= v.charAt(i);
+                    h *= 0x100000001b3L;
+                }
+                // Séparateur : "1","23" et "12","3" ne doivent pas se confondre
+                h ^= 0x1F;
+                h *= 0x100000001b3L;
+            }
+            if (odds != null) {
+                for (byte b : odds.encode()) {
+                    h ^= (b & 0xFF);
+                    h *= 0x100000001b3L;
+                }
+            }
+            return h;
+        }
+    }
+}
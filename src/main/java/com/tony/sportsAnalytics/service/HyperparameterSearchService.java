@@ -0,0 +1,389 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.League;
+import com.tony.sportsAnalytics.model.MatchAnalysis;
+import com.tony.sportsAnalytics.repository.LeagueRepository;
+import com.tony.sportsAnalytics.repository.MatchAnalysisRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Recherche aléatoire + Successive Halving sur les constantes du modèle (XI, décroissance de forme,
+ * poids H2H, K Elo, poids Poisson, ancrage marché).
+ * Le jeu de matchs est chargé UNE fois en tableaux primitifs, partagé en lecture seule, puis rejoué
+ * chronologiquement pour chaque candidat (walk-forward, sans fuite de données) en parallèle.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HyperparameterSearchService {
+
+    private final LeagueRepository leagueRepository;
+    private final MatchAnalysisRepository matchRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private static final long SEARCH_SEED = 42L;
+    private static final int HALVING_ETA = 2;             // On garde 1/eta des candidats à chaque palier
+    private static final double BURN_IN_FRACTION = 0.20;  // Début d'historique non scoré (chauffe des ratings)
+    private static final int MIN_SCORED_MATCHES = 100;    // Budget minimal d'un palier
+    private static final int H2H_MEMORY = 10;
+    private static final int MAX_GOALS = 9;
+
+    public record Hyperparameters(double xi, double formDecayDays, double weightH2H, int eloKFactor,
+                                  double weightPoisson, double marketAnchorWeight) {}
+
+    public record CandidateScore(Hyperparameters params, double logLoss, double brierScore, int scoredMatches) {}
+
+    public record SearchReport(String league, int candidates, int rungs, CandidateScore baseline, CandidateScore best,
+                               boolean applied, long wallTimeMs) {}
+
+    /**
+     * Chargement dans une transaction courte en lecture seule, recherche (CPU) hors transaction,
+     * puis écriture des réglages retenus dans une seconde transaction courte.
+     */
+    public SearchReport searchForLeague(Long leagueId, int candidates) {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        readOnly.setReadOnly(true);
+
+        // 1. Chargement unique du dataset (ordre chronologique)
+        Loaded loaded = readOnly.execute(tx -> {
+            League found = leagueRepository.findById(leagueId)
+                    .orElseThrow(() -> new IllegalArgumentException("Ligue introuvable ID: " + leagueId));
+            return new Loaded(found, ReplayDataset.of(matchRepository.findFinishedMatchesByLeague(leagueId)));
+        });
+        League league = loaded.league();
+        ReplayDataset dataset = loaded.dataset();
+        int burnIn = (int) (dataset.size() * BURN_IN_FRACTION);
+        if (dataset.size() - burnIn < MIN_SCORED_MATCHES) {
+            log.warn("Recherche d'hyperparamètres ignorée pour {} : seulement {} matchs", league.getName(), dataset.size());
+            return null;
+        }
+        double rho = league.getRho() != null ? league.getRho() : -0.13;
+
+        long start = System.nanoTime();
+        Hyperparameters current = currentSettings(league);
+        List<Hyperparameters> pool = new ArrayList<>(sampleCandidates(current, Math.max(1, candidates)));
+        log.info("🔍 Recherche d'hyperparamètres pour {} : {} candidats sur {} matchs", league.getName(), pool.size(), dataset.size());
+
+        // 2. Successive Halving : le budget (nb de matchs rejoués) double quand le nombre de candidats est divisé
+        int rungs = (int) Math.floor(Math.log(pool.size()) / Math.log(HALVING_ETA)) + 1;
+        List<CandidateScore> ranked = List.of();
+        for (int rung = 0; rung < rungs; rung++) {
+            int scoredBudget = (int) ((dataset.size() - burnIn) / Math.pow(HALVING_ETA, rungs - 1 - rung));
+            int budget = burnIn + Math.max(MIN_SCORED_MATCHES, scoredBudget);
+            ranked = evaluateAll(dataset, pool, rho, burnIn, Math.min(budget, dataset.size()));
+
+            int keep = Math.max(1, (int) Math.ceil(ranked.size() / (double) HALVING_ETA));
+            pool = ranked.stream().limit(keep).map(CandidateScore::params).toList();
+            log.debug("   Palier {} : budget {} matchs, meilleure log-loss {}", rung, budget, ranked.getFirst().logLoss());
+        }
+
+        // 3. Le meilleur candidat du dernier palier (budget complet) face aux réglages actuels
+        CandidateScore best = ranked.getFirst();
+        CandidateScore baseline = replay(dataset, current, rho, burnIn, dataset.size());
+        boolean applied = best.logLoss() < baseline.logLoss();
+        if (applied) applyToLeague(leagueId, best);
+        long wallTimeMs = (System.nanoTime() - start) / 1_000_000;
+
+        log.info("✅ Hyperparamètres {} : log-loss {} -> {} (Brier {} -> {}) {} en {} ms",
+                league.getName(), round4(baseline.logLoss()), round4(best.logLoss()),
+                round4(baseline.brierScore()), round4(best.brierScore()),
+                applied ? "appliqués" : "conservés", wallTimeMs);
+        return new SearchReport(league.getName(), candidates, rungs, baseline, best, applied, wallTimeMs);
+    }
+
+    private List<CandidateScore> evaluateAll(ReplayDataset dataset, List<Hyperparameters> pool, double rho, int burnIn, int budget) {
+        return pool.parallelStream()
+                .map(p -> replay(dataset, p, rho, burnIn, budget))
+                .sorted(Comparator.comparingDouble(CandidateScore::logLoss))
+                .toList();
+    }
+
+    private record Loaded(League league, ReplayDataset dataset) {}
+
+    private void applyToLeague(Long leagueId, CandidateScore best) {
+        Hyperparameters p = best.params();
+        transactionTemplate.executeWithoutResult(tx -> {
+            // Ligue relue : les autres colonnes (fit, calibration) ont pu changer pendant la recherche
+            League league = leagueRepository.findById(leagueId).orElseThrow();
+            league.setTimeDecayXi(p.xi());
+            league.setFormDecayDays(p.formDecayDays());
+            league.setWeightH2H(p.weightH2H());
+            league.setEloKFactor(p.eloKFactor());
+            league.setWeightPoisson(p.weightPoisson());
+            league.setMarketAnchorWeight(p.marketAnchorWeight());
+            league.setHyperparametersTunedAt(LocalDateTime.now());
+            league.setTunedLogLoss(best.logLoss());
+            league.setTunedBrierScore(best.brierScore());
+            leagueRepository.save(league);
+        });
+    }
+
+    private Hyperparameters currentSettings(League league) {
+        return new Hyperparameters(
+                league.getTimeDecayXi() != null ? league.getTimeDecayXi() : 0.0019,
+                league.getFormDecayDays() != null ? league.getFormDecayDays() : 60.0,
+                league.getWeightH2H() != null ? league.getWeightH2H() : 0.08,
+                league.getEloKFactor() != null ? league.getEloKFactor() : 30,
+                league.getWeightPoisson() != null ? league.getWeightPoisson() : 0.55,
+                league.getMarketAnchorWeight() != null ? league.getMarketAnchorWeight() : 0.30);
+    }
+
+    /**
+     * Tirage aléatoire dans l'espace de recherche. Les réglages actuels sont toujours le candidat n°0.
+     */
+    private List<Hyperparameters> sampleCandidates(Hyperparameters current, int count) {
+        SplittableRandom random = new SplittableRandom(SEARCH_SEED);
+        List<Hyperparameters> candidates = new ArrayList<>(count);
+        candidates.add(current);
+        for (int i = 1; i < count; i++) {
+            candidates.add(new Hyperparameters(
+                    Math.exp(random.nextDouble(Math.log(0.0005), Math.log(0.006))),
+                    random.nextDouble(20.0, 150.0),
+                    random.nextDouble(0.0, 0.15),
+                    random.nextInt(10, 51),
+                    random.nextDouble(0.30, 0.80),
+                    random.nextDouble(0.0, 0.60)));
+        }
+        return candidates;
+    }
+
+    /**
+     * Rejoue les 'budget' premiers matchs avec un jeu d'hyperparamètres. Tout l'état est local au candidat :
+     * Elo (K), forces attaque/défense décroissantes (XI), forme récente (constante de temps), H2H, puis
+     * fusion Poisson/Elo et ancrage marché comme dans PredictionEngineService. Scoré après la chauffe.
+     */
+    static CandidateScore replay(ReplayDataset d, Hyperparameters p, double rho, int burnIn, int budget) {
+        int n = d.teamCount();
+        double[] elo = new double[n];
+        Arrays.fill(elo, 1500.0);
+
+        // Sommes décroissantes (XI) : buts marqués / encaissés et poids cumulé par équipe
+        double[] scored = new double[n], conceded = new double[n], weight = new double[n];
+        // Forme récente (constante de temps 'formDecayDays')
+        double[] formScored = new double[n], formWeight = new double[n];
+        int[] lastDay = new int[n];
+        Arrays.fill(lastDay, Integer.MIN_VALUE);
+
+        // Moyennes de ligue décroissantes (buts dom / ext)
+        double leagueHome = 0, leagueAway = 0, leagueWeight = 0;
+        int leagueLastDay = Integer.MIN_VALUE;
+
+        Map<Long, ArrayDeque<int[]>> h2h = new HashMap<>();
+        double[] probs = new double[3];
+
+        double logLoss = 0, brier = 0;
+        int count = 0;
+
+        for (int k = 0; k < budget; k++) {
+            int h = d.homeIdx()[k], a = d.awayIdx()[k], day = d.day()[k];
+            int hg = d.homeGoals()[k], ag = d.awayGoals()[k];
+
+            // Décroissance paresseuse jusqu'à la date du match
+            decay(h, day, p, lastDay, scored, conceded, weight, formScored, formWeight);
+            decay(a, day, p, lastDay, scored, conceded, weight, formScored, formWeight);
+            if (leagueLastDay != Integer.MIN_VALUE) {
+                double f = Math.exp(-p.xi() * (day - leagueLastDay));
+                leagueHome *= f; leagueAway *= f; leagueWeight *= f;
+            }
+            leagueLastDay = day;
+
+            if (k >= burnIn && leagueWeight > 0) {
+                predict(d, k, p, rho, elo, scored, conceded, weight, formScored, formWeight,
+                        leagueHome / leagueWeight, leagueAway / leagueWeight, h2h, probs);
+                int outcome = hg > ag ? 0 : (hg == ag ? 1 : 2);
+                logLoss += -Math.log(Math.max(probs[outcome], 1e-15));
+                brier += (sq(probs[0] - (outcome == 0 ? 1 : 0)) + sq(probs[1] - (outcome == 1 ? 1 : 0))
+                        + sq(probs[2] - (outcome == 2 ? 1 : 0))) / 3.0;
+                count++;
+            }
+
+            // Mise à jour de l'état avec le résultat réel
+            scored[h] += hg; conceded[h] += ag; weight[h] += 1;
+            scored[a] += ag; conceded[a] += hg; weight[a] += 1;
+            formScored[h] += hg; formWeight[h] += 1;
+            formScored[a] += ag; formWeight[a] += 1;
+            leagueHome += hg; leagueAway += ag; leagueWeight += 1;
+            updateElo(elo, h, a, hg, ag, p.eloKFactor());
+            ArrayDeque<int[]> history = h2h.computeIfAbsent(pairKey(h, a), key -> new ArrayDeque<>());
+            history.addFirst(new int[]{h, hg, ag});
+            if (history.size() > H2H_MEMORY) history.removeLast();
+        }
+
+        return count == 0
+                ? new CandidateScore(p, Double.MAX_VALUE, Double.MAX_VALUE, 0)
+                : new CandidateScore(p, logLoss / count, brier / count, count);
+    }
+
+    private static void predict(ReplayDataset d, int k, Hyperparameters p, double rho, double[] elo,
+                                double[] scored, double[] conceded, double[] weight,
+                                double[] formScored, double[] formWeight,
+                                double homeMean, double awayMean, Map<Long, ArrayDeque<int[]>> h2h, double[] out) {
+        int h = d.homeIdx()[k], a = d.awayIdx()[k];
+        double teamMean = (homeMean + awayMean) / 2.0;
+
+        // Forces attaque/défense relatives à la ligue (rétrécies vers 1.0 en début d'historique)
+        double attH = shrunkRatio(scored[h], weight[h], teamMean);
+        double defH = shrunkRatio(conceded[h], weight[h], teamMean);
+        double attA = shrunkRatio(scored[a], weight[a], teamMean);
+        double defA = shrunkRatio(conceded[a], weight[a], teamMean);
+
+        double lambda = attH * defA * homeMean * formFactor(formScored[h], formWeight[h], scored[h], weight[h]);
+        double mu = attA * defH * awayMean * formFactor(formScored[a], formWeight[a], scored[a], weight[a]);
+
+        ArrayDeque<int[]> history = h2h.get(pairKey(h, a));
+        if (history != null) lambda *= 1.0 + h2hFactor(history, h, p.weightH2H());
+        lambda = Math.max(0.4, lambda);
+        mu = Math.max(0.3, mu);
+
+        // Probabilités Dixon-Coles 1N2
+        double pHome = 0, pDraw = 0, pAway = 0;
+        double ph = Math.exp(-lambda);
+        for (int x = 0; x <= MAX_GOALS; x++) {
+            double pa = Math.exp(-mu);
+            for (int y = 0; y <= MAX_GOALS; y++) {
+                double pr = ph * pa * tau(x, y, lambda, mu, rho);
+                if (x > y) pHome += pr; else if (x == y) pDraw += pr; else pAway += pr;
+                pa *= mu / (y + 1);
+            }
+            ph *= lambda / (x + 1);
+        }
+        double total = pHome + pDraw + pAway;
+
+        // Fusion Poisson / Elo (même formule que le moteur)
+        double eloDiff = elo[h] - elo[a];
+        double eloHome = 1.0 / (1.0 + Math.pow(10, (-eloDiff - 100.0) / 400.0));
+        double eloAway = 1.0 / (1.0 + Math.pow(10, (eloDiff + 100.0) / 400.0));
+        double rawHome = (pHome / total) * p.weightPoisson() + eloHome * (1.0 - p.weightPoisson());
+        double rawAway = (pAway / total) * p.weightPoisson() + eloAway * (1.0 - p.weightPoisson());
+
+        // Ancrage marché (consensus, sinon Bet365 : même signal que le moteur)
+        double marketHome = d.marketHome()[k], marketAway = d.marketAway()[k];
+        if (!Double.isNaN(marketHome)) {
+            rawHome = rawHome * (1.0 - p.marketAnchorWeight()) + marketHome * p.marketAnchorWeight();
+            rawAway = rawAway * (1.0 - p.marketAnchorWeight()) + marketAway * p.marketAnchorWeight();
+        }
+        double rawDraw = Math.max(1e-4, 1.0 - rawHome - rawAway);
+        double norm = rawHome + rawDraw + rawAway;
+        out[0] = rawHome / norm;
+        out[1] = rawDraw / norm;
+        out[2] = rawAway / norm;
+    }
+
+    private static void decay(int team, int day, Hyperparameters p, int[] lastDay, double[] scored, double[] conceded,
+                              double[] weight, double[] formScored, double[] formWeight) {
+        if (lastDay[team] != Integer.MIN_VALUE) {
+            int elapsed = day - lastDay[team];
+            double f = Math.exp(-p.xi() * elapsed);
+            scored[team] *= f; conceded[team] *= f; weight[team] *= f;
+            double g = Math.exp(-elapsed / p.formDecayDays());
+            formScored[team] *= g; formWeight[team] *= g;
+        }
+        lastDay[team] = day;
+    }
+
+    private static void updateElo(double[] elo, int h, int a, int hg, int ag, int kFactor) {
+        double actual = hg > ag ? 1.0 : (hg < ag ? 0.0 : 0.5);
+        double expected = 1.0 / (1.0 + Math.pow(10.0, (elo[a] - elo[h]) / 400.0));
+        int delta = (int) (kFactor * (actual - expected));
+        int goalDiff = Math.abs(hg - ag);
+        if (goalDiff > 1) delta = (int) (delta * Math.log(goalDiff + 1));
+        elo[h] += delta;
+        elo[a] -= delta;
+    }
+
+    private static double h2hFactor(ArrayDeque<int[]> history, int currentHome, double weightH2H) {
+        double factor = 0.0;
+        int limit = history.size();
+        int i = 0;
+        for (int[] m : history) {
+            double w = (double) (limit - i) / limit;
+            boolean sameVenue = m[0] == currentHome;
+            if (m[1] > m[2]) factor += sameVenue ? weightH2H * w : -weightH2H * w;
+            else if (m[2] > m[1]) factor += sameVenue ? -weightH2H * w : weightH2H * w * 1.2;
+            i++;
+        }
+        return factor;
+    }
+
+    private static double shrunkRatio(double goals, double weight, double mean) {
+        // Prior équivalent à 3 matchs "moyens"
+        return ((goals + 3.0 * mean) / (weight + 3.0)) / mean;
+    }
+
+    private static double formFactor(double formGoals, double formWeight, double goals, double weight) {
+        if (formWeight < 1.0 || weight < 1.0 || goals <= 0) return 1.0;
+        double ratio = (formGoals / formWeight) / (goals / weight);
+        return Math.max(0.85, Math.min(1.15, ratio));
+    }
+
+    private static double tau(int x, int y, double l, double m, double r) {
+        if (x == 0 && y == 0) return 1 - (l * m * r);
+        if (x == 0 && y == 1) return 1 + (l * r);
+        if (x == 1 && y == 0) return 1 + (m * r);
+        if (x == 1 && y == 1) return 1 - r;
+        return 1.0;
+    }
+
+    private static long pairKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    private static double sq(double v) { return v * v; }
+    private static double round4(double v) { return Math.round(v * 10000.0) / 10000.0; }
+
+    /**
+     * Matchs terminés d'une ligue en tableaux primitifs, ordre chronologique. Jamais modifié après construction :
+     * partagé tel quel entre tous les candidats évalués en parallèle.
+     * Probabilités de marché sans marge (NaN si aucune cote) choisies comme dans PredictionEngineService :
+     * consensus multi-sources, sinon cotes Bet365 du match.
+     */
+    record ReplayDataset(int teamCount, int[] homeIdx, int[] awayIdx, int[] homeGoals, int[] awayGoals, int[] day,
+                         double[] marketHome, double[] marketAway) {
+
+        static ReplayDataset of(List<MatchAnalysis> matches) {
+            List<MatchAnalysis> finished = matches.stream()
+                    .filter(m -> m.getHomeScore() != null && m.getAwayScore() != null && m.getMatchDate() != null)
+                    .sorted(Comparator.comparing(MatchAnalysis::getMatchDate))
+                    .toList();
+
+            Map<Long, Integer> teamIdx = new HashMap<>();
+            int size = finished.size();
+            int[] home = new int[size], away = new int[size], hg = new int[size], ag = new int[size], day = new int[size];
+            double[] mHome = new double[size], mAway = new double[size];
+            for (int k = 0; k < size; k++) {
+                MatchAnalysis m = finished.get(k);
+                home[k] = teamIdx.computeIfAbsent(m.getHomeTeam().getId(), id -> teamIdx.size());
+                away[k] = teamIdx.computeIfAbsent(m.getAwayTeam().getId(), id -> teamIdx.size());
+                hg[k] = m.getHomeScore();
+                ag[k] = m.getAwayScore();
+                day[k] = (int) m.getMatchDate().toLocalDate().toEpochDay();
+                mHome[k] = Double.NaN;
+                mAway[k] = Double.NaN;
+                if (m.getConsensusHome() != null && m.getConsensusDraw() != null && m.getConsensusAway() != null) {
+                    mHome[k] = m.getConsensusHome();
+                    mAway[k] = m.getConsensusAway();
+                } else {
+                    double o1 = validOdds(m.getOdds1()), oN = validOdds(m.getOddsN()), o2 = validOdds(m.getOdds2());
+                    if (!Double.isNaN(o1) && !Double.isNaN(oN) && !Double.isNaN(o2)) {
+                        double sum = 1.0 / o1 + 1.0 / oN + 1.0 / o2;
+                        mHome[k] = (1.0 / o1) / sum;
+                        mAway[k] = (1.0 / o2) / sum;
+                    }
+                }
+            }
+            return new ReplayDataset(teamIdx.size(), home, away, hg, ag, day, mHome, mAway);
+        }
+
+        private static double validOdds(Double odds) {
+            return (odds != null && odds > 1.0) ? odds : Double.NaN;
+        }
+
+        int size() { return homeIdx.length; }
+    }
+}
@@ -0,0 +1,192 @@
+package com.tony.sportsAnalytics.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.*;
+
+/**
+ * Étage réseau des imports : téléchargements (et parsing) lancés sur des threads virtuels,
+ * bornés par un sémaphore. L'appelant récupère des futures et garde la main sur l'ordre de persistance.
+ * Les fichiers sources sont gardés sur disque avec ETag / Last-Modified / SHA-256 : les requêtes suivantes
+ * sont conditionnelles et un fichier identique à l'octet près est signalé comme tel.
+ * Les requêtes passent par le client HTTP partagé (OutboundHttpClient : connexions réutilisées, reprises, limites par hôte).
+ */
+@Component
+@Slf4j
+public class ImportDownloader {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final OutboundHttpClient http;
+    private final Path cacheDir;
+
+    public enum CacheStatus {
+        MISS,          // contenu nouveau (ou premier téléchargement)
+        NOT_MODIFIED,  // 304 du serveur : contenu relu depuis le disque
+        UNCHANGED;     // 200 mais hash identique à la version en cache
+
+        public boolean isHit() {
+            return this != MISS;
+        }
+    }
+
+    /**
+     * Résultat d'un téléchargement avec cache. commit() enregistre la nouvelle version sur disque :
+     * à n'appeler qu'une fois l'import réussi, sinon un import raté serait ensuite vu comme "inchangé".
+     */
+    public record Fetched<T>(T value, CacheStatus status, Runnable onSuccess) {
+        public void commit() {
+            onSuccess.run();
+        }
+    }
+
+    @FunctionalInterface
+    public interface Parser<T> {
+        T parse(byte[] content) throws Exception;
+    }
+
+    public ImportDownloader(OutboundHttpClient http,
+                            @Value("${import.download.concurrency:8}") int concurrency,
+                            @Value("${import.cache.dir:import-cache}") String cacheDir) {
+        this.http = http;
+        this.permits = new Semaphore(Math.max(1, concurrency));
+        this.cacheDir = Path.of(cacheDir);
+    }
+
+    /**
+     * Télécharge puis parse une ressource en tâche de fond.
+     */
+    public <T> CompletableFuture<T> fetch(String url, Parser<T> parser) {
+        return submit(() -> parser.parse(download(url)));
+    }
+
+    /**
+     * Téléchargement conditionnel (If-None-Match / If-Modified-Since) avec cache disque, puis parsing.
+     */
+    public <T> CompletableFuture<Fetched<T>> fetchCached(String url, Parser<T> parser) {
+        return submit(() -> {
+            Path body = cacheDir.resolve(cacheKey(url) + ".body");
+            Path meta = cacheDir.resolve(cacheKey(url) + ".meta");
+            Properties cached = readMeta(meta, body);
+
+            Map<String, String> headers = new HashMap<>();
+            if (cached != null) {
+                if (cached.getProperty("etag") != null) headers.put("If-None-Match", cached.getProperty("etag"));
+                if (cached.getProperty("lastModified") != null) headers.put("If-Modified-Since", cached.getProperty("lastModified"));
+            }
+
+            OutboundHttpClient.Response response = http.send(url, headers, null);
+            if (cached != null && response.status() == 304) {
+                log.debug("♻️ {} non modifié (304)", url);
+                return new Fetched<>(parser.parse(Files.readAllBytes(body)), CacheStatus.NOT_MODIFIED, () -> {});
+            }
+            if (!response.isSuccess()) throw new IOException("HTTP " + response.status() + " sur " + url);
+
+            byte[] content = response.body();
+            String hash = sha256(content);
+            if (cached != null && hash.equals(cached.getProperty("sha256"))) {
+                log.debug("♻️ {} identique à la version en cache", url);
+                return new Fetched<>(parser.parse(content), CacheStatus.UNCHANGED, () -> {});
+            }
+
+            Properties fresh = new Properties();
+            fresh.setProperty("url", url);
+            fresh.setProperty("sha256", hash);
+            if (response.header("ETag") != null) fresh.setProperty("etag", response.header("ETag"));
+            if (response.header("Last-Modified") != null) fresh.setProperty("lastModified", response.header("Last-Modified"));
+            return new Fetched<>(parser.parse(content), CacheStatus.MISS, () -> store(body, meta, content, fresh));
+        });
+    }
+
+    /**
+     * Exécute une tâche réseau quelconque (ex: scraping FBRef) sous la même limite de concurrence.
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        executor.execute(() -> {
+            try {
+                permits.acquire();
+                try {
+                    result.complete(task.call());
+                } finally {
+                    permits.release();
+                }
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Téléchargement complet en mémoire (fichiers football-data : quelques centaines de Ko au plus).
+     */
+    public byte[] download(String url) throws IOException {
+        long start = System.currentTimeMillis();
+        byte[] bytes = http.get(url);
+        log.debug("⬇️ {} ({} octets, {} ms)", url, bytes.length, System.currentTimeMillis() - start);
+        return bytes;
+    }
+
+    private Properties readMeta(Path meta, Path body) {
+        if (!Files.exists(meta) || !Files.exists(body)) return null;
+        try (InputStream in = Files.newInputStream(meta)) {
+            Properties props = new Properties();
+            props.load(in);
+            return props;
+        } catch (IOException e) {
+            log.warn("⚠️ Métadonnées de cache illisibles ({}), téléchargement complet", meta.getFileName());
+            return null;
+        }
+    }
+
+    private void store(Path body, Path meta, byte[] content, Properties props) {
+        try {
+            Files.createDirectories(cacheDir);
+            Path tmpBody = body.resolveSibling(body.getFileName() + ".tmp");
+            Files.write(tmpBody, content);
+            Files.move(tmpBody, body, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // Les métadonnées en dernier : sans elles l'entrée est ignorée
+            Path tmpMeta = meta.resolveSibling(meta.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmpMeta)) {
+                props.store(out, null);
+            }
+            Files.move(tmpMeta, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("⚠️ Écriture du cache impossible pour {} : {}", props.getProperty("url"), e.getMessage());
+        }
+    }
+
+    private static String cacheKey(String url) {
+        return sha256(url.getBytes(StandardCharsets.UTF_8)).substring(0, 24);
+    }
+
+    static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
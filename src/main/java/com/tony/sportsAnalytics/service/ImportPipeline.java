@@ -0,0 +1,187 @@
+package com.tony.sportsAnalytics.service;
+
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Pipeline producteur-consommateur d'un import : chaque étage tourne sur ses propres threads (virtuels)
+ * et les étages sont reliés par des files bornées. Un étage lent bloque l'amont (backpressure) : la mémoire
+ * ne dépend que de la capacité des files, pas de la taille du fichier.
+ * Le dernier étage (drain) s'exécute sur le thread appelant, qui porte la transaction JPA, et reçoit
+ * les éléments dans l'ordre de la source même si un étage intermédiaire est parallèle.
+ */
+public final class ImportPipeline<T> {
+
+    @FunctionalInterface
+    public interface Source<T> {
+        void emit(Consumer<T> sink) throws Exception;
+    }
+
+    private record Item<T>(long seq, T value) {}
+
+    private static final Item<Object> END = new Item<>(-1, null);
+
+    private final ImportPipelineMetrics metrics;
+    private final int capacity;
+    private final List<Thread> threads;
+    private final AtomicReference<Throwable> failure;
+    private final BlockingQueue<Item<T>> output;
+
+    private ImportPipeline(ImportPipelineMetrics metrics, int capacity, List<Thread> threads,
+                           AtomicReference<Throwable> failure, BlockingQueue<Item<T>> output) {
+        this.metrics = metrics;
+        this.capacity = capacity;
+        this.threads = threads;
+        this.failure = failure;
+        this.output = output;
+    }
+
+    /**
+     * Étage source (un seul thread) : pousse ses éléments dans la première file.
+     */
+    public static <T> ImportPipeline<T> from(ImportPipelineMetrics metrics, int capacity, String stage, Source<T> source) {
+        BlockingQueue<Item<T>> queue = new ArrayBlockingQueue<>(capacity);
+        ImportPipeline<T> pipeline = new ImportPipeline<>(metrics, capacity, new CopyOnWriteArrayList<>(), new AtomicReference<>(), queue);
+        ImportPipelineMetrics.StageCounter counter = metrics.stage(stage);
+        counter.threads(1);
+
+        pipeline.start(stage + "-0", () -> {
+            long[] seq = {0};
+            long[] blocked = {0};
+            long start = System.nanoTime();
+            try {
+                source.emit(value -> {
+                    long t = System.nanoTime();
+                    try {
+                        queue.put(new Item<>(seq[0]++, value));
+                    } catch (InterruptedException e) {
+                        // La source (parseur) ne connaît que Consumer : on remonte l'arrêt en non vérifiée
+                        Thread.currentThread().interrupt();
+                        throw new CancellationException("Pipeline d'import arrêté");
+                    }
+                    blocked[0] += System.nanoTime() - t;
+                });
+            } finally {
+                // Temps occupé = temps total moins l'attente sur la file pleine
+                counter.record(seq[0], System.nanoTime() - start - blocked[0]);
+                if (pipeline.failure.get() == null) putEnd(queue);
+            }
+        });
+        return pipeline;
+    }
+
+    /**
+     * Étage intermédiaire sur 'threadCount' threads. La fonction peut renvoyer null (élément ignoré au drain).
+     */
+    public <R> ImportPipeline<R> then(String stage, int threadCount, Function<T, R> fn) {
+        BlockingQueue<Item<T>> input = output;
+        BlockingQueue<Item<R>> next = new ArrayBlockingQueue<>(capacity);
+        ImportPipelineMetrics.StageCounter counter = metrics.stage(stage);
+        int workers = Math.max(1, threadCount);
+        counter.threads(workers);
+        AtomicInteger remaining = new AtomicInteger(workers);
+        ImportPipeline<R> pipeline = new ImportPipeline<>(metrics, capacity, threads, failure, next);
+
+        for (int w = 0; w < workers; w++) {
+            start(stage + "-" + w, () -> {
+                try {
+                    while (true) {
+                        Item<T> item = input.take();
+                        counter.sampleQueue(input.size());
+                        if (item == END) {
+                            input.put(item); // les autres workers de l'étage doivent le voir aussi
+                            break;
+                        }
+                        long t = System.nanoTime();
+                        R result = fn.apply(item.value());
+                        counter.record(1, System.nanoTime() - t);
+                        next.put(new Item<>(item.seq(), result));
+                    }
+                } finally {
+                    // En cas d'échec le drain s'arrête sur l'erreur : inutile (et bloquant) de propager la fin
+                    if (remaining.decrementAndGet() == 0 && failure.get() == null) putEnd(next);
+                }
+            });
+        }
+        return pipeline;
+    }
+
+    /**
+     * Consomme la dernière file sur le thread appelant, dans l'ordre de la source, puis attend la fin des étages.
+     * La première erreur d'un étage interrompt tout le pipeline et est relancée ici.
+     * Seule la profondeur de file est relevée pour cet étage : le consommateur mesure lui-même son temps utile
+     * (il peut déclencher des écritures comptées dans un autre étage).
+     */
+    public void drain(String stage, Consumer<T> consumer) {
+        ImportPipelineMetrics.StageCounter counter = metrics.stage(stage);
+        counter.threads(1);
+        TreeMap<Long, Item<T>> reorder = new TreeMap<>();
+        long expected = 0;
+        try {
+            while (true) {
+                Item<T> item = output.poll(100, TimeUnit.MILLISECONDS);
+                if (failure.get() != null) break;
+                if (item == null) continue;
+                if (item == END) break;
+                counter.sampleQueue(output.size());
+                reorder.put(item.seq(), item);
+                while (!reorder.isEmpty() && reorder.firstKey() == expected) {
+                    T value = reorder.pollFirstEntry().getValue().value();
+                    if (value != null) consumer.accept(value);
+                    expected++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        }
+
+        if (failure.get() != null) threads.forEach(Thread::interrupt);
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Throwable error = failure.get();
+        if (error instanceof RuntimeException re) throw re;
+        if (error != null) throw new IllegalStateException("Pipeline d'import interrompu : " + error.getMessage(), error);
+    }
+
+    private void start(String name, ThrowingRunnable body) {
+        Thread thread = Thread.ofVirtual().name("import-" + name).unstarted(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException | CancellationException e) {
+                // Arrêt demandé après une erreur ailleurs dans le pipeline
+            } catch (Throwable e) {
+                // Un étage en erreur arrête les autres (sinon l'amont resterait bloqué sur une file pleine)
+                if (failure.compareAndSet(null, e)) threads.forEach(Thread::interrupt);
+            }
+        });
+        threads.add(thread);
+        thread.start();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void putEnd(BlockingQueue<Item<V>> queue) throws InterruptedException {
+        queue.put((Item<V>) (Item<?>) END);
+    }
+
+    @FunctionalInterface
+    private interface ThrowingRunnable {
+        void run() throws Exception;
+    }
+}
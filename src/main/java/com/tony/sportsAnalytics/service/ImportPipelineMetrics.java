@@ -0,0 +1,87 @@
+package com.tony.sportsAnalytics.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Compteurs cumulés des étages du pipeline d'import (fetch, parse, resolve, map, persist, post-process) :
+ * éléments traités, temps occupé (hors attente sur les files) et profondeur des files en entrée de chaque étage.
+ */
+@Component
+public class ImportPipelineMetrics {
+
+    // Ordre d'affichage = ordre du pipeline
+    private static final List<String> STAGE_ORDER = List.of("fetch", "parse", "resolve", "map", "persist", "post-process");
+
+    private final Map<String, StageCounter> stages = new ConcurrentHashMap<>();
+
+    public record StageSnapshot(String stage, int threads, long items, double busyMs,
+                                double itemsPerBusySecond, double avgQueueDepth, int maxQueueDepth) {}
+
+    public static final class StageCounter {
+        private final LongAdder items = new LongAdder();
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder depthSum = new LongAdder();
+        private final LongAdder depthSamples = new LongAdder();
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private volatile int threads = 1;
+
+        public void record(long count, long nanos) {
+            items.add(count);
+            busyNanos.add(nanos);
+        }
+
+        /**
+         * Profondeur de la file en entrée de l'étage, relevée à chaque retrait.
+         */
+        public void sampleQueue(int depth) {
+            depthSum.add(depth);
+            depthSamples.increment();
+            maxDepth.accumulateAndGet(depth, Math::max);
+        }
+
+        void threads(int threads) {
+            this.threads = threads;
+        }
+    }
+
+    public StageCounter stage(String name) {
+        return stages.computeIfAbsent(name, k -> new StageCounter());
+    }
+
+    public List<StageSnapshot> snapshot() {
+        return STAGE_ORDER.stream().filter(stages::containsKey).map(name -> {
+            StageCounter c = stages.get(name);
+            long items = c.items.sum(), nanos = c.busyNanos.sum(), samples = c.depthSamples.sum();
+            return new StageSnapshot(name, c.threads, items, nanos / 1e6,
+                    nanos > 0 ? items / (nanos / 1e9) : 0.0,
+                    samples > 0 ? (double) c.depthSum.sum() / samples : 0.0,
+                    c.maxDepth.get());
+        }).toList();
+    }
+
+    /**
+     * Résumé sur une ligne de ce qui a été traité depuis un snapshot (un import).
+     */
+    public String describeSince(List<StageSnapshot> before) {
+        Map<String, StageSnapshot> previous = new LinkedHashMap<>();
+        before.forEach(s -> previous.put(s.stage(), s));
+        return snapshot().stream().map(now -> {
+            StageSnapshot prev = previous.get(now.stage());
+            long items = now.items() - (prev != null ? prev.items() : 0);
+            double busyMs = now.busyMs() - (prev != null ? prev.busyMs() : 0);
+            return String.format("%s %d (%.0f ms ×%d)", now.stage(), items, busyMs, now.threads());
+        }).collect(Collectors.joining(" | "));
+    }
+
+    public void reset() {
+        stages.clear();
+    }
+}
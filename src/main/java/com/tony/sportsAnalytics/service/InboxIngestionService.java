@@ -0,0 +1,331 @@
+package com.tony.sportsAnalytics.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tony.sportsAnalytics.model.InboxFileState;
+import com.tony.sportsAnalytics.repository.InboxFileStateRepository;
+import com.tony.sportsAnalytics.service.FootballDataCsvParser.FootballDataRow;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Dossier d'entrée surveillé (WatchService) pour les cotes et fixtures reçues d'autres sources que les deux imports quotidiens.
+ * Fichiers .csv (colonnes football-data, en-tête en première ligne) ou .ndjson / .jsonl (un objet par ligne, mêmes noms de champs).
+ * Un fichier créé ou modifié est relu à partir du dernier octet intégré, jusqu'à sa dernière ligne complète (une ligne en cours
+ * d'écriture attend l'événement suivant), par tranches bornées, puis passé à DataImportService.importFixtureRows :
+ * seules les fixtures nouvelles ou dont les cotes ont bougé sont (re)prédites.
+ * L'avancement (inbox_file_state) n'est enregistré qu'après le commit d'une tranche : après un arrêt brutal, au pire
+ * la dernière tranche est rejouée (import idempotent), jamais le fichier entier.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InboxIngestionService {
+
+    // Début de fichier couvert par l'empreinte : suffit à reconnaître un fichier remplacé sans le relire
+    static final int HEAD_CHECKSUM_BYTES = 4096;
+
+    private static final TypeReference<LinkedHashMap<String, Object>> RECORD = new TypeReference<>() {};
+
+    private final DataImportService dataImportService;
+    private final InboxFileStateRepository stateRepository;
+    private final ObjectMapper objectMapper;
+
+    // Dossier surveillé ; vide = ingestion désactivée
+    @Value("${import.inbox.dir:}")
+    private String inboxDir;
+
+    // Taille maximale d'une tranche (une transaction d'import par lot de la tranche, avancement enregistré après chaque tranche)
+    @Value("${import.inbox.max-slice-bytes:4194304}")
+    private int maxSliceBytes;
+
+    // Attente après le dernier événement avant de traiter (regroupe les écritures successives d'un même fichier)
+    @Value("${import.inbox.settle-ms:500}")
+    private long settleMs;
+
+    private final Counters counters = new Counters();
+    private volatile WatchService watchService;
+
+    enum Format { CSV, NDJSON }
+
+    // Lignes complètes lues à partir d'un octet, et octet suivant la dernière
+    record Slice(byte[] bytes, long end) {}
+
+    record Parsed(List<FootballDataRow> rows, int invalid) {}
+
+    public record FileStatus(String fileName, long size, long offset, long lagBytes, long rowsIngested, LocalDateTime updatedAt) {}
+
+    public record InboxSnapshot(String directory, boolean watching, long slices, long bytesIngested, long rowsParsed,
+                                long rowsSkipped, long fixturesImported, long fixturesRepriced, long errors,
+                                double rowsPerBusySecond, double bytesPerBusySecond, long lagBytes,
+                                long lastLagMs, long maxLagMs, LocalDateTime lastIngestAt, List<FileStatus> files) {}
+
+    private static final class Counters {
+        final LongAdder slices = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder rows = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder imported = new LongAdder();
+        final LongAdder repriced = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+        // Retard = fin d'intégration - dernière modification du fichier
+        final AtomicLong lastLagMs = new AtomicLong();
+        final AtomicLong maxLagMs = new AtomicLong();
+        volatile LocalDateTime lastIngestAt;
+    }
+
+    // --- SURVEILLANCE ---
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (inboxDir.isBlank()) return;
+        try {
+            Path dir = Files.createDirectories(Path.of(inboxDir));
+            WatchService service = dir.getFileSystem().newWatchService();
+            dir.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            watchService = service;
+            Thread.ofVirtual().name("inbox-watcher").start(() -> watch(dir, service));
+            log.info("📥 Dossier d'entrée surveillé : {}", dir.toAbsolutePath());
+        } catch (IOException e) {
+            log.error("❌ Surveillance du dossier d'entrée {} impossible : {}", inboxDir, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        WatchService current = watchService;
+        watchService = null;
+        if (current != null) current.close();
+    }
+
+    private void watch(Path dir, WatchService service) {
+        // Rattrapage : fichiers arrivés ou complétés pendant l'arrêt (repris à leur octet enregistré)
+        scan();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Set<Path> changed = new LinkedHashSet<>();
+                boolean overflow = false;
+                // Une copie ou un ajout produit plusieurs MODIFY : on attend que la rafale se calme
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) overflow = true;
+                        else changed.add(dir.resolve((Path) event.context()));
+                    }
+                    key.reset();
+                } while ((key = service.poll(settleMs, TimeUnit.MILLISECONDS)) != null);
+
+                if (overflow) scan();
+                else changed.forEach(this::ingest);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // arrêt de l'application
+        }
+        log.info("📥 Surveillance du dossier d'entrée arrêtée");
+    }
+
+    /**
+     * Passe sur tous les fichiers du dossier (démarrage, débordement d'événements, appel admin).
+     */
+    public InboxSnapshot scan() {
+        if (inboxDir.isBlank()) return snapshot();
+        try (Stream<Path> files = Files.list(Path.of(inboxDir))) {
+            files.filter(f -> formatOf(f) != null).sorted().forEach(this::ingest);
+        } catch (IOException e) {
+            log.warn("⚠️ Lecture du dossier d'entrée impossible : {}", e.getMessage());
+        }
+        return snapshot();
+    }
+
+    // --- INGESTION ---
+
+    /**
+     * Intègre la partie nouvelle d'un fichier, tranche par tranche. Une tranche en échec n'avance pas l'octet
+     * enregistré : elle sera reprise au prochain événement ou au prochain scan.
+     */
+    synchronized void ingest(Path file) {
+        Format format = formatOf(file);
+        if (format == null || !Files.isRegularFile(file)) return;
+        String name = file.getFileName().toString();
+        InboxFileState state = stateRepository.findById(name).orElseGet(() -> new InboxFileState(name));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (state.getOffset() > size || (state.getOffset() > 0 && !headChecksum(channel, state.getOffset()).equals(state.getHeadChecksum()))) {
+                log.info("🔄 {} remplacé ou tronqué : relu depuis le début", name);
+                state.setOffset(0);
+                state.setHeader(null);
+            }
+
+            Slice slice;
+            while (state.getOffset() < size && (slice = readSlice(channel, state.getOffset(), maxSliceBytes)) != null) {
+                long start = System.nanoTime();
+                String text = new String(slice.bytes(), StandardCharsets.UTF_8);
+                if (format == Format.CSV && state.getHeader() == null) {
+                    // Première tranche d'un CSV : l'en-tête est gardé pour décoder les lignes ajoutées plus tard
+                    int eol = text.indexOf('\n');
+                    state.setHeader(stripBom(text.substring(0, eol).stripTrailing()));
+                    text = text.substring(eol + 1);
+                }
+
+                Parsed parsed = parseSlice(format, state.getHeader(), text, objectMapper);
+                // Le dossier d'entrée ne porte que des fixtures et des cotes : les résultats passent par l'import quotidien
+                List<FootballDataRow> fixtures = parsed.rows().stream().filter(r -> r.getFTHG() == null).toList();
+                DataImportService.FixtureImportResult result = fixtures.isEmpty()
+                        ? new DataImportService.FixtureImportResult(0, 0, 0)
+                        : dataImportService.importFixtureRows(fixtures, "inbox " + name);
+
+                state.setOffset(slice.end());
+                state.setHeadChecksum(headChecksum(channel, slice.end()));
+                state.setRowsIngested(state.getRowsIngested() + parsed.rows().size());
+                state.setUpdatedAt(LocalDateTime.now());
+                stateRepository.save(state);
+
+                record(slice, parsed, parsed.rows().size() - fixtures.size(), result, System.nanoTime() - start, file);
+                log.info("📥 {} : {} lignes ({} octets), {} matchs créés, {} re-pricés, {} ignorées",
+                        name, parsed.rows().size(), slice.bytes().length, result.imported(), result.repriced(),
+                        parsed.invalid() + parsed.rows().size() - fixtures.size());
+            }
+        } catch (NoSuchFileException e) {
+            // supprimé entre l'événement et la lecture
+        } catch (Exception e) {
+            counters.errors.increment();
+            log.error("❌ Ingestion de {} interrompue à l'octet {} : {}", name, state.getOffset(), e.getMessage());
+        }
+    }
+
+    private void record(Slice slice, Parsed parsed, int nonFixtures, DataImportService.FixtureImportResult result, long nanos, Path file) {
+        counters.slices.increment();
+        counters.bytes.add(slice.bytes().length);
+        counters.rows.add(parsed.rows().size());
+        counters.skipped.add(parsed.invalid() + nonFixtures);
+        counters.imported.add(result.imported());
+        counters.repriced.add(result.repriced());
+        counters.errors.add(result.errors());
+        counters.busyNanos.add(nanos);
+        counters.lastIngestAt = LocalDateTime.now();
+        try {
+            long lag = Math.max(0, Instant.now().toEpochMilli() - Files.getLastModifiedTime(file).toMillis());
+            counters.lastLagMs.set(lag);
+            counters.maxLagMs.accumulateAndGet(lag, Math::max);
+        } catch (IOException ignored) {
+            // fichier supprimé entre-temps : pas de retard mesurable
+        }
+    }
+
+    /**
+     * Lignes complètes à partir de 'offset' (au plus 'maxBytes', élargi si une seule ligne dépasse), null si aucune
+     * ligne n'est encore terminée.
+     */
+    static Slice readSlice(FileChannel channel, long offset, int maxBytes) throws IOException {
+        long remaining = channel.size() - offset;
+        int window = (int) Math.min(remaining, maxBytes);
+        ByteBuffer buffer = ByteBuffer.allocate(window);
+        while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+            // lecture positionnelle jusqu'à remplir la fenêtre
+        }
+        byte[] bytes = buffer.array();
+        int last = buffer.position() - 1;
+        while (last >= 0 && bytes[last] != '\n') last--;
+        if (last < 0) {
+            return (buffer.position() == window && remaining > window) ? readSlice(channel, offset, maxBytes * 2) : null;
+        }
+        return new Slice(Arrays.copyOf(bytes, last + 1), offset + last + 1);
+    }
+
+    static Parsed parseSlice(Format format, String header, String lines, ObjectMapper mapper) throws IOException {
+        List<FootballDataRow> rows = new ArrayList<>();
+        if (format == Format.CSV) {
+            FootballDataCsvParser.parse(new StringReader(header + "\n" + lines), rows::add);
+            return new Parsed(rows, 0);
+        }
+        int invalid = 0;
+        for (String line : lines.split("\n")) {
+            if (line.isBlank()) continue;
+            try {
+                Map<String, String> record = new LinkedHashMap<>();
+                mapper.readValue(line, RECORD).forEach((k, v) -> record.put(k, v == null ? null : v.toString()));
+                rows.add(FootballDataCsvParser.decodeRecord(record));
+            } catch (JsonProcessingException e) {
+                invalid++;
+            }
+        }
+        return new Parsed(rows, invalid);
+    }
+
+    // Empreinte des premiers octets déjà intégrés (au plus HEAD_CHECKSUM_BYTES)
+    static String headChecksum(FileChannel channel, long offset) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate((int) Math.min(offset, HEAD_CHECKSUM_BYTES));
+        while (head.hasRemaining() && channel.read(head, head.position()) > 0) {
+            // lecture positionnelle du début du fichier
+        }
+        return ImportDownloader.sha256(Arrays.copyOf(head.array(), head.position()));
+    }
+
+    static Format formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) return Format.CSV;
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) return Format.NDJSON;
+        return null;
+    }
+
+    private static String stripBom(String header) {
+        return (!header.isEmpty() && header.charAt(0) == '\uFEFF') ? header.substring(1) : header;
+    }
+
+    // --- MÉTRIQUES ---
+
+    /**
+     * Débit (lignes et octets par seconde de traitement), retard (octets restant à lire, délai entre la dernière écriture
+     * d'un fichier et son intégration) et avancement de chaque fichier.
+     */
+    public InboxSnapshot snapshot() {
+        List<FileStatus> files = new ArrayList<>();
+        long lagBytes = 0;
+        for (InboxFileState state : stateRepository.findAll(Sort.by("fileName"))) {
+            long size = sizeOf(state.getFileName());
+            long lag = Math.max(0, size - state.getOffset());
+            lagBytes += lag;
+            files.add(new FileStatus(state.getFileName(), size, state.getOffset(), lag, state.getRowsIngested(), state.getUpdatedAt()));
+        }
+        double busySeconds = counters.busyNanos.sum() / 1e9;
+        return new InboxSnapshot(inboxDir, watchService != null, counters.slices.sum(), counters.bytes.sum(),
+                counters.rows.sum(), counters.skipped.sum(), counters.imported.sum(), counters.repriced.sum(),
+                counters.errors.sum(),
+                busySeconds > 0 ? counters.rows.sum() / busySeconds : 0.0,
+                busySeconds > 0 ? counters.bytes.sum() / busySeconds : 0.0,
+                lagBytes, counters.lastLagMs.get(), counters.maxLagMs.get(), counters.lastIngestAt, files);
+    }
+
+    private long sizeOf(String fileName) {
+        try {
+            return Files.size(Path.of(inboxDir, fileName));
+        } catch (IOException | InvalidPathException e) {
+            return 0;
+        }
+    }
+}
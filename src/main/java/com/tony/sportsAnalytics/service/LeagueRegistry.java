@@ -0,0 +1,304 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.League;
+import com.tony.sportsAnalytics.repository.LeagueRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Registre des ligues importées : divisions football-data, noms, pays, pages FBRef et saisons disponibles.
+ * Chargé depuis un fichier (leagues.csv embarqué, ou import.leagues.file) complété par les ligues de la base
+ * qui portent un code de division (ex : division inconnue créée par un import d'archive).
+ * Les imports, l'estimation et les recalculs itèrent ce registre, une ligue par thread (borné par import.leagues.parallelism) :
+ * les saisons d'une même ligue restent séquentielles et chronologiques (Elo, forces en ligne).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LeagueRegistry {
+
+    private static final String BUNDLED_FILE = "/leagues.csv";
+
+    private final LeagueRepository leagueRepository;
+
+    // Fichier de ligues (même format que leagues.csv) ; vide = fichier embarqué (22 divisions football-data)
+    @Value("${import.leagues.file:}")
+    private String leaguesFile;
+
+    // Codes ou divisions à importer, séparés par des virgules ; vide = toutes les ligues du registre
+    @Value("${import.leagues.enabled:}")
+    private String enabledLeagues;
+
+    // Ligues traitées en parallèle (chacune tient au plus une connexion à la fois)
+    @Value("${import.leagues.parallelism:4}")
+    private int parallelism;
+
+    // Saison en cours (code football-data) et nombre de saisons passées importées par l'import historique
+    @Value("${import.seasons.current:2526}")
+    private String currentSeason;
+    @Value("${import.seasons.history:10}")
+    private int historySeasons;
+
+    private volatile Registry registry;
+
+    /**
+     * Une ligue du registre. 'firstSeason' borne l'historique (null = toutes saisons), 'fbrefUrl' peut être null.
+     */
+    public record LeagueDefinition(String code, String division, String name, String country, String countryCode,
+                                   String firstSeason, String fbrefUrl) {
+
+        public boolean publishes(String seasonCode) {
+            return firstSeason == null || SeasonArchiveReader.startYearOf(seasonCode) >= SeasonArchiveReader.startYearOf(firstSeason);
+        }
+
+        /**
+         * Division absente du registre (archive) : le code football-data sert de code et de nom.
+         */
+        static LeagueDefinition adHoc(String division) {
+            return new LeagueDefinition(division, division, division, "World", "xx", null, null);
+        }
+    }
+
+    private record Registry(List<LeagueDefinition> all, List<LeagueDefinition> enabled,
+                            Map<String, LeagueDefinition> byCode, Map<String, LeagueDefinition> byDivision) {}
+
+    // --- CONSULTATION ---
+
+    /**
+     * Ligues à importer, dans l'ordre du fichier puis de la base.
+     */
+    public List<LeagueDefinition> leagues() {
+        return registry().enabled();
+    }
+
+    public Optional<LeagueDefinition> byCode(String code) {
+        return Optional.ofNullable(registry().byCode().get(code));
+    }
+
+    /**
+     * Ligue d'une division football-data, y compris hors registre (ligue ad hoc nommée d'après la division).
+     */
+    public LeagueDefinition byDivision(String division) {
+        LeagueDefinition definition = registry().byDivision().get(division);
+        return definition != null ? definition : LeagueDefinition.adHoc(division);
+    }
+
+    /**
+     * Ligue importée pour une division (fixtures : les divisions non suivies sont ignorées).
+     */
+    public Optional<LeagueDefinition> enabledByDivision(String division) {
+        LeagueDefinition definition = registry().byDivision().get(division);
+        return (definition != null && registry().enabled().contains(definition)) ? Optional.of(definition) : Optional.empty();
+    }
+
+    public String currentSeasonCode() {
+        return currentSeason;
+    }
+
+    public String currentSeasonLabel() {
+        return toSeasonLabel(currentSeason);
+    }
+
+    /**
+     * Saisons passées de l'import historique, dans l'ordre chronologique (indispensable pour Elo et les forces).
+     */
+    public List<String> historicalSeasons() {
+        return seasonsBefore(currentSeason, historySeasons);
+    }
+
+    public List<String> historicalSeasons(LeagueDefinition league) {
+        return historicalSeasons().stream().filter(league::publishes).toList();
+    }
+
+    // --- SYNCHRONISATION AVEC LA BASE ---
+
+    /**
+     * Ligue en base correspondant à la définition : créée si besoin, code de division renseigné au passage
+     * (les ligues créées avant le registre n'en ont pas).
+     */
+    public League leagueFor(LeagueDefinition definition) {
+        League league = leagueRepository.findByName(definition.name()).orElseGet(() -> {
+            League created = new League(definition.name(), definition.country(), definition.countryCode());
+            created.setDivisionCode(definition.division());
+            return leagueRepository.save(created);
+        });
+        if (league.getDivisionCode() == null) {
+            league.setDivisionCode(definition.division());
+            league = leagueRepository.save(league);
+        }
+        return league;
+    }
+
+    /**
+     * Crée les ligues du registre absentes de la base (amorçage) et renvoie le nombre de ligues créées.
+     */
+    public int synchronizeLeagues() {
+        Set<String> existing = new HashSet<>();
+        leagueRepository.findAll().forEach(l -> existing.add(l.getName()));
+        int created = 0;
+        for (LeagueDefinition definition : leagues()) {
+            if (!existing.contains(definition.name())) created++;
+            leagueFor(definition);
+        }
+        return created;
+    }
+
+    /**
+     * Relit le fichier et la base (ligue ajoutée en base ou fichier modifié, sans redémarrage).
+     */
+    public synchronized List<LeagueDefinition> reload() {
+        registry = load();
+        log.info("🗂️ Registre des ligues : {} ligues ({} importées), saison {} + {} saisons d'historique",
+                registry.all().size(), registry.enabled().size(), currentSeason, historySeasons);
+        return registry.enabled();
+    }
+
+    private Registry registry() {
+        Registry current = registry;
+        if (current != null) return current;
+        synchronized (this) {
+            if (registry == null) reload();
+            return registry;
+        }
+    }
+
+    private Registry load() {
+        List<LeagueDefinition> definitions;
+        try (Reader reader = openLeaguesFile()) {
+            definitions = new ArrayList<>(parse(reader));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Fichier de ligues illisible : " + e.getMessage(), e);
+        }
+
+        // Ligues connues de la base seulement (division hors fichier) : importées avec le motif d'URL standard, sans FBRef
+        Set<String> divisions = new HashSet<>();
+        definitions.forEach(d -> divisions.add(d.division()));
+        for (League league : leagueRepository.findAll()) {
+            String division = league.getDivisionCode();
+            if (division == null || !divisions.add(division)) continue;
+            definitions.add(new LeagueDefinition(division, division, league.getName(), league.getCountry(),
+                    league.getCountryCode(), null, null));
+        }
+
+        Set<String> enabled = new HashSet<>();
+        for (String code : enabledLeagues.split(",")) {
+            if (!code.isBlank()) enabled.add(code.trim());
+        }
+        Map<String, LeagueDefinition> byCode = new LinkedHashMap<>();
+        Map<String, LeagueDefinition> byDivision = new HashMap<>();
+        for (LeagueDefinition d : definitions) {
+            byCode.put(d.code(), d);
+            byDivision.put(d.division(), d);
+        }
+        List<LeagueDefinition> active = enabled.isEmpty() ? List.copyOf(definitions)
+                : definitions.stream().filter(d -> enabled.contains(d.code()) || enabled.contains(d.division())).toList();
+        return new Registry(List.copyOf(definitions), active, byCode, byDivision);
+    }
+
+    private Reader openLeaguesFile() throws IOException {
+        if (!leaguesFile.isBlank()) {
+            return Files.newBufferedReader(Path.of(leaguesFile), StandardCharsets.UTF_8);
+        }
+        InputStream bundled = LeagueRegistry.class.getResourceAsStream(BUNDLED_FILE);
+        if (bundled == null) throw new IOException(BUNDLED_FILE + " absent du classpath");
+        return new InputStreamReader(bundled, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Format : code,division,name,country,country_code,first_season,fbref_url (en-tête et lignes '#' ignorés).
+     */
+    static List<LeagueDefinition> parse(Reader source) throws IOException {
+        List<LeagueDefinition> definitions = new ArrayList<>();
+        Set<String> codes = new HashSet<>();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        boolean header = true;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            if (header) {
+                header = false;
+                continue;
+            }
+            String[] f = line.split(",", -1);
+            if (f.length < 7) throw new IOException("Ligne de ligue incomplète : " + line);
+            String code = f[0].trim();
+            if (!codes.add(code)) throw new IOException("Code de ligue en double : " + code);
+            definitions.add(new LeagueDefinition(code, f[1].trim(), f[2].trim(), f[3].trim(), f[4].trim(),
+                    blankToNull(f[5]), blankToNull(f[6])));
+        }
+        return definitions;
+    }
+
+    private static String blankToNull(String value) {
+        return value.isBlank() ? null : value.trim();
+    }
+
+    // "2526", 3 -> [2223, 2324, 2425]
+    static List<String> seasonsBefore(String currentSeasonCode, int count) {
+        int start = SeasonArchiveReader.startYearOf(currentSeasonCode);
+        List<String> seasons = new ArrayList<>(count);
+        for (int year = start - count; year < start; year++) {
+            seasons.add(String.format("%02d%02d", year % 100, (year + 1) % 100));
+        }
+        return seasons;
+    }
+
+    // "2122" -> "2021-2022" (les codes 9xxx des archives désignent les années 1990)
+    static String toSeasonLabel(String seasonCode) {
+        int start = SeasonArchiveReader.startYearOf(seasonCode);
+        return start + "-" + (start + 1);
+    }
+
+    // --- EXÉCUTION PAR LIGUE ---
+
+    /**
+     * Applique 'work' à chaque élément (une ligue, ou le groupe de fichiers d'une ligue) en parallèle,
+     * au plus 'import.leagues.parallelism' à la fois, et renvoie les résultats dans l'ordre des éléments.
+     * 'work' gère ses propres erreurs : une exception qui lui échappe est journalisée et l'élément absent du résultat.
+     */
+    public <K, R> Map<K, R> runPerLeague(Collection<K> items, Function<K, R> work) {
+        return runConcurrently(items, parallelism, work);
+    }
+
+    static <K, R> Map<K, R> runConcurrently(Collection<K> items, int parallelism, Function<K, R> work) {
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        Map<K, Future<R>> futures = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("league-", 0).factory())) {
+            for (K item : items) {
+                futures.put(item, executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return work.apply(item);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        } // close() attend la fin de toutes les ligues
+
+        Map<K, R> results = new LinkedHashMap<>();
+        futures.forEach((item, future) -> {
+            if (future.state() == Future.State.SUCCESS) results.put(item, future.resultNow());
+            else log.error("❌ Traitement de {} interrompu", item, future.state() == Future.State.FAILED ? future.exceptionNow() : null);
+        });
+        return results;
+    }
+}
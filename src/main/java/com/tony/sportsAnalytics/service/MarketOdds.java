@@ -0,0 +1,262 @@
+package com.tony.sportsAnalytics.service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cotes d'un match chez les sources football-data (Bet365, Pinnacle, maximum et moyenne du marché) pour le 1X2,
+ * le total 2.5 et le handicap asiatique, avec leur encodage compact pour la table match_odds :
+ * [version][masque 32 bits des cases renseignées][ligne AH en quarts de but, int16][cotes renseignées en centièmes, uint16].
+ * Une trentaine d'octets par match au lieu de 29 colonnes sur match_analysis.
+ * L'historique (match_odds_history) enchaîne une image complète puis des écarts : seules les cases qui ont bougé,
+ * en écarts de centièmes zigzag-varint (quelques octets par relevé).
+ */
+public final class MarketOdds {
+
+    public enum Source { BET365, PINNACLE, MAX, AVERAGE }
+
+    public enum Market { HOME, DRAW, AWAY, OVER_25, UNDER_25, AH_HOME, AH_AWAY }
+
+    // Colonnes football-data, dans l'ordre des cases (source × marché)
+    static final String[] CSV_COLUMNS = {
+            "B365H", "B365D", "B365A", "B365>2.5", "B365<2.5", "B365AHH", "B365AHA",
+            "PSH", "PSD", "PSA", "P>2.5", "P<2.5", "PAHH", "PAHA",
+            "MaxH", "MaxD", "MaxA", "Max>2.5", "Max<2.5", "MaxAHH", "MaxAHA",
+            "AvgH", "AvgD", "AvgA", "Avg>2.5", "Avg<2.5", "AvgAHH", "AvgAHA"
+    };
+    static final String AH_LINE_COLUMN = "AHh";
+
+    // Noms des saisons antérieures à 2019-2020 (agrégats BetBrain) -> noms actuels
+    static final Map<String, String> LEGACY_COLUMNS = Map.ofEntries(
+            Map.entry("BbMxH", "MaxH"), Map.entry("BbMxD", "MaxD"), Map.entry("BbMxA", "MaxA"),
+            Map.entry("BbAvH", "AvgH"), Map.entry("BbAvD", "AvgD"), Map.entry("BbAvA", "AvgA"),
+            Map.entry("BbMx>2.5", "Max>2.5"), Map.entry("BbMx<2.5", "Max<2.5"),
+            Map.entry("BbAv>2.5", "Avg>2.5"), Map.entry("BbAv<2.5", "Avg<2.5"),
+            Map.entry("BbAHh", "AHh"), Map.entry("BbMxAHH", "MaxAHH"), Map.entry("BbMxAHA", "MaxAHA"),
+            Map.entry("BbAvAHH", "AvgAHH"), Map.entry("BbAvAHA", "AvgAHA")
+    );
+
+    static final int SLOTS = CSV_COLUMNS.length;
+    private static final int MARKETS = Market.values().length;
+    private static final int AH_LINE_BIT = SLOTS;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte DELTA_VERSION = 2;
+    // Ligne AH en entier strictement positif (0 = absente) pour le codage delta
+    private static final int AH_LINE_OFFSET = 1000;
+
+    // Poids des sources dans le consensus : Pinnacle (marges faibles, ligne la plus affûtée) compte double
+    // (EnumMap : ordre de sommation fixe, le consensus est reproductible au bit près d'un import à l'autre)
+    private static final Map<Source, Double> CONSENSUS_WEIGHTS = new EnumMap<>(Map.of(Source.PINNACLE, 2.0, Source.AVERAGE, 1.0, Source.BET365, 1.0));
+
+    private final double[] prices = new double[SLOTS];
+    private double asianLine = Double.NaN;
+    private double[] consensus;
+
+    public MarketOdds() {
+        Arrays.fill(prices, Double.NaN);
+    }
+
+    public Double price(Source source, Market market) {
+        double p = prices[slot(source, market)];
+        return Double.isNaN(p) ? null : p;
+    }
+
+    public void setPrice(Source source, Market market, Double price) {
+        set(slot(source, market), price);
+    }
+
+    void set(int slot, Double price) {
+        // Une cote décimale vaut au moins 1.01 : le reste est une case vide ou mal saisie
+        prices[slot] = (price != null && price > 1.0) ? price : Double.NaN;
+        consensus = null;
+    }
+
+    /**
+     * Ligne du handicap asiatique (handicap de l'équipe à domicile, ex : -0.75).
+     */
+    public Double asianLine() {
+        return Double.isNaN(asianLine) ? null : asianLine;
+    }
+
+    public void setAsianLine(Double line) {
+        asianLine = (line != null) ? line : Double.NaN;
+    }
+
+    public boolean isEmpty() {
+        if (!Double.isNaN(asianLine)) return false;
+        for (double p : prices) if (!Double.isNaN(p)) return false;
+        return true;
+    }
+
+    /**
+     * Probabilités 1X2 sans marge (normalisation proportionnelle par source), moyennées sur Pinnacle, la moyenne
+     * du marché et Bet365 (le maximum du marché, meilleur prix et non prix équitable, n'y entre pas).
+     * Calculé une fois (à l'import) puis mémorisé. Null si aucune source n'a les trois cotes.
+     */
+    public double[] consensus1x2() {
+        if (consensus != null) return consensus.length == 0 ? null : consensus;
+        double home = 0, draw = 0, away = 0, weights = 0;
+        for (Map.Entry<Source, Double> source : CONSENSUS_WEIGHTS.entrySet()) {
+            double h = prices[slot(source.getKey(), Market.HOME)];
+            double d = prices[slot(source.getKey(), Market.DRAW)];
+            double a = prices[slot(source.getKey(), Market.AWAY)];
+            if (Double.isNaN(h) || Double.isNaN(d) || Double.isNaN(a)) continue;
+            double overround = 1 / h + 1 / d + 1 / a;
+            double w = source.getValue();
+            home += w * (1 / h) / overround;
+            draw += w * (1 / d) / overround;
+            away += w * (1 / a) / overround;
+            weights += w;
+        }
+        consensus = (weights == 0) ? new double[0] : new double[]{home / weights, draw / weights, away / weights};
+        return consensus.length == 0 ? null : consensus;
+    }
+
+    /**
+     * Mouvement du marché depuis un relevé précédent : plus grand écart de probabilité 1X2 du consensus.
+     * Infini si le consensus apparaît (rien à comparer), 0 s'il n'y en a ni avant ni après.
+     */
+    public double movementFrom(MarketOdds previous) {
+        double[] now = consensus1x2();
+        double[] before = (previous != null) ? previous.consensus1x2() : null;
+        if (now == null) return 0.0;
+        if (before == null) return Double.POSITIVE_INFINITY;
+        double max = 0.0;
+        for (int i = 0; i < 3; i++) max = Math.max(max, Math.abs(now[i] - before[i]));
+        return max;
+    }
+
+    /**
+     * Vue lisible pour l'API : source -> marché -> cote (cases vides omises).
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        for (Source source : Source.values()) {
+            Map<Market, Double> markets = new EnumMap<>(Market.class);
+            for (Market market : Market.values()) {
+                Double p = price(source, market);
+                if (p != null) markets.put(market, p);
+            }
+            if (!markets.isEmpty()) view.put(source.name(), markets);
+        }
+        if (asianLine() != null) view.put("AH_LINE", asianLine());
+        double[] fair = consensus1x2();
+        if (fair != null) view.put("CONSENSUS", Map.of(Market.HOME, fair[0], Market.DRAW, fair[1], Market.AWAY, fair[2]));
+        return view;
+    }
+
+    // --- ENCODAGE ---
+
+    public byte[] encode() {
+        int mask = 0, count = 0;
+        for (int s = 0; s < SLOTS; s++) {
+            if (!Double.isNaN(prices[s])) {
+                mask |= 1 << s;
+                count++;
+            }
+        }
+        boolean hasLine = !Double.isNaN(asianLine);
+        if (hasLine) mask |= 1 << AH_LINE_BIT;
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + (hasLine ? 2 : 0) + 2 * count);
+        buffer.put(FORMAT_VERSION).putInt(mask);
+        if (hasLine) buffer.putShort((short) Math.round(asianLine * 4));
+        for (double p : prices) {
+            // Centièmes sur 16 bits non signés : 1.01 à 655.35
+            if (!Double.isNaN(p)) buffer.putShort((short) Math.min(0xFFFF, Math.round(p * 100)));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Écart avec le relevé précédent (décodé depuis la base) : [2][masque des cases modifiées][écarts zigzag-varint].
+     */
+    public byte[] encodeDelta(MarketOdds previous) {
+        int[] before = previous.quantized(), after = quantized();
+        int mask = 0;
+        ByteArrayOutputStream deltas = new ByteArrayOutputStream();
+        for (int s = 0; s <= SLOTS; s++) {
+            int delta = after[s] - before[s];
+            if (delta == 0) continue;
+            mask |= 1 << s;
+            writeVarint(deltas, (delta << 1) ^ (delta >> 31));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + deltas.size());
+        buffer.put(DELTA_VERSION).putInt(mask).put(deltas.toByteArray());
+        return buffer.array();
+    }
+
+    /**
+     * Rejoue une entrée d'historique (image complète ou écart) sur l'état précédent (null pour la première).
+     */
+    public static MarketOdds replay(MarketOdds previous, byte[] payload) {
+        if (payload[0] != DELTA_VERSION) return decode(payload);
+        if (previous == null) throw new IllegalArgumentException("Écart de cotes sans image de départ");
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 1, payload.length - 1);
+        int mask = buffer.getInt();
+        int[] q = previous.quantized();
+        for (int s = 0; s <= SLOTS; s++) {
+            if ((mask & (1 << s)) == 0) continue;
+            int zigzag = readVarint(buffer);
+            q[s] += (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+        return fromQuantized(q);
+    }
+
+    public static MarketOdds decode(byte[] encoded) {
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        byte version = buffer.get();
+        if (version != FORMAT_VERSION) throw new IllegalArgumentException("Format de cotes inconnu : v" + version);
+        int mask = buffer.getInt();
+        MarketOdds odds = new MarketOdds();
+        if ((mask & (1 << AH_LINE_BIT)) != 0) odds.asianLine = buffer.getShort() / 4.0;
+        for (int s = 0; s < SLOTS; s++) {
+            if ((mask & (1 << s)) != 0) odds.prices[s] = (buffer.getShort() & 0xFFFF) / 100.0;
+        }
+        return odds;
+    }
+
+    // Cases en centièmes (0 = vide), puis la ligne AH en quarts décalés (0 = absente)
+    private int[] quantized() {
+        int[] q = new int[SLOTS + 1];
+        for (int s = 0; s < SLOTS; s++) {
+            q[s] = Double.isNaN(prices[s]) ? 0 : (int) Math.min(0xFFFF, Math.round(prices[s] * 100));
+        }
+        q[SLOTS] = Double.isNaN(asianLine) ? 0 : (int) Math.round(asianLine * 4) + AH_LINE_OFFSET;
+        return q;
+    }
+
+    private static MarketOdds fromQuantized(int[] q) {
+        MarketOdds odds = new MarketOdds();
+        for (int s = 0; s < SLOTS; s++) {
+            if (q[s] > 0) odds.prices[s] = q[s] / 100.0;
+        }
+        if (q[SLOTS] > 0) odds.asianLine = (q[SLOTS] - AH_LINE_OFFSET) / 4.0;
+        return odds;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+    }
+
+    private static int slot(Source source, Market market) {
+        return source.ordinal() * MARKETS + market.ordinal();
+    }
+}
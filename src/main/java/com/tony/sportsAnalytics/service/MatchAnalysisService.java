@@ -15,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Objects;
 
 @Service
 @RequiredArgsConstructor
@@ -25,7 +26,9 @@ public class MatchAnalysisService {
     private final TeamRepository teamRepository;
     private final PredictionEngineService predictionEngine;
     private final EloService eloService;
+    private final OnlineRatingService onlineRatingService;
     private final TeamStatsService teamStatsService;
+    private final ModelParameterRegistry parameterRegistry;
 
     @Transactional
     public MatchAnalysis analyzeAndSave(MatchAnalysisRequest request) {
@@ -36,7 +39,11 @@ public class MatchAnalysisService {
         Team awayTeam = teamRepository.findById(request.getAwayTeamId())
                 .orElseThrow(() -> new EntityNotFoundException("Équipe extérieur introuvable"));
 
-        MatchAnalysis match = new MatchAnalysis();
+        // Même affiche le même jour (clé naturelle) : nouvelle saisie du match en base, pas un second match
+        MatchAnalysis match = matchAnalysisRepository.findByHomeTeamAndAwayTeamAndKickoffDate(
+                homeTeam, awayTeam, request.getMatchDate().toLocalDate()).orElseGet(MatchAnalysis::new);
+        Integer previousHomeScore = match.getHomeScore();
+        Integer previousAwayScore = match.getAwayScore();
         match.setHomeTeam(homeTeam);
         match.setAwayTeam(awayTeam);
         match.setMatchDate(request.getMatchDate());
@@ -94,14 +101,11 @@ public class MatchAnalysisService {
         );
         match.setPrediction(prediction);
 
-        // --- APPRENTISSAGE ELO ---
-        if (request.getHomeScore() != null && request.getAwayScore() != null) {
-            eloService.updateRatings(homeTeam, awayTeam, request.getHomeScore(), request.getAwayScore());
-            teamRepository.save(homeTeam);
-            teamRepository.save(awayTeam);
-        }
+        // Écriture d'abord (contrainte d'unicité vérifiée au flush), apprentissage ensuite
+        MatchAnalysis savedMatch = matchAnalysisRepository.saveAndFlush(match);
 
-        MatchAnalysis savedMatch = matchAnalysisRepository.save(match);
+        // --- APPRENTISSAGE ELO ---
+        applyScoreChange(homeTeam, awayTeam, previousHomeScore, previousAwayScore, request.getHomeScore(), request.getAwayScore());
 
         // --- RECALCUL AUTOMATIQUE DES STATS ---
         if (savedMatch.getHomeScore() != null) {
@@ -118,6 +122,8 @@ public class MatchAnalysisService {
         MatchAnalysis match = matchAnalysisRepository.findById(matchId)
                 .orElseThrow(() -> new RuntimeException("Match introuvable ID: " + matchId));
 
+        Integer previousHomeScore = match.getHomeScore();
+        Integer previousAwayScore = match.getAwayScore();
         match.setMatchDate(request.getMatchDate());
         match.setHomeScore(request.getHomeScore());
         match.setAwayScore(request.getAwayScore());
@@ -125,7 +131,9 @@ public class MatchAnalysisService {
         if (request.getHomeMatchStats() != null) match.setHomeMatchStats(request.getHomeMatchStats());
         if (request.getAwayMatchStats() != null) match.setAwayMatchStats(request.getAwayMatchStats());
 
-        MatchAnalysis saved = matchAnalysisRepository.save(match);
+        MatchAnalysis saved = matchAnalysisRepository.saveAndFlush(match);
+        applyScoreChange(saved.getHomeTeam(), saved.getAwayTeam(), previousHomeScore, previousAwayScore,
+                request.getHomeScore(), request.getAwayScore());
 
         // Recalcul stats après update
         teamStatsService.recalculateTeamStats(saved.getHomeTeam().getId());
@@ -134,6 +142,26 @@ public class MatchAnalysisService {
         return saved;
     }
 
+    /**
+     * Un résultat n'entre qu'une fois dans les forces (Elo, filtre en ligne) : au passage "sans score" -> "score".
+     * Nouvelle saisie à l'identique : rien. Correction (ou retrait) d'un score déjà intégré : les mises à jour passées
+     * ne se défont pas, on ne rejoue rien et on le signale ; le fit nocturne, qui relit les scores en base, ré-ancre
+     * Alpha/Beta, l'Elo garde l'ancien résultat.
+     */
+    void applyScoreChange(Team home, Team away, Integer previousHome, Integer previousAway, Integer homeScore, Integer awayScore) {
+        boolean hadScore = previousHome != null && previousAway != null;
+        boolean hasScore = homeScore != null && awayScore != null;
+        if (hasScore && !hadScore) {
+            eloService.updateRatings(home, away, homeScore, awayScore);
+            onlineRatingService.applyResult(home, away, homeScore, awayScore);
+            teamRepository.save(home);
+            teamRepository.save(away);
+        } else if (hadScore && !(Objects.equals(previousHome, homeScore) && Objects.equals(previousAway, awayScore))) {
+            log.warn("✏️ Score corrigé {} - {} : {}-{} -> {}-{} (forces non rejouées, Alpha/Beta ré-ancrés au prochain fit)",
+                    home.getName(), away.getName(), previousHome, previousAway, homeScore, awayScore);
+        }
+    }
+
     // --- V11 : Get matchs d'une équipe ---
     public List<MatchAnalysis> getMatchesByTeam(Long teamId) {
         return matchAnalysisRepository.findByHomeTeamIdOrAwayTeamIdOrderByMatchDateDesc(teamId, teamId);
@@ -188,6 +216,14 @@ public class MatchAnalysisService {
 
     @Transactional
     public MatchAnalysis recalculatePrediction(Long matchId) {
+        return recalculatePrediction(matchId, parameterRegistry.current());
+    }
+
+    /**
+     * Recalcul avec un Snapshot de paramètres imposé (lots : tous les matchs pricés avec la même version).
+     */
+    @Transactional
+    public MatchAnalysis recalculatePrediction(Long matchId, ModelParameterRegistry.Snapshot parameters) {
         MatchAnalysis match = matchAnalysisRepository.findById(matchId)
                 .orElseThrow(() -> new EntityNotFoundException("Match introuvable ID: " + matchId));
 
@@ -213,7 +249,7 @@ public class MatchAnalysisService {
 
         // 3. Relance du moteur avec les nouveaux paramètres (Calibration, Poids, etc.)
         PredictionResult newPrediction = predictionEngine.calculateMatchPrediction(
-                match, h2h, homeHistory, awayHistory, leagueAvg
+                match, h2h, homeHistory, awayHistory, leagueAvg, parameters
         );
 
         match.setPrediction(newPrediction);
@@ -227,10 +263,11 @@ public class MatchAnalysisService {
         // Récupère tous les matchs à partir de maintenant
         LocalDateTime now = LocalDateTime.now();
         List<MatchAnalysis> upcoming = matchAnalysisRepository.findUpcomingMatches(now); //
+        ModelParameterRegistry.Snapshot parameters = parameterRegistry.current();
 
         for (MatchAnalysis m : upcoming) {
             // Appelle votre logique de recalcul existante pour chaque match
-            recalculatePrediction(m.getId());
+            recalculatePrediction(m.getId(), parameters);
         }
         return upcoming.size();
     }
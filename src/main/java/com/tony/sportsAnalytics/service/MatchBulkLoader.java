@@ -0,0 +1,417 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.MatchAnalysis;
+import com.tony.sportsAnalytics.model.MatchDetailStats;
+import com.tony.sportsAnalytics.service.FootballDataCsvParser.FootballDataRow;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Écritures de matchs hors JPA, toutes en upsert sur la clé naturelle (domicile, extérieur, jour du coup d'envoi) :
+ * idempotentes et sans conflit entre deux imports concurrents (deux nœuds, deux requêtes admin).
+ * - load : gros rattrapages d'historique. Les lignes parsées partent en flux dans une table de staging UNLOGGED
+ *   via COPY FROM STDIN, puis une seule requête ensembliste par fichier crée les équipes manquantes et fusionne
+ *   les matchs. Pas de prédiction ni de mise à jour des forces : à relancer ensuite (estimation / recalculate-all).
+ * - upsert : nouveaux matchs de l'import JPA, en batch sur la connexion de la transaction en cours.
+ * Les cotes de toutes les sources (MarketOdds) vont dans la table annexe match_odds, une ligne encodée par match ;
+ * chaque changement est ajouté à match_odds_history (écart avec l'état précédent, image complète en COPY).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MatchBulkLoader {
+
+    private static final String STAGING = "match_import_staging";
+
+    // Colonnes écrites par les imports : propriété de MatchAnalysis, type SQL, extraction depuis la ligne (COPY)
+    // et depuis l'entité (upsert)
+    private record Field(String property, String sqlType, Function<FootballDataRow, Object> fromRow,
+                         Function<MatchAnalysis, Object> fromMatch) {}
+
+    private static final List<Field> FIELDS = List.of(
+            new Field("matchDate", "timestamp", DataImportService::toMatchDateTime, MatchAnalysis::getMatchDate),
+            new Field("homeScore", "integer", FootballDataRow::getFTHG, MatchAnalysis::getHomeScore),
+            new Field("awayScore", "integer", FootballDataRow::getFTAG, MatchAnalysis::getAwayScore),
+            new Field("homeScoreHT", "integer", FootballDataRow::getHTHG, MatchAnalysis::getHomeScoreHT),
+            new Field("awayScoreHT", "integer", FootballDataRow::getHTAG, MatchAnalysis::getAwayScoreHT),
+            new Field("referee", "text", FootballDataRow::getReferee, MatchAnalysis::getReferee),
+            new Field("homeMatchStats.shots", "integer", FootballDataRow::getHS, m -> homeStats(m).getShots()),
+            new Field("homeMatchStats.shotsOnTarget", "integer", FootballDataRow::getHST, m -> homeStats(m).getShotsOnTarget()),
+            new Field("homeMatchStats.corners", "integer", FootballDataRow::getHC, m -> homeStats(m).getCorners()),
+            new Field("homeMatchStats.fouls", "integer", FootballDataRow::getHF, m -> homeStats(m).getFouls()),
+            new Field("homeMatchStats.yellowCards", "integer", FootballDataRow::getHY, m -> homeStats(m).getYellowCards()),
+            new Field("homeMatchStats.redCards", "integer", FootballDataRow::getHR, m -> homeStats(m).getRedCards()),
+            new Field("awayMatchStats.shots", "integer", FootballDataRow::getAS, m -> awayStats(m).getShots()),
+            new Field("awayMatchStats.shotsOnTarget", "integer", FootballDataRow::getAST, m -> awayStats(m).getShotsOnTarget()),
+            new Field("awayMatchStats.corners", "integer", FootballDataRow::getAC, m -> awayStats(m).getCorners()),
+            new Field("awayMatchStats.fouls", "integer", FootballDataRow::getAF, m -> awayStats(m).getFouls()),
+            new Field("awayMatchStats.yellowCards", "integer", FootballDataRow::getAY, m -> awayStats(m).getYellowCards()),
+            new Field("awayMatchStats.redCards", "integer", FootballDataRow::getAR, m -> awayStats(m).getRedCards()),
+            new Field("odds1", "double precision", FootballDataRow::getB365H, MatchAnalysis::getOdds1),
+            new Field("oddsN", "double precision", FootballDataRow::getB365D, MatchAnalysis::getOddsN),
+            new Field("odds2", "double precision", FootballDataRow::getB365A, MatchAnalysis::getOdds2),
+            new Field("oddsOver25", "double precision", FootballDataRow::getB365O25, MatchAnalysis::getOddsOver25),
+            new Field("oddsUnder25", "double precision", FootballDataRow::getB365U25, MatchAnalysis::getOddsUnder25),
+            new Field("consensusHome", "double precision", r -> consensusOf(r, 0), MatchAnalysis::getConsensusHome),
+            new Field("consensusDraw", "double precision", r -> consensusOf(r, 1), MatchAnalysis::getConsensusDraw),
+            new Field("consensusAway", "double precision", r -> consensusOf(r, 2), MatchAnalysis::getConsensusAway),
+            new Field("sourceHash", "bigint", FootballDataRow::contentHash, MatchAnalysis::getSourceHash)
+    );
+
+    // Cible ON CONFLICT : colonnes de l'index unique uk_match_natural_key (voir MatchNaturalKeyConfig)
+    private static final String NATURAL_KEY = "(home_team_id, away_team_id, kickoff_date)";
+
+    // Colonnes de staging hors match_analysis, avant les FIELDS
+    private static final String STAGING_EXTRA = "home_name text, home_logo text, away_name text, away_logo text, odds_prices bytea";
+
+    // Cotes réécrites seulement si le tableau encodé a changé
+    private static final String ODDS_ON_CONFLICT = "ON CONFLICT (match_id) DO UPDATE SET prices = EXCLUDED.prices, " +
+            "updated_at = EXCLUDED.updated_at WHERE match_odds.prices IS DISTINCT FROM EXCLUDED.prices";
+
+    // Colonnes NOT NULL (primitifs / valeurs par défaut Java) que Hibernate renseigne d'habitude
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "homeKeyPlayerMissing", "false",
+            "awayKeyPlayerMissing", "false",
+            "homeTired", "false",
+            "awayNewCoach", "false",
+            "homeMissingImpactScore", "0.0",
+            "awayMissingImpactScore", "0.0"
+    );
+
+    private final DataSource dataSource;
+    private final EntityManagerFactory entityManagerFactory;
+
+    private volatile Map<String, String> columns;
+
+    public record LoadResult(int rows, int newTeams, int updated, int inserted) {}
+
+    // Cotes d'un match qui ont changé à l'import (previous null : premier relevé)
+    public record OddsChange(long matchId, MarketOdds previous, MarketOdds current) {}
+
+    /**
+     * Charge un fichier de saison pour une ligue, dans sa propre transaction JDBC.
+     * Les matchs existants (même clé naturelle) ne sont réécrits que si leur empreinte source diffère.
+     */
+    public LoadResult load(Long leagueId, String seasonLabel, List<FootballDataRow> rows) throws SQLException {
+        Map<String, String> cols = columns();
+        try (Connection connection = dataSource.getConnection()) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                try (Statement st = connection.createStatement()) {
+                    st.execute(createStagingSql(cols));
+                    st.execute(alterStagingSql(cols)); // staging créée par une version précédente : colonnes ajoutées depuis
+                    // Un seul chargement à la fois sur la table de staging partagée
+                    st.execute("SELECT pg_advisory_xact_lock(hashtext('" + STAGING + "'))");
+                    st.execute("TRUNCATE " + STAGING);
+                }
+
+                int copied = copyRows(connection, cols, rows);
+
+                LoadResult result;
+                try (PreparedStatement merge = connection.prepareStatement(mergeSql(cols))) {
+                    merge.setLong(1, leagueId);
+                    merge.setLong(2, leagueId);
+                    merge.setString(3, seasonLabel);
+                    try (ResultSet rs = merge.executeQuery()) {
+                        rs.next();
+                        result = new LoadResult(copied, rs.getInt(1), rs.getInt(2), rs.getInt(3));
+                    }
+                }
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        }
+    }
+
+    private int copyRows(Connection connection, Map<String, String> cols, List<FootballDataRow> rows) throws SQLException {
+        String columnList = "home_name, home_logo, away_name, away_logo, odds_prices, "
+                + FIELDS.stream().map(f -> cols.get(f.property())).collect(Collectors.joining(", "));
+        CopyIn copy = connection.unwrap(PGConnection.class).getCopyAPI()
+                .copyIn("COPY " + STAGING + " (" + columnList + ") FROM STDIN WITH (FORMAT csv)");
+        int count = 0;
+        try {
+            StringBuilder line = new StringBuilder(256);
+            for (FootballDataRow row : rows) {
+                if (row.getMatchDate() == null || row.getHomeTeam() == null || row.getAwayTeam() == null) continue;
+                line.setLength(0);
+                encodeRow(row, line);
+                byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                copy.writeToCopy(bytes, 0, bytes.length);
+                count++;
+            }
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) copy.cancelCopy();
+        }
+        return count;
+    }
+
+    /**
+     * Une ligne CSV au format COPY : champ vide non quoté = NULL, textes toujours entre guillemets.
+     */
+    static void encodeRow(FootballDataRow row, StringBuilder out) {
+        String home = DataImportService.cleanTeamName(row.getHomeTeam());
+        String away = DataImportService.cleanTeamName(row.getAwayTeam());
+        appendValue(out, home).append(',');
+        appendValue(out, DataImportService.logoPathOf(home)).append(',');
+        appendValue(out, away).append(',');
+        appendValue(out, DataImportService.logoPathOf(away)).append(',');
+        // bytea au format hexadécimal ("\x...")
+        if (row.getOdds() != null) out.append("\\x").append(HexFormat.of().formatHex(row.getOdds().encode()));
+        for (Field field : FIELDS) {
+            appendValue(out.append(','), field.fromRow().apply(row));
+        }
+        out.append('\n');
+    }
+
+    private static StringBuilder appendValue(StringBuilder out, Object value) {
+        if (value == null) return out;
+        if (value instanceof String s) {
+            return out.append('"').append(s.replace("\"", "\"\"")).append('"');
+        }
+        return out.append(value); // nombres et LocalDateTime (ISO, accepté par PostgreSQL)
+    }
+
+    private static String createStagingSql(Map<String, String> cols) {
+        return "CREATE UNLOGGED TABLE IF NOT EXISTS " + STAGING + " (" + STAGING_EXTRA + ", "
+                + FIELDS.stream().map(f -> cols.get(f.property()) + " " + f.sqlType()).collect(Collectors.joining(", "))
+                + ")";
+    }
+
+    private static String alterStagingSql(Map<String, String> cols) {
+        List<String> definitions = new ArrayList<>(List.of(STAGING_EXTRA.split(", ")));
+        FIELDS.forEach(f -> definitions.add(cols.get(f.property()) + " " + f.sqlType()));
+        return "ALTER TABLE " + STAGING + " " + definitions.stream().map(d -> "ADD COLUMN IF NOT EXISTS " + d)
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Une requête par fichier : équipes manquantes, upsert des matchs sur la clé naturelle
+     * (réécriture gardée, voir onConflictUpdate), puis cotes des matchs écrits. Paramètres : ligue (x2), saison.
+     */
+    private static String mergeSql(Map<String, String> cols) {
+        List<String> targets = FIELDS.stream().map(f -> cols.get(f.property())).toList();
+        String date = cols.get("matchDate");
+
+        return "WITH src AS (" +
+                "  SELECT DISTINCT ON (home_name, away_name, " + date + "::date) * FROM " + STAGING +
+                "  ORDER BY home_name, away_name, " + date + "::date), " +
+                "names AS (SELECT home_name AS name, home_logo AS logo FROM src UNION SELECT away_name, away_logo FROM src), " +
+                "new_teams AS (" +
+                "  INSERT INTO team (id, name, league_id, logo_url, elo_rating, attack_strength, defense_strength, attack_variance, defense_variance) " +
+                "  SELECT nextval('team_seq'), n.name, ?, n.logo, 1500, 1.0, 1.0, 0.04, 0.04 FROM names n " +
+                "  ON CONFLICT (name, league_id) DO NOTHING RETURNING id, name), " +
+                "teams AS (SELECT id, name FROM team WHERE league_id = ? UNION ALL SELECT id, name FROM new_teams), " +
+                "upserted AS (" +
+                "  INSERT INTO match_analysis (" + insertColumns(cols) + ") " +
+                "  SELECT nextval('match_analysis_seq'), h.id, a.id, ?, s." + date + "::date, " +
+                targets.stream().map(c -> "s." + c).collect(Collectors.joining(", ")) + ", " + defaultValues() +
+                // Jointures en WHERE : un "JOIN ... ON" juste avant ON CONFLICT serait ambigu pour le parseur
+                "  FROM src s, teams h, teams a WHERE h.name = s.home_name AND a.name = s.away_name " +
+                "  " + onConflictUpdate(cols) +
+                "  RETURNING id, home_team_id, away_team_id, kickoff_date, (xmax = 0) AS inserted), " +
+                "odds AS (" +
+                "  INSERT INTO match_odds (match_id, prices, updated_at) " +
+                "  SELECT u.id, s.odds_prices, now() FROM upserted u, teams h, teams a, src s " +
+                "  WHERE h.id = u.home_team_id AND a.id = u.away_team_id AND s.home_name = h.name AND s.away_name = a.name " +
+                "  AND s." + date + "::date = u.kickoff_date AND s.odds_prices IS NOT NULL " +
+                "  " + ODDS_ON_CONFLICT + " RETURNING match_id, prices, updated_at), " +
+                "odds_history AS (" +
+                "  INSERT INTO match_odds_history (id, match_id, captured_at, payload) " +
+                "  SELECT nextval('match_odds_history_seq'), match_id, updated_at, prices FROM odds) " +
+                "SELECT (SELECT count(*) FROM new_teams), " +
+                "(SELECT count(*) FROM upserted WHERE NOT inserted), (SELECT count(*) FROM upserted WHERE inserted)";
+    }
+
+    /**
+     * Nouveaux matchs de l'import JPA (id nul), écrits en un batch sur la connexion de la transaction courante.
+     * Si un autre import a créé le même match entre-temps, la ligne est mise à jour au lieu d'échouer (réécriture gardée,
+     * voir onConflictUpdate). Les ids (nouveaux ou existants) sont relus par clé naturelle, pas depuis RETURNING
+     * (une ligne écartée par la garde n'y figure pas), et reportés sur les entités, qui restent hors du contexte de persistance.
+     */
+    public void upsert(Connection connection, List<MatchAnalysis> matches) throws SQLException {
+        if (matches.isEmpty()) return;
+        Map<String, String> cols = columns();
+        String sql = "INSERT INTO match_analysis (" + insertColumns(cols) + ") VALUES (nextval('match_analysis_seq'), ?, ?, ?, ?, " +
+                FIELDS.stream().map(f -> "?").collect(Collectors.joining(", ")) + ", " + defaultValues() + ") " +
+                onConflictUpdate(cols);
+        Long[] homeIds = new Long[matches.size()];
+        Long[] awayIds = new Long[matches.size()];
+        Date[] days = new Date[matches.size()];
+        try (PreparedStatement insert = connection.prepareStatement(sql)) {
+            for (int n = 0; n < matches.size(); n++) {
+                MatchAnalysis m = matches.get(n);
+                homeIds[n] = m.getHomeTeam().getId();
+                awayIds[n] = m.getAwayTeam().getId();
+                days[n] = Date.valueOf(m.getKickoffDate());
+                int i = 1;
+                insert.setLong(i++, homeIds[n]);
+                insert.setLong(i++, awayIds[n]);
+                insert.setString(i++, m.getSeason());
+                insert.setObject(i++, m.getKickoffDate());
+                for (Field field : FIELDS) {
+                    insert.setObject(i++, field.fromMatch().apply(m));
+                }
+                insert.addBatch();
+            }
+            insert.executeBatch();
+        }
+
+        Map<String, Long> ids = new HashMap<>();
+        try (PreparedStatement select = connection.prepareStatement("SELECT m.id, m.home_team_id, m.away_team_id, m.kickoff_date " +
+                "FROM match_analysis m JOIN unnest(?, ?, ?) AS k(home_id, away_id, day) " +
+                "ON m.home_team_id = k.home_id AND m.away_team_id = k.away_id AND m.kickoff_date = k.day")) {
+            select.setArray(1, connection.createArrayOf("bigint", homeIds));
+            select.setArray(2, connection.createArrayOf("bigint", awayIds));
+            select.setArray(3, connection.createArrayOf("date", days));
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    ids.put(DataImportService.matchKey(rs.getLong(2), rs.getLong(3), rs.getObject(4, LocalDate.class)), rs.getLong(1));
+                }
+            }
+        }
+        for (MatchAnalysis m : matches) {
+            Long id = ids.get(DataImportService.matchKey(m.getHomeTeam().getId(), m.getAwayTeam().getId(), m.getKickoffDate()));
+            if (id == null) throw new SQLException("Id introuvable après l'upsert de " + matches.size() + " matchs");
+            m.setId(id);
+        }
+    }
+
+    /**
+     * Cotes par identifiant de match, en batch sur la connexion de la transaction courante : l'état courant de chaque
+     * match est relu et verrouillé (une requête, FOR UPDATE dans l'ordre des ids), seuls les matchs dont le tableau encodé
+     * a changé sont réécrits dans match_odds et ajoutés à l'historique. Un écart n'est écrit que contre un état lu sous
+     * verrou : deux imports concurrents ne peuvent pas écrire chacun un écart contre la même base. Sans état en base
+     * (rien à verrouiller), c'est une image complète, juste quel que soit l'ordre des commits.
+     * @return les changements, pour la détection des mouvements de marché
+     */
+    public List<OddsChange> upsertOdds(Connection connection, Map<Long, MarketOdds> oddsByMatch) throws SQLException {
+        if (oddsByMatch.isEmpty()) return List.of();
+        Map<Long, byte[]> stored = new HashMap<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT match_id, prices FROM match_odds WHERE match_id = ANY (?) ORDER BY match_id FOR UPDATE")) {
+            select.setArray(1, connection.createArrayOf("bigint", oddsByMatch.keySet().toArray()));
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) stored.put(rs.getLong(1), rs.getBytes(2));
+            }
+        }
+
+        List<OddsChange> changes = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        try (PreparedStatement upsert = connection.prepareStatement(
+                     "INSERT INTO match_odds (match_id, prices, updated_at) VALUES (?, ?, ?) " + ODDS_ON_CONFLICT);
+             PreparedStatement history = connection.prepareStatement(
+                     "INSERT INTO match_odds_history (id, match_id, captured_at, payload) " +
+                     "VALUES (nextval('match_odds_history_seq'), ?, ?, ?)")) {
+            for (Map.Entry<Long, MarketOdds> entry : oddsByMatch.entrySet()) {
+                byte[] encoded = entry.getValue().encode();
+                byte[] before = stored.get(entry.getKey());
+                if (Arrays.equals(before, encoded)) continue;
+
+                MarketOdds previous = (before != null) ? MarketOdds.decode(before) : null;
+                upsert.setLong(1, entry.getKey());
+                upsert.setBytes(2, encoded);
+                upsert.setObject(3, now);
+                upsert.addBatch();
+                history.setLong(1, entry.getKey());
+                history.setObject(2, now);
+                history.setBytes(3, previous != null ? entry.getValue().encodeDelta(previous) : encoded);
+                history.addBatch();
+                changes.add(new OddsChange(entry.getKey(), previous, entry.getValue()));
+            }
+            if (!changes.isEmpty()) {
+                upsert.executeBatch();
+                history.executeBatch();
+            }
+        }
+        return changes;
+    }
+
+    private static Double consensusOf(FootballDataRow row, int outcome) {
+        double[] consensus = (row.getOdds() != null) ? row.getOdds().consensus1x2() : null;
+        return (consensus != null) ? consensus[outcome] : null;
+    }
+
+    private static String insertColumns(Map<String, String> cols) {
+        return "id, home_team_id, away_team_id, season, kickoff_date, "
+                + FIELDS.stream().map(f -> cols.get(f.property())).collect(Collectors.joining(", ")) + ", "
+                + DEFAULTS.keySet().stream().sorted().map(cols::get).collect(Collectors.joining(", "));
+    }
+
+    private static String defaultValues() {
+        return DEFAULTS.keySet().stream().sorted().map(DEFAULTS::get).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Mise à jour d'un match déjà en base (même clé naturelle) : seulement si l'empreinte source diffère, et jamais
+     * d'une ligne sans score (fixture) sur un match joué ; une valeur absente de la ligne ne remplace pas celle en base.
+     * Une ligne écartée par la garde ne renvoie rien dans RETURNING.
+     */
+    private static String onConflictUpdate(Map<String, String> cols) {
+        String hash = cols.get("sourceHash");
+        String homeScore = cols.get("homeScore");
+        return "ON CONFLICT " + NATURAL_KEY + " DO UPDATE SET season = EXCLUDED.season, "
+                + FIELDS.stream().map(f -> cols.get(f.property()))
+                .map(c -> c.equals(hash) ? c + " = EXCLUDED." + c : c + " = COALESCE(EXCLUDED." + c + ", match_analysis." + c + ")")
+                .collect(Collectors.joining(", "))
+                + " WHERE match_analysis." + hash + " IS DISTINCT FROM EXCLUDED." + hash
+                + " AND (EXCLUDED." + homeScore + " IS NOT NULL OR match_analysis." + homeScore + " IS NULL)";
+    }
+
+    private static MatchDetailStats homeStats(MatchAnalysis m) {
+        return (m.getHomeMatchStats() != null) ? m.getHomeMatchStats() : new MatchDetailStats();
+    }
+
+    private static MatchDetailStats awayStats(MatchAnalysis m) {
+        return (m.getAwayMatchStats() != null) ? m.getAwayMatchStats() : new MatchDetailStats();
+    }
+
+    /**
+     * Noms de colonnes lus dans le mapping Hibernate (stratégie de nommage et AttributeOverrides compris).
+     */
+    private Map<String, String> columns() {
+        if (columns == null) {
+            AbstractEntityPersister persister = (AbstractEntityPersister) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                    .getMappingMetamodel().getEntityDescriptor(MatchAnalysis.class);
+            Map<String, String> resolved = new HashMap<>();
+            List<String> properties = new ArrayList<>(FIELDS.stream().map(Field::property).toList());
+            properties.addAll(DEFAULTS.keySet());
+            for (String property : properties) {
+                resolved.put(property, persister.getPropertyColumnNames(property)[0]);
+            }
+            columns = resolved;
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,69 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.MatchAnalysis;
+import com.tony.sportsAnalytics.model.Team;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Historique en mémoire par équipe et par confrontation, construit une fois pour un lot de prédictions.
+ * Les tranches renvoyées sont "à date" (matchs strictement antérieurs, du plus récent au plus ancien),
+ * soit exactement ce que renvoient findLastMatchesByTeam / findH2H, sans requête par match.
+ */
+public final class MatchHistoryIndex {
+
+    private static final Comparator<MatchAnalysis> CHRONOLOGICAL = Comparator.comparing(MatchAnalysis::getMatchDate);
+
+    // Listes triées par date croissante
+    private final Map<Long, List<MatchAnalysis>> byTeam = new HashMap<>();
+    private final Map<Long, List<MatchAnalysis>> byPair = new HashMap<>();
+
+    private MatchHistoryIndex() {}
+
+    public static MatchHistoryIndex of(Collection<MatchAnalysis> matches) {
+        MatchHistoryIndex index = new MatchHistoryIndex();
+        for (MatchAnalysis m : matches) {
+            if (m.getMatchDate() == null || m.getHomeTeam() == null || m.getAwayTeam() == null) continue;
+            Long homeId = m.getHomeTeam().getId(), awayId = m.getAwayTeam().getId();
+            index.byTeam.computeIfAbsent(homeId, k -> new ArrayList<>()).add(m);
+            index.byTeam.computeIfAbsent(awayId, k -> new ArrayList<>()).add(m);
+            index.byPair.computeIfAbsent(pairKey(homeId, awayId), k -> new ArrayList<>()).add(m);
+        }
+        index.byTeam.values().forEach(list -> list.sort(CHRONOLOGICAL));
+        index.byPair.values().forEach(list -> list.sort(CHRONOLOGICAL));
+        return index;
+    }
+
+    /**
+     * Matchs de l'équipe avant la date (tous si date nulle), du plus récent au plus ancien.
+     */
+    public List<MatchAnalysis> teamHistory(Team team, LocalDateTime before) {
+        return slice(byTeam.get(team.getId()), before);
+    }
+
+    /**
+     * Confrontations directes (dans les deux sens) avant la date, du plus récent au plus ancien.
+     */
+    public List<MatchAnalysis> headToHead(Team a, Team b, LocalDateTime before) {
+        return slice(byPair.get(pairKey(a.getId(), b.getId())), before);
+    }
+
+    // Vue inversée du préfixe : ni copie ni tri par appel
+    private static List<MatchAnalysis> slice(List<MatchAnalysis> sorted, LocalDateTime before) {
+        if (sorted == null) return List.of();
+        if (before == null) return Collections.unmodifiableList(sorted.reversed());
+        int lo = 0, hi = sorted.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted.get(mid).getMatchDate().isBefore(before)) lo = mid + 1;
+            else hi = mid;
+        }
+        return Collections.unmodifiableList(sorted.subList(0, lo).reversed());
+    }
+
+    private static long pairKey(Long a, Long b) {
+        long lo = Math.min(a, b), hi = Math.max(a, b);
+        return (hi << 32) ^ lo;
+    }
+}
@@ -0,0 +1,194 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.League;
+import com.tony.sportsAnalytics.model.Team;
+import com.tony.sportsAnalytics.repository.LeagueRepository;
+import com.tony.sportsAnalytics.repository.TeamRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Registre en mémoire des paramètres Dixon-Coles (Gamma, Rho, Alpha/Beta) en copy-on-write.
+ * Chaque publication (fit complet d'une ligue ou mise à jour en ligne de deux équipes) produit un nouveau
+ * Snapshot immuable, échangé atomiquement. Le moteur lit un seul Snapshot par lot, sans verrou :
+ * un re-pricing pendant un fit ne peut donc jamais mélanger anciens et nouveaux paramètres.
+ * Une publication faite dans une transaction n'est appliquée qu'à son commit : un fit annulé ne laisse
+ * jamais en mémoire des paramètres absents de la base.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ModelParameterRegistry {
+
+    private final LeagueRepository leagueRepository;
+    private final TeamRepository teamRepository;
+
+    private final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(0L, Map.of()));
+
+    /**
+     * Chargement depuis la base (paramètres du dernier fit + mises à jour en ligne persistées).
+     * Appelé au démarrage par ModelSnapshotService quand aucun fichier de snapshot n'est utilisable.
+     */
+    public void loadFromDatabase() {
+        for (League league : leagueRepository.findAll()) {
+            publishLeague(league, teamRepository.findByLeagueId(league.getId()));
+        }
+        log.info("🗂️ Registre de paramètres initialisé (version {}, {} ligues)", current().version(), current().leagues().size());
+    }
+
+    public Snapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Publie atomiquement les paramètres complets d'une ligue (après un fit).
+     */
+    public void publishLeague(League league, Collection<Team> teams) {
+        if (league.getId() == null) return;
+        LeagueParameters params = LeagueParameters.of(league, teams);
+        publish(leagues -> leagues.put(league.getId(), params));
+    }
+
+    /**
+     * Publie plusieurs ligues dans un seul Snapshot (restauration d'un fichier de snapshot).
+     */
+    public void publishAll(Map<Long, LeagueParameters> replacements) {
+        Map<Long, LeagueParameters> copy = Map.copyOf(replacements);
+        publish(leagues -> leagues.putAll(copy));
+    }
+
+    /**
+     * Publie les forces de quelques équipes (mise à jour en ligne) : seule leur ligue est recopiée.
+     */
+    public void publishTeams(Team... teams) {
+        // Valeurs lues tout de suite : les entités peuvent encore changer d'ici au commit
+        List<TeamUpdate> updates = new ArrayList<>();
+        for (Team team : teams) {
+            if (team.getId() == null || team.getLeague() == null || team.getLeague().getId() == null) continue;
+            updates.add(new TeamUpdate(team.getLeague().getId(), LeagueParameters.of(team.getLeague(), List.of()),
+                    team.getId(), team.getAttackStrength(), team.getDefenseStrength()));
+        }
+        if (updates.isEmpty()) return;
+        publish(leagues -> {
+            for (TeamUpdate u : updates) {
+                LeagueParameters params = leagues.getOrDefault(u.leagueId(), u.emptyLeague());
+                leagues.put(u.leagueId(), params.withTeam(u.teamId(), u.attack(), u.defense()));
+            }
+        });
+    }
+
+    private record TeamUpdate(long leagueId, LeagueParameters emptyLeague, long teamId, double attack, double defense) {}
+
+    /**
+     * Dans une transaction, le swap est différé à son commit (rien n'est publié en cas de rollback) ;
+     * hors transaction, il est immédiat.
+     */
+    private void publish(Consumer<Map<Long, LeagueParameters>> mutation) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    swap(mutation);
+                }
+            });
+        } else {
+            swap(mutation);
+        }
+    }
+
+    // La version dérive du Snapshot remplacé : un retry du CAS recalcule la même, sans trou dans la séquence
+    private Snapshot swap(Consumer<Map<Long, LeagueParameters>> mutation) {
+        return current.updateAndGet(previous -> {
+            Map<Long, LeagueParameters> leagues = new HashMap<>(previous.leagues());
+            mutation.accept(leagues);
+            return new Snapshot(previous.version() + 1, Map.copyOf(leagues));
+        });
+    }
+
+    public record TeamStrength(double attack, double defense) {}
+
+    /**
+     * Version figée de tous les paramètres. Immuable : partageable entre threads sans synchronisation.
+     */
+    public record Snapshot(long version, Map<Long, LeagueParameters> leagues) {
+
+        public LeagueParameters league(League league) {
+            return (league == null || league.getId() == null) ? null : leagues.get(league.getId());
+        }
+
+        /**
+         * Forces d'une équipe dans ce Snapshot, avec repli sur l'entité si l'équipe n'a jamais été publiée.
+         */
+        public TeamStrength strengthOf(Team team) {
+            LeagueParameters params = league(team.getLeague());
+            if (params != null && team.getId() != null) {
+                int idx = params.indexOf(team.getId());
+                if (idx >= 0) return new TeamStrength(params.attack[idx], params.defense[idx]);
+            }
+            return new TeamStrength(team.getAttackStrength(), team.getDefenseStrength());
+        }
+    }
+
+    /**
+     * Paramètres d'une ligue en tableaux primitifs triés par id d'équipe (recherche dichotomique).
+     * Les tableaux ne sont jamais modifiés après construction.
+     */
+    public record LeagueParameters(double homeAdvantage, double rho, long[] teamIds, double[] attack, double[] defense) {
+
+        static LeagueParameters of(League league, Collection<Team> teams) {
+            List<Team> sorted = teams.stream()
+                    .filter(t -> t.getId() != null)
+                    .sorted(Comparator.comparing(Team::getId))
+                    .toList();
+            int n = sorted.size();
+            long[] ids = new long[n];
+            double[] att = new double[n], def = new double[n];
+            for (int i = 0; i < n; i++) {
+                Team t = sorted.get(i);
+                ids[i] = t.getId();
+                att[i] = t.getAttackStrength() != null ? t.getAttackStrength() : 1.0;
+                def[i] = t.getDefenseStrength() != null ? t.getDefenseStrength() : 1.0;
+            }
+            return new LeagueParameters(
+                    league.getHomeAdvantageFactor() != null ? league.getHomeAdvantageFactor() : 1.15,
+                    league.getRho() != null ? league.getRho() : -0.13,
+                    ids, att, def);
+        }
+
+        int indexOf(long teamId) {
+            return Arrays.binarySearch(teamIds, teamId);
+        }
+
+        LeagueParameters withTeam(long teamId, double newAttack, double newDefense) {
+            int idx = indexOf(teamId);
+            if (idx >= 0) {
+                double[] att = attack.clone(), def = defense.clone();
+                att[idx] = newAttack;
+                def[idx] = newDefense;
+                return new LeagueParameters(homeAdvantage, rho, teamIds, att, def);
+            }
+            // Nouvelle équipe : insertion à sa place pour garder l'ordre
+            int insert = -idx - 1;
+            int n = teamIds.length;
+            long[] ids = new long[n + 1];
+            double[] att = new double[n + 1], def = new double[n + 1];
+            System.arraycopy(teamIds, 0, ids, 0, insert);
+            System.arraycopy(attack, 0, att, 0, insert);
+            System.arraycopy(defense, 0, def, 0, insert);
+            ids[insert] = teamId;
+            att[insert] = newAttack;
+            def[insert] = newDefense;
+            System.arraycopy(teamIds, insert, ids, insert + 1, n - insert);
+            System.arraycopy(attack, insert, att, insert + 1, n - insert);
+            System.arraycopy(defense, insert, def, insert + 1, n - insert);
+            return new LeagueParameters(homeAdvantage, rho, ids, att, def);
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.League;
+import com.tony.sportsAnalytics.model.Team;
+import com.tony.sportsAnalytics.repository.LeagueRepository;
+import com.tony.sportsAnalytics.repository.TeamRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Export / import binaire de l'état complet du modèle (forces Alpha/Beta + variances, Elo,
+ * paramètres de ligue, calibration) pour un redémarrage à chaud et un rollback instantané après un mauvais fit.
+ *
+ * Format (big-endian) :
+ *   en-tête  : magic "SAMS", version du format (short), réservé (short), id du fichier (long),
+ *              version du registre (long), date de création (epoch ms), taille du corps (int)
+ *   corps    : nb ligues (int) puis, par ligue, ses paramètres, sa calibration et ses équipes triées par id
+ *   trailer  : CRC32C (int) de tout ce qui précède
+ * Les Double null sont écrits en NaN, les Integer null en -1.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ModelSnapshotService {
+
+    static final int MAGIC = 0x53414D53; // "SAMS"
+    static final short FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 2 + 8 + 8 + 8 + 4;
+    private static final String FILE_PREFIX = "model-";
+    private static final String FILE_SUFFIX = ".snap";
+
+    private final LeagueRepository leagueRepository;
+    private final TeamRepository teamRepository;
+    private final ModelParameterRegistry parameterRegistry;
+    private final OnlineRatingService onlineRatingService;
+
+    @Value("${model.snapshot.dir:snapshots}")
+    private String snapshotDir;
+
+    @Value("${model.snapshot.retain:50}")
+    private int retain;
+
+    @Value("${model.snapshot.load-on-startup:false}")
+    private boolean loadOnStartup;
+
+    public record TeamEntry(long id, double attack, double defense, double attackVariance, double defenseVariance, int elo) {}
+
+    public record LeagueEntry(long id, double homeAdvantage, double rho,
+                              double weightPoisson, double marketAnchorWeight,
+                              double timeDecayXi, double formDecayDays, double weightH2H, int eloKFactor,
+                              double calibrationA, double calibrationB, String calibrationMethod, byte[] calibrationTable,
+                              List<TeamEntry> teams) {}
+
+    public record ModelFile(long id, long registryVersion, Instant createdAt, List<LeagueEntry> leagues) {}
+
+    public record SnapshotInfo(long id, long registryVersion, Instant createdAt, int leagues, int teams, long sizeBytes) {}
+
+    /**
+     * Démarrage à chaud : le registre est alimenté par le dernier snapshot valide (lecture mmap, aucune requête),
+     * sinon reconstruit depuis la base. Désactivé par défaut : la base reste la référence tant que les
+     * mises à jour en ligne postérieures au snapshot n'y sont pas rejouées.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmStart() {
+        if (loadOnStartup) {
+            for (Path file : listFiles().reversed()) {
+                try {
+                    long start = System.currentTimeMillis();
+                    ModelFile snapshot = read(file);
+                    parameterRegistry.publishAll(toRegistry(snapshot));
+                    log.info("⚡ Registre chargé depuis le snapshot #{} en {} ms (version {})",
+                            snapshot.id(), System.currentTimeMillis() - start, parameterRegistry.current().version());
+                    return;
+                } catch (Exception e) {
+                    log.warn("⚠️ Snapshot {} inutilisable, essai du précédent : {}", file.getFileName(), e.getMessage());
+                }
+            }
+        }
+        parameterRegistry.loadFromDatabase();
+    }
+
+    /**
+     * Écrit l'état courant dans un nouveau fichier (écriture dans un fichier temporaire puis renommage atomique).
+     */
+    @Transactional(readOnly = true)
+    public SnapshotInfo exportSnapshot() {
+        Map<Long, List<Team>> teamsByLeague = teamRepository.findAll().stream()
+                .filter(t -> t.getId() != null && t.getLeague() != null)
+                .collect(Collectors.groupingBy(t -> t.getLeague().getId()));
+
+        List<LeagueEntry> leagues = new ArrayList<>();
+        for (League league : leagueRepository.findAll()) {
+            leagues.add(toEntry(league, teamsByLeague.getOrDefault(league.getId(), List.of())));
+        }
+
+        List<Path> existing = listFiles();
+        long id = existing.isEmpty() ? 1 : idOf(existing.getLast()) + 1;
+        ModelFile snapshot = new ModelFile(id, parameterRegistry.current().version(), Instant.now(), leagues);
+        byte[] bytes = encode(snapshot);
+
+        try {
+            Path dir = Files.createDirectories(Path.of(snapshotDir));
+            Path target = dir.resolve(fileName(id));
+            Path tmp = dir.resolve(fileName(id) + ".tmp");
+            Files.write(tmp, bytes);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            purgeOldFiles();
+            log.info("💾 Snapshot du modèle #{} écrit ({} ligues, {} octets)", id, leagues.size(), bytes.length);
+            return info(snapshot, bytes.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Écriture du snapshot impossible", e);
+        }
+    }
+
+    public List<SnapshotInfo> listSnapshots() {
+        List<SnapshotInfo> infos = new ArrayList<>();
+        for (Path file : listFiles().reversed()) {
+            try {
+                infos.add(info(read(file), Files.size(file)));
+            } catch (Exception e) {
+                log.warn("⚠️ Snapshot {} ignoré : {}", file.getFileName(), e.getMessage());
+            }
+        }
+        return infos;
+    }
+
+    /**
+     * Rollback : les entités sont réalignées sur le snapshot pour que l'état survive à un redémarrage ;
+     * le registre et le filtre en ligne basculent au commit (un rollback échoué ne change pas les prédictions).
+     */
+    @Transactional
+    public SnapshotInfo rollbackTo(long id) {
+        Path file = Path.of(snapshotDir).resolve(fileName(id));
+        if (!Files.exists(file)) throw new IllegalArgumentException("Snapshot introuvable : #" + id);
+
+        long start = System.currentTimeMillis();
+        ModelFile snapshot = read(file);
+        parameterRegistry.publishAll(toRegistry(snapshot));
+        long readMs = System.currentTimeMillis() - start;
+
+        Map<Long, League> leagues = leagueRepository.findAllById(
+                        snapshot.leagues().stream().map(LeagueEntry::id).toList()).stream()
+                .collect(Collectors.toMap(League::getId, Function.identity()));
+        Map<Long, Team> teams = teamRepository.findAll().stream()
+                .collect(Collectors.toMap(Team::getId, Function.identity()));
+
+        List<Team> restored = new ArrayList<>();
+        for (LeagueEntry entry : snapshot.leagues()) {
+            League league = leagues.get(entry.id());
+            if (league == null) continue;
+            applyTo(entry, league);
+            for (TeamEntry t : entry.teams()) {
+                Team team = teams.get(t.id());
+                if (team == null) continue;
+                // NaN = null à l'export ; colonnes NOT NULL : valeur par défaut de la colonne plutôt qu'un NaN
+                // qui se propagerait à chaque étape du filtre en ligne
+                team.setAttackStrength(orElse(t.attack(), 1.0));
+                team.setDefenseStrength(orElse(t.defense(), 1.0));
+                team.setAttackVariance(orElse(t.attackVariance(), OnlineRatingService.ANCHOR_VARIANCE));
+                team.setDefenseVariance(orElse(t.defenseVariance(), OnlineRatingService.ANCHOR_VARIANCE));
+                if (t.elo() >= 0) team.setEloRating(t.elo());
+                restored.add(team);
+            }
+        }
+        leagueRepository.saveAll(leagues.values());
+        teamRepository.saveAll(restored);
+        onlineRatingService.restore(restored);
+
+        log.info("⏪ Rollback sur le snapshot #{} : lu en {} ms, {} équipes restaurées en {} ms (registre et filtre publiés au commit)",
+                id, readMs, restored.size(), System.currentTimeMillis() - start);
+        return info(snapshot, file.toFile().length());
+    }
+
+    /**
+     * Lecture mmap + vérification de l'en-tête et du CRC32C : un fichier tronqué ou corrompu est rejeté.
+     */
+    static ModelFile read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture du snapshot impossible : " + file, e);
+        }
+    }
+
+    static byte[] encode(ModelFile snapshot) {
+        int bodySize = 4;
+        for (LeagueEntry l : snapshot.leagues()) {
+            bodySize += 8 + 9 * 8 + 4 + 1 + 4 + lengthOf(l.calibrationTable()) + 4 + l.teams().size() * (8 + 4 * 8 + 4);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodySize + 4);
+        buffer.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) 0)
+                .putLong(snapshot.id()).putLong(snapshot.registryVersion())
+                .putLong(snapshot.createdAt().toEpochMilli()).putInt(bodySize);
+
+        buffer.putInt(snapshot.leagues().size());
+        for (LeagueEntry l : snapshot.leagues()) {
+            buffer.putLong(l.id())
+                    .putDouble(l.homeAdvantage()).putDouble(l.rho())
+                    .putDouble(l.weightPoisson()).putDouble(l.marketAnchorWeight())
+                    .putDouble(l.timeDecayXi()).putDouble(l.formDecayDays()).putDouble(l.weightH2H())
+                    .putDouble(l.calibrationA()).putDouble(l.calibrationB())
+                    .putInt(l.eloKFactor())
+                    .put(methodCode(l.calibrationMethod()))
+                    .putInt(lengthOf(l.calibrationTable()));
+            if (l.calibrationTable() != null) buffer.put(l.calibrationTable());
+
+            List<TeamEntry> sorted = l.teams().stream().sorted(Comparator.comparingLong(TeamEntry::id)).toList();
+            buffer.putInt(sorted.size());
+            for (TeamEntry t : sorted) {
+                buffer.putLong(t.id()).putDouble(t.attack()).putDouble(t.defense())
+                        .putDouble(t.attackVariance()).putDouble(t.defenseVariance()).putInt(t.elo());
+            }
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        return buffer.array();
+    }
+
+    static ModelFile decode(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_BYTES + 4) throw new IllegalStateException("Fichier de snapshot tronqué");
+        int start = buffer.position();
+        if (buffer.getInt() != MAGIC) throw new IllegalStateException("Ce fichier n'est pas un snapshot de modèle");
+        short format = buffer.getShort();
+        if (format != FORMAT_VERSION) throw new IllegalStateException("Version de format non supportée : " + format);
+        buffer.getShort();
+        long id = buffer.getLong();
+        long registryVersion = buffer.getLong();
+        Instant createdAt = Instant.ofEpochMilli(buffer.getLong());
+        int bodySize = buffer.getInt();
+
+        int end = start + HEADER_BYTES + bodySize;
+        if (bodySize < 0 || end + 4 > buffer.limit()) throw new IllegalStateException("Fichier de snapshot tronqué");
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.duplicate().position(start).limit(end));
+        if ((int) crc.getValue() != buffer.getInt(end)) throw new IllegalStateException("Checksum invalide : snapshot corrompu");
+
+        int leagueCount = buffer.getInt();
+        List<LeagueEntry> leagues = new ArrayList<>(leagueCount);
+        for (int i = 0; i < leagueCount; i++) {
+            long leagueId = buffer.getLong();
+            double homeAdvantage = buffer.getDouble(), rho = buffer.getDouble();
+            double weightPoisson = buffer.getDouble(), marketAnchorWeight = buffer.getDouble();
+            double xi = buffer.getDouble(), formDecay = buffer.getDouble(), weightH2H = buffer.getDouble();
+            double calA = buffer.getDouble(), calB = buffer.getDouble();
+            int eloK = buffer.getInt();
+            String method = methodName(buffer.get());
+            byte[] table = null;
+            int tableLength = buffer.getInt();
+            if (tableLength > 0) {
+                table = new byte[tableLength];
+                buffer.get(table);
+            }
+            int teamCount = buffer.getInt();
+            List<TeamEntry> teams = new ArrayList<>(teamCount);
+            for (int t = 0; t < teamCount; t++) {
+                teams.add(new TeamEntry(buffer.getLong(), buffer.getDouble(), buffer.getDouble(),
+                        buffer.getDouble(), buffer.getDouble(), buffer.getInt()));
+            }
+            leagues.add(new LeagueEntry(leagueId, homeAdvantage, rho, weightPoisson, marketAnchorWeight,
+                    xi, formDecay, weightH2H, eloK, calA, calB, method, table, teams));
+        }
+        return new ModelFile(id, registryVersion, createdAt, leagues);
+    }
+
+    private static LeagueEntry toEntry(League league, List<Team> teams) {
+        List<TeamEntry> entries = teams.stream()
+                .map(t -> new TeamEntry(t.getId(),
+                        orNaN(t.getAttackStrength()), orNaN(t.getDefenseStrength()),
+                        orNaN(t.getAttackVariance()), orNaN(t.getDefenseVariance()),
+                        t.getEloRating() != null ? t.getEloRating() : -1))
+                .toList();
+        return new LeagueEntry(league.getId(),
+                orNaN(league.getHomeAdvantageFactor()), orNaN(league.getRho()),
+                orNaN(league.getWeightPoisson()), orNaN(league.getMarketAnchorWeight()),
+                orNaN(league.getTimeDecayXi()), orNaN(league.getFormDecayDays()), orNaN(league.getWeightH2H()),
+                league.getEloKFactor() != null ? league.getEloKFactor() : -1,
+                orNaN(league.getCalibrationA()), orNaN(league.getCalibrationB()),
+                league.getCalibrationMethod(), league.getCalibrationTable(), entries);
+    }
+
+    private static void applyTo(LeagueEntry entry, League league) {
+        league.setHomeAdvantageFactor(orNull(entry.homeAdvantage()));
+        league.setRho(orNull(entry.rho()));
+        league.setWeightPoisson(orNull(entry.weightPoisson()));
+        league.setMarketAnchorWeight(orNull(entry.marketAnchorWeight()));
+        league.setTimeDecayXi(orNull(entry.timeDecayXi()));
+        league.setFormDecayDays(orNull(entry.formDecayDays()));
+        league.setWeightH2H(orNull(entry.weightH2H()));
+        league.setEloKFactor(entry.eloKFactor() >= 0 ? entry.eloKFactor() : null);
+        league.setCalibrationA(orNull(entry.calibrationA()));
+        league.setCalibrationB(orNull(entry.calibrationB()));
+        league.setCalibrationMethod(entry.calibrationMethod());
+        league.setCalibrationTable(entry.calibrationTable());
+    }
+
+    private static Map<Long, ModelParameterRegistry.LeagueParameters> toRegistry(ModelFile snapshot) {
+        Map<Long, ModelParameterRegistry.LeagueParameters> params = new HashMap<>();
+        for (LeagueEntry l : snapshot.leagues()) {
+            // Équipes déjà triées par id à l'écriture : les tableaux sont directement exploitables
+            int n = l.teams().size();
+            long[] ids = new long[n];
+            double[] attack = new double[n], defense = new double[n];
+            for (int i = 0; i < n; i++) {
+                TeamEntry t = l.teams().get(i);
+                ids[i] = t.id();
+                attack[i] = Double.isNaN(t.attack()) ? 1.0 : t.attack();
+                defense[i] = Double.isNaN(t.defense()) ? 1.0 : t.defense();
+            }
+            params.put(l.id(), new ModelParameterRegistry.LeagueParameters(
+                    Double.isNaN(l.homeAdvantage()) ? 1.15 : l.homeAdvantage(),
+                    Double.isNaN(l.rho()) ? -0.13 : l.rho(),
+                    ids, attack, defense));
+        }
+        return params;
+    }
+
+    private List<Path> listFiles() {
+        Path dir = Path.of(snapshotDir);
+        if (!Files.isDirectory(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                        String name = f.getFileName().toString();
+                        return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(ModelSnapshotService::idOf))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void purgeOldFiles() throws IOException {
+        List<Path> files = listFiles();
+        for (int i = 0; i < files.size() - retain; i++) {
+            Files.deleteIfExists(files.get(i));
+        }
+    }
+
+    private static SnapshotInfo info(ModelFile snapshot, long sizeBytes) {
+        int teams = snapshot.leagues().stream().mapToInt(l -> l.teams().size()).sum();
+        return new SnapshotInfo(snapshot.id(), snapshot.registryVersion(), snapshot.createdAt(),
+                snapshot.leagues().size(), teams, sizeBytes);
+    }
+
+    private static String fileName(long id) {
+        return String.format("%s%08d%s", FILE_PREFIX, id, FILE_SUFFIX);
+    }
+
+    private static long idOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+    }
+
+    private static int lengthOf(byte[] table) {
+        return table != null ? table.length : 0;
+    }
+
+    private static byte methodCode(String method) {
+        if (CalibrationService.Method.PLATT.name().equals(method)) return 1;
+        if (CalibrationService.Method.ISOTONIC.name().equals(method)) return 2;
+        return 0;
+    }
+
+    private static String methodName(byte code) {
+        return switch (code) {
+            case 1 -> CalibrationService.Method.PLATT.name();
+            case 2 -> CalibrationService.Method.ISOTONIC.name();
+            default -> null;
+        };
+    }
+
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    private static Double orNull(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private static double orElse(double value, double fallback) {
+        return Double.isNaN(value) ? fallback : value;
+    }
+}
@@ -0,0 +1,219 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.Team;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Filtre de Kalman (étendu, observation Poisson) sur les forces Alpha/Beta des équipes.
+ * Entre deux fits Dixon-Coles, chaque résultat importé met à jour en O(1) l'attaque et la défense
+ * des deux équipes. Le fit nocturne ré-ancre ensuite les moyennes et réinitialise les variances.
+ * L'état est tenu en log-espace : log(lambda) = log(Alpha dom) + log(Beta ext) + log(Gamma).
+ */
+@Service
+@Slf4j
+public class OnlineRatingService {
+
+    // Variance a priori sur log(Alpha) / log(Beta) juste après un fit complet
+    static final double ANCHOR_VARIANCE = 0.04;
+    // Bruit de processus ajouté avant chaque match (la forme dérive entre deux fits)
+    private static final double PROCESS_NOISE = 0.002;
+    private static final double MIN_VARIANCE = 1e-4;
+    private static final double MAX_VARIANCE = 0.25;
+
+    // Verrous "striped" : deux imports concurrents ne se bloquent que s'ils touchent les mêmes équipes
+    private static final int STRIPES = 64;
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final Map<Long, TeamState> states = new ConcurrentHashMap<>();
+    private final ModelParameterRegistry parameterRegistry;
+
+    public OnlineRatingService(ModelParameterRegistry parameterRegistry) {
+        this.parameterRegistry = parameterRegistry;
+        for (int i = 0; i < STRIPES; i++) locks[i] = new ReentrantLock();
+    }
+
+    public record Strength(double attack, double defense, double attackVariance, double defenseVariance) {}
+
+    /**
+     * Intègre un résultat terminé dans les forces des deux équipes et répercute les valeurs sur les entités.
+     */
+    public void applyResult(Team home, Team away, int homeGoals, int awayGoals) {
+        if (home.getId() == null || away.getId() == null) return;
+        double gamma = (home.getLeague() != null && home.getLeague().getHomeAdvantageFactor() != null)
+                ? home.getLeague().getHomeAdvantageFactor() : 1.15;
+
+        // Ordre de verrouillage stable (index de stripe croissant) pour éviter les deadlocks
+        int i = stripeIndex(home.getId());
+        int j = stripeIndex(away.getId());
+        ReentrantLock first = locks[Math.min(i, j)];
+        ReentrantLock second = locks[Math.max(i, j)];
+        first.lock();
+        if (second != first) second.lock();
+        try {
+            TeamState h = stateOf(home);
+            TeamState a = stateOf(away);
+            h.diffuse();
+            a.diffuse();
+
+            // Buts domicile : observent Alpha(dom) et Beta(ext)
+            double[] homeUpdate = kalmanStep(h.logAttack, h.attackVar, a.logDefense, a.defenseVar, Math.log(gamma), homeGoals);
+            // Buts extérieur : observent Alpha(ext) et Beta(dom)
+            double[] awayUpdate = kalmanStep(a.logAttack, a.attackVar, h.logDefense, h.defenseVar, 0.0, awayGoals);
+
+            h.logAttack = homeUpdate[0]; h.attackVar = homeUpdate[1];
+            a.logDefense = homeUpdate[2]; a.defenseVar = homeUpdate[3];
+            a.logAttack = awayUpdate[0]; a.attackVar = awayUpdate[1];
+            h.logDefense = awayUpdate[2]; h.defenseVar = awayUpdate[3];
+
+            h.writeTo(home);
+            a.writeTo(away);
+            // Publication copy-on-write : le moteur voit les deux équipes mises à jour ensemble, ou aucune
+            parameterRegistry.publishTeams(home, away);
+        } finally {
+            if (second != first) second.unlock();
+            first.unlock();
+        }
+    }
+
+    /**
+     * Force courante d'une équipe : l'état filtré s'il existe, sinon les paramètres persistés.
+     */
+    public Strength strengthOf(Team team) {
+        if (team.getId() != null) {
+            ReentrantLock lock = stripe(team.getId());
+            lock.lock();
+            try {
+                TeamState s = states.get(team.getId());
+                if (s != null) {
+                    return new Strength(Math.exp(s.logAttack), Math.exp(s.logDefense), s.attackVar, s.defenseVar);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return new Strength(team.getAttackStrength(), team.getDefenseStrength(),
+                orDefault(team.getAttackVariance()), orDefault(team.getDefenseVariance()));
+    }
+
+    /**
+     * Ré-ancrage après un fit complet : les moyennes du MLE remplacent l'état filtré, variances réinitialisées.
+     */
+    public void reanchor(Collection<Team> teams) {
+        for (Team team : teams) {
+            team.setAttackVariance(ANCHOR_VARIANCE);
+            team.setDefenseVariance(ANCHOR_VARIANCE);
+        }
+        restore(teams);
+        log.debug("⚓ Filtre en ligne ré-ancré sur {} équipes", teams.size());
+    }
+
+    /**
+     * Remplace l'état filtré par les valeurs des entités, variances comprises (restauration d'un snapshot).
+     * Valeurs lues tout de suite ; dans une transaction, appliquées à son commit comme la publication du registre
+     * (un fit ou un rollback annulé ne laisse pas le filtre sur des valeurs absentes de la base).
+     */
+    public void restore(Collection<Team> teams) {
+        Map<Long, TeamState> captured = new HashMap<>();
+        for (Team team : teams) {
+            if (team.getId() != null) captured.put(team.getId(), TeamState.from(team));
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    replaceStates(captured);
+                }
+            });
+        } else {
+            replaceStates(captured);
+        }
+    }
+
+    private void replaceStates(Map<Long, TeamState> captured) {
+        captured.forEach((teamId, state) -> {
+            ReentrantLock lock = stripe(teamId);
+            lock.lock();
+            try {
+                states.put(teamId, state);
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    /**
+     * Une étape de Kalman étendu pour une observation Poisson log-linéaire.
+     * y ~ Poisson(exp(x1 + x2 + offset)), H = [lambda, lambda], R = lambda.
+     * @return {x1, P1, x2, P2} mis à jour
+     */
+    static double[] kalmanStep(double x1, double p1, double x2, double p2, double offset, int goals) {
+        double lambda = Math.exp(x1 + x2 + offset);
+        double innovationVar = lambda * lambda * (p1 + p2) + lambda;
+        double k1 = p1 * lambda / innovationVar;
+        double k2 = p2 * lambda / innovationVar;
+        double residual = goals - lambda;
+        return new double[]{
+                x1 + k1 * residual, clampVariance(p1 * (1.0 - k1 * lambda)),
+                x2 + k2 * residual, clampVariance(p2 * (1.0 - k2 * lambda))
+        };
+    }
+
+    private TeamState stateOf(Team team) {
+        return states.computeIfAbsent(team.getId(), id -> TeamState.from(team));
+    }
+
+    private ReentrantLock stripe(Long teamId) {
+        return locks[stripeIndex(teamId)];
+    }
+
+    private int stripeIndex(Long teamId) {
+        return Math.floorMod(Long.hashCode(teamId), STRIPES);
+    }
+
+    private static double clampVariance(double v) {
+        return Math.max(MIN_VARIANCE, Math.min(MAX_VARIANCE, v));
+    }
+
+    private static double orDefault(Double variance) {
+        return variance != null ? variance : ANCHOR_VARIANCE;
+    }
+
+    /**
+     * État mutable d'une équipe, toujours lu et écrit sous le verrou de sa stripe.
+     */
+    private static final class TeamState {
+        double logAttack;
+        double attackVar;
+        double logDefense;
+        double defenseVar;
+
+        static TeamState from(Team team) {
+            TeamState s = new TeamState();
+            s.logAttack = Math.log(Math.max(0.01, team.getAttackStrength() != null ? team.getAttackStrength() : 1.0));
+            s.logDefense = Math.log(Math.max(0.01, team.getDefenseStrength() != null ? team.getDefenseStrength() : 1.0));
+            s.attackVar = orDefault(team.getAttackVariance());
+            s.defenseVar = orDefault(team.getDefenseVariance());
+            return s;
+        }
+
+        void diffuse() {
+            attackVar = clampVariance(attackVar + PROCESS_NOISE);
+            defenseVar = clampVariance(defenseVar + PROCESS_NOISE);
+        }
+
+        void writeTo(Team team) {
+            team.setAttackStrength(Math.exp(logAttack));
+            team.setDefenseStrength(Math.exp(logDefense));
+            team.setAttackVariance(attackVar);
+            team.setDefenseVariance(defenseVar);
+        }
+    }
+}
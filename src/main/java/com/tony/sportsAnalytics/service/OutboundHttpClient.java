@@ -0,0 +1,367 @@
+package com.tony.sportsAnalytics.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Client HTTP partagé de tous les appels sortants (football-data, ScraperAPI/FBRef, météo) : java.net.http.HttpClient
+ * unique (connexions réutilisées, HTTP/2 quand le serveur le propose, corps gzip décompressés), délais de connexion et de
+ * réponse, nouvelles tentatives avec attente exponentielle aléatoire (erreur réseau, 429, 5xx transitoires ; nombre
+ * réglable par hôte),
+ * nombre de requêtes simultanées borné par hôte et latence mesurée par hôte.
+ * La vérification des certificats n'est désactivée que pour les hôtes listés dans http.client.insecure-hosts
+ * (certificat de football-data.co.uk refusé par certains JDK) : un second client leur est réservé.
+ * Les redirections sont suivies ici et pas par les clients JDK : le client (et le compteur) est choisi à chaque saut
+ * selon l'hôte cible, une redirection d'un hôte non vérifié vers un autre hôte repasse par la vérification des certificats.
+ */
+@Component
+@Slf4j
+public class OutboundHttpClient {
+
+    private static final String USER_AGENT = "Mozilla/5.0 (compatible; sportsAnalytics/1.0)";
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(429, 502, 503, 504);
+    private static final Set<Integer> REDIRECT_STATUS = Set.of(301, 302, 303, 307, 308);
+    private static final int MAX_REDIRECTS = 5;
+    // Bornes (ms) des classes de l'histogramme de latence, la dernière recueille le reste
+    private static final long[] LATENCY_BOUNDS_MS = {25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000, 60_000, Long.MAX_VALUE};
+
+    private final HttpClient client;
+    private final HttpClient insecureClient;
+    private final Duration requestTimeout;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final int maxPerHost;
+    private final Map<String, Integer> hostLimits;
+    private final Map<String, Integer> hostAttempts;
+    private final Set<String> insecureHosts;
+    private final Map<String, HostCounters> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Réponse complète (corps déjà décompressé). Les statuts d'erreur ne lèvent pas d'exception : voir get().
+     */
+    public record Response(int status, byte[] body, HttpHeaders headers) {
+        public boolean isSuccess() {
+            return status >= 200 && status < 300;
+        }
+
+        public String header(String name) {
+            return headers.firstValue(name).orElse(null);
+        }
+
+        public String text() {
+            return new String(body, StandardCharsets.UTF_8);
+        }
+    }
+
+    public record HostSnapshot(String host, boolean trustAll, int maxConcurrent, int inFlight, long requests, long retries,
+                               long failures, long bytes, double avgMs, long p50Ms, long p95Ms, long maxMs) {}
+
+    private static final class HostCounters {
+        final Semaphore permits;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final LongAdder requests = new LongAdder();
+        final LongAdder retries = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BOUNDS_MS.length);
+        final int limit;
+
+        HostCounters(int limit) {
+            this.limit = limit;
+            this.permits = new Semaphore(limit, true);
+        }
+
+        void recordLatency(long nanos) {
+            requests.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+            long ms = nanos / 1_000_000;
+            int bucket = 0;
+            while (ms > LATENCY_BOUNDS_MS[bucket]) bucket++;
+            latencyBuckets.incrementAndGet(bucket);
+        }
+
+        long percentileMs(double quantile) {
+            long total = 0;
+            for (int i = 0; i < latencyBuckets.length(); i++) total += latencyBuckets.get(i);
+            if (total == 0) return 0;
+            long seen = 0;
+            for (int i = 0; i < latencyBuckets.length(); i++) {
+                seen += latencyBuckets.get(i);
+                if (seen >= quantile * total) return Math.min(LATENCY_BOUNDS_MS[i], maxNanos.get() / 1_000_000);
+            }
+            return maxNanos.get() / 1_000_000;
+        }
+    }
+
+    public OutboundHttpClient(@Value("${http.client.connect-timeout-ms:10000}") long connectTimeoutMs,
+                              @Value("${http.client.request-timeout-ms:30000}") long requestTimeoutMs,
+                              @Value("${http.client.max-attempts:3}") int maxAttempts,
+                              @Value("${http.client.retry-backoff-ms:500}") long retryBackoffMs,
+                              @Value("${http.client.max-per-host:4}") int maxPerHost,
+                              @Value("${http.client.host-limits:api.scraperapi.com=2}") String hostLimits,
+                              @Value("${http.client.host-attempts:api.scraperapi.com=1}") String hostAttempts,
+                              @Value("${http.client.insecure-hosts:www.football-data.co.uk,football-data.co.uk}") String insecureHosts) {
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxPerHost = Math.max(1, maxPerHost);
+        this.hostLimits = parseHostValues(hostLimits);
+        this.hostAttempts = parseHostValues(hostAttempts);
+        this.insecureHosts = parseHosts(insecureHosts);
+        this.client = newClient(connectTimeoutMs, null);
+        this.insecureClient = this.insecureHosts.isEmpty() ? client : newClient(connectTimeoutMs, trustAllContext());
+    }
+
+    private static HttpClient newClient(long connectTimeoutMs, SSLContext sslContext) {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(Executors.newVirtualThreadPerTaskExecutor());
+        if (sslContext != null) builder.sslContext(sslContext);
+        return builder.build();
+    }
+
+    // --- REQUÊTES ---
+
+    /**
+     * GET dont le corps est attendu : un statut hors 2xx (après les nouvelles tentatives) lève une IOException.
+     */
+    public byte[] get(String url) throws IOException {
+        Response response = send(url, Map.of(), null);
+        if (!response.isSuccess()) throw new IOException("HTTP " + response.status() + " sur " + url);
+        return response.body();
+    }
+
+    public String getString(String url, Duration timeout) throws IOException {
+        Response response = send(url, Map.of(), timeout);
+        if (!response.isSuccess()) throw new IOException("HTTP " + response.status() + " sur " + url);
+        return response.text();
+    }
+
+    /**
+     * GET avec en-têtes (ex : requête conditionnelle). Réessaie les erreurs réseau et les statuts transitoires,
+     * en respectant Retry-After s'il est fourni, et suit jusqu'à MAX_REDIRECTS redirections (jamais de HTTPS vers HTTP) ;
+     * renvoie la dernière réponse obtenue, quel que soit son statut.
+     * @param timeout délai de réponse de chaque tentative (null = http.client.request-timeout-ms)
+     */
+    public Response send(String url, Map<String, String> headers, Duration timeout) throws IOException {
+        URI uri = URI.create(url);
+        for (int hop = 0; ; hop++) {
+            Response response = sendWithRetries(uri, headers, timeout);
+            String location = REDIRECT_STATUS.contains(response.status()) ? response.header("Location") : null;
+            if (location == null) return response;
+
+            URI next;
+            try {
+                next = uri.resolve(location.trim());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Redirection invalide depuis " + uri + " : " + location, e);
+            }
+            String scheme = next.getScheme() == null ? "" : next.getScheme().toLowerCase(Locale.ROOT);
+            boolean allowed = scheme.equals("https") || (scheme.equals("http") && !"https".equalsIgnoreCase(uri.getScheme()));
+            if (hop >= MAX_REDIRECTS || !allowed) {
+                log.warn("⛔ Redirection non suivie : {} -> {}", uri, next);
+                return response;
+            }
+            log.debug("↪️ Redirection {} -> {}", uri, next);
+            uri = next;
+        }
+    }
+
+    // Un saut : client et compteurs de l'hôte visé, nouvelles tentatives sur erreurs transitoires
+    private Response sendWithRetries(URI uri, Map<String, String> headers, Duration timeout) throws IOException {
+        String host = hostOf(uri);
+        HostCounters counters = counters(host);
+        HttpClient http = insecureHosts.contains(host) ? insecureClient : client;
+        // Requêtes facturées (ScraperAPI, rendu JS) : pas de nouvel essai automatique par défaut
+        int attempts = hostAttempts.getOrDefault(host, maxAttempts);
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).GET()
+                .timeout(timeout != null ? timeout : requestTimeout)
+                .header("User-Agent", USER_AGENT)
+                .header("Accept-Encoding", "gzip");
+        headers.forEach(builder::header);
+        HttpRequest request = builder.build();
+
+        for (int attempt = 1; ; attempt++) {
+            Response response = null;
+            IOException failure = null;
+            try {
+                response = execute(http, request, counters);
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            boolean retryable = (failure != null) || RETRYABLE_STATUS.contains(response.status());
+            if (!retryable || attempt >= attempts) {
+                // 304 et redirections ne sont pas des échecs
+                if (failure != null || response.status() >= 400) counters.failures.increment();
+                if (failure != null) throw failure;
+                return response;
+            }
+
+            long waitMs = retryDelayMs(attempt, response != null ? response.header("Retry-After") : null);
+            counters.retries.increment();
+            log.warn("🔁 {} : {} (tentative {}/{}), nouvel essai dans {} ms", host,
+                    failure != null ? failure.getMessage() : "HTTP " + response.status(), attempt, attempts, waitMs);
+            try {
+                Thread.sleep(waitMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Requête interrompue : " + uri, e);
+            }
+        }
+    }
+
+    private Response execute(HttpClient http, HttpRequest request, HostCounters counters) throws IOException {
+        try {
+            counters.permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Requête interrompue : " + request.uri(), e);
+        }
+        counters.inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = http.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            byte[] body;
+            try (InputStream in = decoded(response)) {
+                body = in.readAllBytes();
+            }
+            counters.bytes.add(body.length);
+            return new Response(response.statusCode(), body, response.headers());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Requête interrompue : " + request.uri(), e);
+        } finally {
+            counters.recordLatency(System.nanoTime() - start);
+            counters.inFlight.decrementAndGet();
+            counters.permits.release();
+        }
+    }
+
+    private static InputStream decoded(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding").map(e -> e.equalsIgnoreCase("gzip")).orElse(false);
+        return gzip ? new GZIPInputStream(response.body()) : response.body();
+    }
+
+    /**
+     * Attente avant la tentative suivante : Retry-After (en secondes) s'il est donné, sinon exponentielle
+     * plafonnée avec aléa complet (les clients relancés en même temps ne repartent pas ensemble).
+     */
+    long retryDelayMs(int attempt, String retryAfter) {
+        if (retryAfter != null) {
+            try {
+                return Math.min(60_000, Long.parseLong(retryAfter.trim()) * 1000);
+            } catch (NumberFormatException ignored) {
+                // date HTTP : on retombe sur l'attente exponentielle
+            }
+        }
+        long cap = retryBackoffMs << Math.min(attempt - 1, 10);
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+
+    // --- HÔTES ---
+
+    private HostCounters counters(String host) {
+        return hosts.computeIfAbsent(host, h -> new HostCounters(hostLimits.getOrDefault(h, maxPerHost)));
+    }
+
+    private static String hostOf(URI uri) {
+        return uri.getHost() == null ? "" : uri.getHost().toLowerCase(Locale.ROOT);
+    }
+
+    // "api.scraperapi.com=2,api.openweathermap.org=4" (limites de concurrence ou nombres de tentatives par hôte)
+    static Map<String, Integer> parseHostValues(String value) {
+        Map<String, Integer> limits = new HashMap<>();
+        for (String entry : value.split(",")) {
+            int eq = entry.indexOf('=');
+            if (eq <= 0) continue;
+            limits.put(entry.substring(0, eq).trim().toLowerCase(Locale.ROOT), Math.max(1, Integer.parseInt(entry.substring(eq + 1).trim())));
+        }
+        return limits;
+    }
+
+    private static Set<String> parseHosts(String value) {
+        Set<String> result = new HashSet<>();
+        for (String host : value.split(",")) {
+            if (!host.isBlank()) result.add(host.trim().toLowerCase(Locale.ROOT));
+        }
+        return result;
+    }
+
+    // --- MÉTRIQUES ---
+
+    /**
+     * Latence par hôte (moyenne, p50 / p95 approchés par classes, maximum), nouvelles tentatives, échecs et volume reçu,
+     * cumulés depuis le démarrage.
+     */
+    public List<HostSnapshot> snapshot() {
+        List<HostSnapshot> snapshots = new ArrayList<>();
+        new TreeMap<>(hosts).forEach((host, c) -> {
+            long requests = c.requests.sum();
+            snapshots.add(new HostSnapshot(host, insecureHosts.contains(host), c.limit, c.inFlight.get(), requests,
+                    c.retries.sum(), c.failures.sum(), c.bytes.sum(),
+                    requests == 0 ? 0.0 : c.totalNanos.sum() / 1e6 / requests,
+                    c.percentileMs(0.50), c.percentileMs(0.95), c.maxNanos.get() / 1_000_000));
+        });
+        return snapshots;
+    }
+
+    public void resetMetrics() {
+        hosts.clear();
+    }
+
+    // Ne vérifie ni la chaîne ni le nom d'hôte (X509ExtendedTrustManager : le JDK n'ajoute pas sa propre vérification)
+    private static SSLContext trustAllContext() {
+        TrustManager trustAll = new X509ExtendedTrustManager() {
+            public X509Certificate[] getAcceptedIssuers() { return new X509Certificate[0]; }
+            public void checkClientTrusted(X509Certificate[] chain, String authType) {}
+            public void checkServerTrusted(X509Certificate[] chain, String authType) {}
+            public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {}
+            public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {}
+            public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {}
+            public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {}
+        };
+        try {
+            SSLContext sc = SSLContext.getInstance("TLS");
+            sc.init(null, new TrustManager[]{trustAll}, new SecureRandom());
+            return sc;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
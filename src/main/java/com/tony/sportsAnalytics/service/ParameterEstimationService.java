@@ -8,7 +8,7 @@ import com.tony.sportsAnalytics.repository.MatchAnalysisRepository;
 import com.tony.sportsAnalytics.repository.TeamRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.math3.analysis.MultivariateFunction;
+import org.apache.commons.math3.exception.TooManyEvaluationsException;
 import org.apache.commons.math3.optim.*;
 import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
 import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
@@ -16,10 +16,14 @@ import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.NelderMeadSimplex
 import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.SimplexOptimizer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -28,98 +32,308 @@ public class ParameterEstimationService {
     private final TeamRepository teamRepository;
     private final LeagueRepository leagueRepository;
     private final MatchAnalysisRepository matchAnalysisRepository;
+    private final OnlineRatingService onlineRatingService;
+    private final ModelParameterRegistry parameterRegistry;
+    private final TransactionTemplate transactionTemplate;
 
-    private static final double XI = 0.0019; // Décroissance temporelle Dixon-Coles
+    private static final double DEFAULT_XI = 0.0019; // Décroissance temporelle Dixon-Coles (surchargée par ligue)
 
-    // N'oubliez pas l'import de @Transactional
+    // --- STRATÉGIE DE FIT (Warm Start + Incrémental) ---
+    // Au-delà de ce nombre de nouveaux résultats depuis le dernier fit, on repart sur un fit complet
+    private static final int INCREMENTAL_MAX_NEW_RESULTS = 20;
+    // Un fit complet est forcé au moins une fois par semaine pour éviter la dérive
+    private static final Duration FULL_FIT_INTERVAL = Duration.ofDays(7);
+
+    // Fit complet : tolérance stricte, gros budget, simplexe large (exploration)
+    private static final double FULL_REL_TOLERANCE = 1e-10;
+    private static final double FULL_ABS_TOLERANCE = 1e-30;
+    private static final int FULL_MAX_EVAL = 200000;
+    private static final double FULL_SIMPLEX_STEP = 1.0;
+
+    // Fit incrémental : on part de l'optimum d'hier, simplexe serré et arrêt à convergence
+    private static final double INCREMENTAL_REL_TOLERANCE = 1e-7;
+    private static final double INCREMENTAL_ABS_TOLERANCE = 1e-9;
+    private static final int INCREMENTAL_MAX_EVAL = 20000;
+    private static final double INCREMENTAL_SIMPLEX_STEP = 0.05;
+
+    // Bootstrap : graine fixe pour des intervalles reproductibles, IC à 95%
+    private static final long BOOTSTRAP_SEED = 20240601L;
+    private static final double BOOTSTRAP_LOWER_QUANTILE = 0.025;
+    private static final double BOOTSTRAP_UPPER_QUANTILE = 0.975;
+    // Part maximale d'échantillons non convergés : au-delà, les intervalles seraient trop étroits pour être enregistrés
+    private static final double BOOTSTRAP_MAX_FAILURE_RATE = 0.05;
+
+    public enum FitMode { FULL, INCREMENTAL }
+
+    /**
+     * Coût d'un fit : permet de vérifier que l'incrémental fait bien baisser la facture quotidienne.
+     */
+    public record FitReport(FitMode mode, int matches, int iterations, int evaluations, long wallTimeMs, double logLikelihood) {}
+
+    @Transactional
+    public FitReport runEstimationForLeague(String leagueIdStr) {
+        return runEstimationForLeague(leagueIdStr, false);
+    }
+
+    /**
+     * Estime les paramètres Dixon-Coles d'une ligue.
+     * @param forceFullFit true pour ignorer l'incrémental (rattrapage manuel, changement de modèle...)
+     */
     @Transactional
-    public void runEstimationForLeague(String leagueIdStr) { // On utilise l'ID ou le Code selon votre logique
-        // Astuce : On récupère la ligue via une des équipes ou un repo de ligue
-        // Ici on suppose qu'on passe l'ID de la ligue (ex: 1 pour PL)
+    public FitReport runEstimationForLeague(String leagueIdStr, boolean forceFullFit) {
         Long leagueId = Long.parseLong(leagueIdStr);
 
         // 1. Récupérer les matchs historiques
         List<MatchAnalysis> matches = matchAnalysisRepository.findFinishedMatchesByLeague(leagueId);
         if (matches.isEmpty()) {
             log.warn("Aucun match trouvé pour la ligue ID {}", leagueId);
-            return;
+            return null;
         }
 
-        // 2. Récupérer les équipes uniques de ces matchs
-        List<Team> teams = matches.stream()
-                .map(MatchAnalysis::getHomeTeam)
-                .distinct()
-                .toList();
+        // 2. Récupérer les équipes uniques de ces matchs (domicile ET extérieur)
+        List<Team> teams = teamsOf(matches);
+        League league = leagueRepository.findById(leagueId).orElse(teams.getFirst().getLeague());
 
-        log.info("🧮 Début de l'estimation MLE pour {} équipes sur {} matchs...", teams.size(), matches.size());
+        FitMode mode = resolveFitMode(league, matches.size(), forceFullFit);
+        log.info("🧮 Début de l'estimation MLE ({}) pour {} équipes sur {} matchs...", mode, teams.size(), matches.size());
 
-        // 3. Lancer l'optimisation (Votre méthode existante)
-        estimateParameters(matches, teams);
+        // 3. Lancer l'optimisation
+        return estimateParameters(matches, teams, league, mode);
     }
 
-    public void estimateParameters(List<MatchAnalysis> matches, List<Team> teams) {
+    /**
+     * Choisit entre un fit complet et un fit incrémental selon le volume de nouveaux résultats.
+     */
+    FitMode resolveFitMode(League league, int finishedMatches, boolean forceFullFit) {
+        if (forceFullFit || league.getLastFullFitAt() == null || league.getLastFitMatchCount() == null) {
+            return FitMode.FULL;
+        }
+        if (league.getLastFullFitAt().isBefore(LocalDateTime.now().minus(FULL_FIT_INTERVAL))) {
+            return FitMode.FULL;
+        }
+        int newResults = finishedMatches - league.getLastFitMatchCount();
+        return (newResults >= 0 && newResults <= INCREMENTAL_MAX_NEW_RESULTS) ? FitMode.INCREMENTAL : FitMode.FULL;
+    }
+
+    public FitReport estimateParameters(List<MatchAnalysis> matches, List<Team> teams, League league, FitMode mode) {
         int n = teams.size();
         Map<Long, Integer> teamIdx = new HashMap<>();
         for (int i = 0; i < n; i++) teamIdx.put(teams.get(i).getId(), i);
 
+        // Les poids temporels et les index ne dépendent pas du point : on les calcule une seule fois
+        MatchData data = MatchData.of(matches, teamIdx, LocalDateTime.now(), xiOf(league));
+
         // Vecteur : [0] gamma (dom), [1] rho (corr), [2..n+1] alphas, [n+2..2n+1] betas
-        MultivariateFunction logLikelihood = point -> {
-            double gamma = point[0];
-            double rho = point[1];
-            double logL = 0;
+        double[] initialGuess = warmStart(teams, league);
 
-            for (MatchAnalysis m : matches) {
-                if (m.getHomeScore() == null) continue;
+        long start = System.nanoTime();
+        Optimum optimum;
+        try {
+            optimum = optimize(data, initialGuess, mode);
+        } catch (TooManyEvaluationsException e) {
+            if (mode == FitMode.INCREMENTAL) {
+                // Budget incrémental épuisé : on retombe sur un fit complet
+                log.warn("⚠️ Fit incrémental non convergé pour {}, bascule sur un fit complet", league.getName());
+                return estimateParameters(matches, teams, league, FitMode.FULL);
+            }
+            throw e;
+        }
+        long wallTimeMs = (System.nanoTime() - start) / 1_000_000;
 
-                int hIdx = teamIdx.get(m.getHomeTeam().getId());
-                int aIdx = teamIdx.get(m.getAwayTeam().getId());
+        FitReport report = new FitReport(mode, data.size(), optimum.iterations(), optimum.evaluations(),
+                wallTimeMs, optimum.value());
+        saveResults(optimum.point(), teams, league, report);
+        return report;
+    }
 
-                // Protection contre les valeurs négatives ou nulles aberrantes
-                double alphaHome = Math.max(0.01, point[hIdx + 2]);
-                double betaAway = Math.max(0.01, point[aIdx + n + 2]);
-                double alphaAway = Math.max(0.01, point[aIdx + 2]);
-                double betaHome = Math.max(0.01, point[hIdx + n + 2]);
+    /**
+     * Bootstrap : rééchantillonne B fois les matchs terminés et refait un fit complet de chacun, en parallèle, depuis
+     * l'estimation ponctuelle (MLE recalculé sur les mêmes données : les forces persistées ont bougé avec le filtre en
+     * ligne depuis le dernier fit). Les échantillons non convergés sont comptés ; au-delà de BOOTSTRAP_MAX_FAILURE_RATE,
+     * les intervalles (biaisés vers l'étroit) ne sont pas enregistrés.
+     * Calcul hors transaction ; seuls les intervalles sont écrits, dans une transaction courte à la fin.
+     */
+    public BootstrapReport runBootstrapForLeague(String leagueIdStr, int samples) {
+        Long leagueId = Long.parseLong(leagueIdStr);
+        List<MatchAnalysis> matches = matchAnalysisRepository.findFinishedMatchesByLeague(leagueId);
+        if (matches.isEmpty() || samples <= 0) {
+            log.warn("Bootstrap ignoré pour la ligue ID {} ({} matchs, B={})", leagueId, matches.size(), samples);
+            return null;
+        }
 
-                double lambda = alphaHome * betaAway * gamma;
-                double mu = alphaAway * betaHome;
+        List<Team> teams = teamsOf(matches);
+        League league = leagueRepository.findById(leagueId).orElse(teams.getFirst().getLeague());
+        int n = teams.size();
+        Map<Long, Integer> teamIdx = new HashMap<>();
+        for (int i = 0; i < n; i++) teamIdx.put(teams.get(i).getId(), i);
 
-                long days = Math.abs(Duration.between(LocalDateTime.now(), m.getMatchDate()).toDays());
-                double weight = Math.exp(-XI * days);
+        MatchData data = MatchData.of(matches, teamIdx, LocalDateTime.now(), xiOf(league));
+        int cores = Runtime.getRuntime().availableProcessors();
+        log.info("🎲 Bootstrap Dixon-Coles (B={}) pour {} sur {} matchs, {} coeurs...", samples, league.getName(), data.size(), cores);
+        long start = System.nanoTime();
 
-                logL += weight * Math.log(calculateDixonColesProb(m.getHomeScore(), m.getAwayScore(), lambda, mu, rho));
+        double[] pointEstimate = optimize(data, warmStart(teams, league), FitMode.FULL).point();
+
+        // Chaque échantillon est indépendant : tableaux primitifs privés, aucun accès JPA dans les workers.
+        // Pool dédié : le fit ne monopolise pas le pool commun de la JVM
+        List<double[]> fits;
+        try (ForkJoinPool pool = new ForkJoinPool(cores)) {
+            fits = pool.submit(() -> IntStream.range(0, samples).parallel()
+                    .mapToObj(b -> {
+                        MatchData resample = data.resample(new SplittableRandom(BOOTSTRAP_SEED + b));
+                        try {
+                            return optimize(resample, pointEstimate, FitMode.FULL).point();
+                        } catch (TooManyEvaluationsException e) {
+                            return null; // Échantillon non convergé : compté ci-dessous
+                        }
+                    })
+                    .filter(Objects::nonNull)
+                    .toList()).join();
+        }
+        long wallTimeMs = (System.nanoTime() - start) / 1_000_000;
+        int failed = samples - fits.size();
+
+        if (fits.isEmpty() || failed > samples * BOOTSTRAP_MAX_FAILURE_RATE) {
+            log.warn("⚠️ Bootstrap de {} : {}/{} échantillons non convergés, intervalles non enregistrés",
+                    league.getName(), failed, samples);
+            return new BootstrapReport(samples, fits.size(), failed, false, wallTimeMs);
+        }
+
+        // Intervalles percentiles par paramètre, écrits sur des entités relues (pas d'écrasement des forces en ligne)
+        double[][] bounds = percentileIntervals(fits, 2 * n + 2);
+        List<Long> teamIds = teams.stream().map(Team::getId).toList();
+        League saved = transactionTemplate.execute(tx -> {
+            League target = leagueRepository.findById(leagueId).orElseThrow();
+            target.setHomeAdvantageLow(bounds[0][0]);
+            target.setHomeAdvantageHigh(bounds[0][1]);
+            target.setRhoLow(bounds[1][0]);
+            target.setRhoHigh(bounds[1][1]);
+            target.setBootstrapSamples(fits.size());
+            target.setBootstrapAt(LocalDateTime.now());
+            for (Team team : teamRepository.findAllById(teamIds)) {
+                int i = teamIdx.get(team.getId());
+                team.setAttackLow(bounds[i + 2][0]);
+                team.setAttackHigh(bounds[i + 2][1]);
+                team.setDefenseLow(bounds[i + n + 2][0]);
+                team.setDefenseHigh(bounds[i + n + 2][1]);
             }
+            return target;
+        });
 
-            // Contrainte de normalisation : Moyenne des alphas = 1
-            double sumAlpha = 0;
-            for(int i=2; i<n+2; i++) sumAlpha += point[i];
-            logL -= Math.pow(sumAlpha - n, 2) * 1000;
+        if (failed > 0) {
+            log.warn("⚠️ Bootstrap de {} : {} échantillons non convergés écartés sur {}", league.getName(), failed, samples);
+        }
+        log.info("✅ Bootstrap terminé pour {} : {}/{} échantillons convergés en {} ms (Rho IC95 [{}, {}])",
+                league.getName(), fits.size(), samples, wallTimeMs, saved.getRhoLow(), saved.getRhoHigh());
+        return new BootstrapReport(samples, fits.size(), failed, true, wallTimeMs);
+    }
 
-            return logL;
-        };
+    /**
+     * @param stored false si trop d'échantillons n'ont pas convergé : intervalles précédents conservés
+     */
+    public record BootstrapReport(int requestedSamples, int convergedSamples, int failedSamples, boolean stored, long wallTimeMs) {}
 
-        // --- CORRECTION DU DÉMARRAGE (INITIAL GUESS) ---
-        double[] initialGuess = new double[2 * n + 2];
-        Arrays.fill(initialGuess, 1.0); // On commence avec Alpha/Beta à 1.0 (neutre)
-        initialGuess[0] = 1.20; // Gamma (Avantage dom) commence à 1.20
-        initialGuess[1] = -0.1; // Rho commence légèrement négatif
+    /**
+     * Intervalle percentile [2.5%, 97.5%] de chaque coordonnée du vecteur de paramètres.
+     */
+    private double[][] percentileIntervals(List<double[]> fits, int dimension) {
+        int b = fits.size();
+        double[][] bounds = new double[dimension][2];
+        double[] column = new double[b];
+        for (int d = 0; d < dimension; d++) {
+            for (int k = 0; k < b; k++) column[k] = fits.get(k)[d];
+            Arrays.sort(column);
+            bounds[d][0] = column[(int) Math.floor((b - 1) * BOOTSTRAP_LOWER_QUANTILE)];
+            bounds[d][1] = column[(int) Math.ceil((b - 1) * BOOTSTRAP_UPPER_QUANTILE)];
+        }
+        return bounds;
+    }
+
+    /**
+     * Optimisation Nelder-Mead pure (sans persistance), partagée par le fit quotidien et le bootstrap.
+     * @throws TooManyEvaluationsException si le budget d'évaluations est épuisé avant convergence
+     */
+    private Optimum optimize(MatchData data, double[] initialGuess, FitMode mode) {
+        boolean incremental = mode == FitMode.INCREMENTAL;
+        double[] steps = new double[initialGuess.length];
+        Arrays.fill(steps, incremental ? INCREMENTAL_SIMPLEX_STEP : FULL_SIMPLEX_STEP);
 
-        // --- AUGMENTATION DE LA LIMITE (MaxEval) ---
-        SimplexOptimizer optimizer = new SimplexOptimizer(1e-10, 1e-30);
+        SimplexOptimizer optimizer = incremental
+                ? new SimplexOptimizer(INCREMENTAL_REL_TOLERANCE, INCREMENTAL_ABS_TOLERANCE)
+                : new SimplexOptimizer(FULL_REL_TOLERANCE, FULL_ABS_TOLERANCE);
         PointValuePair optimum = optimizer.optimize(
-                new MaxEval(200000), // Augmenté de 20k à 200k
-                new ObjectiveFunction(logLikelihood),
+                new MaxEval(incremental ? INCREMENTAL_MAX_EVAL : FULL_MAX_EVAL),
+                new ObjectiveFunction(point -> logLikelihood(point, data)),
                 GoalType.MAXIMIZE,
-                new InitialGuess(initialGuess), // Utilisation du point de départ optimisé
-                new NelderMeadSimplex(2 * n + 2)
+                new InitialGuess(initialGuess),
+                new NelderMeadSimplex(steps)
         );
+        return new Optimum(optimum.getPoint(), optimum.getValue(), optimizer.getIterations(), optimizer.getEvaluations());
+    }
+
+    private record Optimum(double[] point, double value, int iterations, int evaluations) {}
+
+    private double xiOf(League league) {
+        return league.getTimeDecayXi() != null ? league.getTimeDecayXi() : DEFAULT_XI;
+    }
+
+    private List<Team> teamsOf(List<MatchAnalysis> matches) {
+        return matches.stream()
+                .flatMap(m -> Stream.of(m.getHomeTeam(), m.getAwayTeam()))
+                .distinct()
+                .toList();
+    }
+
+    /**
+     * Point de départ : les paramètres persistés du dernier fit (neutres pour une équipe jamais estimée).
+     */
+    private double[] warmStart(List<Team> teams, League league) {
+        int n = teams.size();
+        double[] guess = new double[2 * n + 2];
+        guess[0] = league.getHomeAdvantageFactor() != null ? league.getHomeAdvantageFactor() : 1.20;
+        guess[1] = league.getRho() != null ? league.getRho() : -0.1;
+        for (int i = 0; i < n; i++) {
+            Team t = teams.get(i);
+            guess[i + 2] = t.getAttackStrength() != null ? Math.max(0.01, t.getAttackStrength()) : 1.0;
+            guess[i + n + 2] = t.getDefenseStrength() != null ? Math.max(0.01, t.getDefenseStrength()) : 1.0;
+        }
+        return guess;
+    }
 
-        saveResults(optimum.getPoint(), teams, teams.getFirst().getLeague());
+    private double logLikelihood(double[] point, MatchData data) {
+        int n = data.teamCount();
+        double gamma = point[0];
+        double rho = point[1];
+        double logL = 0;
+
+        for (int k = 0; k < data.size(); k++) {
+            int hIdx = data.homeIdx()[k];
+            int aIdx = data.awayIdx()[k];
+
+            // Protection contre les valeurs négatives ou nulles aberrantes
+            double alphaHome = Math.max(0.01, point[hIdx + 2]);
+            double betaAway = Math.max(0.01, point[aIdx + n + 2]);
+            double alphaAway = Math.max(0.01, point[aIdx + 2]);
+            double betaHome = Math.max(0.01, point[hIdx + n + 2]);
+
+            double lambda = alphaHome * betaAway * gamma;
+            double mu = alphaAway * betaHome;
+
+            logL += data.weight()[k] * Math.log(calculateDixonColesProb(data.homeGoals()[k], data.awayGoals()[k], lambda, mu, rho));
+        }
+
+        // Contrainte de normalisation : Moyenne des alphas = 1
+        double sumAlpha = 0;
+        for (int i = 2; i < n + 2; i++) sumAlpha += point[i];
+        logL -= Math.pow(sumAlpha - n, 2) * 1000;
+
+        return logL;
     }
 
     /**
      * Extrait les paramètres optimisés du vecteur 'point' et les sauvegarde pour chaque équipe.
      */
-    private void saveResults(double[] point, List<Team> teams, League league) {
+    private void saveResults(double[] point, List<Team> teams, League league, FitReport report) {
         // Selon le vecteur : [0]=gamma, [1]=rho
         league.setHomeAdvantageFactor(point[0]);
         league.setRho(point[1]);
@@ -132,10 +346,26 @@ public class ParameterEstimationService {
             team.setDefenseStrength(point[i + n + 2]);
         }
 
+        // Le MLE redevient la référence du filtre en ligne (au commit, avec la publication du registre)
+        onlineRatingService.reanchor(teams);
+
+        // Traçabilité du coût du fit
+        LocalDateTime now = LocalDateTime.now();
+        league.setLastFitAt(now);
+        if (report.mode() == FitMode.FULL) league.setLastFullFitAt(now);
+        league.setLastFitMatchCount(report.matches());
+        league.setLastFitMode(report.mode().name());
+        league.setLastFitIterations(report.iterations());
+        league.setLastFitEvaluations(report.evaluations());
+        league.setLastFitDurationMs(report.wallTimeMs());
+
         leagueRepository.save(league);
         teamRepository.saveAll(teams);
-        log.info("✅ Paramètres Dixon-Coles (Rho: {}, Gamma: {}) mis à jour pour la ligue {}",
-                league.getRho(), league.getHomeAdvantageFactor(), league.getName());
+        // Swap atomique au commit : Gamma, Rho et toutes les forces de la ligue deviennent visibles d'un coup
+        parameterRegistry.publishLeague(league, teams);
+        log.info("✅ Paramètres Dixon-Coles (Rho: {}, Gamma: {}) mis à jour pour la ligue {} [{} : {} itérations, {} évaluations, {} ms]",
+                league.getRho(), league.getHomeAdvantageFactor(), league.getName(),
+                report.mode(), report.iterations(), report.evaluations(), report.wallTimeMs());
     }
 
     /**
@@ -163,4 +393,51 @@ public class ParameterEstimationService {
 
         return Math.max(1e-10, poissonProb * tau);
     }
+
+    /**
+     * Matchs terminés "aplatis" en tableaux primitifs pour la fonction de vraisemblance.
+     */
+    record MatchData(int teamCount, int[] homeIdx, int[] awayIdx, int[] homeGoals, int[] awayGoals, double[] weight) {
+
+        static MatchData of(List<MatchAnalysis> matches, Map<Long, Integer> teamIdx, LocalDateTime referenceDate, double xi) {
+            List<MatchAnalysis> finished = matches.stream()
+                    .filter(m -> m.getHomeScore() != null && m.getAwayScore() != null)
+                    .filter(m -> teamIdx.containsKey(m.getHomeTeam().getId()) && teamIdx.containsKey(m.getAwayTeam().getId()))
+                    .toList();
+
+            int size = finished.size();
+            int[] home = new int[size], away = new int[size], hg = new int[size], ag = new int[size];
+            double[] w = new double[size];
+            for (int k = 0; k < size; k++) {
+                MatchAnalysis m = finished.get(k);
+                home[k] = teamIdx.get(m.getHomeTeam().getId());
+                away[k] = teamIdx.get(m.getAwayTeam().getId());
+                hg[k] = m.getHomeScore();
+                ag[k] = m.getAwayScore();
+                long days = Math.abs(Duration.between(referenceDate, m.getMatchDate()).toDays());
+                w[k] = Math.exp(-xi * days);
+            }
+            return new MatchData(teamIdx.size(), home, away, hg, ag, w);
+        }
+
+        int size() { return homeIdx.length; }
+
+        /**
+         * Tirage avec remise de 'size' matchs (les poids temporels suivent leur match).
+         */
+        MatchData resample(SplittableRandom random) {
+            int size = size();
+            int[] home = new int[size], away = new int[size], hg = new int[size], ag = new int[size];
+            double[] w = new double[size];
+            for (int k = 0; k < size; k++) {
+                int pick = random.nextInt(size);
+                home[k] = homeIdx[pick];
+                away[k] = awayIdx[pick];
+                hg[k] = homeGoals[pick];
+                ag[k] = awayGoals[pick];
+                w[k] = weight[pick];
+            }
+            return new MatchData(teamCount, home, away, hg, ag, w);
+        }
+    }
 }
@@ -18,6 +18,7 @@ public class PredictionEngineService {
     private final AdvancedPredictionService advancedPrediction;
     private final CalibrationService calibrationService;
     private final MatchInsightService insightService;
+    private final ModelParameterRegistry parameterRegistry;
 
     // --- CONSTANTES DE SECOURS (Fallback) ---
     // Utilisées uniquement si la Ligue n'a pas encore de paramètres personnalisés en base
@@ -27,8 +28,8 @@ public class PredictionEngineService {
 
     private static final double ELO_DIVISOR = 400.0;
     private static final double MAX_FINISHING_CORRECTION = 1.25;
-    private static final double TIME_DECAY_CONSTANT = 60.0;
-    private static final double WEIGHT_H2H = 0.08;
+    private static final double DEFAULT_TIME_DECAY_CONSTANT = 60.0;
+    private static final double DEFAULT_WEIGHT_H2H = 0.08;
 
     /**
      * Moteur de prédiction "Ultimate"
@@ -39,6 +40,19 @@ public class PredictionEngineService {
             List<MatchAnalysis> homeHistory,
             List<MatchAnalysis> awayHistory,
             double leagueAvgGoals) {
+        return calculateMatchPrediction(match, h2hHistory, homeHistory, awayHistory, leagueAvgGoals, parameterRegistry.current());
+    }
+
+    /**
+     * Variante pour les traitements par lot : l'appelant lit un seul Snapshot de paramètres
+     * et le réutilise pour tous les matchs, qui sont ainsi pricés avec exactement la même version.
+     */
+    public PredictionResult calculateMatchPrediction(MatchAnalysis match,
+            List<MatchAnalysis> h2hHistory,
+            List<MatchAnalysis> homeHistory,
+            List<MatchAnalysis> awayHistory,
+            double leagueAvgGoals,
+            ModelParameterRegistry.Snapshot parameters) {
 
         Team home = match.getHomeTeam();
         Team away = match.getAwayTeam();
@@ -52,11 +66,16 @@ public class PredictionEngineService {
         double marketWeight = (league != null && league.getMarketAnchorWeight() != null) ? league.getMarketAnchorWeight() : DEFAULT_MARKET_WEIGHT;
 
         // Calcul avantage domicile
-        double baseHomeAdv = (league != null) ? league.getHomeAdvantageFactor() : 1.15;
+        ModelParameterRegistry.LeagueParameters leagueParams = parameters.league(league);
+        double baseHomeAdv = (leagueParams != null) ? leagueParams.homeAdvantage()
+                : (league != null) ? league.getHomeAdvantageFactor() : 1.15;
         double homeTeamHomeStrength = calculateHomeDominance(home); // Ratio Pts Dom / Pts Ext
         double finalHomeAdv = baseHomeAdv * homeTeamHomeStrength;
 
-        double rho = (league != null && league.getRho() != null) ? league.getRho() : DEFAULT_RHO;
+        double rho = (leagueParams != null) ? leagueParams.rho()
+                : (league != null && league.getRho() != null) ? league.getRho() : DEFAULT_RHO;
+        double timeDecay = (league != null && league.getFormDecayDays() != null) ? league.getFormDecayDays() : DEFAULT_TIME_DECAY_CONSTANT;
+        double weightH2H = (league != null && league.getWeightH2H() != null) ? league.getWeightH2H() : DEFAULT_WEIGHT_H2H;
 
         // -----------------------------------------------------------
         // 2. MODÈLE ELO (La Fondation Stable)
@@ -68,8 +87,11 @@ public class PredictionEngineService {
         // -----------------------------------------------------------
         // 3. MODÈLE DIXON-COLES HYBRIDE (La Force Instantanée)
         // -----------------------------------------------------------
-        double expectedHomeGoals = home.getAttackStrength() * away.getDefenseStrength() * finalHomeAdv;
-        double expectedAwayGoals = away.getAttackStrength() * home.getDefenseStrength();
+        // Forces du Snapshot (fit + résultats filtrés en ligne depuis), cohérentes entre les deux équipes
+        ModelParameterRegistry.TeamStrength homeStrength = parameters.strengthOf(home);
+        ModelParameterRegistry.TeamStrength awayStrength = parameters.strengthOf(away);
+        double expectedHomeGoals = homeStrength.attack() * awayStrength.defense() * finalHomeAdv;
+        double expectedAwayGoals = awayStrength.attack() * homeStrength.defense();
 
         double homeLambda = expectedHomeGoals;
         double awayLambda = expectedAwayGoals;
@@ -91,8 +113,8 @@ public class PredictionEngineService {
         }
 
         // Analyse de Forme & Fatigue
-        TeamPerformance homePerf = analyzeTeamPerformance(home, homeHistory, leagueAvgGoals, true, match.getMatchDate());
-        TeamPerformance awayPerf = analyzeTeamPerformance(away, awayHistory, leagueAvgGoals, false, match.getMatchDate());
+        TeamPerformance homePerf = analyzeTeamPerformance(home, homeHistory, leagueAvgGoals, true, match.getMatchDate(), timeDecay);
+        TeamPerformance awayPerf = analyzeTeamPerformance(away, awayHistory, leagueAvgGoals, false, match.getMatchDate(), timeDecay);
 
         // Application Finition & Tactique : On amortit pour lisser la variance
         double homeFinishingFactor = Math.max(0.85, Math.min(homePerf.finishingEfficiency(), 1.15));
@@ -118,7 +140,7 @@ public class PredictionEngineService {
 
         // H2H Bonus
         if (h2hHistory != null && !h2hHistory.isEmpty()) {
-            homeLambda *= (1.0 + calculateH2HFactor(home, h2hHistory));
+            homeLambda *= (1.0 + calculateH2HFactor(home, h2hHistory, weightH2H));
         }
 
         // Calcul du facteur d'ouverture de match (Gestion du chaos et du style de jeu)
@@ -136,7 +158,7 @@ public class PredictionEngineService {
         // -----------------------------------------------------------
         // 5. MARKET ANCHORING (Sagesse des Foules)
         // -----------------------------------------------------------
-        MarketProbs market = calculateMarketImpliedProbs(match.getOdds1(), match.getOddsN(), match.getOdds2());
+        MarketProbs market = calculateMarketImpliedProbs(match);
         if (market != null) {
             // On "tire" la probabilité vers celle du marché selon le poids défini (ex: 30%)
             rawHome = (rawHome * (1.0 - marketWeight)) + (market.home * 100.0 * marketWeight);
@@ -153,8 +175,9 @@ public class PredictionEngineService {
         double finalProbDraw = rawDraw;
 
         if (league != null && league.getCalibrationA() != null) {
-            finalProbHome = calibrationService.calibrate(rawHome, league.getCalibrationA(), league.getCalibrationB());
-            finalProbAway = calibrationService.calibrate(rawAway, league.getCalibrationA(), league.getCalibrationB());
+            // Table ajustée par ligue (Platt ou Isotonique), sinon sigmoïde A/B
+            finalProbHome = calibrationService.calibrate(rawHome, league);
+            finalProbAway = calibrationService.calibrate(rawAway, league);
             // Recalcul du nul pour normaliser
             finalProbDraw = 100.0 - finalProbHome - finalProbAway;
         }
@@ -176,12 +199,14 @@ public class PredictionEngineService {
                 .homeWinProbability(round(finalProbHome))
                 .drawProbability(round(finalProbDraw))
                 .awayWinProbability(round(finalProbAway))
+                .rawHomeProbability(round(rawHome))
+                .rawAwayProbability(round(rawAway))
 
                 .predictedHomeGoals(round(homeLambda))
                 .predictedAwayGoals(round(awayLambda))
 
-                .homePowerScore(round(home.getAttackStrength() * 10 + homePerf.attackRating()))
-                .awayPowerScore(round(away.getAttackStrength() * 10 + awayPerf.attackRating()))
+                .homePowerScore(round(homeStrength.attack() * 10 + homePerf.attackRating()))
+                .awayPowerScore(round(awayStrength.attack() * 10 + awayPerf.attackRating()))
 
                 // Marchés Alternatifs
                 .probOver1_5(poissonResult.getProbOver1_5())
@@ -202,6 +227,8 @@ public class PredictionEngineService {
                 .aiAnalysisPrompt(aiPrompt)
                 .matchVolatility(round((homePerf.volatility() + awayPerf.volatility()) / 2.0))
                 .confidenceScore(round(confidenceFactor * 100.0))
+                .parameterConfidence(calculateParameterConfidence(home, away))
+                .parameterVersion(parameters.version())
                 .keyFacts(insights)
                 .build();
     }
@@ -351,6 +378,30 @@ public class PredictionEngineService {
         return Math.max(0.3, 1.0 - (avgVol * 0.4));
     }
 
+    /**
+     * Confiance dans les forces Alpha/Beta utilisées, à partir des IC bootstrap (null si pas de bootstrap).
+     * Une largeur relative moyenne de 30% donne 70/100.
+     */
+    private Double calculateParameterConfidence(Team home, Team away) {
+        double[] widths = {
+                relativeWidth(home.getAttackLow(), home.getAttackHigh(), home.getAttackStrength()),
+                relativeWidth(home.getDefenseLow(), home.getDefenseHigh(), home.getDefenseStrength()),
+                relativeWidth(away.getAttackLow(), away.getAttackHigh(), away.getAttackStrength()),
+                relativeWidth(away.getDefenseLow(), away.getDefenseHigh(), away.getDefenseStrength())
+        };
+        double sum = 0.0;
+        for (double w : widths) {
+            if (Double.isNaN(w)) return null;
+            sum += w;
+        }
+        return round(Math.max(0.0, 1.0 - sum / widths.length) * 100.0);
+    }
+
+    private double relativeWidth(Double low, Double high, Double estimate) {
+        if (low == null || high == null || estimate == null || estimate <= 0) return Double.NaN;
+        return (high - low) / (2.0 * estimate);
+    }
+
     /**
      * Simulation Dixon-Coles avec correction "Draw Killer"
      */
@@ -429,7 +480,7 @@ public class PredictionEngineService {
     }
 
     // --- ANALYSE DE FORME ---
-    private TeamPerformance analyzeTeamPerformance(Team team, List<MatchAnalysis> history, double leagueAvg, boolean isHomeAnalysis, LocalDateTime targetDate) {
+    private TeamPerformance analyzeTeamPerformance(Team team, List<MatchAnalysis> history, double leagueAvg, boolean isHomeAnalysis, LocalDateTime targetDate, double timeDecay) {
         if (history == null || history.isEmpty()) return new TeamPerformance(1.0, 1.0, 1.0, 0.5, 1.0);
 
         int limit = Math.min(history.size(), 10);
@@ -444,7 +495,7 @@ public class PredictionEngineService {
             if (m.getMatchDate() == null) continue;
 
             long daysAgo = Math.abs(Duration.between(targetDate, m.getMatchDate()).toDays());
-            double timeWeight = Math.exp(-daysAgo / TIME_DECAY_CONSTANT);
+            double timeWeight = Math.exp(-daysAgo / timeDecay);
             boolean wasHome = m.getHomeTeam().equals(team);
             double contextWeight = (wasHome == isHomeAnalysis) ? 1.10 : 0.90;
             double finalWeight = timeWeight * contextWeight;
@@ -507,7 +558,7 @@ public class PredictionEngineService {
         return new TeamPerformance(attackRating, defenseRating, finishing, 0.5, volatility);
     }
 
-    private double calculateH2HFactor(Team currentHomeTeam, List<MatchAnalysis> h2h) {
+    private double calculateH2HFactor(Team currentHomeTeam, List<MatchAnalysis> h2h, double weightH2H) {
         double factor = 0.0;
         int limit = Math.min(h2h.size(), 10);
 
@@ -520,12 +571,12 @@ public class PredictionEngineService {
             boolean awayWonMatch = m.getAwayScore() > m.getHomeScore();
 
             if (m.getHomeTeam().equals(currentHomeTeam) && homeWonMatch) {
-                factor += (WEIGHT_H2H * weight);
+                factor += (weightH2H * weight);
             } else if (m.getAwayTeam().equals(currentHomeTeam) && awayWonMatch) {
-                factor += (WEIGHT_H2H * weight * 1.2);
+                factor += (weightH2H * weight * 1.2);
             } else if ((m.getHomeTeam().equals(currentHomeTeam) && awayWonMatch) ||
                     (m.getAwayTeam().equals(currentHomeTeam) && homeWonMatch)) {
-                factor -= (WEIGHT_H2H * weight);
+                factor -= (weightH2H * weight);
             }
         }
         return factor;
@@ -570,7 +621,15 @@ public class PredictionEngineService {
                 .map(w -> w.windSpeed() > 30.0 ? 0.90 : 1.0).orElse(1.0);
     }
 
-    private MarketProbs calculateMarketImpliedProbs(Double o1, Double oN, Double o2) {
+    /**
+     * Probabilités du marché sans marge : consensus multi-sources calculé à l'import (MarketOdds),
+     * sinon cotes Bet365 du match (saisie manuelle, match importé avant le consensus).
+     */
+    private MarketProbs calculateMarketImpliedProbs(MatchAnalysis match) {
+        if (match.getConsensusHome() != null && match.getConsensusDraw() != null && match.getConsensusAway() != null) {
+            return new MarketProbs(match.getConsensusHome(), match.getConsensusDraw(), match.getConsensusAway());
+        }
+        Double o1 = match.getOdds1(), oN = match.getOddsN(), o2 = match.getOdds2();
         if (o1 == null || oN == null || o2 == null) return null;
         double rawSum = (1.0 / o1) + (1.0 / oN) + (1.0 / o2);
         return new MarketProbs((1.0 / o1) / rawSum, (1.0 / oN) / rawSum, (1.0 / o2) / rawSum);
@@ -0,0 +1,191 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.service.FootballDataCsvParser.FootballDataRow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Source d'import hors-ligne : un répertoire ou une archive zip de fichiers football-data.
+ * Dispositions reconnues : "2122/E0.csv" (miroir de mmz4281), "2122.zip" contenant "E0.csv",
+ * ou fichiers à plat (la saison est alors déduite de la première date du fichier).
+ * Les fichiers sur disque sont lus par mmap, les entrées zip en flux sans extraction.
+ */
+public final class SeasonArchiveReader {
+
+    // "2122" = 2021-2022 : deux années consécutives sur deux chiffres
+    private static final Pattern SEASON_CODE = Pattern.compile("(?<!\\d)(\\d{2})(\\d{2})(?!\\d)");
+
+    /**
+     * Un fichier de saison d'une division. entry est null pour un fichier sur disque, sinon le nom dans le zip.
+     */
+    public record SeasonFile(String seasonCode, String division, Path source, String entry) {
+
+        public int startYear() {
+            return startYearOf(seasonCode);
+        }
+
+        public String seasonLabel() {
+            int start = startYear();
+            return start + "-" + (start + 1);
+        }
+
+        public String describe() {
+            return (entry == null) ? source.getFileName().toString() : source.getFileName() + "!" + entry;
+        }
+    }
+
+    private SeasonArchiveReader() {}
+
+    /**
+     * Inventaire d'un répertoire (récursif) ou d'un zip, trié chronologiquement puis par division :
+     * l'ordre d'import doit suivre le temps pour Elo et les forces en ligne.
+     */
+    public static List<SeasonFile> scan(Path root) throws IOException {
+        List<SeasonFile> files = new ArrayList<>();
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                for (Path path : walk.filter(Files::isRegularFile).sorted().toList()) {
+                    String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+                    if (name.endsWith(".csv")) files.add(describe(path, null, root.relativize(path).toString()));
+                    else if (name.endsWith(".zip")) files.addAll(scanZip(path, root.relativize(path).toString()));
+                }
+            }
+        } else if (root.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip")) {
+            files.addAll(scanZip(root, root.getFileName().toString()));
+        } else {
+            files.add(describe(root, null, root.getFileName().toString()));
+        }
+        files.removeIf(f -> f.seasonCode() == null);
+        files.sort(Comparator.comparingInt(SeasonFile::startYear).thenComparing(SeasonFile::division));
+        return files;
+    }
+
+    /**
+     * Lit et décode toutes les lignes d'un fichier de l'inventaire.
+     */
+    public static List<FootballDataRow> read(SeasonFile file) throws IOException {
+        List<FootballDataRow> rows = new ArrayList<>();
+        stream(file, rows::add);
+        return rows;
+    }
+
+    /**
+     * Décode le fichier ligne à ligne vers le consommateur, sans liste intermédiaire (source du pipeline d'import).
+     */
+    public static int stream(SeasonFile file, Consumer<FootballDataRow> sink) throws IOException {
+        if (file.entry() == null) {
+            try (FileChannel channel = FileChannel.open(file.source(), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                return FootballDataCsvParser.parse(utf8(new ByteBufferInputStream(buffer)), sink);
+            }
+        }
+        try (ZipFile zip = new ZipFile(file.source().toFile())) {
+            ZipEntry entry = zip.getEntry(file.entry());
+            if (entry == null) throw new IOException("Entrée absente de l'archive : " + file.describe());
+            try (InputStream in = zip.getInputStream(entry)) {
+                return FootballDataCsvParser.parse(utf8(in), sink);
+            }
+        }
+    }
+
+    /**
+     * Année de début d'une saison "yyYY" (les codes 93xx-99xx désignent les années 1990).
+     */
+    static int startYearOf(String seasonCode) {
+        int yy = Integer.parseInt(seasonCode.substring(0, 2));
+        return (yy >= 90 ? 1900 : 2000) + yy;
+    }
+
+    private static List<SeasonFile> scanZip(Path zipPath, String zipLocation) throws IOException {
+        List<SeasonFile> files = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(zipPath.toFile())) {
+            for (ZipEntry entry : zip.stream().filter(e -> !e.isDirectory()).toList()) {
+                if (!entry.getName().toLowerCase(Locale.ROOT).endsWith(".csv")) continue;
+                files.add(describe(zipPath, entry.getName(), zipLocation + "/" + entry.getName()));
+            }
+        }
+        return files;
+    }
+
+    private static SeasonFile describe(Path source, String entry, String location) throws IOException {
+        String fileName = location.substring(location.lastIndexOf('/') + 1);
+        String division = fileName.substring(0, fileName.length() - 4).toUpperCase(Locale.ROOT);
+        String seasonCode = seasonCodeFromPath(location);
+        // Fichier à plat sans saison dans le chemin : on regarde la première date jouée
+        if (seasonCode == null) {
+            seasonCode = inferSeasonCode(read(new SeasonFile("0000", division, source, entry)));
+        }
+        return new SeasonFile(seasonCode, division, source, entry);
+    }
+
+    /**
+     * Premier code de saison plausible en partant du segment le plus proche du fichier ("data/2122/E0.csv" -> 2122).
+     */
+    static String seasonCodeFromPath(String location) {
+        String[] segments = location.replace('\\', '/').split("/");
+        for (int i = segments.length - 1; i >= 0; i--) {
+            Matcher m = SEASON_CODE.matcher(segments[i]);
+            while (m.find()) {
+                int first = Integer.parseInt(m.group(1)), second = Integer.parseInt(m.group(2));
+                if ((first + 1) % 100 == second) return m.group();
+            }
+        }
+        return null;
+    }
+
+    // La saison européenne démarre en juillet/août : un match de mars 2022 appartient à 2021-2022
+    private static String inferSeasonCode(List<FootballDataRow> rows) {
+        return rows.stream().map(FootballDataRow::getMatchDate).filter(d -> d != null).findFirst()
+                .map(d -> d.getMonthValue() >= 7 ? d.getYear() : d.getYear() - 1)
+                .map(start -> String.format("%02d%02d", start % 100, (start + 1) % 100))
+                .orElse(null);
+    }
+
+    private static Reader utf8(InputStream in) {
+        return new InputStreamReader(in, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Flux d'octets au-dessus d'un buffer mappé (le parseur travaille sur un Reader).
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) return -1;
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
@@ -20,6 +20,7 @@ public class TeamStatsService {
 
     private final TeamRepository teamRepository;
     private final MatchAnalysisRepository matchRepository;
+    private final LeagueRegistry leagueRegistry;
 
     /**
      * Renvoie les stats suggérées pour l'analyse (pré-remplissage IHM).
@@ -83,7 +84,7 @@ public class TeamStatsService {
         for (MatchAnalysis m : matches) {
             // 1. Filtre de sécurité : on ne traite que les matchs de la saison actuelle avec un score
             if (m.getHomeScore() == null || m.getAwayScore() == null) continue;
-            if (!"2025-2026".equals(m.getSeason())) continue;
+            if (!leagueRegistry.currentSeasonLabel().equals(m.getSeason())) continue;
 
             boolean isHome = m.getHomeTeam().getId().equals(teamId);
             int myScore = isHome ? m.getHomeScore() : m.getAwayScore();
@@ -179,7 +180,7 @@ public class TeamStatsService {
         int countXg = 0, countStats = 0, countPossession = 0;
 
         for(MatchAnalysis m : matches) {
-            if(!"2025-2026".equals(m.getSeason())) continue;
+            if(!leagueRegistry.currentSeasonLabel().equals(m.getSeason())) continue;
             if(m.getHomeScore() == null || m.getAwayScore() == null) continue; // On ignore les matchs futurs non joués
 
             boolean isHome = m.getHomeTeam().getId().equals(teamId);
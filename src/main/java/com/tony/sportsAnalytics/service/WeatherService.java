@@ -1,20 +1,25 @@
 package com.tony.sportsAnalytics.service;
 
 import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.web.client.RestTemplate;
 import lombok.extern.slf4j.Slf4j;
+import java.time.Duration;
 import java.util.Optional;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class WeatherService {
 
+    // Réponse courte attendue : une API lente ne doit pas retarder la prédiction
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
     @Value("${weather.api.key:}")
     private String apiKey;
 
-    private final RestTemplate restTemplate = new RestTemplate();
+    private final OutboundHttpClient http;
     private boolean isEnabled;
 
     public record WeatherCondition(double temperature, double windSpeed, boolean isRaining, String description) {}
@@ -41,7 +46,7 @@ public class WeatherService {
         String url = String.format("https://api.openweathermap.org/data/2.5/weather?lat=%s&lon=%s&units=metric&appid=%s", lat, lon, apiKey);
 
         try {
-            var response = restTemplate.getForObject(url, String.class);
+            var response = http.getString(url, TIMEOUT);
 
             // Simulation parsing (à remplacer par Jackson plus tard)
             boolean isRaining = response != null && (response.contains("Rain") || response.contains("Drizzle"));
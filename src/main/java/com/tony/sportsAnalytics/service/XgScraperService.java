@@ -1,5 +1,6 @@
 package com.tony.sportsAnalytics.service;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Comment;
@@ -10,15 +11,21 @@ import org.jsoup.select.Elements;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import javax.net.ssl.*;
-import java.security.SecureRandom;
-import java.security.cert.X509Certificate;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class XgScraperService {
 
+    // Le rendu côté ScraperAPI peut prendre près d'une minute
+    private static final Duration SCRAPE_TIMEOUT = Duration.ofSeconds(60);
+
+    private final OutboundHttpClient http;
+
     // Pseudo-Rate Limiting pour respecter FBRef (Evite le HTTP 429)
     private long lastRequestTime = 0;
     private static final long DELAY_BETWEEN_REQUESTS_MS = 3500;
@@ -35,14 +42,15 @@ public class XgScraperService {
             // 2. On retire "render=true" (inutile et bloquant).
             // 3. On met "premium=true" pour utiliser les IP Résidentielles Anti-Cloudflare (coûte 10 crédits/requête, mais tu en as 5000, c'est très large).
             String proxyUrl = "https://api.scraperapi.com?api_key=" + scraperApiKey
-                    + "&url=" + leagueUrl
+                    + "&url=" + URLEncoder.encode(leagueUrl, StandardCharsets.UTF_8)
                     + "&premium=true"
                     + "&render=true";
 
-            Document doc = Jsoup.connect(proxyUrl)
-                    .timeout(60000)
-                    .ignoreHttpErrors(true)
-                    .get();
+            // Client partagé : une seule tentative, les requêtes étant facturées (http.client.host-attempts),
+            // et concurrence bornée pour api.scraperapi.com (http.client.host-limits).
+            // Le corps est analysé même en erreur : ScraperAPI y explique le refus
+            OutboundHttpClient.Response response = http.send(proxyUrl, Map.of(), SCRAPE_TIMEOUT);
+            Document doc = Jsoup.parse(response.text(), leagueUrl);
 
             log.info("📄 Titre de la page reçue : {}", doc.title());
 
@@ -180,18 +188,5 @@ public class XgScraperService {
         lastRequestTime = System.currentTimeMillis();
     }
 
-    private SSLSocketFactory getUnsafeSslSocketFactory() throws Exception {
-        TrustManager[] trustAllCerts = new TrustManager[]{
-                new X509TrustManager() {
-                    public X509Certificate[] getAcceptedIssuers() { return null; }
-                    public void checkClientTrusted(X509Certificate[] certs, String authType) {}
-                    public void checkServerTrusted(X509Certificate[] certs, String authType) {}
-                }
-        };
-        SSLContext sc = SSLContext.getInstance("TLS");
-        sc.init(null, trustAllCerts, new SecureRandom());
-        return sc.getSocketFactory();
-    }
-
     public record TeamXgMetrics(double xG, double xGA, double ppda, double fieldTilt, double possession, double progressivePasses) {}
 }
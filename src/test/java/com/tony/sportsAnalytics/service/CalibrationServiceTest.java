@@ -0,0 +1,64 @@
+package com.tony.sportsAnalytics.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CalibrationServiceTest {
+
+    @Test
+    @DisplayName("Platt (Newton) doit retrouver une sigmoïde connue")
+    void plattShouldRecoverKnownSigmoid() {
+        Random random = new Random(7);
+        int n = 20000;
+        double[] p = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            p[i] = random.nextDouble();
+            double truth = 1.0 / (1.0 + Math.exp(-6.0 * p[i] + 3.0));
+            y[i] = random.nextDouble() < truth ? 1.0 : 0.0;
+        }
+
+        double[] ab = CalibrationService.fitPlatt(p, y);
+
+        assertThat(ab[0]).isCloseTo(-6.0, within(0.5));
+        assertThat(ab[1]).isCloseTo(3.0, within(0.3));
+    }
+
+    @Test
+    @DisplayName("La régression isotonique doit produire une table croissante")
+    void isotonicTableShouldBeMonotonic() {
+        Random random = new Random(11);
+        int n = 5000;
+        double[] p = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            p[i] = random.nextDouble();
+            y[i] = random.nextDouble() < p[i] * p[i] ? 1.0 : 0.0;
+        }
+
+        double[] table = CalibrationService.fitIsotonic(p, y);
+
+        assertThat(table).hasSize(CalibrationService.TABLE_SIZE);
+        for (int g = 1; g < table.length; g++) {
+            assertThat(table[g]).isGreaterThanOrEqualTo(table[g - 1]);
+        }
+        assertThat(CalibrationService.interpolate(table, 0.5)).isCloseTo(0.25, within(0.05));
+    }
+
+    @Test
+    @DisplayName("L'encodage 16 bits de la table doit être quasi sans perte")
+    void tableEncodingShouldRoundTrip() {
+        double[] table = CalibrationService.plattTable(-8.5, 4.2);
+
+        double[] decoded = CalibrationService.decode(CalibrationService.encode(table));
+
+        for (int g = 0; g < table.length; g++) {
+            assertThat(decoded[g]).isCloseTo(table[g], within(1e-4));
+        }
+    }
+}
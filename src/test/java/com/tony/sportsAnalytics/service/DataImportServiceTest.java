@@ -0,0 +1,53 @@
+package com.tony.sportsAnalytics.service;
+
+import jakarta.persistence.PessimisticLockException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DataImportServiceTest {
+
+    @Test
+    @DisplayName("Lot en échec sur verrou (exceptions Hibernate / JPA non traduites) : nouvelle tentative, pas d'abandon du fichier")
+    void shouldRetryChunkOnLockFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        String result = DataImportService.withChunkRetry("E0 #1", 3, 0, () -> {
+            switch (calls.incrementAndGet()) {
+                // Deadlock pendant l'upsert JDBC (Session.doWork)
+                case 1 -> throw new LockAcquisitionException("deadlock detected", new SQLException("deadlock detected", "40P01"));
+                // Verrou non obtenu au flush (EntityManager)
+                case 2 -> throw new PessimisticLockException("could not obtain lock");
+                default -> { return "ok"; }
+            }
+        });
+        assertThat(result).isEqualTo("ok");
+        assertThat(calls).hasValue(3);
+
+        AtomicInteger exhausted = new AtomicInteger();
+        assertThatThrownBy(() -> DataImportService.withChunkRetry("E0 #2", 2, 0, () -> {
+            exhausted.incrementAndGet();
+            throw new LockAcquisitionException("serialization failure", new SQLException("could not serialize", "40001"));
+        })).isInstanceOf(CannotAcquireLockException.class);
+        assertThat(exhausted).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Erreur définitive (contrainte) : traduite et remontée sans nouvelle tentative")
+    void shouldNotRetryPermanentFailure() {
+        AtomicInteger calls = new AtomicInteger();
+        assertThatThrownBy(() -> DataImportService.withChunkRetry("E0 #3", 3, 0, () -> {
+            calls.incrementAndGet();
+            throw new ConstraintViolationException("duplicate key", new SQLException("duplicate key", "23505"), "uk_match");
+        })).isInstanceOf(DataIntegrityViolationException.class);
+        assertThat(calls).hasValue(1);
+    }
+}
@@ -0,0 +1,37 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.service.FixtureReconciliationService.Fixture;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FixtureReconciliationServiceTest {
+
+    @Test
+    @DisplayName("Affiche répétée (Écosse) : un match déjà joué n'archive pas la rencontre suivante, un report joué si")
+    void shouldKeepUpcomingFixtureOfRepeatedPairing() {
+        // Celtic - Rangers : 3e confrontation jouée le 1er mars, 4e (après la scission) prévue le 19 avril
+        Fixture played = new Fixture(10, LocalDate.of(2026, 3, 1), true);
+        Fixture upcoming = new Fixture(20, LocalDate.of(2026, 4, 19), false);
+        assertThat(FixtureReconciliationService.replacementOf(upcoming, List.of(played))).isNull();
+
+        // Même affiche reportée et jouée une semaine plus tard : la fixture d'origine est remplacée
+        Fixture postponed = new Fixture(30, LocalDate.of(2026, 4, 26), true);
+        assertThat(FixtureReconciliationService.replacementOf(upcoming, List.of(played, postponed))).isEqualTo(postponed);
+    }
+
+    @Test
+    @DisplayName("Fixture déplacée : remplacée par la ligne non jouée créée après elle, jamais par une plus ancienne")
+    void shouldSupersedeByNewerFixture() {
+        Fixture original = new Fixture(20, LocalDate.of(2026, 4, 19), false);
+        Fixture moved = new Fixture(25, LocalDate.of(2026, 4, 12), false);
+        Fixture movedAgain = new Fixture(27, LocalDate.of(2026, 4, 22), false);
+
+        assertThat(FixtureReconciliationService.replacementOf(original, List.of(moved, movedAgain))).isEqualTo(movedAgain);
+        assertThat(FixtureReconciliationService.replacementOf(movedAgain, List.of(original, moved))).isNull();
+    }
+}
@@ -0,0 +1,206 @@
+package com.tony.sportsAnalytics.service;
+
+import com.opencsv.bean.CsvBindByName;
+import com.opencsv.bean.CsvToBeanBuilder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FootballDataCsvParserTest {
+
+    private static final Logger log = LoggerFactory.getLogger(FootballDataCsvParserTest.class);
+
+    // En-tête réel d'une saison football-data (colonnes de cotes tronquées)
+    private static final String HEADER = "Div,Date,Time,HomeTeam,AwayTeam,FTHG,FTAG,FTR,HTHG,HTAG,HTR,Referee,"
+            + "HS,AS,HST,AST,HF,AF,HC,AC,HY,AY,HR,AR,B365H,B365D,B365A,BWH,BWD,BWA,PSH,PSD,PSA,WHH,WHD,WHA,"
+            + "MaxH,MaxD,MaxA,AvgH,AvgD,AvgA,B365>2.5,B365<2.5,P>2.5,P<2.5,Max>2.5,Max<2.5,Avg>2.5,Avg<2.5,"
+            + "AHh,B365AHH,B365AHA,PAHH,PAHA,MaxAHH,MaxAHA,AvgAHH,AvgAHA";
+
+    @Test
+    @DisplayName("Les lignes sont décodées via les index de l'en-tête, dates et heures comprises")
+    void shouldDecodeRowsFromHeaderIndices() throws IOException {
+        String csv = "\uFEFFAwayTeam,HomeTeam,Date,Time,FTHG,FTAG,B365H,Referee,Div\n"
+                + "Chelsea,Arsenal,16/08/2024,20:00,2,1,1.85,\"Taylor, A\",E0\n"
+                + "Lyon,PSG,17/08/21,,,,2.10,,F1\n"
+                + ",,,,,,,,\n";
+
+        List<FootballDataCsvParser.FootballDataRow> rows = new ArrayList<>();
+        int count = FootballDataCsvParser.parse(new StringReader(csv), rows::add);
+
+        assertThat(count).isEqualTo(2);
+        FootballDataCsvParser.FootballDataRow first = rows.get(0);
+        assertThat(first.getHomeTeam()).isEqualTo("Arsenal");
+        assertThat(first.getAwayTeam()).isEqualTo("Chelsea");
+        assertThat(first.getMatchDate()).isEqualTo(LocalDate.of(2024, 8, 16));
+        assertThat(first.getKickOff()).isEqualTo(LocalTime.of(20, 0));
+        assertThat(first.getFTHG()).isEqualTo(2);
+        assertThat(first.getB365H()).isEqualTo(1.85);
+        assertThat(first.getReferee()).isEqualTo("Taylor, A");
+        assertThat(first.getDiv()).isEqualTo("E0");
+        assertThat(first.getHS()).isNull(); // colonne absente du fichier
+
+        FootballDataCsvParser.FootballDataRow second = rows.get(1);
+        assertThat(second.getMatchDate()).isEqualTo(LocalDate.of(2021, 8, 17));
+        assertThat(second.getKickOff()).isNull();
+        assertThat(second.getFTHG()).isNull();
+        assertThat(second.getReferee()).isNull();
+    }
+
+    @Test
+    @DisplayName("Années sur deux chiffres : 90-99 dans les années 1990 (anciennes saisons), le reste après 2000")
+    void shouldPivotTwoDigitYears() {
+        assertThat(FootballDataCsvParser.parseDate("19/08/95")).isEqualTo(LocalDate.of(1995, 8, 19));
+        assertThat(FootballDataCsvParser.parseDate("02/05/99")).isEqualTo(LocalDate.of(1999, 5, 2));
+        assertThat(FootballDataCsvParser.parseDate("19/08/00")).isEqualTo(LocalDate.of(2000, 8, 19));
+        assertThat(FootballDataCsvParser.parseDate("17/08/21")).isEqualTo(LocalDate.of(2021, 8, 17));
+        assertThat(FootballDataCsvParser.parseDate("19/08/1995")).isEqualTo(LocalDate.of(1995, 8, 19));
+    }
+
+    @Test
+    @DisplayName("L'empreinte de contenu ne change qu'avec les champs importés")
+    void shouldHashImportedFieldsOnly() throws IOException {
+        String csv = "Div,Date,Time,HomeTeam,AwayTeam,FTHG,FTAG,B365H,BWH\n"
+                + "E0,16/08/2024,20:00,Arsenal,Chelsea,2,1,1.85,1.80\n"
+                + "E0,16/08/2024,20:00,Arsenal,Chelsea,2,1,1.85,1.95\n"
+                + "E0,16/08/2024,20:00,Arsenal,Chelsea,2,1,1.90,1.80\n"
+                + "E0,16/08/2024,20:00,Arsenal,Chelsea,1,2,1.85,1.80\n";
+
+        List<FootballDataCsvParser.FootballDataRow> rows = new ArrayList<>();
+        FootballDataCsvParser.parse(new StringReader(csv), rows::add);
+
+        // BWH n'est pas repris dans MatchAnalysis : même empreinte
+        assertThat(rows.get(1).contentHash()).isEqualTo(rows.get(0).contentHash());
+        assertThat(rows.get(2).contentHash()).isNotEqualTo(rows.get(0).contentHash());
+        assertThat(rows.get(3).contentHash()).isNotEqualTo(rows.get(0).contentHash());
+    }
+
+    @Test
+    @DisplayName("Le parseur en flux lit les mêmes lignes que l'ancien chemin OpenCSV")
+    void shouldMatchOpenCsvOnLocalSeasonFile(@TempDir Path dir) throws IOException {
+        Path season = writeSeasonFile(dir.resolve("E0.csv"));
+        assertThat(streamingRows(season)).isEqualTo(openCsvRows(season)).isEqualTo(380);
+    }
+
+    /**
+     * Débit d'import (lignes/s) sur une saison complète stockée localement, comparé à l'ancien
+     * chemin OpenCSV (beans par réflexion + liste complète en mémoire).
+     * Hors suite courante : mvn test -Dtest=FootballDataCsvParserTest -Dperf=true
+     */
+    @Test
+    @Tag("perf")
+    @EnabledIfSystemProperty(named = "perf", matches = "true")
+    @DisplayName("Benchmark : débit du parseur en flux sur un fichier de saison local")
+    void benchmarkThroughputOnLocalSeasonFile(@TempDir Path dir) throws IOException {
+        Path season = writeSeasonFile(dir.resolve("E0.csv"));
+        int rounds = 100;
+
+        // Chauffe du JIT
+        for (int i = 0; i < 10; i++) { streamingRows(season); openCsvRows(season); }
+
+        long start = System.nanoTime();
+        long streamed = 0;
+        for (int i = 0; i < rounds; i++) streamed += streamingRows(season);
+        double streamingRate = streamed / ((System.nanoTime() - start) / 1e9);
+
+        start = System.nanoTime();
+        long beans = 0;
+        for (int i = 0; i < rounds; i++) beans += openCsvRows(season);
+        double openCsvRate = beans / ((System.nanoTime() - start) / 1e9);
+
+        log.info("📈 Parseur en flux : {} lignes/s | OpenCSV : {} lignes/s (x{})",
+                Math.round(streamingRate), Math.round(openCsvRate), String.format("%.1f", streamingRate / openCsvRate));
+        assertThat(streamed).isEqualTo(beans).isEqualTo(380L * rounds);
+    }
+
+    private static int streamingRows(Path file) throws IOException {
+        int[] goals = {0};
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return FootballDataCsvParser.parse(reader, row -> goals[0] += row.getFTHG() + row.getMatchDate().getDayOfMonth());
+        }
+    }
+
+    private static int openCsvRows(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<OpenCsvRow> rows = new CsvToBeanBuilder<OpenCsvRow>(reader)
+                    .withType(OpenCsvRow.class).withSeparator(',').withIgnoreLeadingWhiteSpace(true).build().parse();
+            int goals = 0;
+            for (OpenCsvRow row : rows) {
+                // Ancien chemin : formatteur recréé à chaque ligne
+                goals += row.FTHG + LocalDate.parse(row.date, java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")).getDayOfMonth();
+            }
+            return rows.size();
+        }
+    }
+
+    /**
+     * Saison synthétique de 20 équipes (380 matchs) au format football-data.
+     */
+    private static Path writeSeasonFile(Path file) throws IOException {
+        Random random = new Random(42);
+        int columns = HEADER.split(",").length;
+        StringBuilder sb = new StringBuilder(HEADER).append('\n');
+        LocalDate day = LocalDate.of(2024, 8, 16);
+        for (int h = 0; h < 20; h++) {
+            for (int a = 0; a < 20; a++) {
+                if (h == a) continue;
+                int hg = random.nextInt(5), ag = random.nextInt(4);
+                LocalDate date = day.plusDays((h * 20L + a) % 280);
+                sb.append(String.format("E0,%02d/%02d/%d,15:00,Team %d,Team %d,%d,%d,%s,%d,%d,D,Referee %d",
+                        date.getDayOfMonth(), date.getMonthValue(), date.getYear(), h, a, hg, ag,
+                        hg > ag ? "H" : hg < ag ? "A" : "D", Math.min(hg, 1), Math.min(ag, 1), random.nextInt(20)));
+                for (int c = 12; c < 24; c++) sb.append(',').append(random.nextInt(20));
+                for (int c = 24; c < columns; c++) sb.append(',').append(String.format("%.2f", 1.2 + random.nextDouble() * 6));
+                sb.append('\n');
+            }
+        }
+        return Files.writeString(file, sb.toString());
+    }
+
+    public static class OpenCsvRow {
+        @CsvBindByName(column = "Div") public String div;
+        @CsvBindByName(column = "Date") public String date;
+        @CsvBindByName(column = "Time") public String time;
+        @CsvBindByName(column = "HomeTeam") public String homeTeam;
+        @CsvBindByName(column = "AwayTeam") public String awayTeam;
+        @CsvBindByName(column = "FTHG") public Integer FTHG;
+        @CsvBindByName(column = "FTAG") public Integer FTAG;
+        @CsvBindByName(column = "HTHG") public Integer HTHG;
+        @CsvBindByName(column = "HTAG") public Integer HTAG;
+        @CsvBindByName(column = "Referee") public String referee;
+        @CsvBindByName(column = "HS") public Integer HS;
+        @CsvBindByName(column = "AS") public Integer AS;
+        @CsvBindByName(column = "HST") public Integer HST;
+        @CsvBindByName(column = "AST") public Integer AST;
+        @CsvBindByName(column = "HC") public Integer HC;
+        @CsvBindByName(column = "AC") public Integer AC;
+        @CsvBindByName(column = "HF") public Integer HF;
+        @CsvBindByName(column = "AF") public Integer AF;
+        @CsvBindByName(column = "HY") public Integer HY;
+        @CsvBindByName(column = "AY") public Integer AY;
+        @CsvBindByName(column = "HR") public Integer HR;
+        @CsvBindByName(column = "AR") public Integer AR;
+        @CsvBindByName(column = "B365H") public Double B365H;
+        @CsvBindByName(column = "B365D") public Double B365D;
+        @CsvBindByName(column = "B365A") public Double B365A;
+        @CsvBindByName(column = "B365>2.5") public Double B365O25;
+        @CsvBindByName(column = "B365<2.5") public Double B365U25;
+    }
+}
@@ -0,0 +1,137 @@
+package com.tony.sportsAnalytics.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ImportDownloaderTest {
+
+    private static final long LATENCY_MS = 300;
+
+    @TempDir
+    Path cacheDir;
+
+    private HttpServer server;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void startStub() throws IOException {
+        // Stub football-data : chaque fichier répond après LATENCY_MS
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(LATENCY_MS);
+                String league = exchange.getRequestURI().getPath().replace("/", "");
+                byte[] body = ("Div,Date,Time,HomeTeam,AwayTeam,FTHG,FTAG\n"
+                        + league + ",16/08/2024,20:00,A,B,2,1\n").getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    // Limite par hôte au-dessus de celle du téléchargeur : c'est bien import.download.concurrency qui borne ici
+    private static OutboundHttpClient httpClient() {
+        return new OutboundHttpClient(2_000, 5_000, 1, 10, 16, "", "", "");
+    }
+
+    @Test
+    @DisplayName("Les fichiers sont téléchargés en parallèle, dans la limite de concurrence configurée")
+    void shouldFetchConcurrentlyWithinLimit() {
+        ImportDownloader downloader = new ImportDownloader(httpClient(), 4, cacheDir.toString());
+        String base = "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<List<FootballDataCsvParser.FootballDataRow>>> files = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            files.add(downloader.fetch(base + "L" + i, DataImportService::parseRows));
+        }
+        List<String> divisions = files.stream().map(f -> f.join().getFirst().getDiv()).toList();
+        long wallTime = System.currentTimeMillis() - start;
+        downloader.shutdown();
+
+        // Ordre des résultats = ordre de soumission, quel que soit l'ordre d'arrivée
+        assertThat(divisions).containsExactly("L0", "L1", "L2", "L3", "L4", "L5", "L6", "L7");
+        assertThat(maxInFlight.get()).isLessThanOrEqualTo(4).isGreaterThan(1);
+        // 8 fichiers, 4 à la fois : ~2 latences au lieu de 8 en séquentiel
+        assertThat(wallTime).isLessThan(LATENCY_MS * 8 / 2);
+    }
+
+    @Test
+    @DisplayName("Requêtes conditionnelles : MISS puis 304 après commit, UNCHANGED si le contenu est identique sans ETag")
+    void shouldServeFromCacheWhenUnchanged() throws IOException {
+        byte[] body = "Div,Date,Time,HomeTeam,AwayTeam,FTHG,FTAG\nE0,16/08/2024,20:00,A,B,2,1\n".getBytes(StandardCharsets.UTF_8);
+        AtomicInteger notModified = new AtomicInteger();
+        HttpServer cacheServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        cacheServer.createContext("/", exchange -> {
+            boolean withEtag = exchange.getRequestURI().getPath().startsWith("/etag");
+            if (withEtag && "\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            if (withEtag) exchange.getResponseHeaders().add("ETag", "\"v1\"");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        cacheServer.start();
+        ImportDownloader downloader = new ImportDownloader(httpClient(), 2, cacheDir.toString());
+        String base = "http://127.0.0.1:" + cacheServer.getAddress().getPort();
+        try {
+            ImportDownloader.Fetched<List<FootballDataCsvParser.FootballDataRow>> first =
+                    downloader.fetchCached(base + "/etag/E0.csv", DataImportService::parseRows).join();
+            assertThat(first.status()).isEqualTo(ImportDownloader.CacheStatus.MISS);
+            // Sans commit (import raté), le fichier reste à réimporter
+            assertThat(downloader.fetchCached(base + "/etag/E0.csv", DataImportService::parseRows).join().status())
+                    .isEqualTo(ImportDownloader.CacheStatus.MISS);
+            first.commit();
+
+            ImportDownloader.Fetched<List<FootballDataCsvParser.FootballDataRow>> cached =
+                    downloader.fetchCached(base + "/etag/E0.csv", DataImportService::parseRows).join();
+            assertThat(cached.status()).isEqualTo(ImportDownloader.CacheStatus.NOT_MODIFIED);
+            assertThat(cached.value().getFirst().getHomeTeam()).isEqualTo("A");
+            assertThat(notModified.get()).isEqualTo(1);
+
+            downloader.fetchCached(base + "/plain/E0.csv", DataImportService::parseRows).join().commit();
+            assertThat(downloader.fetchCached(base + "/plain/E0.csv", DataImportService::parseRows).join().status())
+                    .isEqualTo(ImportDownloader.CacheStatus.UNCHANGED);
+        } finally {
+            downloader.shutdown();
+            cacheServer.stop(0);
+        }
+    }
+}
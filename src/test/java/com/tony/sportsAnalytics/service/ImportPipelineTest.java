@@ -0,0 +1,63 @@
+package com.tony.sportsAnalytics.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ImportPipelineTest {
+
+    @Test
+    @DisplayName("Un étage parallèle restitue les éléments dans l'ordre de la source, files bornées")
+    void shouldPreserveSourceOrderWithBoundedQueues() {
+        ImportPipelineMetrics metrics = new ImportPipelineMetrics();
+        List<Integer> received = new ArrayList<>();
+
+        ImportPipeline.<Integer>from(metrics, 8, "parse", sink -> {
+                    for (int i = 0; i < 2_000; i++) sink.accept(i);
+                })
+                .then("resolve", 4, i -> {
+                    // Durées irrégulières : les workers terminent dans le désordre
+                    LockSupport.parkNanos(ThreadLocalRandom.current().nextInt(20_000));
+                    return (i % 10 == 0) ? null : i * 2;
+                })
+                .drain("map", received::add);
+
+        assertThat(received).hasSize(1_800);
+        for (int k = 1; k < received.size(); k++) {
+            assertThat(received.get(k)).isGreaterThan(received.get(k - 1));
+        }
+
+        List<ImportPipelineMetrics.StageSnapshot> snapshot = metrics.snapshot();
+        assertThat(snapshot).extracting(ImportPipelineMetrics.StageSnapshot::stage).containsExactly("parse", "resolve", "map");
+        assertThat(snapshot.get(0).items()).isEqualTo(2_000);
+        assertThat(snapshot.get(1).items()).isEqualTo(2_000);
+        assertThat(snapshot.get(1).threads()).isEqualTo(4);
+        assertThat(snapshot).allSatisfy(s -> assertThat(s.maxQueueDepth()).isLessThanOrEqualTo(8));
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("L'erreur d'un étage arrête le pipeline et remonte au drain, sans blocage de l'amont")
+    void shouldPropagateStageFailure() {
+        ImportPipelineMetrics metrics = new ImportPipelineMetrics();
+
+        assertThatThrownBy(() -> ImportPipeline.<Integer>from(metrics, 4, "parse", sink -> {
+                    for (int i = 0; i < 1_000_000; i++) sink.accept(i);
+                })
+                .then("resolve", 2, i -> {
+                    if (i == 100) throw new IllegalArgumentException("ligne 100 invalide");
+                    return i;
+                })
+                .drain("map", i -> {}))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("ligne 100 invalide");
+    }
+}
@@ -0,0 +1,77 @@
+package com.tony.sportsAnalytics.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tony.sportsAnalytics.service.InboxIngestionService.Format;
+import com.tony.sportsAnalytics.service.InboxIngestionService.Parsed;
+import com.tony.sportsAnalytics.service.InboxIngestionService.Slice;
+import com.tony.sportsAnalytics.service.MarketOdds.Market;
+import com.tony.sportsAnalytics.service.MarketOdds.Source;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InboxIngestionServiceTest {
+
+    @Test
+    @DisplayName("Lecture incrémentale : seules les lignes complètes sont lues, la suite reprend à l'octet enregistré")
+    void shouldReadCompleteLinesFromOffset(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("odds.csv");
+        String header = "Div,Date,Time,HomeTeam,AwayTeam,PSH,PSD,PSA\n";
+        String first = "E0,18/10/2026,15:00,Arsenal,Chelsea,1.90,3.60,4.20\n";
+        Files.writeString(file, header + first + "E0,18/10/2026,17:3");
+
+        long offset;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Slice slice = InboxIngestionService.readSlice(channel, 0, 1 << 20);
+            assertThat(new String(slice.bytes(), StandardCharsets.UTF_8)).isEqualTo(header + first);
+            offset = slice.end();
+            // Ligne en cours d'écriture : rien à lire tant qu'elle n'est pas terminée
+            assertThat(InboxIngestionService.readSlice(channel, offset, 1 << 20)).isNull();
+        }
+
+        Files.writeString(file, "0,Liverpool,Everton,1.50,4.33,6.50\n", StandardOpenOption.APPEND);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Fenêtre plus petite que la ligne : élargie plutôt que bloquée
+            Slice next = InboxIngestionService.readSlice(channel, offset, 8);
+            Parsed parsed = InboxIngestionService.parseSlice(Format.CSV, header.strip(),
+                    new String(next.bytes(), StandardCharsets.UTF_8), new ObjectMapper());
+            assertThat(next.end()).isEqualTo(channel.size());
+            assertThat(parsed.rows()).singleElement().satisfies(row -> {
+                assertThat(row.getHomeTeam()).isEqualTo("Liverpool");
+                assertThat(row.getKickOff()).hasToString("17:30");
+                assertThat(row.getOdds().price(Source.PINNACLE, Market.HOME)).isEqualTo(1.50);
+            });
+            // L'empreinte du début ne dépend que des octets déjà intégrés
+            assertThat(InboxIngestionService.headChecksum(channel, offset))
+                    .isEqualTo(ImportDownloader.sha256((header + first).getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    @Test
+    @DisplayName("NDJSON : champs nommés comme les colonnes football-data, dates ISO acceptées, lignes illisibles comptées")
+    void shouldParseNdjsonRecords() throws Exception {
+        String lines = """
+                {"Div":"SP1","Date":"2026-10-24","Time":"21:00","HomeTeam":"Barcelona","AwayTeam":"Real Madrid","PSH":2.1,"PSD":3.8,"PSA":3.3,"AHh":-0.25}
+                {not json
+                {"Div":"SP1","Date":"25/10/2026","HomeTeam":"Betis","AwayTeam":"Sevilla","B365H":"2.40"}
+                """;
+        Parsed parsed = InboxIngestionService.parseSlice(Format.NDJSON, null, lines, new ObjectMapper());
+
+        assertThat(parsed.invalid()).isEqualTo(1);
+        assertThat(parsed.rows()).hasSize(2);
+        assertThat(parsed.rows().getFirst().getMatchDate()).isEqualTo(LocalDate.of(2026, 10, 24));
+        assertThat(parsed.rows().getFirst().getOdds().asianLine()).isEqualTo(-0.25);
+        assertThat(parsed.rows().get(1).getB365H()).isEqualTo(2.40);
+        assertThat(InboxIngestionService.formatOf(Path.of("feed.JSONL"))).isEqualTo(Format.NDJSON);
+        assertThat(InboxIngestionService.formatOf(Path.of("notes.txt"))).isNull();
+    }
+}
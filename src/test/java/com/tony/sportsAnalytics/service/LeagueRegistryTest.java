@@ -0,0 +1,131 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.service.LeagueRegistry.LeagueDefinition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LeagueRegistryTest {
+
+    private static final DateTimeFormatter CSV_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    // Archives des années 1990 : année sur deux chiffres
+    private static final DateTimeFormatter CSV_SHORT_DATE = DateTimeFormatter.ofPattern("dd/MM/yy");
+
+    @Test
+    @DisplayName("Le fichier embarqué couvre les 22 divisions football-data et garde les codes historiques")
+    void shouldLoadBundledRegistry() throws Exception {
+        List<LeagueDefinition> leagues = bundledLeagues();
+
+        assertThat(leagues).hasSize(22);
+        assertThat(leagues).extracting(LeagueDefinition::division).doesNotHaveDuplicates()
+                .contains("E0", "E1", "E2", "E3", "EC", "SC0", "SC3", "D2", "I2", "SP2", "F2", "N1", "B1", "P1", "T1", "G1");
+        assertThat(leagues).filteredOn(l -> l.division().equals("SP1")).singleElement()
+                .satisfies(l -> {
+                    assertThat(l.code()).isEqualTo("LIGA");
+                    assertThat(l.name()).isEqualTo("La Liga");
+                    assertThat(l.fbrefUrl()).contains("La-Liga");
+                });
+        assertThat(leagues).filteredOn(l -> l.division().equals("E2")).singleElement()
+                .satisfies(l -> assertThat(l.fbrefUrl()).isNull());
+    }
+
+    @Test
+    @DisplayName("Saisons de l'historique chronologiques, bornées par la première saison publiée de la division")
+    void shouldComputeSeasonRange() throws Exception {
+        assertThat(LeagueRegistry.seasonsBefore("2526", 4)).containsExactly("2122", "2223", "2324", "2425");
+        assertThat(LeagueRegistry.seasonsBefore("0102", 3)).containsExactly("9899", "9900", "0001");
+        assertThat(LeagueRegistry.toSeasonLabel("9900")).isEqualTo("1999-2000");
+
+        LeagueDefinition national = LeagueRegistry.parse(new StringReader(
+                "code,division,name,country,country_code,first_season,fbref_url\nEC,EC,National League,England,gb-eng,0506,\n")).get(0);
+        assertThat(LeagueRegistry.seasonsBefore("0708", 4)).filteredOn(national::publishes).containsExactly("0506", "0607");
+    }
+
+    @Test
+    @Timeout(120)
+    @DisplayName("Montée en charge : 22 divisions × 12 saisons dont 1998-2000 (~10× le volume Big 5 × 4 saisons), une ligue par thread")
+    void shouldImportTenTimesTheVolumePerLeagueConcurrently() throws Exception {
+        List<LeagueDefinition> leagues = bundledLeagues();
+        // Deux saisons des années 1990 (dates dd/MM/yy, passage à l'an 2000) avant les dix dernières
+        List<String> seasons = new ArrayList<>(LeagueRegistry.seasonsBefore("0001", 2));
+        seasons.addAll(LeagueRegistry.seasonsBefore("2526", 10));
+        LocalDateTime firstKickoff = LocalDate.of(1998, 8, 1).atTime(15, 0);
+        ImportPipelineMetrics metrics = new ImportPipelineMetrics();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        LongAdder totalRows = new LongAdder();
+
+        Map<LeagueDefinition, Integer> rowsPerLeague = LeagueRegistry.runConcurrently(leagues, 4, league -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                int[] rows = {0};
+                LocalDateTime[] last = {firstKickoff};
+                for (String season : seasons) {
+                    String csv = seasonCsv(league.division(), SeasonArchiveReader.startYearOf(season), rowsPerSeason(league));
+                    ImportPipeline.<FootballDataCsvParser.FootballDataRow>from(metrics, 512, "parse",
+                                    sink -> FootballDataCsvParser.parse(new StringReader(csv), sink))
+                            .then("resolve", 2, DataImportService::toMatchDateTime)
+                            .drain("map", date -> {
+                                // Saisons et lignes d'une ligue reçues dans l'ordre chronologique
+                                assertThat(date).isAfterOrEqualTo(last[0]);
+                                last[0] = date;
+                                rows[0]++;
+                            });
+                }
+                totalRows.add(rows[0]);
+                return rows[0];
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+
+        int expected = leagues.stream().mapToInt(l -> rowsPerSeason(l) * seasons.size()).sum();
+        assertThat(rowsPerLeague).hasSize(22);
+        assertThat(totalRows.sum()).isEqualTo(expected).isGreaterThan(10 * 5 * 4 * 380);
+        assertThat(maxRunning.get()).isBetween(2, 4);
+        assertThat(metrics.snapshot()).allSatisfy(s -> assertThat(s.maxQueueDepth()).isLessThanOrEqualTo(512));
+    }
+
+    private static List<LeagueDefinition> bundledLeagues() throws Exception {
+        try (InputStreamReader reader = new InputStreamReader(
+                LeagueRegistryTest.class.getResourceAsStream("/leagues.csv"), StandardCharsets.UTF_8)) {
+            return LeagueRegistry.parse(reader);
+        }
+    }
+
+    // Divisions anglaises inférieures : 24 équipes (552 matchs) ; Écosse : 12 équipes en Premiership (228 matchs),
+    // 10 dans les divisions inférieures (180) ; 20 équipes (380) sinon
+    private static int rowsPerSeason(LeagueDefinition league) {
+        String division = league.division();
+        if (division.matches("E[1-3]|EC")) return 552;
+        if (division.equals("SC0")) return 228;
+        if (division.matches("SC[1-3]")) return 180;
+        return 380;
+    }
+
+    private static String seasonCsv(String division, int startYear, int matches) {
+        StringBuilder csv = new StringBuilder("Div,Date,Time,HomeTeam,AwayTeam,FTHG,FTAG,HTHG,HTAG,HS,AS,HST,AST,B365H,B365D,B365A\n");
+        LocalDate first = LocalDate.of(startYear, 8, 1);
+        DateTimeFormatter format = startYear < 2000 ? CSV_SHORT_DATE : CSV_DATE;
+        for (int i = 0; i < matches; i++) {
+            csv.append(division).append(',').append(first.plusDays(i / 10).format(format)).append(",15:00,")
+                    .append("Team").append(i % 20).append(',').append("Team").append((i + 7) % 20)
+                    .append(",2,1,1,0,12,8,5,3,1.90,3.40,4.20\n");
+        }
+        return csv.toString();
+    }
+}
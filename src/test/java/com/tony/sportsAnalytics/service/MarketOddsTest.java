@@ -0,0 +1,98 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.service.MarketOdds.Market;
+import com.tony.sportsAnalytics.service.MarketOdds.Source;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MarketOddsTest {
+
+    @Test
+    @DisplayName("Toutes les sources sont lues (anciens noms BetBrain compris) et l'encodage reste compact et réversible")
+    void shouldCaptureAllSourcesAndRoundTrip() throws IOException {
+        String csv = "Div,Date,HomeTeam,AwayTeam,B365H,B365D,B365A,PSH,PSD,PSA,BbMxH,BbAvH,B365>2.5,P<2.5,BbAHh,PAHH,PAHA\n"
+                + "E0,10/08/2018,Man United,Leicester,1.57,3.90,7.50,1.62,4.07,6.95,1.65,1.59,1.72,2.20,-0.75,1.97,1.95\n";
+        List<FootballDataCsvParser.FootballDataRow> rows = new ArrayList<>();
+        FootballDataCsvParser.parse(new StringReader(csv), rows::add);
+
+        MarketOdds odds = rows.getFirst().getOdds();
+        assertThat(odds.price(Source.PINNACLE, Market.HOME)).isEqualTo(1.62);
+        assertThat(odds.price(Source.MAX, Market.HOME)).isEqualTo(1.65);
+        assertThat(odds.price(Source.AVERAGE, Market.HOME)).isEqualTo(1.59);
+        assertThat(odds.price(Source.PINNACLE, Market.UNDER_25)).isEqualTo(2.20);
+        assertThat(odds.asianLine()).isEqualTo(-0.75);
+        assertThat(rows.getFirst().getB365H()).isEqualTo(1.57);
+
+        byte[] encoded = odds.encode();
+        // version + masque + ligne AH + 12 cotes sur 2 octets
+        assertThat(encoded).hasSize(1 + 4 + 2 + 12 * 2);
+        MarketOdds decoded = MarketOdds.decode(encoded);
+        assertThat(decoded.price(Source.PINNACLE, Market.AH_AWAY)).isEqualTo(1.95);
+        assertThat(decoded.price(Source.BET365, Market.OVER_25)).isEqualTo(1.72);
+        assertThat(decoded.price(Source.MAX, Market.DRAW)).isNull();
+        assertThat(decoded.asianLine()).isEqualTo(-0.75);
+    }
+
+    @Test
+    @DisplayName("Consensus 1X2 sans marge, Pinnacle pondéré double, repli sur les sources disponibles")
+    void shouldComputeMarginFreeConsensus() {
+        MarketOdds odds = new MarketOdds();
+        odds.setPrice(Source.PINNACLE, Market.HOME, 2.00);
+        odds.setPrice(Source.PINNACLE, Market.DRAW, 3.60);
+        odds.setPrice(Source.PINNACLE, Market.AWAY, 3.90);
+        odds.setPrice(Source.BET365, Market.HOME, 1.90);
+        odds.setPrice(Source.BET365, Market.DRAW, 3.40);
+        odds.setPrice(Source.BET365, Market.AWAY, 3.75);
+        // Le maximum du marché n'entre pas dans le consensus
+        odds.setPrice(Source.MAX, Market.HOME, 5.00);
+        odds.setPrice(Source.MAX, Market.DRAW, 5.00);
+        odds.setPrice(Source.MAX, Market.AWAY, 5.00);
+
+        double[] fair = odds.consensus1x2();
+        assertThat(fair[0] + fair[1] + fair[2]).isCloseTo(1.0, within(1e-12));
+
+        double pinnacleHome = (1 / 2.00) / (1 / 2.00 + 1 / 3.60 + 1 / 3.90);
+        double bet365Home = (1 / 1.90) / (1 / 1.90 + 1 / 3.40 + 1 / 3.75);
+        assertThat(fair[0]).isCloseTo((2 * pinnacleHome + bet365Home) / 3, within(1e-12));
+
+        assertThat(new MarketOdds().consensus1x2()).isNull();
+    }
+
+    @Test
+    @DisplayName("Historique : l'écart ne porte que les cases modifiées et se rejoue sur l'image précédente")
+    void shouldEncodeDeltaAndReplay() {
+        MarketOdds before = new MarketOdds();
+        before.setPrice(Source.PINNACLE, Market.HOME, 2.00);
+        before.setPrice(Source.PINNACLE, Market.DRAW, 3.60);
+        before.setPrice(Source.PINNACLE, Market.AWAY, 3.90);
+        before.setPrice(Source.BET365, Market.OVER_25, 1.85);
+        before.setAsianLine(-0.25);
+
+        MarketOdds after = MarketOdds.decode(before.encode());
+        after.setPrice(Source.PINNACLE, Market.HOME, 1.80);
+        after.setPrice(Source.PINNACLE, Market.AWAY, 4.60);
+        after.setPrice(Source.BET365, Market.OVER_25, null);
+        after.setAsianLine(-0.5);
+
+        byte[] delta = after.encodeDelta(before);
+        // version + masque + 4 écarts sur 1 à 2 octets
+        assertThat(delta.length).isLessThanOrEqualTo(1 + 4 + 4 * 2);
+
+        MarketOdds replayed = MarketOdds.replay(MarketOdds.replay(null, before.encode()), delta);
+        assertThat(replayed.encode()).isEqualTo(after.encode());
+        assertThat(replayed.price(Source.BET365, Market.OVER_25)).isNull();
+        assertThat(replayed.asianLine()).isEqualTo(-0.5);
+
+        assertThat(after.movementFrom(before)).isGreaterThan(0.02);
+        assertThat(after.movementFrom(replayed)).isZero();
+        assertThat(after.movementFrom(null)).isInfinite();
+    }
+}
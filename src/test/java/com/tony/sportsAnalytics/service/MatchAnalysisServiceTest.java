@@ -2,7 +2,10 @@ package com.tony.sportsAnalytics.service;
 
 import com.tony.sportsAnalytics.model.MatchAnalysis;
 import com.tony.sportsAnalytics.model.PredictionResult;
+import com.tony.sportsAnalytics.model.Team;
 import com.tony.sportsAnalytics.repository.MatchAnalysisRepository;
+import com.tony.sportsAnalytics.repository.TeamRepository;
+import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -22,6 +25,35 @@ class MatchAnalysisServiceTest {
     @Mock // Crée une fausse instance de l'engine
     private PredictionEngineService predictionEngine;
 
+    @Mock
+    private TeamRepository teamRepository;
+
+    @Mock
+    private EloService eloService;
+
+    @Mock
+    private OnlineRatingService onlineRatingService;
+
     @InjectMocks // Injecte les mocks dans le service à tester
     private MatchAnalysisService matchAnalysisService;
+
+    @Test
+    @DisplayName("Un résultat n'entre qu'une fois dans les forces : nouvelle saisie et correction ne le rejouent pas")
+    void shouldApplyResultOnlyOnFirstScore() {
+        Team home = new Team("Celtic", null);
+        Team away = new Team("Rangers", null);
+
+        // Fixture qui reçoit son score : intégré
+        matchAnalysisService.applyScoreChange(home, away, null, null, 2, 1);
+        verify(eloService).updateRatings(home, away, 2, 1);
+        verify(onlineRatingService).applyResult(home, away, 2, 1);
+
+        // Même score ressaisi, score corrigé, score retiré : rien de rejoué
+        matchAnalysisService.applyScoreChange(home, away, 2, 1, 2, 1);
+        matchAnalysisService.applyScoreChange(home, away, 2, 1, 2, 2);
+        matchAnalysisService.applyScoreChange(home, away, 2, 1, null, null);
+        // Toujours sans score : rien à intégrer
+        matchAnalysisService.applyScoreChange(home, away, null, null, null, null);
+        verifyNoMoreInteractions(eloService, onlineRatingService);
+    }
 }
@@ -0,0 +1,42 @@
+package com.tony.sportsAnalytics.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchBulkLoaderTest {
+
+    @Test
+    @DisplayName("Encodage COPY : NULL = champ vide non quoté, textes quotés, date décalée comme l'import JPA")
+    void shouldEncodeCopyRows() throws IOException {
+        String csv = "Div,Date,Time,HomeTeam,AwayTeam,FTHG,FTAG,Referee,B365H\n"
+                + "F1,16/08/2024,20:00,Paris SG,Le Havre,4,1,\"O'Neil, \"\"J\"\"\",1.20\n";
+        List<FootballDataCsvParser.FootballDataRow> rows = new ArrayList<>();
+        FootballDataCsvParser.parse(new StringReader(csv), rows::add);
+
+        StringBuilder line = new StringBuilder();
+        MatchBulkLoader.encodeRow(rows.getFirst(), line);
+        String[] head = line.toString().split(",", 9);
+
+        // Nom nettoyé comme dans l'import JPA (Paris SG -> PSG) et logo dérivé
+        assertThat(head[0]).isEqualTo("\"PSG\"");
+        assertThat(head[1]).isEqualTo("\"/logos/psg.png\"");
+        assertThat(head[2]).isEqualTo("\"Le Havre\"");
+        // Cotes de toutes les sources encodées pour match_odds (bytea hexadécimal, format v1)
+        assertThat(head[4]).startsWith("\\x01");
+        assertThat(MarketOdds.decode(HexFormat.of().parseHex(head[4].substring(2)))
+                .price(MarketOdds.Source.BET365, MarketOdds.Market.HOME)).isEqualTo(1.20);
+        assertThat(head[5]).isEqualTo("2024-08-16T21:00");
+        assertThat(head[6]).isEqualTo("4");
+        assertThat(line.toString()).contains(",,,\"O'Neil, \"\"J\"\"\",")
+                .contains(",1.2,")
+                .endsWith("," + rows.getFirst().contentHash() + "\n");
+    }
+}
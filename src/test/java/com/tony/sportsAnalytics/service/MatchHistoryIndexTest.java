@@ -0,0 +1,47 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.MatchAnalysis;
+import com.tony.sportsAnalytics.model.Team;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MatchHistoryIndexTest {
+
+    private static Team team(long id) {
+        Team t = new Team("Team " + id, null);
+        t.setId(id);
+        return t;
+    }
+
+    private static MatchAnalysis match(Team home, Team away, LocalDateTime date) {
+        MatchAnalysis m = new MatchAnalysis();
+        m.setHomeTeam(home);
+        m.setAwayTeam(away);
+        m.setMatchDate(date);
+        return m;
+    }
+
+    @Test
+    @DisplayName("Les tranches sont à date : matchs strictement antérieurs, du plus récent au plus ancien")
+    void shouldSlicePointInTimeHistory() {
+        Team a = team(1), b = team(2), c = team(3);
+        LocalDateTime day = LocalDateTime.of(2024, 8, 17, 15, 0);
+        MatchAnalysis ab1 = match(a, b, day);
+        MatchAnalysis ca = match(c, a, day.plusDays(7));
+        MatchAnalysis ba = match(b, a, day.plusDays(14));
+        MatchAnalysis bc = match(b, c, day.plusDays(21));
+        // Ordre d'insertion volontairement mélangé
+        MatchHistoryIndex index = MatchHistoryIndex.of(List.of(bc, ba, ab1, ca));
+
+        assertThat(index.teamHistory(a, day.plusDays(14))).containsExactly(ca, ab1);
+        assertThat(index.teamHistory(a, null)).containsExactly(ba, ca, ab1);
+        assertThat(index.headToHead(b, a, day.plusDays(30))).containsExactly(ba, ab1);
+        assertThat(index.headToHead(a, b, day)).isEmpty();
+        assertThat(index.teamHistory(team(99), day)).isEmpty();
+    }
+}
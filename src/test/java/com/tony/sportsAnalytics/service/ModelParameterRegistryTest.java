@@ -0,0 +1,65 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.League;
+import com.tony.sportsAnalytics.model.Team;
+import com.tony.sportsAnalytics.repository.LeagueRepository;
+import com.tony.sportsAnalytics.repository.TeamRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ModelParameterRegistryTest {
+
+    private final ModelParameterRegistry registry =
+            new ModelParameterRegistry(mock(LeagueRepository.class), mock(TeamRepository.class));
+
+    @Test
+    @DisplayName("Publication dans une transaction : invisible avant le commit, jamais publiée après un rollback")
+    void shouldPublishOnlyAfterCommit() {
+        League league = new League();
+        league.setId(1L);
+        Team home = team(10L, league, 1.4);
+        Team away = team(11L, league, 0.8);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            registry.publishLeague(league, List.of(home, away));
+            home.setAttackStrength(9.9); // modifié après la publication : la valeur publiée reste celle lue
+            assertThat(registry.current().version()).isZero();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(registry.current().version()).isEqualTo(1);
+        assertThat(registry.current().strengthOf(home).attack()).isEqualTo(1.4);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            registry.publishTeams(away);
+            // Rollback : afterCommit n'est jamais appelé
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(registry.current().version()).isEqualTo(1);
+
+        // Hors transaction : swap immédiat, versions contiguës
+        registry.publishTeams(home);
+        assertThat(registry.current().version()).isEqualTo(2);
+        assertThat(registry.current().strengthOf(home).attack()).isEqualTo(9.9);
+    }
+
+    private static Team team(long id, League league, double attack) {
+        Team team = new Team();
+        team.setId(id);
+        team.setLeague(league);
+        team.setAttackStrength(attack);
+        team.setDefenseStrength(1.0);
+        return team;
+    }
+}
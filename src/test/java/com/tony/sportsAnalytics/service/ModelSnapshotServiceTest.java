@@ -0,0 +1,101 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.League;
+import com.tony.sportsAnalytics.model.Team;
+import com.tony.sportsAnalytics.repository.LeagueRepository;
+import com.tony.sportsAnalytics.repository.TeamRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ModelSnapshotServiceTest {
+
+    private static ModelSnapshotService.ModelFile sample() {
+        ModelSnapshotService.LeagueEntry league = new ModelSnapshotService.LeagueEntry(
+                1L, 1.21, -0.09, 0.55, 0.30, 0.0019, 60.0, 0.08, 30,
+                -8.5, 4.2, "ISOTONIC", new byte[]{1, 2, 3, 4},
+                List.of(new ModelSnapshotService.TeamEntry(7L, 1.4, 0.8, 0.03, 0.02, 1620),
+                        new ModelSnapshotService.TeamEntry(3L, 0.9, Double.NaN, 0.04, 0.04, 1480)));
+        return new ModelSnapshotService.ModelFile(12L, 345L, Instant.ofEpochMilli(1_700_000_000_000L), List.of(league));
+    }
+
+    @Test
+    @DisplayName("Un snapshot relu est identique à celui écrit, équipes triées par id")
+    void shouldRoundTrip() {
+        ModelSnapshotService.ModelFile decoded = ModelSnapshotService.decode(ByteBuffer.wrap(ModelSnapshotService.encode(sample())));
+
+        assertThat(decoded.id()).isEqualTo(12L);
+        assertThat(decoded.registryVersion()).isEqualTo(345L);
+        ModelSnapshotService.LeagueEntry league = decoded.leagues().getFirst();
+        assertThat(league.rho()).isEqualTo(-0.09);
+        assertThat(league.calibrationMethod()).isEqualTo("ISOTONIC");
+        assertThat(league.calibrationTable()).containsExactly(1, 2, 3, 4);
+        assertThat(league.teams()).extracting(ModelSnapshotService.TeamEntry::id).containsExactly(3L, 7L);
+        assertThat(league.teams().getFirst().defense()).isNaN();
+        assertThat(league.teams().getLast().elo()).isEqualTo(1620);
+    }
+
+    @Test
+    @DisplayName("Un fichier corrompu ou tronqué est rejeté")
+    void shouldRejectCorruptFiles() {
+        byte[] bytes = ModelSnapshotService.encode(sample());
+        byte[] corrupt = bytes.clone();
+        corrupt[60] ^= 0x10;
+
+        assertThatThrownBy(() -> ModelSnapshotService.decode(ByteBuffer.wrap(corrupt)))
+                .hasMessageContaining("Checksum");
+        assertThatThrownBy(() -> ModelSnapshotService.decode(ByteBuffer.wrap(bytes, 0, bytes.length - 10).slice()))
+                .hasMessageContaining("tronqué");
+    }
+
+    @Test
+    @DisplayName("Rollback d'une équipe sans variances (antérieure au filtre) : valeur par défaut restaurée, jamais NaN")
+    void shouldRestoreNullVariancesOnRollback(@TempDir Path dir) {
+        League league = new League();
+        league.setId(1L);
+        league.setRho(-0.1);
+        Team team = new Team();
+        team.setId(7L);
+        team.setLeague(league);
+        team.setAttackStrength(1.3);
+        team.setDefenseStrength(0.9);
+        team.setAttackVariance(null);
+        team.setDefenseVariance(null);
+
+        LeagueRepository leagueRepository = mock(LeagueRepository.class);
+        TeamRepository teamRepository = mock(TeamRepository.class);
+        OnlineRatingService onlineRatingService = mock(OnlineRatingService.class);
+        when(leagueRepository.findAll()).thenReturn(List.of(league));
+        when(leagueRepository.findAllById(any())).thenReturn(List.of(league));
+        when(teamRepository.findAll()).thenReturn(List.of(team));
+        ModelSnapshotService service = new ModelSnapshotService(leagueRepository, teamRepository,
+                new ModelParameterRegistry(leagueRepository, teamRepository), onlineRatingService);
+        ReflectionTestUtils.setField(service, "snapshotDir", dir.toString());
+        ReflectionTestUtils.setField(service, "retain", 50);
+
+        long id = service.exportSnapshot().id();
+        team.setAttackStrength(2.0);
+        team.setAttackVariance(0.05);
+        team.setDefenseVariance(0.05);
+        service.rollbackTo(id);
+
+        assertThat(team.getAttackStrength()).isEqualTo(1.3);
+        assertThat(team.getAttackVariance()).isEqualTo(OnlineRatingService.ANCHOR_VARIANCE);
+        assertThat(team.getDefenseVariance()).isEqualTo(OnlineRatingService.ANCHOR_VARIANCE);
+        assertThat(league.getRho()).isEqualTo(-0.1);
+        verify(onlineRatingService).restore(List.of(team));
+    }
+}
@@ -0,0 +1,52 @@
+package com.tony.sportsAnalytics.service;
+
+import com.tony.sportsAnalytics.model.Team;
+import com.tony.sportsAnalytics.repository.LeagueRepository;
+import com.tony.sportsAnalytics.repository.TeamRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+
+class OnlineRatingServiceTest {
+
+    private final OnlineRatingService service = new OnlineRatingService(
+            new ModelParameterRegistry(mock(LeagueRepository.class), mock(TeamRepository.class)));
+
+    @Test
+    @DisplayName("Ré-ancrage dans une transaction : filtre inchangé avant le commit et après un rollback")
+    void shouldReanchorOnlyAfterCommit() {
+        Team team = new Team();
+        team.setId(5L);
+        team.setAttackStrength(1.2);
+        team.setDefenseStrength(0.9);
+        service.restore(List.of(team)); // hors transaction : immédiat
+
+        team.setAttackStrength(1.6);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.reanchor(List.of(team));
+            // Rollback : afterCommit n'est jamais appelé
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(service.strengthOf(team).attack()).isCloseTo(1.2, within(1e-9));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            service.reanchor(List.of(team));
+            team.setAttackStrength(9.9); // modifié après l'appel : la valeur appliquée reste celle lue
+            assertThat(service.strengthOf(team).attack()).isCloseTo(1.2, within(1e-9));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        assertThat(service.strengthOf(team).attack()).isCloseTo(1.6, within(1e-9));
+    }
+}
@@ -0,0 +1,180 @@
+package com.tony.sportsAnalytics.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboundHttpClientTest {
+
+    private HttpServer server;
+    private String base;
+    private final AtomicInteger flakyCalls = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        // Deux 503 (avec Retry-After) puis la réponse
+        server.createContext("/flaky", exchange -> {
+            if (flakyCalls.incrementAndGet() <= 2) {
+                exchange.getResponseHeaders().add("Retry-After", "0");
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            respond(exchange, "ok".getBytes(StandardCharsets.UTF_8));
+        });
+        server.createContext("/gzip", exchange -> {
+            assertThat(exchange.getRequestHeaders().getFirst("Accept-Encoding")).contains("gzip");
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write("Div,Date\nE0,16/08/2024\n".getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            respond(exchange, compressed.toByteArray());
+        });
+        server.createContext("/slow", exchange -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(150);
+                respond(exchange, "slow".getBytes(StandardCharsets.UTF_8));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+        // Redirection vers un autre hôte (même serveur, joint par "localhost")
+        server.createContext("/moved", exchange -> {
+            exchange.getResponseHeaders().add("Location", "http://localhost:" + server.getAddress().getPort() + "/gzip");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        server.createContext("/loop", exchange -> {
+            exchange.getResponseHeaders().add("Location", "/loop");
+            exchange.sendResponseHeaders(301, -1);
+            exchange.close();
+        });
+        server.createContext("/missing", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    @DisplayName("Statuts transitoires réessayés, corps gzip décompressé, 404 non réessayé et compté en échec")
+    void shouldRetryTransientErrorsAndDecodeGzip() throws Exception {
+        OutboundHttpClient http = new OutboundHttpClient(2_000, 5_000, 3, 10, 4, "", "", "");
+
+        assertThat(new String(http.get(base + "/flaky"), StandardCharsets.UTF_8)).isEqualTo("ok");
+        assertThat(flakyCalls.get()).isEqualTo(3);
+        assertThat(http.getString(base + "/gzip", null)).startsWith("Div,Date");
+        assertThatThrownBy(() -> http.get(base + "/missing")).hasMessageContaining("HTTP 404");
+
+        OutboundHttpClient.HostSnapshot host = http.snapshot().getFirst();
+        assertThat(host.host()).isEqualTo("127.0.0.1");
+        assertThat(host.requests()).isEqualTo(5);
+        assertThat(host.retries()).isEqualTo(2);
+        assertThat(host.failures()).isEqualTo(1);
+        assertThat(host.trustAll()).isFalse();
+        assertThat(host.p95Ms()).isLessThanOrEqualTo(host.maxMs());
+    }
+
+    @Test
+    @DisplayName("Nombre de tentatives réglable par hôte (http.client.host-attempts) : une seule pour les appels facturés")
+    void shouldHonourPerHostAttempts() throws Exception {
+        OutboundHttpClient http = new OutboundHttpClient(2_000, 5_000, 3, 10, 4, "", "127.0.0.1=1", "");
+
+        assertThat(http.send(base + "/flaky", Map.of(), null).status()).isEqualTo(503);
+        assertThat(flakyCalls.get()).isEqualTo(1);
+        assertThat(http.snapshot().getFirst().retries()).isZero();
+    }
+
+    @Test
+    @DisplayName("Requêtes simultanées bornées par hôte (http.client.host-limits)")
+    void shouldLimitConcurrencyPerHost() throws Exception {
+        OutboundHttpClient http = new OutboundHttpClient(2_000, 5_000, 1, 10, 8, "127.0.0.1=2", "", "127.0.0.1");
+
+        List<Future<byte[]>> calls = new ArrayList<>();
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 6; i++) calls.add(callers.submit(() -> http.get(base + "/slow")));
+        }
+        for (Future<byte[]> call : calls) assertThat(call.get()).hasSize(4);
+
+        assertThat(maxInFlight.get()).isEqualTo(2);
+        assertThat(http.snapshot().getFirst()).satisfies(host -> {
+            assertThat(host.maxConcurrent()).isEqualTo(2);
+            assertThat(host.trustAll()).isTrue();
+            assertThat(host.inFlight()).isZero();
+        });
+    }
+
+    @Test
+    @DisplayName("Redirections suivies saut par saut : client et compteurs choisis selon l'hôte de chaque saut, boucle bornée")
+    void shouldFollowRedirectsPerHop() throws Exception {
+        OutboundHttpClient http = new OutboundHttpClient(2_000, 5_000, 1, 10, 4, "", "", "127.0.0.1");
+
+        assertThat(http.getString(base + "/moved", null)).startsWith("Div,Date");
+        assertThatThrownBy(() -> http.get(base + "/loop")).hasMessageContaining("HTTP 301");
+
+        assertThat(http.snapshot()).extracting(OutboundHttpClient.HostSnapshot::host).containsExactly("127.0.0.1", "localhost");
+        assertThat(http.snapshot()).satisfiesExactly(
+                insecure -> {
+                    // 1 saut de /moved + 6 sauts de /loop (5 suivis, le dernier renvoyé)
+                    assertThat(insecure.trustAll()).isTrue();
+                    assertThat(insecure.requests()).isEqualTo(7);
+                    assertThat(insecure.failures()).isZero();
+                },
+                verified -> {
+                    assertThat(verified.trustAll()).isFalse();
+                    assertThat(verified.requests()).isEqualTo(1);
+                });
+    }
+
+    @Test
+    @DisplayName("Attente avant nouvel essai : Retry-After prioritaire, sinon exponentielle avec aléa")
+    void shouldComputeRetryDelay() {
+        OutboundHttpClient http = new OutboundHttpClient(2_000, 5_000, 3, 100, 4, "", "", "");
+        assertThat(http.retryDelayMs(1, "2")).isEqualTo(2_000);
+        assertThat(http.retryDelayMs(1, null)).isBetween(50L, 100L);
+        assertThat(http.retryDelayMs(3, "Wed, 21 Oct 2026 07:28:00 GMT")).isBetween(200L, 400L);
+        assertThat(OutboundHttpClient.parseHostValues("api.scraperapi.com=2, API.example.org = 5,bad"))
+                .containsEntry("api.scraperapi.com", 2).containsEntry("api.example.org", 5).hasSize(2);
+    }
+
+    private static void respond(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.tony.sportsAnalytics.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SeasonArchiveReaderTest {
+
+    private static String season(String div, String date) {
+        return "Div,Date,Time,HomeTeam,AwayTeam,FTHG,FTAG\n" + div + "," + date + ",15:00,A,B,1,0\n" + div + "," + date + ",17:30,C,D,2,2\n";
+    }
+
+    @Test
+    @DisplayName("Répertoire, zip et fichiers à plat sont inventoriés dans l'ordre chronologique")
+    void shouldScanDirectoriesZipsAndFlatFiles(@TempDir Path root) throws IOException {
+        Files.createDirectories(root.resolve("2223"));
+        Files.writeString(root.resolve("2223/E1.csv"), season("E1", "06/08/2022"));
+        Files.writeString(root.resolve("2223/E0.csv"), season("E0", "05/08/2022"));
+        // Saison des années 1990, à plat : déduite de la date (mars 1999 -> 1998-1999)
+        Files.writeString(root.resolve("SC0.csv"), season("SC0", "13/03/99"));
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(root.resolve("data-2122.zip")))) {
+            zip.putNextEntry(new ZipEntry("I1.csv"));
+            zip.write(season("I1", "21/08/2021").getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+
+        List<SeasonArchiveReader.SeasonFile> files = SeasonArchiveReader.scan(root);
+
+        assertThat(files).extracting(f -> f.seasonLabel() + " " + f.division())
+                .containsExactly("1998-1999 SC0", "2021-2022 I1", "2022-2023 E0", "2022-2023 E1");
+        assertThat(SeasonArchiveReader.read(files.get(1))).hasSize(2)
+                .first().satisfies(row -> assertThat(row.getDiv()).isEqualTo("I1"));
+        assertThat(SeasonArchiveReader.read(files.get(3)).get(1).getFTHG()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Le code saison est pris dans le segment de chemin le plus proche du fichier")
+    void shouldResolveSeasonCodeFromPath() {
+        assertThat(SeasonArchiveReader.seasonCodeFromPath("mmz4281/2122/E0.csv")).isEqualTo("2122");
+        assertThat(SeasonArchiveReader.seasonCodeFromPath("archive/9900.zip/D1.csv")).isEqualTo("9900");
+        assertThat(SeasonArchiveReader.seasonCodeFromPath("exports/E0.csv")).isNull();
+        assertThat(SeasonArchiveReader.startYearOf("9900")).isEqualTo(1999);
+    }
+}